@@ -27,9 +27,25 @@ import edu.nyu.cs.javagit.utilities.CheckUtilities;
 import edu.nyu.cs.javagit.api.commands.GitBranch;
 import edu.nyu.cs.javagit.api.commands.GitBranchOptions;
 import edu.nyu.cs.javagit.api.commands.GitBranchResponse;
-import edu.nyu.cs.javagit.api.commands.GitLog;
+import edu.nyu.cs.javagit.api.commands.GitInitOptions;
+import edu.nyu.cs.javagit.api.commands.GitInitResponse;
 import edu.nyu.cs.javagit.api.commands.GitLogOptions;
 import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.api.commands.GitRefTransaction;
+import edu.nyu.cs.javagit.api.commands.GitUpdateRef;
+import edu.nyu.cs.javagit.api.commands.GitUpdateRefResponse;
+import edu.nyu.cs.javagit.api.history.BranchQueries;
+import edu.nyu.cs.javagit.api.history.CommitGraph;
+import edu.nyu.cs.javagit.api.history.CommitStore;
+import edu.nyu.cs.javagit.api.history.CommitTimeIndex;
+import edu.nyu.cs.javagit.api.history.LastCommitWalker;
+import edu.nyu.cs.javagit.api.history.PathIndex;
+import edu.nyu.cs.javagit.api.history.ReachabilityBitmaps;
+import edu.nyu.cs.javagit.client.fs.FsGitInit;
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+import edu.nyu.cs.javagit.client.fs.ObjectWriter;
+import edu.nyu.cs.javagit.client.fs.RefDatabase;
+import edu.nyu.cs.javagit.client.fs.WorkspaceProvisioner;
 
 /**
  * The <code>DotGit</code> represents the .git directory.
@@ -47,6 +63,29 @@ public final class DotGit {
    */
   private final String canonicalPath;
 
+  // The reference database, created on first use; it caches the parsed packed-refs file.
+  private RefDatabase refDatabase;
+
+  // The logs listed for this repository.
+  private final LogCache logCache = new LogCache(this);
+
+  // The commit store of this repository, opened on first use.
+  private CommitStore commitStore;
+
+  // The commit graph and time index of this repository, created on first use.
+  private CommitGraph commitGraph;
+  private CommitTimeIndex commitTimeIndex;
+
+  // The reachability and branch queries of this repository, created on first use.
+  private ReachabilityBitmaps reachabilityBitmaps;
+  private BranchQueries branchQueries;
+
+  // The path index of this repository, opened on first use.
+  private PathIndex pathIndex;
+
+  // Finds the last commit touching the entries of directories; it caches its results.
+  private final LastCommitWalker lastCommitWalker;
+
   /**
    * The constructor. Private because this singleton-ish (per each repository) class is only
    * available via the getInstance method.
@@ -58,6 +97,7 @@ public final class DotGit {
     // TODO (rs2705): Ensure that these arguments are valid (not null, not empty)
     this.path = path;
     this.canonicalPath = canonicalPath;
+    this.lastCommitWalker = new LastCommitWalker(path);
   }
 
   /**
@@ -153,6 +193,59 @@ public final class DotGit {
   public void gitClone(DotGit gitFrom) {
   }
 
+  /**
+   * Provisions a new workspace from this repository. The new repository shares the objects of
+   * this one through <code>objects/info/alternates</code> and gets a copy of its refs only, so it
+   * takes near-zero extra disk space. Depending on the options, the working tree is then fully
+   * checked out, sparsely checked out or not checked out at all. A caller which later deletes the
+   * workspace should drop its scheduler with <code>RepositoryScheduler.remove()</code>.
+   * 
+   * @param destination
+   *          The directory of the new workspace. It must not exist or be an empty directory.
+   * @param options
+   *          The provisioning options. If null, the whole HEAD of this repository is checked out.
+   * @return The <code>DotGit</code> instance for the new workspace.
+   * @throws IOException
+   *           Thrown if this is not a repository or the new repository cannot be written.
+   * @throws JavaGitException
+   *           Thrown if the destination is not empty, the branch does not exist or the checkout
+   *           fails.
+   */
+  public DotGit provisionWorkspace(File destination, WorkspaceOptions options)
+      throws IOException, JavaGitException {
+    WorkspaceProvisioner provisioner = new WorkspaceProvisioner();
+    provisioner.provision(path, destination, options);
+    return getInstance(destination);
+  }
+
+  /**
+   * Creates a writer which stores blobs, trees and commits directly into the object database of
+   * this repository. The writer is not thread-safe.
+   * 
+   * @return A new <code>ObjectWriter</code>.
+   * @throws IOException
+   *           Thrown if this is not a repository.
+   */
+  public ObjectWriter newObjectWriter() throws IOException {
+    return new ObjectWriter(FsUtilities.getGitDirectory(path));
+  }
+
+  /**
+   * Gets the reference database of this repository, used to resolve references and to update them
+   * atomically with <code>RefDatabase.compareAndSet()</code>.
+   * 
+   * @return The <code>RefDatabase</code> of this repository.
+   * @throws IOException
+   *           Thrown if this is not a repository.
+   */
+  public synchronized RefDatabase getRefDatabase() throws IOException {
+    File gitDir = FsUtilities.getGitDirectory(path);
+    if (null == refDatabase || !gitDir.equals(refDatabase.getGitDirectory())) {
+      refDatabase = new RefDatabase(gitDir);
+    }
+    return refDatabase;
+  }
+
   /**
    * Creates a new branch
    * 
@@ -162,10 +255,14 @@ public final class DotGit {
    * @return The new branch
    */
   public Ref createBranch(String name) throws IOException, JavaGitException {
-    Ref newBranch = Ref.createBranchRef(name);
-    GitBranch gitBranch = new GitBranch();
-    gitBranch.createBranch(path, newBranch);
-    return newBranch;
+    final Ref newBranch = Ref.createBranchRef(name);
+    return getScheduler().write(new RepositoryScheduler.Operation<Ref>() {
+      public Ref run() throws IOException, JavaGitException {
+        GitBranch gitBranch = new GitBranch();
+        gitBranch.createBranch(path, newBranch);
+        return newBranch;
+      }
+    });
   }
 
   /**
@@ -181,13 +278,38 @@ public final class DotGit {
    * @throws JavaGitException
    *          Thrown when there is an error executing git-branch.
    */
-  public void deleteBranch(Ref branch, boolean forceDelete) 
+  public void deleteBranch(final Ref branch, final boolean forceDelete) 
     throws IOException, JavaGitException {
-    GitBranch gitBranch = new GitBranch();
-    gitBranch.deleteBranch(path, forceDelete, false, branch);
-    branch = null;
+    getScheduler().write(new RepositoryScheduler.Operation<Object>() {
+      public Object run() throws IOException, JavaGitException {
+        GitBranch gitBranch = new GitBranch();
+        gitBranch.deleteBranch(path, forceDelete, false, branch);
+        return null;
+      }
+    });
   }
   
+  /**
+   * Creates, updates and deletes many refs, e.g. branches and tags, as one atomic transaction:
+   * either all of them are changed, or none is.
+   * 
+   * @param transaction
+   *          The updates to apply.
+   * @return The result of the transaction, for each ref.
+   * @throws IOException
+   *           Thrown in case of I/O operation failure
+   * @throws JavaGitException
+   *           Thrown when git-update-ref cannot be run.
+   */
+  public GitUpdateRefResponse updateRefs(final GitRefTransaction transaction)
+      throws IOException, JavaGitException {
+    return getScheduler().write(new RepositoryScheduler.Operation<GitUpdateRefResponse>() {
+      public GitUpdateRefResponse run() throws IOException, JavaGitException {
+        return new GitUpdateRef().commit(path, transaction);
+      }
+    });
+  }
+
   /**
    * Renames a branch
    * 
@@ -204,12 +326,16 @@ public final class DotGit {
    * @throws JavaGitException
    *          Thrown when there is an error executing git-branch.
    */
-  public Ref renameBranch(Ref branchFrom, String nameTo, boolean forceRename) 
+  public Ref renameBranch(final Ref branchFrom, String nameTo, final boolean forceRename) 
     throws IOException, JavaGitException {
-    Ref newBranch = Ref.createBranchRef(nameTo);
-    GitBranch gitBranch = new GitBranch();
-    gitBranch.renameBranch(path, forceRename, branchFrom, newBranch);
-    return newBranch;
+    final Ref newBranch = Ref.createBranchRef(nameTo);
+    return getScheduler().write(new RepositoryScheduler.Operation<Ref>() {
+      public Ref run() throws IOException, JavaGitException {
+        GitBranch gitBranch = new GitBranch();
+        gitBranch.renameBranch(path, forceRename, branchFrom, newBranch);
+        return newBranch;
+      }
+    });
   }
 
   /**
@@ -218,10 +344,14 @@ public final class DotGit {
    * @return The branches in the repository.
    */
   public Iterator<Ref> getBranches() throws IOException, JavaGitException {
-    GitBranch gitBranch = new GitBranch();
-    GitBranchOptions options = new GitBranchOptions();
-    GitBranchResponse response = gitBranch.branch(path, options);
-    return response.getBranchListIterator();
+    return getScheduler().read(new RepositoryScheduler.Operation<Iterator<Ref>>() {
+      public Iterator<Ref> run() throws IOException, JavaGitException {
+        GitBranch gitBranch = new GitBranch();
+        GitBranchOptions options = new GitBranchOptions();
+        GitBranchResponse response = gitBranch.branch(path, options);
+        return response.getBranchListIterator();
+      }
+    });
   }
 
   @Override
@@ -252,6 +382,151 @@ public final class DotGit {
     return WorkingTree.getInstance(path);
   }
 
+  /**
+   * Gets the scheduler ordering the operations run on this repository. It is shared with the
+   * <code>WorkingTree</code> of the repository.
+   * 
+   * @return The scheduler of this repository.
+   */
+  public RepositoryScheduler getScheduler() {
+    return RepositoryScheduler.getInstance(canonicalPath);
+  }
+
+  /**
+   * Gets the cache of the logs listed for this repository, which answers <code>getLog()</code>.
+   * 
+   * @return The log cache of this repository.
+   */
+  public LogCache getLogCache() {
+    return logCache;
+  }
+
+  /**
+   * Gets the store of the commit metadata of this repository, opened on first use. The store is
+   * brought up to date with <code>CommitStore.update()</code>.
+   * 
+   * @return The commit store of this repository.
+   * @throws IOException
+   *           Thrown if this is not a repository or the store cannot be opened.
+   */
+  public synchronized CommitStore getCommitStore() throws IOException {
+    if (null == commitStore) {
+      commitStore = new CommitStore(FsUtilities.getGitDirectory(path));
+    }
+    return commitStore;
+  }
+
+  /**
+   * Gets the graph of the commits of this repository, created on first use. It is brought up to
+   * date, with the commit store, by <code>CommitGraph.update()</code>.
+   * 
+   * @return The commit graph of this repository.
+   * @throws IOException
+   *           Thrown if this is not a repository or the commit store cannot be opened.
+   */
+  public synchronized CommitGraph getCommitGraph() throws IOException {
+    if (null == commitGraph) {
+      commitGraph = new CommitGraph(getCommitStore());
+    }
+    return commitGraph;
+  }
+
+  /**
+   * Gets the index of the commits of this repository by commit time, created on first use. It is
+   * brought up to date, with the commit graph, by <code>CommitTimeIndex.update()</code>.
+   * 
+   * @return The commit time index of this repository.
+   * @throws IOException
+   *           Thrown if this is not a repository or the commit store cannot be opened.
+   */
+  public synchronized CommitTimeIndex getCommitTimeIndex() throws IOException {
+    if (null == commitTimeIndex) {
+      commitTimeIndex = new CommitTimeIndex(getCommitGraph());
+    }
+    return commitTimeIndex;
+  }
+
+  /**
+   * Gets the reachability queries of this repository, answered with its pack bitmap, created on
+   * first use. They use the commit graph as it is; update it first with
+   * <code>CommitGraph.update()</code>.
+   * 
+   * @return The reachability queries of this repository.
+   * @throws IOException
+   *           Thrown if this is not a repository or the commit store cannot be opened.
+   */
+  public synchronized ReachabilityBitmaps getReachabilityBitmaps() throws IOException {
+    if (null == reachabilityBitmaps) {
+      reachabilityBitmaps = new ReachabilityBitmaps(getCommitGraph());
+    }
+    return reachabilityBitmaps;
+  }
+
+  /**
+   * Gets the branch queries of this repository, created on first use. They use the commit graph
+   * as it is; update it first with <code>CommitGraph.update()</code>.
+   * 
+   * @return The branch queries of this repository.
+   * @throws IOException
+   *           Thrown if this is not a repository or the commit store cannot be opened.
+   */
+  public synchronized BranchQueries getBranchQueries() throws IOException {
+    if (null == branchQueries) {
+      branchQueries = new BranchQueries(getCommitGraph());
+    }
+    return branchQueries;
+  }
+
+  /**
+   * Gets the index of the commits touching each path of this repository, opened on first use. It
+   * is brought up to date, with the commit store, by <code>PathIndex.update()</code>.
+   * 
+   * @return The path index of this repository.
+   * @throws IOException
+   *           Thrown if this is not a repository or the commit store cannot be opened.
+   */
+  public synchronized PathIndex getPathIndex() throws IOException {
+    if (null == pathIndex) {
+      pathIndex = new PathIndex(getCommitStore(), FsUtilities.getGitDirectory(path));
+    }
+    return pathIndex;
+  }
+
+  /**
+   * Gets the walker which finds the last commit touching each entry of a directory of this
+   * repository. Its results are cached.
+   * 
+   * @return The last commit walker of this repository.
+   */
+  public LastCommitWalker getLastCommitWalker() {
+    return lastCommitWalker;
+  }
+
+  /**
+   * Forgets what this instance has derived from the history of the repository: the parsed refs,
+   * the cached logs and directory listings, and the commit store, which is closed, with the graph
+   * and indexes over it. They are created again on next use. <code>RepositoryPool</code> calls
+   * this when it recycles a repository, so that the next lease sees none of the previous one.
+   * 
+   * @throws IOException
+   *           Thrown if the commit store cannot be closed.
+   */
+  synchronized void forgetHistory() throws IOException {
+    refDatabase = null;
+    logCache.clear();
+    lastCommitWalker.clear();
+    CommitStore store = commitStore;
+    commitStore = null;
+    commitGraph = null;
+    commitTimeIndex = null;
+    reachabilityBitmaps = null;
+    branchQueries = null;
+    pathIndex = null;
+    if (null != store) {
+      store.close();
+    }
+  }
+
   @Override
   public int hashCode() {
     return canonicalPath.hashCode();
@@ -259,10 +534,32 @@ public final class DotGit {
 
   /**
    * Initializes Git repository
+   * 
+   * @return The response of the initialization
+   * @throws IOException
+   *          Thrown if the repository skeleton cannot be written
+   * @throws JavaGitException
+   *          Thrown when the repository cannot be initialized
+   */
+  public GitInitResponse init() throws IOException, JavaGitException {
+    return init(null);
+  }
+
+  /**
+   * Initializes Git repository with the given options. The repository skeleton (HEAD, config, the
+   * objects and refs layout) is written directly instead of running git-init.
+   * 
+   * @param options
+   *          The init options (bare, template, shared); may be null
+   * @return The response of the initialization
+   * @throws IOException
+   *          Thrown if the repository skeleton cannot be written
+   * @throws JavaGitException
+   *          Thrown when the repository cannot be initialized
    */
-  public void init() {
-    // TODO (ma1683): Implement this method
-    // GitInit.init();
+  public GitInitResponse init(GitInitOptions options) throws IOException, JavaGitException {
+    FsGitInit gitInit = new FsGitInit();
+    return gitInit.init(path, options);
   }
 
   /**
@@ -306,15 +603,18 @@ public final class DotGit {
   }
 
 	/**
-	 * Show commit logs
+	 * Show commit logs. Logs are kept in the <code>LogCache</code> of the repository.
 	 * 
 	 * @return List of commits for the working directory
 	 * @throws IOException 
 	 * @throws JavaGitException 
 	 */
 	public List<Commit> getLog() throws JavaGitException, IOException {
-		GitLog gitLog = new GitLog();
-		return gitLog.log(this.getPath());
+		return getScheduler().read(new RepositoryScheduler.Operation<List<Commit>>() {
+			public List<Commit> run() throws IOException, JavaGitException {
+				return logCache.getLog(null);
+			}
+		});
 	}
 
 	/**
@@ -324,9 +624,12 @@ public final class DotGit {
 	 * @throws JavaGitException
 	 * @throws IOException
 	 */
-	public List<Commit> getLog(GitLogOptions options) throws JavaGitException, IOException {
-		GitLog gitLog = new GitLog();		
-		return gitLog.log(this.getPath(),options);
+	public List<Commit> getLog(final GitLogOptions options) throws JavaGitException, IOException {
+		return getScheduler().read(new RepositoryScheduler.Operation<List<Commit>>() {
+			public List<Commit> run() throws IOException, JavaGitException {
+				return logCache.getLog(options);
+			}
+		});
 	}
 
 }
@@ -18,6 +18,7 @@ package edu.nyu.cs.javagit.api;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import java.io.File;
 import java.io.IOException;
 
@@ -104,4 +105,25 @@ public class GitDirectory extends GitFileSystemObject {
 		GitLog gitLog = new GitLog();		
 		return gitLog.log(this.file,options);
 	}
+
+	/**
+	 * Finds the last commit on the current branch which touched each entry of this directory, in a
+	 * single walk of the history. Results are cached by the last commit which touched the directory.
+	 * 
+	 * @return The last commit which touched each entry, by entry name, sorted by name. Entries which
+	 *         are not committed are left out.
+	 * @throws IOException
+	 *           Thrown if there is an error running git.
+	 * @throws JavaGitException
+	 *           Thrown if the directory is not part of the current commit.
+	 */
+	public Map<String, Commit> getLastCommits() throws IOException, JavaGitException {
+		return workingTree.getScheduler().read(
+				new RepositoryScheduler.Operation<Map<String, Commit>>() {
+					public Map<String, Commit> run() throws IOException, JavaGitException {
+						return workingTree.getDotGit().getLastCommitWalker().getLastCommits("HEAD",
+								getPathInRepository());
+					}
+				});
+	}
 }
@@ -18,12 +18,14 @@ package edu.nyu.cs.javagit.api;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import edu.nyu.cs.javagit.api.commands.GitLog;
 import edu.nyu.cs.javagit.api.commands.GitLogOptions;
 import edu.nyu.cs.javagit.api.commands.GitStatus;
 import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.api.history.CommitStore;
 
 /**
  * <code>GitFile</code> a file object in a git working tree.
@@ -58,9 +60,13 @@ public class GitFile extends GitFileSystemObject {
    * @return Object's status in the working directory (untracked, changed but not updated, etc).
    */
   public Status getStatus() throws IOException, JavaGitException {
-    GitStatus gitStatus = new GitStatus();
-    // run git-status command
-    return gitStatus.getFileStatus(workingTree.getPath(), relativePath);
+    return workingTree.getScheduler().read(new RepositoryScheduler.Operation<Status>() {
+      public Status run() throws IOException, JavaGitException {
+        GitStatus gitStatus = new GitStatus();
+        // run git-status command
+        return gitStatus.getFileStatus(workingTree.getPath(), relativePath);
+      }
+    });
   }
 
   /**
@@ -90,4 +96,61 @@ public class GitFile extends GitFileSystemObject {
 		return gitLog.log(this.file,options);
 	}
 
+	/**
+	 * Gets the history of this file on the current branch, following renames, from the path index
+	 * of the repository. The index is brought up to date first, so only the commits made since it
+	 * was last used are read.
+	 * 
+	 * @return The commits which touched this file, newest first.
+	 * @throws IOException
+	 *           Thrown if the index cannot be read or updated.
+	 * @throws JavaGitException
+	 *           Thrown if git fails while updating the index.
+	 */
+	public List<Commit> getHistory() throws IOException, JavaGitException {
+		return workingTree.getScheduler().read(new RepositoryScheduler.Operation<List<Commit>>() {
+			public List<Commit> run() throws IOException, JavaGitException {
+				DotGit dotGit = workingTree.getDotGit();
+				String head = updatePathIndex(dotGit);
+				List<Commit> history = new ArrayList<Commit>();
+				if (null != head) {
+					CommitStore store = dotGit.getCommitStore();
+					for (int position : dotGit.getPathIndex().getHistory(getPathInRepository(), head, true)) {
+						history.add(store.getCommit(position));
+					}
+				}
+				return history;
+			}
+		});
+	}
+
+	/**
+	 * Gets the last commit on the current branch which modified this file, from the path index of
+	 * the repository.
+	 * 
+	 * @return The commit, or null if no commit touched this file.
+	 * @throws IOException
+	 *           Thrown if the index cannot be read or updated.
+	 * @throws JavaGitException
+	 *           Thrown if git fails while updating the index.
+	 */
+	public Commit getLastCommit() throws IOException, JavaGitException {
+		return workingTree.getScheduler().read(new RepositoryScheduler.Operation<Commit>() {
+			public Commit run() throws IOException, JavaGitException {
+				DotGit dotGit = workingTree.getDotGit();
+				String head = updatePathIndex(dotGit);
+				int position = (null == head) ? -1 : dotGit.getPathIndex().getLastCommit(
+						getPathInRepository(), head);
+				return (position < 0) ? null : dotGit.getCommitStore().getCommit(position);
+			}
+		});
+	}
+
+	// Brings the path index up to date with HEAD and returns the id HEAD resolves to.
+	private static String updatePathIndex(DotGit dotGit) throws IOException, JavaGitException {
+		String head = dotGit.getRefDatabase().resolve("HEAD");
+		dotGit.getPathIndex().update();
+		return head;
+	}
+
 }
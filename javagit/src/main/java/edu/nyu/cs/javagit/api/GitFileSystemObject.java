@@ -171,6 +171,14 @@ public abstract class GitFileSystemObject {
    * @return response from git add
    */
   public GitAddResponse add() throws IOException, JavaGitException {
+    return workingTree.getScheduler().write(new RepositoryScheduler.Operation<GitAddResponse>() {
+      public GitAddResponse run() throws IOException, JavaGitException {
+        return addInternal();
+      }
+    });
+  }
+
+  private GitAddResponse addInternal() throws IOException, JavaGitException {
     GitAdd gitAdd = new GitAdd();
 
     // create a list of filenames and add yourself to it
@@ -200,9 +208,19 @@ public abstract class GitFileSystemObject {
    * 
    * @return response from git commit
    */
-  public GitCommitResponse commit(String comment) throws IOException, JavaGitException {
+  public GitCommitResponse commit(final String comment) throws IOException, JavaGitException {
+    RepositoryScheduler scheduler = workingTree.getScheduler();
+    return scheduler.write(new RepositoryScheduler.Operation<GitCommitResponse>() {
+      public GitCommitResponse run() throws IOException, JavaGitException {
+        return commitInternal(comment);
+      }
+    });
+  }
+
+  private GitCommitResponse commitInternal(String comment) throws IOException,
+      JavaGitException {
     // first add the file
-    add();
+    addInternal();
 
     // create a list of filenames and add yourself to it
     List<File> list = new ArrayList<File>();
@@ -220,7 +238,15 @@ public abstract class GitFileSystemObject {
    * 
    * @return response from git mv
    */
-  public GitMvResponse mv(File dest) throws IOException, JavaGitException {
+  public GitMvResponse mv(final File dest) throws IOException, JavaGitException {
+    return workingTree.getScheduler().write(new RepositoryScheduler.Operation<GitMvResponse>() {
+      public GitMvResponse run() throws IOException, JavaGitException {
+        return mvInternal(dest);
+      }
+    });
+  }
+
+  private GitMvResponse mvInternal(File dest) throws IOException, JavaGitException {
     // source; current location (relative)
     File source = relativePath;
     //get relative path for destination
@@ -243,10 +269,14 @@ public abstract class GitFileSystemObject {
    * @return response from git rm
    */
   public GitRmResponse rm() throws IOException, JavaGitException {
-    GitRm gitRm = new GitRm();
+    return workingTree.getScheduler().write(new RepositoryScheduler.Operation<GitRmResponse>() {
+      public GitRmResponse run() throws IOException, JavaGitException {
+        GitRm gitRm = new GitRm();
 
-    // run git rm command
-    return gitRm.rm(workingTree.getPath(), relativePath);
+        // run git rm command
+        return gitRm.rm(workingTree.getPath(), relativePath);
+      }
+    });
   }
 
   /**
@@ -283,6 +313,19 @@ public abstract class GitFileSystemObject {
   }
 
   
+  /**
+   * Gets the path of this object relative to the root of the working tree, with "/" separators,
+   * as git and the history indexes name paths.
+   * 
+   * @return The path; "" for the root of the working tree.
+   */
+  protected String getPathInRepository() {
+    if (file.getAbsoluteFile().equals(workingTree.getPath().getAbsoluteFile())) {
+      return "";
+    }
+    return relativePath.getPath().replace(File.separatorChar, '/');
+  }
+
   /**
    * Return the <code>WorkingTree</code> this object is in
    * 
@@ -0,0 +1,643 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import edu.nyu.cs.javagit.client.cli.ProcessUtilities;
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+import edu.nyu.cs.javagit.client.fs.ObjectWriter;
+import edu.nyu.cs.javagit.client.fs.PersonIdent;
+import edu.nyu.cs.javagit.client.fs.RefDatabase;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>GroupCommitter</code> turns many small, independent changes submitted concurrently to the
+ * same branch into few commits. Changes arriving within a short window, or up to a maximum batch
+ * size, are committed together on a background thread: either as one commit per change, chained
+ * linearly, or squashed into a single commit. Each submitter gets a <code>Future</code> completed
+ * with the id of the commit containing its change.
+ * 
+ * Commits are built with <code>ObjectWriter</code> and the branch is moved with
+ * <code>RefDatabase.compareAndSet()</code>, so neither the index nor the working tree are used or
+ * updated. If the branch is moved by someone else in the meantime, the batch is rebuilt on top of
+ * the new tip.
+ */
+public final class GroupCommitter {
+
+  // The number of times a batch is rebuilt when the branch moves under it.
+  private static final int MAX_ATTEMPTS = 5;
+
+  // How long to wait the first time the branch is locked by another writer, in milliseconds;
+  // the wait doubles each further time.
+  private static final long LOCK_BACKOFF = 10;
+
+  // The number of times to wait for a locked branch, which do not count as attempts.
+  private static final int MAX_LOCK_WAITS = 8;
+
+  // The repository.
+  private final DotGit dotGit;
+
+  // The full name of the branch, e.g. "refs/heads/master".
+  private final String refName;
+
+  // The name and email used as committer, and as author of changes without one.
+  private final PersonIdent committer;
+
+  // The maximum number of changes in a batch.
+  private final int maxBatchSize;
+
+  // How long the first change of a batch waits for others, in milliseconds.
+  private final long window;
+
+  // True to make a single commit per batch, false for one commit per change.
+  private final boolean squash;
+
+  // The changes waiting to be committed.
+  private final LinkedList<PendingChange> pending = new LinkedList<PendingChange>();
+
+  // The arrival time of the oldest pending change.
+  private long batchStart = 0;
+
+  private boolean closed = false;
+
+  // The tree of the tip the last batch was built on, by path; reused if the tip did not move.
+  private String seededTip = null;
+  private Map<String, ObjectWriter.TreeEntry> seededEntries = null;
+
+  // The metrics.
+  private long batchCount = 0;
+  private long commitCount = 0;
+  private long changeCount = 0;
+
+  // The thread committing the batches.
+  private final Thread worker;
+
+  /**
+   * Creates a group committer and starts its background thread.
+   * 
+   * @param dotGit
+   *          The repository. If null, a <code>NullPointerException</code> is thrown.
+   * @param branch
+   *          The branch to commit to, as a short name ("master") or a full reference name
+   *          ("refs/heads/master"). The branch is created if it does not exist.
+   * @param committer
+   *          The committer of the commits, also used as author of changes without one. Only its
+   *          name and email are used; the time is that of the commit.
+   * @param maxBatchSize
+   *          The maximum number of changes committed together. It must be greater than zero.
+   * @param window
+   *          How long the first change of a batch waits for others to join it.
+   * @param unit
+   *          The unit of <code>window</code>.
+   * @param squash
+   *          True to commit each batch as a single commit, false to make one commit per change.
+   */
+  public GroupCommitter(DotGit dotGit, String branch, PersonIdent committer, int maxBatchSize,
+      long window, TimeUnit unit, boolean squash) {
+    CheckUtilities.checkNullArgument(dotGit, "dotGit");
+    CheckUtilities.checkStringArgument(branch, "branch");
+    CheckUtilities.checkNullArgument(committer, "committer");
+    CheckUtilities.checkIntArgumentGreaterThan(maxBatchSize, 0, "maxBatchSize");
+    CheckUtilities.checkNullArgument(unit, "unit");
+
+    this.dotGit = dotGit;
+    this.refName = branch.startsWith("refs/") ? branch : "refs/heads/" + branch;
+    this.committer = committer;
+    this.maxBatchSize = maxBatchSize;
+    this.window = Math.max(0, unit.toMillis(window));
+    this.squash = squash;
+    this.worker = new Thread("javagit-group-commit") {
+      @Override
+      public void run() {
+        work();
+      }
+    };
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * Submits a change to be committed with the next batch.
+   * 
+   * @param change
+   *          The change. It must not be modified after it is submitted.
+   * @return A future completed with the id of the commit containing the change, or with the
+   *         exception which prevented it from being committed.
+   * @throws JavaGitException
+   *           Thrown if the committer is closed.
+   */
+  public Future<String> submit(Change change) throws JavaGitException {
+    CheckUtilities.checkNullArgument(change, "change");
+    PendingChange pendingChange = new PendingChange(change);
+    synchronized (this) {
+      if (closed) {
+        throw new JavaGitException(100300, ExceptionMessageMap.getMessage("100300"));
+      }
+      if (pending.isEmpty()) {
+        batchStart = System.currentTimeMillis();
+      }
+      pending.add(pendingChange);
+      notifyAll();
+    }
+    return pendingChange;
+  }
+
+  /**
+   * Commits the pending changes and stops the background thread. Changes can no longer be
+   * submitted.
+   */
+  public void close() {
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    boolean interrupted = false;
+    while (worker.isAlive()) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Gets the number of batches committed.
+   * 
+   * @return The number of batches.
+   */
+  public synchronized long getBatchCount() {
+    return batchCount;
+  }
+
+  /**
+   * Gets the number of commits made.
+   * 
+   * @return The number of commits.
+   */
+  public synchronized long getCommitCount() {
+    return commitCount;
+  }
+
+  /**
+   * Gets the number of changes committed.
+   * 
+   * @return The number of changes.
+   */
+  public synchronized long getChangeCount() {
+    return changeCount;
+  }
+
+  /*
+   * The loop of the background thread: waits for a batch to fill up or its window to pass, then
+   * commits it.
+   */
+  private void work() {
+    while (true) {
+      List<PendingChange> batch = new ArrayList<PendingChange>();
+      synchronized (this) {
+        while (true) {
+          if (pending.size() >= maxBatchSize || (closed && !pending.isEmpty())) {
+            break;
+          }
+          if (pending.isEmpty()) {
+            if (closed) {
+              return;
+            }
+            waitFor(0);
+            continue;
+          }
+          long toWait = batchStart + window - System.currentTimeMillis();
+          if (toWait <= 0) {
+            break;
+          }
+          waitFor(toWait);
+        }
+        while (batch.size() < maxBatchSize && !pending.isEmpty()) {
+          PendingChange change = pending.removeFirst();
+          if (change.start()) {
+            batch.add(change);
+          }
+        }
+        batchStart = System.currentTimeMillis();
+      }
+      if (!batch.isEmpty()) {
+        commitBatch(batch);
+      }
+    }
+  }
+
+  private void waitFor(long millis) {
+    try {
+      wait(millis);
+    } catch (InterruptedException e) {
+      // Only close() stops the worker.
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      // Only close() stops the worker.
+    }
+  }
+
+  /*
+   * Commits a batch, rebuilding it on top of the new tip if the branch moved in the meantime. A
+   * branch locked by another writer is waited for, backing off, before trying again.
+   */
+  private void commitBatch(List<PendingChange> batch) {
+    try {
+      File gitDir = FsUtilities.getGitDirectory(dotGit.getPath());
+      ObjectWriter writer = new ObjectWriter(gitDir);
+      RefDatabase refDatabase = dotGit.getRefDatabase();
+
+      int lockWaits = 0;
+      for (int attempt = 0; attempt < MAX_ATTEMPTS;) {
+        String tip = refDatabase.resolve(refName);
+        Map<String, ObjectWriter.TreeEntry> entries = getTree(tip);
+        List<PendingChange> committed = new ArrayList<PendingChange>();
+        List<String> commitIds = new ArrayList<String>();
+        String head = buildCommits(writer, tip, entries, batch, committed, commitIds);
+        if (committed.isEmpty()) {
+          return;
+        }
+
+        RefDatabase.Result result = refDatabase.compareAndSet(refName, tip, head);
+        if (RefDatabase.Result.UPDATED == result) {
+          synchronized (this) {
+            seededTip = head;
+            seededEntries = entries;
+            batchCount++;
+            commitCount += squash ? 1 : committed.size();
+            changeCount += committed.size();
+          }
+          for (int i = 0; i < committed.size(); i++) {
+            committed.get(i).complete(commitIds.get(i), null);
+          }
+          return;
+        }
+        // The branch moved or is being updated; rebuild on top of whatever it points to now.
+        batch = committed;
+        if (RefDatabase.Result.LOCK_FAILURE == result && lockWaits < MAX_LOCK_WAITS) {
+          sleep(LOCK_BACKOFF << lockWaits++);
+        } else {
+          attempt++;
+        }
+      }
+      throw new IOException(ExceptionMessageMap.getMessage("020006") + "  { ref=[" + refName
+          + "], attempts=[" + MAX_ATTEMPTS + "] }");
+    } catch (Throwable t) {
+      synchronized (this) {
+        seededTip = null;
+        seededEntries = null;
+      }
+      for (PendingChange change : batch) {
+        change.complete(null, t);
+      }
+    }
+  }
+
+  /*
+   * Writes the commits of a batch on top of the given tip and returns the id of the last one. The
+   * changes which were committed are added to <code>committed</code>, together with the id of the
+   * commit of each; changes which cannot be applied are failed and left out. On return,
+   * <code>entries</code> holds the tree of the last commit.
+   */
+  private String buildCommits(ObjectWriter writer, String tip,
+      Map<String, ObjectWriter.TreeEntry> entries, List<PendingChange> batch,
+      List<PendingChange> committed, List<String> commitIds) throws IOException {
+    String head = tip;
+    StringBuffer squashedMessage = new StringBuffer();
+    PersonIdent squashedAuthor = null;
+    for (PendingChange pendingChange : batch) {
+      Change change = pendingChange.change;
+      Map<String, ObjectWriter.TreeEntry> changed =
+          new HashMap<String, ObjectWriter.TreeEntry>(entries);
+      String treeId;
+      try {
+        change.applyTo(writer, changed);
+        treeId = writer.writeTree(changed);
+      } catch (IllegalArgumentException e) {
+        // This change conflicts with the tree; the others can still be committed.
+        pendingChange.complete(null, e);
+        continue;
+      }
+      entries.clear();
+      entries.putAll(changed);
+      committed.add(pendingChange);
+
+      PersonIdent author = (null != change.author) ? change.author : now(committer);
+      if (squash) {
+        if (squashedMessage.length() > 0) {
+          squashedMessage.append('\n');
+        }
+        squashedMessage.append(change.message);
+        if (!change.message.endsWith("\n")) {
+          squashedMessage.append('\n');
+        }
+        squashedAuthor = (null == squashedAuthor) ? author : squashedAuthor;
+      } else {
+        head = writer.writeCommit(treeId, parents(head), author, now(committer), change.message);
+        commitIds.add(head);
+      }
+    }
+    if (squash && !committed.isEmpty()) {
+      if (committed.size() > 1) {
+        squashedAuthor = now(committer);
+      }
+      String treeId = writer.writeTree(entries);
+      head = writer.writeCommit(treeId, parents(tip), squashedAuthor, now(committer),
+          squashedMessage.toString());
+      for (int i = 0; i < committed.size(); i++) {
+        commitIds.add(head);
+      }
+    }
+    return head;
+  }
+
+  /*
+   * Gets a copy of the tree of a commit, by path; the tree the last batch was built on is reused
+   * if the branch did not move since.
+   */
+  private Map<String, ObjectWriter.TreeEntry> getTree(String tip) throws IOException,
+      JavaGitException {
+    Map<String, ObjectWriter.TreeEntry> entries = new HashMap<String, ObjectWriter.TreeEntry>();
+    if (null == tip) {
+      return entries;
+    }
+    synchronized (this) {
+      if (tip.equals(seededTip) && null != seededEntries) {
+        entries.putAll(seededEntries);
+        return entries;
+      }
+    }
+
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    command.add("ls-tree");
+    command.add("-r");
+    command.add("-z");
+    command.add("--full-tree");
+    command.add(tip);
+    for (String record : ProcessUtilities.runRecordCommand(dotGit.getPath(), command)) {
+      // <mode> SP <type> SP <id> TAB <path>
+      int tab = record.indexOf('\t');
+      String[] fields = record.substring(0, tab).split(" ");
+      entries.put(record.substring(tab + 1), new ObjectWriter.TreeEntry(Integer.parseInt(
+          fields[0], 8), fields[2]));
+    }
+    return entries;
+  }
+
+  private static List<String> parents(String head) {
+    List<String> parents = new ArrayList<String>(1);
+    if (null != head) {
+      parents.add(head);
+    }
+    return parents;
+  }
+
+  private static PersonIdent now(PersonIdent ident) {
+    return new PersonIdent(ident.getName(), ident.getEmail());
+  }
+
+  /**
+   * A change to commit: files to write and paths to delete, relative to the root of the tree and
+   * using '/' as the separator, with a commit message and an optional author.
+   */
+  public static final class Change {
+
+    // The contents to write, by path; a null content deletes the path.
+    private final Map<String, byte[]> contents = new LinkedHashMap<String, byte[]>();
+
+    // The modes of the written files, by path.
+    private final Map<String, Integer> modes = new HashMap<String, Integer>();
+
+    private final String message;
+
+    private PersonIdent author;
+
+    /**
+     * Creates an empty change.
+     * 
+     * @param message
+     *          The commit message of the change. If null, a <code>NullPointerException</code> is
+     *          thrown.
+     */
+    public Change(String message) {
+      CheckUtilities.checkNullArgument(message, "message");
+      this.message = message;
+    }
+
+    /**
+     * Writes a regular file.
+     * 
+     * @param path
+     *          The path of the file.
+     * @param content
+     *          The contents of the file.
+     * @return This change.
+     */
+    public Change put(String path, byte[] content) {
+      return put(path, ObjectWriter.MODE_FILE, content);
+    }
+
+    /**
+     * Writes a file with the given mode.
+     * 
+     * @param path
+     *          The path of the file.
+     * @param mode
+     *          The mode of the file, e.g. <code>ObjectWriter.MODE_EXECUTABLE</code>.
+     * @param content
+     *          The contents of the file.
+     * @return This change.
+     */
+    public Change put(String path, int mode, byte[] content) {
+      CheckUtilities.checkStringArgument(path, "path");
+      CheckUtilities.checkNullArgument(content, "content");
+      contents.put(path, content);
+      modes.put(path, Integer.valueOf(mode));
+      return this;
+    }
+
+    /**
+     * Deletes a file, or a directory and everything below it.
+     * 
+     * @param path
+     *          The path to delete.
+     * @return This change.
+     */
+    public Change delete(String path) {
+      CheckUtilities.checkStringArgument(path, "path");
+      contents.put(path, null);
+      modes.remove(path);
+      return this;
+    }
+
+    /**
+     * Sets the author of the change. By default, the committer is the author.
+     * 
+     * @param author
+     *          The author; only its name and email are used if the change is squashed with others.
+     * @return This change.
+     */
+    public Change setAuthor(PersonIdent author) {
+      this.author = author;
+      return this;
+    }
+
+    /**
+     * Gets the commit message of the change.
+     * 
+     * @return The message.
+     */
+    public String getMessage() {
+      return message;
+    }
+
+    /*
+     * Writes the blobs of this change and applies it to the entries of a tree.
+     */
+    void applyTo(ObjectWriter writer, Map<String, ObjectWriter.TreeEntry> entries)
+        throws IOException {
+      for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+        String path = entry.getKey();
+        if (null == entry.getValue()) {
+          entries.remove(path);
+          String prefix = path + "/";
+          for (Iterator<String> it = entries.keySet().iterator(); it.hasNext();) {
+            if (it.next().startsWith(prefix)) {
+              it.remove();
+            }
+          }
+        } else {
+          String id = writer.writeBlob(entry.getValue());
+          entries.put(path, new ObjectWriter.TreeEntry(modes.get(path).intValue(), id));
+        }
+      }
+    }
+  }
+
+  /*
+   * A submitted change and the future of its commit id.
+   */
+  private static final class PendingChange implements Future<String> {
+
+    private final Change change;
+
+    private boolean started = false;
+    private boolean cancelled = false;
+    private boolean done = false;
+    private String commitId;
+    private Throwable failure;
+
+    PendingChange(Change change) {
+      this.change = change;
+    }
+
+    /*
+     * Marks the change as taken into a batch; returns false if it was cancelled before.
+     */
+    synchronized boolean start() {
+      if (cancelled) {
+        return false;
+      }
+      started = true;
+      return true;
+    }
+
+    synchronized void complete(String commitId, Throwable failure) {
+      if (done) {
+        return;
+      }
+      this.commitId = commitId;
+      this.failure = failure;
+      this.done = true;
+      notifyAll();
+    }
+
+    public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+      if (started || done) {
+        return false;
+      }
+      cancelled = true;
+      done = true;
+      notifyAll();
+      return true;
+    }
+
+    public synchronized boolean isCancelled() {
+      return cancelled;
+    }
+
+    public synchronized boolean isDone() {
+      return done;
+    }
+
+    public synchronized String get() throws InterruptedException, ExecutionException {
+      while (!done) {
+        wait();
+      }
+      return getResult();
+    }
+
+    public synchronized String get(long timeout, TimeUnit unit) throws InterruptedException,
+        ExecutionException, TimeoutException {
+      long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+      while (!done) {
+        long toWait = deadline - System.currentTimeMillis();
+        if (toWait <= 0) {
+          throw new TimeoutException();
+        }
+        wait(toWait);
+      }
+      return getResult();
+    }
+
+    private String getResult() throws ExecutionException {
+      if (cancelled) {
+        throw new CancellationException();
+      }
+      if (null != failure) {
+        throw new ExecutionException(failure);
+      }
+      return commitId;
+    }
+  }
+
+}
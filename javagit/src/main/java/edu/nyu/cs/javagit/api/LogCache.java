@@ -0,0 +1,306 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.api.commands.GitLog;
+import edu.nyu.cs.javagit.api.commands.GitLogOptions;
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.client.cli.ProcessUtilities;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>LogCache</code> keeps the logs listed for one repository. Published history never
+ * changes, so a log is identified by the commit id HEAD resolves to and the options it was listed
+ * with; asking again for the same log is answered from memory. When the branch has moved forward
+ * since the last listing with the same options, and the new commits (<code>old..new</code>)
+ * include no merge, only they are listed and put in front of the cached ones. A merge would
+ * interleave the new commits with older ones by date, so a log over one is listed in full.
+ * 
+ * The cache holds at most <code>getMaxCommits()</code> commits; the least recently used logs are
+ * evicted first. Logs listed with <code>--all</code> or a date limit depend on more than HEAD and
+ * are never cached. The <code>Commit</code> instances are shared between callers and must not be
+ * modified.
+ */
+public final class LogCache {
+
+  /** The default maximum number of commits held, over all the cached logs. */
+  public static final int DEFAULT_MAX_COMMITS = 50000;
+
+  private final DotGit dotGit;
+
+  // The cached logs, by start commit and options, least recently used first; guarded by this.
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f,
+      true);
+
+  // The start commit of the latest log listed, by options; guarded by this.
+  private final Map<String, String> latest = new HashMap<String, String>();
+
+  // The number of commits held; guarded by this.
+  private int size = 0;
+
+  private int maxCommits = DEFAULT_MAX_COMMITS;
+
+  // The metrics; guarded by this.
+  private long hitCount = 0;
+  private long extendCount = 0;
+  private long missCount = 0;
+
+  /**
+   * Creates the cache of a repository.
+   * 
+   * @param dotGit
+   *          The repository.
+   */
+  LogCache(DotGit dotGit) {
+    this.dotGit = dotGit;
+  }
+
+  /**
+   * Gets the log of the commit HEAD currently resolves to.
+   * 
+   * @param options
+   *          The options to list the log with, or null for the defaults.
+   * @return The commits, in the order git lists them.
+   * @throws JavaGitException
+   *           Thrown when there is an error executing git log.
+   * @throws IOException
+   *           Thrown when there is an error executing git log.
+   */
+  public List<Commit> getLog(GitLogOptions options) throws JavaGitException, IOException {
+    String start = dotGit.getRefDatabase().resolve("HEAD");
+    if (null == start || !isCacheable(options)) {
+      return (null == options) ? new GitLog().log(dotGit.getPath()) : new GitLog().log(
+          dotGit.getPath(), options);
+    }
+    String optionsKey = (null == options) ? "" : options.toString();
+
+    Entry base = null;
+    synchronized (this) {
+      Entry cached = entries.get(getKey(start, optionsKey));
+      if (null != cached) {
+        hitCount++;
+        return new ArrayList<Commit>(cached.commits);
+      }
+      String previous = latest.get(optionsKey);
+      if (null != previous) {
+        base = entries.get(getKey(previous, optionsKey));
+      }
+    }
+
+    List<Commit> commits;
+    if (null != base && isExtendable(options) && isAncestor(base.start, start)
+        && isLinear(base.start, start)) {
+      List<Commit> added = new GitLog().log(dotGit.getPath(), options, base.start + ".." + start);
+      commits = new ArrayList<Commit>(added.size() + base.commits.size());
+      commits.addAll(added);
+      commits.addAll(base.commits);
+      if (null != options && options.isOptLimitCommitMax()) {
+        while (commits.size() > options.getOptLimitMax()) {
+          commits.remove(commits.size() - 1);
+        }
+      }
+      synchronized (this) {
+        extendCount++;
+      }
+    } else {
+      commits = new GitLog().log(dotGit.getPath(), options, start);
+      synchronized (this) {
+        missCount++;
+      }
+    }
+
+    put(new Entry(start, optionsKey, commits));
+    return new ArrayList<Commit>(commits);
+  }
+
+  /**
+   * Drops all the cached logs.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    latest.clear();
+    size = 0;
+  }
+
+  /**
+   * Gets the maximum number of commits held, over all the cached logs.
+   * 
+   * @return The maximum number of commits.
+   */
+  public synchronized int getMaxCommits() {
+    return maxCommits;
+  }
+
+  /**
+   * Sets the maximum number of commits held, over all the cached logs, evicting logs if the cache
+   * holds more. Zero turns the cache off.
+   * 
+   * @param maxCommits
+   *          The maximum number of commits.
+   */
+  public synchronized void setMaxCommits(int maxCommits) {
+    CheckUtilities.checkIntArgumentGreaterThan(maxCommits, -1, "maxCommits");
+    this.maxCommits = maxCommits;
+    evict();
+  }
+
+  /**
+   * Gets the number of commits currently held.
+   * 
+   * @return The number of commits held.
+   */
+  public synchronized int getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the number of logs answered entirely from the cache.
+   * 
+   * @return The number of cache hits.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Gets the number of logs answered by listing only the commits added since a cached log.
+   * 
+   * @return The number of incremental listings.
+   */
+  public synchronized long getExtendCount() {
+    return extendCount;
+  }
+
+  /**
+   * Gets the number of logs listed in full.
+   * 
+   * @return The number of cache misses.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  private synchronized void put(Entry entry) {
+    if (0 == maxCommits) {
+      return;
+    }
+    Entry replaced = entries.put(getKey(entry.start, entry.optionsKey), entry);
+    if (null != replaced) {
+      size -= replaced.commits.size();
+    }
+    size += entry.commits.size();
+    latest.put(entry.optionsKey, entry.start);
+    evict();
+  }
+
+  // Evicts the least recently used logs until the cache is within its bound. Guarded by this.
+  private void evict() {
+    Iterator<Entry> iter = entries.values().iterator();
+    while (size > maxCommits && iter.hasNext()) {
+      Entry eldest = iter.next();
+      iter.remove();
+      size -= eldest.commits.size();
+      if (eldest.start.equals(latest.get(eldest.optionsKey))) {
+        latest.remove(eldest.optionsKey);
+      }
+    }
+  }
+
+  /**
+   * Checks whether <code>ancestor</code> is reachable from <code>commit</code>, so that the log of
+   * <code>commit</code> is the range <code>ancestor..commit</code> followed by the log of
+   * <code>ancestor</code>.
+   */
+  private boolean isAncestor(String ancestor, String commit) throws IOException {
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    command.add("merge-base");
+    command.add(ancestor);
+    command.add(commit);
+    try {
+      List<String> output = ProcessUtilities.runRecordCommand(dotGit.getPath(), command);
+      return 1 == output.size() && ancestor.equals(output.get(0).trim());
+    } catch (JavaGitException e) {
+      // No merge base, e.g. the branch was replaced by unrelated history.
+      return false;
+    }
+  }
+
+  /**
+   * Checks whether the commits of <code>ancestor..commit</code> include no merge, so that they are
+   * listed before all the commits of the log of <code>ancestor</code>.
+   */
+  private boolean isLinear(String ancestor, String commit) throws IOException {
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    command.add("rev-list");
+    command.add("--min-parents=2");
+    command.add("-1");
+    command.add(ancestor + ".." + commit);
+    try {
+      List<String> output = ProcessUtilities.runRecordCommand(dotGit.getPath(), command);
+      return output.isEmpty() || (1 == output.size() && 0 == output.get(0).trim().length());
+    } catch (JavaGitException e) {
+      return false;
+    }
+  }
+
+  // Logs which depend on more than the commit HEAD resolves to cannot be cached.
+  private static boolean isCacheable(GitLogOptions options) {
+    if (null == options) {
+      return true;
+    }
+    return !options.isOptLimitAll() && !options.isOptLimitCommitSince()
+        && !options.isOptLimitCommitAfter() && !options.isOptLimitCommitUntil()
+        && !options.isOptLimitCommitBefore();
+  }
+
+  // Logs whose order or selection near the start would change when new commits are added cannot
+  // be extended by putting the new commits in front.
+  private static boolean isExtendable(GitLogOptions options) {
+    if (null == options) {
+      return true;
+    }
+    return !options.isOptOrderingReverse() && !options.isOptLimitCommitSkip()
+        && !options.isOptLimitFirstParent();
+  }
+
+  private static String getKey(String start, String optionsKey) {
+    return start + "\0" + optionsKey;
+  }
+
+  // A cached log.
+  private static final class Entry {
+    private final String start;
+    private final String optionsKey;
+    private final List<Commit> commits;
+
+    private Entry(String start, String optionsKey, List<Commit> commits) {
+      this.start = start;
+      this.optionsKey = optionsKey;
+      this.commits = commits;
+    }
+  }
+}
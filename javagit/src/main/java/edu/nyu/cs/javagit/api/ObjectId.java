@@ -0,0 +1,283 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.nio.ByteBuffer;
+
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>ObjectId</code> is the id of a git object: the 20 bytes of its SHA-1 hash, held in five
+ * <code>int</code>s rather than as a 40 character <code>String</code>. An instance takes about a
+ * third of the memory of the string, and is hashed and compared without looking at characters.
+ * 
+ * Instances are immutable. They are ordered as their bytes are, unsigned, which is also the order
+ * of their hexadecimal forms and of the ids in a pack index. <code>ObjectIdSet</code> and
+ * <code>ObjectIdMap</code> hold many ids without an <code>ObjectId</code> instance per id.
+ */
+public final class ObjectId implements Comparable<ObjectId> {
+
+  /** The length of an id in bytes. */
+  public static final int LENGTH = 20;
+
+  /** The length of the hexadecimal form of an id. */
+  public static final int HEX_LENGTH = 2 * LENGTH;
+
+  /** The number of <code>int</code> words of an id. */
+  public static final int WORDS = LENGTH / 4;
+
+  // The characters of the hexadecimal form.
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final int w1;
+  private final int w2;
+  private final int w3;
+  private final int w4;
+  private final int w5;
+
+  ObjectId(int w1, int w2, int w3, int w4, int w5) {
+    this.w1 = w1;
+    this.w2 = w2;
+    this.w3 = w3;
+    this.w4 = w4;
+    this.w5 = w5;
+  }
+
+  /**
+   * Checks whether a string is the full hexadecimal form of an id. Upper and lower case are both
+   * accepted.
+   * 
+   * @param s
+   *          The string to check; may be null.
+   * @return True if the string has 40 hexadecimal digits; false otherwise.
+   */
+  public static boolean isId(String s) {
+    if (null == s || s.length() != HEX_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < HEX_LENGTH; i++) {
+      if (Character.digit(s.charAt(i), 16) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses the hexadecimal form of an id.
+   * 
+   * @param s
+   *          The 40 hexadecimal digits of the id. If the value is null, a
+   *          <code>NullPointerException</code> is thrown.
+   * @return The id.
+   * @throws IllegalArgumentException
+   *           Thrown if the string is not 40 hexadecimal digits.
+   */
+  public static ObjectId fromString(String s) {
+    CheckUtilities.checkNullArgument(s, "s");
+    if (s.length() != HEX_LENGTH) {
+      throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000008") + "  { s=[" + s
+          + "] }");
+    }
+    return new ObjectId(parseWord(s, 0), parseWord(s, 8), parseWord(s, 16), parseWord(s, 24),
+        parseWord(s, 32));
+  }
+
+  /**
+   * Reads an id from its binary form.
+   * 
+   * @param bytes
+   *          The bytes holding the id.
+   * @param offset
+   *          The offset of the first byte of the id.
+   * @return The id.
+   */
+  public static ObjectId fromRaw(byte[] bytes, int offset) {
+    CheckUtilities.checkNullArgument(bytes, "bytes");
+    CheckUtilities.checkIntInRange(offset, 0, bytes.length - LENGTH + 1);
+    return new ObjectId(readWord(bytes, offset), readWord(bytes, offset + 4), readWord(bytes,
+        offset + 8), readWord(bytes, offset + 12), readWord(bytes, offset + 16));
+  }
+
+  /**
+   * Reads an id from its binary form in a buffer, such as a memory-mapped file. The position of
+   * the buffer is not changed.
+   * 
+   * @param buffer
+   *          The buffer holding the id; it must be big-endian, the default byte order.
+   * @param offset
+   *          The offset of the first byte of the id.
+   * @return The id.
+   */
+  public static ObjectId fromRaw(ByteBuffer buffer, int offset) {
+    CheckUtilities.checkNullArgument(buffer, "buffer");
+    return new ObjectId(buffer.getInt(offset), buffer.getInt(offset + 4), buffer.getInt(offset + 8),
+        buffer.getInt(offset + 12), buffer.getInt(offset + 16));
+  }
+
+  /**
+   * Gets one of the five words of the id, the first holding its first four bytes, big-endian.
+   * 
+   * @param index
+   *          The index of the word, from 0 to 4.
+   * @return The word.
+   */
+  public int getWord(int index) {
+    switch (index) {
+    case 0:
+      return w1;
+    case 1:
+      return w2;
+    case 2:
+      return w3;
+    case 3:
+      return w4;
+    case 4:
+      return w5;
+    default:
+      CheckUtilities.checkIntInRange(index, 0, WORDS);
+      return 0;
+    }
+  }
+
+  /**
+   * Gets the first byte of the id, which is the fan-out key of pack indexes and the loose object
+   * directory of the object.
+   * 
+   * @return The first byte, from 0 to 255.
+   */
+  public int getFirstByte() {
+    return w1 >>> 24;
+  }
+
+  /**
+   * Copies the binary form of the id into an array.
+   * 
+   * @param bytes
+   *          The array.
+   * @param offset
+   *          The offset at which to write the 20 bytes.
+   */
+  public void copyRawTo(byte[] bytes, int offset) {
+    CheckUtilities.checkNullArgument(bytes, "bytes");
+    CheckUtilities.checkIntInRange(offset, 0, bytes.length - LENGTH + 1);
+    writeWord(bytes, offset, w1);
+    writeWord(bytes, offset + 4, w2);
+    writeWord(bytes, offset + 8, w3);
+    writeWord(bytes, offset + 12, w4);
+    writeWord(bytes, offset + 16, w5);
+  }
+
+  /**
+   * Gets the binary form of the id.
+   * 
+   * @return A new array of 20 bytes.
+   */
+  public byte[] toByteArray() {
+    byte[] bytes = new byte[LENGTH];
+    copyRawTo(bytes, 0);
+    return bytes;
+  }
+
+  public int compareTo(ObjectId other) {
+    int compared = compareWords(w1, other.w1);
+    if (0 == compared) {
+      compared = compareWords(w2, other.w2);
+    }
+    if (0 == compared) {
+      compared = compareWords(w3, other.w3);
+    }
+    if (0 == compared) {
+      compared = compareWords(w4, other.w4);
+    }
+    if (0 == compared) {
+      compared = compareWords(w5, other.w5);
+    }
+    return compared;
+  }
+
+  public boolean equals(Object o) {
+    if (!(o instanceof ObjectId)) {
+      return false;
+    }
+    ObjectId other = (ObjectId) o;
+    return w2 == other.w2 && w1 == other.w1 && w3 == other.w3 && w4 == other.w4
+        && w5 == other.w5;
+  }
+
+  public int hashCode() {
+    // The bits of a SHA-1 hash are evenly distributed, so any word of it is a good hash code.
+    return w2;
+  }
+
+  /**
+   * Gets the hexadecimal form of the id.
+   * 
+   * @return The 40 lower-case hexadecimal digits of the id.
+   */
+  public String toString() {
+    char[] chars = new char[HEX_LENGTH];
+    formatWord(chars, 0, w1);
+    formatWord(chars, 8, w2);
+    formatWord(chars, 16, w3);
+    formatWord(chars, 24, w4);
+    formatWord(chars, 32, w5);
+    return new String(chars);
+  }
+
+  // Compares two words as unsigned numbers.
+  static int compareWords(int a, int b) {
+    if (a == b) {
+      return 0;
+    }
+    return ((a ^ Integer.MIN_VALUE) < (b ^ Integer.MIN_VALUE)) ? -1 : 1;
+  }
+
+  private static int parseWord(String s, int start) {
+    int word = 0;
+    for (int i = start; i < start + 8; i++) {
+      int digit = Character.digit(s.charAt(i), 16);
+      if (digit < 0) {
+        throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000008") + "  { s=["
+            + s + "] }");
+      }
+      word = (word << 4) | digit;
+    }
+    return word;
+  }
+
+  private static int readWord(byte[] bytes, int offset) {
+    return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+        | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+  }
+
+  private static void writeWord(byte[] bytes, int offset, int word) {
+    bytes[offset] = (byte) (word >>> 24);
+    bytes[offset + 1] = (byte) (word >>> 16);
+    bytes[offset + 2] = (byte) (word >>> 8);
+    bytes[offset + 3] = (byte) word;
+  }
+
+  private static void formatWord(char[] chars, int start, int word) {
+    for (int i = 7; i >= 0; i--) {
+      chars[start + i] = HEX[word & 0xf];
+      word >>>= 4;
+    }
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>ObjectIdMap</code> maps <code>ObjectId</code>s to values. It keeps its keys in an
+ * <code>ObjectIdSet</code> and its values in an array by key index, so an entry needs no object
+ * besides its value.
+ * 
+ * Entries cannot be removed, except all at once with <code>clear()</code>. Instances are not
+ * thread-safe.
+ * 
+ * @param <V>
+ *          The type of the values.
+ */
+public final class ObjectIdMap<V> {
+
+  private final ObjectIdSet keys;
+
+  // The values, by key index.
+  private Object[] values;
+
+  /**
+   * Creates an empty map.
+   */
+  public ObjectIdMap() {
+    this(8);
+  }
+
+  /**
+   * Creates an empty map sized for a number of entries.
+   * 
+   * @param expectedSize
+   *          The number of entries the map will hold without growing.
+   */
+  public ObjectIdMap(int expectedSize) {
+    keys = new ObjectIdSet(expectedSize);
+    values = new Object[expectedSize];
+  }
+
+  /**
+   * Gets the number of entries in the map.
+   * 
+   * @return The number of entries.
+   */
+  public int size() {
+    return keys.size();
+  }
+
+  /**
+   * Checks whether the map is empty.
+   * 
+   * @return True if the map has no entry; false otherwise.
+   */
+  public boolean isEmpty() {
+    return keys.isEmpty();
+  }
+
+  /**
+   * Gets the value of an id.
+   * 
+   * @param id
+   *          The id. If the value is null, a <code>NullPointerException</code> is thrown.
+   * @return The value, or null if the id has no entry.
+   */
+  @SuppressWarnings("unchecked")
+  public V get(ObjectId id) {
+    int index = keys.indexOf(id);
+    return (index < 0) ? null : (V) values[index];
+  }
+
+  /**
+   * Checks whether an id has an entry.
+   * 
+   * @param id
+   *          The id. If the value is null, a <code>NullPointerException</code> is thrown.
+   * @return True if the map has an entry for the id; false otherwise.
+   */
+  public boolean containsKey(ObjectId id) {
+    return keys.contains(id);
+  }
+
+  /**
+   * Sets the value of an id.
+   * 
+   * @param id
+   *          The id. If the value is null, a <code>NullPointerException</code> is thrown.
+   * @param value
+   *          The value; may be null.
+   * @return The previous value of the id, or null if it had no entry.
+   */
+  @SuppressWarnings("unchecked")
+  public V put(ObjectId id, V value) {
+    CheckUtilities.checkNullArgument(id, "id");
+    int index = keys.indexOf(id);
+    if (index < 0) {
+      index = keys.size();
+      keys.add(id);
+      if (index == values.length) {
+        Object[] grown = new Object[Math.max(8, values.length * 2)];
+        System.arraycopy(values, 0, grown, 0, values.length);
+        values = grown;
+      }
+    }
+    V previous = (V) values[index];
+    values[index] = value;
+    return previous;
+  }
+
+  /**
+   * Removes all entries from the map.
+   */
+  public void clear() {
+    keys.clear();
+    values = new Object[8];
+  }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>ObjectIdSet</code> is a set of <code>ObjectId</code>s which also numbers them: each id
+ * gets the index, from 0, of the order in which it was added, and keeps it. The set stores the
+ * five words of each id in one <code>int</code> array and finds them through an open-addressing
+ * hash table of <code>int</code>s, so an id costs 28 to 48 bytes rather than the 150 or so of a
+ * string key in a <code>HashMap</code>, and lookups compare words, not characters.
+ * 
+ * Ids cannot be removed, except all at once with <code>clear()</code>. Instances are not
+ * thread-safe.
+ */
+public final class ObjectIdSet {
+
+  private static final int MIN_TABLE_SIZE = 16;
+
+  // The words of the ids, WORDS per id, by index.
+  private int[] words;
+
+  // The number of ids.
+  private int size = 0;
+
+  // The hash table: the index plus one of the id in each slot, 0 for a free slot. Its size is a
+  // power of two, at least twice the number of ids, and slots are probed linearly.
+  private int[] table;
+
+  /**
+   * Creates an empty set.
+   */
+  public ObjectIdSet() {
+    this(MIN_TABLE_SIZE / 2);
+  }
+
+  /**
+   * Creates an empty set sized for a number of ids.
+   * 
+   * @param expectedSize
+   *          The number of ids the set will hold without growing.
+   */
+  public ObjectIdSet(int expectedSize) {
+    CheckUtilities.checkIntArgumentGreaterThan(expectedSize, -1, "expectedSize");
+    allocate(expectedSize);
+  }
+
+  /**
+   * Gets the number of ids in the set.
+   * 
+   * @return The number of ids.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks whether the set is empty.
+   * 
+   * @return True if the set holds no id; false otherwise.
+   */
+  public boolean isEmpty() {
+    return 0 == size;
+  }
+
+  /**
+   * Adds an id to the set. A new id gets the index <code>size()</code>, before it is added.
+   * 
+   * @param id
+   *          The id. If the value is null, a <code>NullPointerException</code> is thrown.
+   * @return True if the id was added; false if it was already in the set.
+   */
+  public boolean add(ObjectId id) {
+    CheckUtilities.checkNullArgument(id, "id");
+    int slot = findSlot(id);
+    if (0 != table[slot]) {
+      return false;
+    }
+    if (2 * (size + 1) > table.length) {
+      grow();
+      slot = findSlot(id);
+    }
+    if ((size + 1) * ObjectId.WORDS > words.length) {
+      int[] grown = new int[Math.max(words.length * 2, (size + 1) * ObjectId.WORDS)];
+      System.arraycopy(words, 0, grown, 0, size * ObjectId.WORDS);
+      words = grown;
+    }
+    int base = size * ObjectId.WORDS;
+    for (int i = 0; i < ObjectId.WORDS; i++) {
+      words[base + i] = id.getWord(i);
+    }
+    table[slot] = ++size;
+    return true;
+  }
+
+  /**
+   * Gets the index of an id.
+   * 
+   * @param id
+   *          The id. If the value is null, a <code>NullPointerException</code> is thrown.
+   * @return The index of the id, or -1 if it is not in the set.
+   */
+  public int indexOf(ObjectId id) {
+    CheckUtilities.checkNullArgument(id, "id");
+    return table[findSlot(id)] - 1;
+  }
+
+  /**
+   * Checks whether an id is in the set.
+   * 
+   * @param id
+   *          The id. If the value is null, a <code>NullPointerException</code> is thrown.
+   * @return True if the id is in the set; false otherwise.
+   */
+  public boolean contains(ObjectId id) {
+    return indexOf(id) >= 0;
+  }
+
+  /**
+   * Gets the id with an index.
+   * 
+   * @param index
+   *          The index, from 0 to <code>size() - 1</code>.
+   * @return The id.
+   */
+  public ObjectId get(int index) {
+    CheckUtilities.checkIntInRange(index, 0, size);
+    int base = index * ObjectId.WORDS;
+    return new ObjectId(words[base], words[base + 1], words[base + 2], words[base + 3],
+        words[base + 4]);
+  }
+
+  /**
+   * Removes all ids from the set, and releases its memory.
+   */
+  public void clear() {
+    allocate(0);
+  }
+
+  private void allocate(int expectedSize) {
+    int tableSize = MIN_TABLE_SIZE;
+    while (tableSize < 2 * expectedSize) {
+      tableSize *= 2;
+    }
+    table = new int[tableSize];
+    words = new int[expectedSize * ObjectId.WORDS];
+    size = 0;
+  }
+
+  // Finds the slot of an id, or the free slot where it would go.
+  private int findSlot(ObjectId id) {
+    int mask = table.length - 1;
+    int slot = id.hashCode() & mask;
+    while (true) {
+      int entry = table[slot];
+      if (0 == entry || matches(entry - 1, id)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private boolean matches(int index, ObjectId id) {
+    int base = index * ObjectId.WORDS;
+    for (int i = 0; i < ObjectId.WORDS; i++) {
+      if (words[base + i] != id.getWord(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Doubles the hash table and reinserts every id, which keeps its index.
+  private void grow() {
+    int[] grown = new int[table.length * 2];
+    int mask = grown.length - 1;
+    for (int index = 0; index < size; index++) {
+      // The second word is the hash code of the id.
+      int slot = words[index * ObjectId.WORDS + 1] & mask;
+      while (0 != grown[slot]) {
+        slot = (slot + 1) & mask;
+      }
+      grown[slot] = index + 1;
+    }
+    table = grown;
+  }
+
+}
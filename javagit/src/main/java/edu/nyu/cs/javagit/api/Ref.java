@@ -219,6 +219,19 @@ public class Ref {
     return cn;
   }
 
+  /**
+   * Creates a <code>Ref</code> of type <code>SHA1</code> from an object id.
+   * 
+   * @param id
+   *          The id of the object. If the value is null, a <code>NullPointerException</code> is
+   *          thrown.
+   * @return A <code>Ref</code> instance of type <code>SHA1</code> named by the full SHA1 value.
+   */
+  public static Ref createSha1Ref(ObjectId id) {
+    CheckUtilities.checkNullArgument(id, "id");
+    return createSha1Ref(id.toString());
+  }
+
   /**
    * Creates a <code>Ref</code> of type <code>TAG</code>.
    * 
@@ -0,0 +1,534 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import edu.nyu.cs.javagit.api.commands.CommandResponse;
+import edu.nyu.cs.javagit.client.cli.IParser;
+import edu.nyu.cs.javagit.client.cli.ProcessUtilities;
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>RepositoryPool</code> keeps a set of warm, pre-initialized repositories and hands them out
+ * as <code>DotGit</code> instances. Repositories are either provisioned from a template repository
+ * (see <code>DotGit.provisionWorkspace()</code>) or, without a template, freshly initialized and
+ * empty.
+ * 
+ * A repository handed back with <code>release()</code> is not re-created: its refs, HEAD and
+ * config are rewritten from a snapshot taken when it was created, the objects it created are
+ * dropped and its working tree is reset and cleaned. Recycling and refilling the pool up to
+ * <code>minIdle</code> repositories happen on a background thread, so <code>acquire()</code> only
+ * blocks when the pool is empty.
+ * 
+ * The pool directory can be placed on a tmpfs (e.g. <code>/dev/shm</code>); since template
+ * objects are shared through alternates, each pooled repository only costs its working tree.
+ */
+public final class RepositoryPool {
+
+  // The directory under which the pooled repositories are created.
+  private final File poolDirectory;
+
+  // The repository the pooled repositories are provisioned from; null for empty repositories.
+  private final DotGit template;
+
+  // The options used to provision repositories from the template.
+  private final WorkspaceOptions workspaceOptions;
+
+  // The number of idle repositories the background thread keeps ready.
+  private final int minIdle;
+
+  // The maximum number of repositories (idle, leased or being prepared) at any time.
+  private final int maxTotal;
+
+  // The repositories ready to be handed out.
+  private final LinkedList<PooledRepository> idle = new LinkedList<PooledRepository>();
+
+  // The repositories currently handed out, by their <code>DotGit</code> instance.
+  private final Map<DotGit, PooledRepository> leased = new HashMap<DotGit, PooledRepository>();
+
+  // The number of repositories being created or recycled by the background thread.
+  private int preparing = 0;
+
+  // Used to give every pooled repository a distinct directory name.
+  private int nextId = 0;
+
+  private boolean closed = false;
+
+  // The background thread that creates and recycles repositories.
+  private final ExecutorService worker;
+
+  /**
+   * Creates a pool and starts filling it in the background.
+   * 
+   * @param poolDirectory
+   *          The directory under which repositories are created. It is created if it does not
+   *          exist. If null, a <code>NullPointerException</code> is thrown.
+   * @param template
+   *          The repository to provision pooled repositories from. If null, pooled repositories
+   *          are empty, freshly initialized repositories.
+   * @param workspaceOptions
+   *          The options used to provision repositories from the template; ignored if there is no
+   *          template. If null, the defaults of <code>WorkspaceOptions</code> are used.
+   * @param minIdle
+   *          The number of idle repositories kept ready. It must not be negative.
+   * @param maxTotal
+   *          The maximum number of repositories in the pool, including leased ones. It must be
+   *          greater than zero and not less than <code>minIdle</code>.
+   * @throws IOException
+   *           Thrown if the pool directory cannot be created.
+   */
+  public RepositoryPool(File poolDirectory, DotGit template, WorkspaceOptions workspaceOptions,
+      int minIdle, int maxTotal) throws IOException {
+    CheckUtilities.checkNullArgument(poolDirectory, "poolDirectory");
+    CheckUtilities.checkIntArgumentGreaterThan(minIdle, -1, "minIdle");
+    CheckUtilities.checkIntArgumentGreaterThan(maxTotal, 0, "maxTotal");
+    CheckUtilities.checkIntArgumentGreaterThan(maxTotal, minIdle - 1, "maxTotal");
+    FsUtilities.mkdirs(poolDirectory);
+
+    this.poolDirectory = poolDirectory;
+    this.template = template;
+    this.workspaceOptions = (null == workspaceOptions) ? new WorkspaceOptions() : workspaceOptions;
+    this.minIdle = minIdle;
+    this.maxTotal = maxTotal;
+    this.worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "javagit-repository-pool");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+
+    synchronized (this) {
+      refill();
+    }
+  }
+
+  /**
+   * Takes a repository from the pool, waiting as long as necessary for one to become available.
+   * 
+   * @return A repository ready to use.
+   * @throws IOException
+   *           Thrown if a repository has to be created synchronously and that fails.
+   * @throws JavaGitException
+   *           Thrown if the pool is closed, or the wait is interrupted.
+   */
+  public DotGit acquire() throws IOException, JavaGitException {
+    return acquire(0, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Takes a repository from the pool. If no repository is idle and the pool is not full, one is
+   * created by the calling thread. Otherwise the call waits for a repository to be released.
+   * 
+   * @param timeout
+   *          The maximum time to wait; zero or less means to wait as long as necessary.
+   * @param unit
+   *          The unit of <code>timeout</code>.
+   * @return A repository ready to use.
+   * @throws IOException
+   *           Thrown if a repository has to be created synchronously and that fails.
+   * @throws JavaGitException
+   *           Thrown if the pool is closed, the wait times out or is interrupted.
+   */
+  public DotGit acquire(long timeout, TimeUnit unit) throws IOException, JavaGitException {
+    long deadline = (timeout > 0) ? System.currentTimeMillis() + unit.toMillis(timeout) : 0;
+    File directory;
+
+    synchronized (this) {
+      while (true) {
+        checkOpen();
+        if (idle.size() > 0) {
+          PooledRepository repository = idle.removeFirst();
+          leased.put(repository.dotGit, repository);
+          refill();
+          return repository.dotGit;
+        }
+        if (totalCount() < maxTotal) {
+          // Nothing to wait for, so create one right here.
+          preparing++;
+          directory = nextDirectory();
+          break;
+        }
+        waitUntil(deadline);
+      }
+    }
+
+    PooledRepository repository = null;
+    try {
+      repository = create(directory);
+    } finally {
+      if (null == repository) {
+        destroy(directory);
+      }
+      synchronized (this) {
+        preparing--;
+        if (null != repository) {
+          leased.put(repository.dotGit, repository);
+        }
+        notifyAll();
+      }
+    }
+    return repository.dotGit;
+  }
+
+  /**
+   * Hands a repository back to the pool. The repository is recycled in the background and must not
+   * be used by the caller anymore.
+   * 
+   * @param dotGit
+   *          A repository obtained from <code>acquire()</code>.
+   * @throws JavaGitException
+   *           Thrown if the repository does not belong to this pool.
+   */
+  public void release(DotGit dotGit) throws JavaGitException {
+    final PooledRepository repository;
+    synchronized (this) {
+      repository = leased.remove(dotGit);
+      if (null == repository) {
+        throw new JavaGitException(100102, ExceptionMessageMap.getMessage("100102")
+            + "  { path=[" + dotGit.getPath().getPath() + "] }");
+      }
+      if (closed) {
+        destroy(repository.directory);
+        return;
+      }
+      // Submitted under the lock, so that close() cannot shut the worker down in between.
+      preparing++;
+      worker.execute(new Runnable() {
+        public void run() {
+          boolean recycled = false;
+          try {
+            recycle(repository);
+            recycled = true;
+          } catch (Exception e) {
+            // Throw the broken repository away; refill() creates a new one if needed.
+          }
+          synchronized (RepositoryPool.this) {
+            preparing--;
+            if (recycled && !closed) {
+              idle.addLast(repository);
+            } else {
+              destroy(repository.directory);
+            }
+            refill();
+            RepositoryPool.this.notifyAll();
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Closes the pool. Idle repositories are deleted, leased repositories are deleted when they are
+   * released. Repositories being created or recycled in the background are deleted before this
+   * method returns.
+   */
+  public void close() {
+    List<PooledRepository> toDestroy;
+    synchronized (this) {
+      closed = true;
+      toDestroy = new ArrayList<PooledRepository>(idle);
+      idle.clear();
+      notifyAll();
+    }
+    worker.shutdown();
+    for (PooledRepository repository : toDestroy) {
+      destroy(repository.directory);
+    }
+    boolean interrupted = false;
+    while (!worker.isTerminated()) {
+      try {
+        worker.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Gets the number of repositories ready to be handed out.
+   * 
+   * @return The number of idle repositories.
+   */
+  public synchronized int getIdleCount() {
+    return idle.size();
+  }
+
+  /**
+   * Gets the number of repositories currently handed out.
+   * 
+   * @return The number of leased repositories.
+   */
+  public synchronized int getLeasedCount() {
+    return leased.size();
+  }
+
+  /*
+   * Schedules the creation of repositories until minIdle repositories are idle or being prepared.
+   * Must be called while holding the lock on this pool.
+   */
+  private void refill() {
+    while (!closed && idle.size() + preparing < minIdle && totalCount() < maxTotal) {
+      preparing++;
+      final File directory = nextDirectory();
+      worker.execute(new Runnable() {
+        public void run() {
+          PooledRepository repository = null;
+          try {
+            repository = create(directory);
+          } catch (Exception e) {
+            // Leave the pool short; the next acquire() creates a repository synchronously.
+            destroy(directory);
+          }
+          synchronized (RepositoryPool.this) {
+            preparing--;
+            if (null != repository) {
+              if (closed) {
+                destroy(directory);
+              } else {
+                idle.addLast(repository);
+              }
+            }
+            RepositoryPool.this.notifyAll();
+          }
+        }
+      });
+    }
+  }
+
+  /*
+   * Creates a repository and takes the snapshot used to recycle it.
+   */
+  private PooledRepository create(File directory) throws IOException, JavaGitException {
+    DotGit dotGit;
+    if (null != template) {
+      dotGit = template.provisionWorkspace(directory, workspaceOptions);
+    } else {
+      dotGit = DotGit.getInstance(directory);
+      dotGit.init();
+    }
+    return new PooledRepository(directory, dotGit);
+  }
+
+  /*
+   * Brings a repository back to the state it was created in.
+   */
+  private void recycle(PooledRepository repository) throws IOException, JavaGitException {
+    File gitDir = new File(repository.directory, ".git");
+    // The commit store and the indexes in .git/javagit are deleted below with the other files.
+    repository.dotGit.forgetHistory();
+
+    // Rewrite the refs, HEAD and config from the snapshot.
+    deleteRecursively(new File(gitDir, "refs"));
+    for (Map.Entry<String, byte[]> entry : repository.snapshot.entrySet()) {
+      File file = new File(gitDir, entry.getKey());
+      FsUtilities.mkdirs(file.getParentFile());
+      FsUtilities.writeBytes(file, entry.getValue());
+    }
+    FsUtilities.mkdirs(new File(gitDir, "refs/heads"));
+    FsUtilities.mkdirs(new File(gitDir, "refs/tags"));
+    if (!repository.snapshot.containsKey("packed-refs")) {
+      new File(gitDir, "packed-refs").delete();
+    }
+    for (String name : TRANSIENT_FILES) {
+      deleteRecursively(new File(gitDir, name));
+    }
+
+    // Everything in the local object directory was created while the repository was leased.
+    File objects = new File(gitDir, "objects");
+    File[] children = objects.listFiles();
+    if (null != children) {
+      for (File child : children) {
+        if (!child.getName().equals("info")) {
+          deleteRecursively(child);
+        }
+      }
+    }
+    FsUtilities.mkdirs(new File(objects, "pack"));
+
+    if (null != template && !workspaceOptions.isNoCheckout()) {
+      runGit(repository.directory, "reset", "-q", "--hard");
+      runGit(repository.directory, "clean", "-q", "-d", "-f", "-x");
+    } else {
+      new File(gitDir, "index").delete();
+      children = repository.directory.listFiles();
+      if (null != children) {
+        for (File child : children) {
+          if (!child.getName().equals(".git")) {
+            deleteRecursively(child);
+          }
+        }
+      }
+    }
+  }
+
+  /*
+   * Files and directories of a .git directory that only exist as the result of using the
+   * repository.
+   */
+  private static final String[] TRANSIENT_FILES = { "logs", "index.lock", "HEAD.lock",
+      "ORIG_HEAD", "FETCH_HEAD", "MERGE_HEAD", "MERGE_MSG", "CHERRY_PICK_HEAD",
+      "COMMIT_EDITMSG", "javagit" };
+
+  /*
+   * Runs a git command in the given working tree, failing on any output.
+   */
+  private static void runGit(File workingTree, String... args) throws IOException,
+      JavaGitException {
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    for (String arg : args) {
+      command.add(arg);
+    }
+    ProcessUtilities.runCommand(workingTree, command, new RecycleParser());
+  }
+
+  private int totalCount() {
+    return idle.size() + leased.size() + preparing;
+  }
+
+  private File nextDirectory() {
+    return new File(poolDirectory, "repository-" + (nextId++));
+  }
+
+  private void checkOpen() throws JavaGitException {
+    if (closed) {
+      throw new JavaGitException(100100, ExceptionMessageMap.getMessage("100100"));
+    }
+  }
+
+  /*
+   * Waits on this pool's monitor until notified or the deadline (0 for none) is reached.
+   */
+  private void waitUntil(long deadline) throws JavaGitException {
+    long toWait = 0;
+    if (0 != deadline) {
+      toWait = deadline - System.currentTimeMillis();
+      if (toWait <= 0) {
+        throw new JavaGitException(100101, ExceptionMessageMap.getMessage("100101"));
+      }
+    }
+    try {
+      wait(toWait);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JavaGitException(100101, ExceptionMessageMap.getMessage("100101"), e);
+    }
+  }
+
+  private static void destroy(File directory) {
+    try {
+      // Pool directories are never reused, so their schedulers would pile up.
+      RepositoryScheduler.remove(directory);
+    } catch (IOException e) {
+      // Nothing was registered under a path which cannot be resolved.
+    }
+    deleteRecursively(directory);
+  }
+
+  private static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (null != children) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+
+  /**
+   * A repository of the pool, along with the snapshot of its refs, HEAD and config.
+   */
+  private static class PooledRepository {
+    final File directory;
+    final DotGit dotGit;
+
+    // The files to rewrite on recycling, by path relative to the .git directory.
+    final Map<String, byte[]> snapshot = new HashMap<String, byte[]>();
+
+    PooledRepository(File directory, DotGit dotGit) throws IOException {
+      this.directory = directory;
+      this.dotGit = dotGit;
+
+      File gitDir = new File(directory, ".git");
+      snapshot.put("HEAD", FsUtilities.readBytes(new File(gitDir, "HEAD")));
+      snapshot.put("config", FsUtilities.readBytes(new File(gitDir, "config")));
+      File packedRefs = new File(gitDir, "packed-refs");
+      if (packedRefs.isFile()) {
+        snapshot.put("packed-refs", FsUtilities.readBytes(packedRefs));
+      }
+      addRefs(new File(gitDir, "refs"), "refs/");
+    }
+
+    private void addRefs(File dir, String prefix) throws IOException {
+      File[] children = dir.listFiles();
+      if (null == children) {
+        return;
+      }
+      for (File child : children) {
+        if (child.isDirectory()) {
+          addRefs(child, prefix + child.getName() + "/");
+        } else {
+          snapshot.put(prefix + child.getName(), FsUtilities.readBytes(child));
+        }
+      }
+    }
+  }
+
+  /**
+   * Parser for git commands that print nothing on success.
+   */
+  private static class RecycleParser implements IParser {
+    private StringBuffer output = null;
+    private int exitCode = 0;
+
+    public void parseLine(String line) {
+      if (null == output) {
+        output = new StringBuffer();
+      }
+      output.append("[" + line + "]");
+    }
+
+    public void processExitCode(int code) {
+      exitCode = code;
+    }
+
+    public CommandResponse getResponse() throws JavaGitException {
+      if (0 != exitCode) {
+        throw new JavaGitException(100103, ExceptionMessageMap.getMessage("100103") + "  { output="
+            + output + " }");
+      }
+      return null;
+    }
+  }
+}
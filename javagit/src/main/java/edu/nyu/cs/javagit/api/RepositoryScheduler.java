@@ -0,0 +1,363 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>RepositoryScheduler</code> orders the git operations run on one repository so that they do
+ * not collide on <code>index.lock</code>. Read-only operations (status, log, branch listing) run
+ * concurrently; operations which modify the index, the working tree or the refs run one at a time,
+ * in arrival order with respect to the readers, so that neither side can starve the other.
+ * 
+ * There is one scheduler per canonical repository path, shared by its <code>DotGit</code> and
+ * <code>WorkingTree</code>, until it is dropped with <code>remove()</code>. The number of operations waiting is bounded, and so is the time an
+ * operation waits; an operation which cannot be queued, or waits too long, fails with a
+ * <code>JavaGitException</code> instead of failing later on <code>index.lock</code>.
+ * 
+ * A thread running a write operation may run nested read or write operations. A thread running a
+ * read operation must not start a write operation.
+ */
+public final class RepositoryScheduler {
+
+  /**
+   * An operation run by the scheduler.
+   * 
+   * @param <T>
+   *          The type of the result of the operation.
+   */
+  public static interface Operation<T> {
+
+    /**
+     * Runs the operation.
+     * 
+     * @return The result of the operation.
+     * @throws IOException
+     *           Thrown if the operation fails.
+     * @throws JavaGitException
+     *           Thrown if the operation fails.
+     */
+    public T run() throws IOException, JavaGitException;
+  }
+
+  /** The default maximum number of waiting operations, readers and writers together. */
+  public static final int DEFAULT_MAX_QUEUE_DEPTH = 64;
+
+  /** The default maximum time an operation waits, in milliseconds. */
+  public static final long DEFAULT_TIMEOUT = 60 * 1000;
+
+  // The schedulers, by canonical repository path.
+  private static final Map<String, RepositoryScheduler> INSTANCES =
+      new HashMap<String, RepositoryScheduler>();
+
+  private final String canonicalPath;
+
+  // Fair, so that a writer waits only for the readers which arrived before it.
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+
+  private int maxQueueDepth = DEFAULT_MAX_QUEUE_DEPTH;
+
+  private long timeout = DEFAULT_TIMEOUT;
+
+  // The metrics; guarded by this.
+  private int queuedReaders = 0;
+  private int queuedWriters = 0;
+  private int peakQueueDepth = 0;
+  private long readCount = 0;
+  private long writeCount = 0;
+  private long rejectedCount = 0;
+  private long timedOutCount = 0;
+  private long totalWaitTime = 0;
+
+  private RepositoryScheduler(String canonicalPath) {
+    this.canonicalPath = canonicalPath;
+  }
+
+  /**
+   * Gets the scheduler of a repository.
+   * 
+   * @param path
+   *          The path to the repository.
+   * @return The scheduler for this path.
+   * @throws IOException
+   *           Thrown if the canonical path of the repository cannot be determined.
+   */
+  public static RepositoryScheduler getInstance(File path) throws IOException {
+    CheckUtilities.checkNullArgument(path, "path");
+    return getInstance(path.getCanonicalPath());
+  }
+
+  /**
+   * Gets the scheduler of a repository from its canonical path.
+   * 
+   * @param canonicalPath
+   *          The canonical path to the repository.
+   * @return The scheduler for this path.
+   */
+  static synchronized RepositoryScheduler getInstance(String canonicalPath) {
+    RepositoryScheduler scheduler = INSTANCES.get(canonicalPath);
+    if (null == scheduler) {
+      scheduler = new RepositoryScheduler(canonicalPath);
+      INSTANCES.put(canonicalPath, scheduler);
+    }
+    return scheduler;
+  }
+
+  /**
+   * Drops the scheduler of a repository which has been or is about to be deleted. Schedulers are
+   * otherwise kept for the life of the process, so services which create and delete many short-
+   * lived repositories must call this. A later <code>getInstance()</code> for the path creates a
+   * new scheduler with the default settings.
+   * 
+   * @param path
+   *          The path to the repository.
+   * @throws IOException
+   *           Thrown if the canonical path of the repository cannot be determined.
+   */
+  public static void remove(File path) throws IOException {
+    CheckUtilities.checkNullArgument(path, "path");
+    remove(path.getCanonicalPath());
+  }
+
+  /**
+   * Drops the scheduler of a repository from its canonical path.
+   * 
+   * @param canonicalPath
+   *          The canonical path to the repository.
+   */
+  static synchronized void remove(String canonicalPath) {
+    INSTANCES.remove(canonicalPath);
+  }
+
+  /**
+   * Runs a read-only operation, concurrently with other read-only operations.
+   * 
+   * @param operation
+   *          The operation to run.
+   * @return The result of the operation.
+   * @throws IOException
+   *           Thrown if the operation fails.
+   * @throws JavaGitException
+   *           Thrown if the operation fails, the queue is full or the wait times out.
+   */
+  public <T> T read(Operation<T> operation) throws IOException, JavaGitException {
+    CheckUtilities.checkNullArgument(operation, "operation");
+    Lock readLock = lock.readLock();
+    if (lock.getReadHoldCount() > 0 || lock.isWriteLockedByCurrentThread()) {
+      // Nested in an operation of this thread; queueing behind a writer would deadlock.
+      readLock.lock();
+    } else {
+      acquire(readLock, false);
+    }
+    try {
+      return operation.run();
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  /**
+   * Runs an operation which modifies the repository, excluding all other operations.
+   * 
+   * @param operation
+   *          The operation to run.
+   * @return The result of the operation.
+   * @throws IOException
+   *           Thrown if the operation fails.
+   * @throws JavaGitException
+   *           Thrown if the operation fails, the queue is full or the wait times out.
+   */
+  public <T> T write(Operation<T> operation) throws IOException, JavaGitException {
+    CheckUtilities.checkNullArgument(operation, "operation");
+    if (lock.getReadHoldCount() > 0 && !lock.isWriteLockedByCurrentThread()) {
+      throw new IllegalStateException(ExceptionMessageMap.getMessage("100202")
+          + "  { repository=[" + canonicalPath + "] }");
+    }
+    Lock writeLock = lock.writeLock();
+    if (lock.isWriteLockedByCurrentThread()) {
+      writeLock.lock();
+    } else {
+      acquire(writeLock, true);
+    }
+    try {
+      return operation.run();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void acquire(Lock toAcquire, boolean writer) throws JavaGitException {
+    long waitTimeout;
+    synchronized (this) {
+      if (queuedReaders + queuedWriters >= maxQueueDepth) {
+        rejectedCount++;
+        throw new JavaGitException(100201, ExceptionMessageMap.getMessage("100201")
+            + "  { repository=[" + canonicalPath + "], queueDepth=[" + maxQueueDepth + "] }");
+      }
+      if (writer) {
+        queuedWriters++;
+      } else {
+        queuedReaders++;
+      }
+      peakQueueDepth = Math.max(peakQueueDepth, queuedReaders + queuedWriters);
+      waitTimeout = timeout;
+    }
+
+    long start = System.currentTimeMillis();
+    boolean acquired = false;
+    try {
+      acquired = toAcquire.tryLock(waitTimeout, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new JavaGitException(100200, ExceptionMessageMap.getMessage("100200")
+          + "  { repository=[" + canonicalPath + "] }", e);
+    } finally {
+      synchronized (this) {
+        if (writer) {
+          queuedWriters--;
+        } else {
+          queuedReaders--;
+        }
+        totalWaitTime += System.currentTimeMillis() - start;
+        if (acquired) {
+          if (writer) {
+            writeCount++;
+          } else {
+            readCount++;
+          }
+        } else {
+          timedOutCount++;
+        }
+      }
+    }
+    if (!acquired) {
+      throw new JavaGitException(100200, ExceptionMessageMap.getMessage("100200")
+          + "  { repository=[" + canonicalPath + "], timeout=[" + waitTimeout + "] }");
+    }
+  }
+
+  /**
+   * Sets the maximum number of operations which may wait at the same time. Further operations
+   * fail immediately.
+   * 
+   * @param maxQueueDepth
+   *          The maximum number of waiting operations; it must be greater than zero.
+   */
+  public synchronized void setMaxQueueDepth(int maxQueueDepth) {
+    CheckUtilities.checkIntArgumentGreaterThan(maxQueueDepth, 0, "maxQueueDepth");
+    this.maxQueueDepth = maxQueueDepth;
+  }
+
+  /**
+   * Sets the maximum time an operation waits to run.
+   * 
+   * @param timeout
+   *          The maximum time to wait; it must be greater than zero.
+   * @param unit
+   *          The unit of <code>timeout</code>.
+   */
+  public synchronized void setTimeout(long timeout, TimeUnit unit) {
+    CheckUtilities.checkNullArgument(unit, "unit");
+    if (timeout <= 0) {
+      throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000004")
+          + "  { toCheck=[" + timeout + "], lowerBound=[0], variableName=[timeout] }");
+    }
+    this.timeout = unit.toMillis(timeout);
+  }
+
+  /**
+   * Gets the number of read-only operations currently waiting.
+   * 
+   * @return The number of waiting readers.
+   */
+  public synchronized int getQueuedReaders() {
+    return queuedReaders;
+  }
+
+  /**
+   * Gets the number of modifying operations currently waiting.
+   * 
+   * @return The number of waiting writers.
+   */
+  public synchronized int getQueuedWriters() {
+    return queuedWriters;
+  }
+
+  /**
+   * Gets the largest number of operations which have been waiting at the same time.
+   * 
+   * @return The peak queue depth.
+   */
+  public synchronized int getPeakQueueDepth() {
+    return peakQueueDepth;
+  }
+
+  /**
+   * Gets the number of read-only operations which have been started.
+   * 
+   * @return The number of reads.
+   */
+  public synchronized long getReadCount() {
+    return readCount;
+  }
+
+  /**
+   * Gets the number of modifying operations which have been started.
+   * 
+   * @return The number of writes.
+   */
+  public synchronized long getWriteCount() {
+    return writeCount;
+  }
+
+  /**
+   * Gets the number of operations rejected because the queue was full.
+   * 
+   * @return The number of rejected operations.
+   */
+  public synchronized long getRejectedCount() {
+    return rejectedCount;
+  }
+
+  /**
+   * Gets the number of operations which timed out, or were interrupted, while waiting.
+   * 
+   * @return The number of timed out operations.
+   */
+  public synchronized long getTimedOutCount() {
+    return timedOutCount;
+  }
+
+  /**
+   * Gets the total time operations have spent waiting to run.
+   * 
+   * @return The total wait time, in milliseconds.
+   */
+  public synchronized long getTotalWaitTime() {
+    return totalWaitTime;
+  }
+
+}
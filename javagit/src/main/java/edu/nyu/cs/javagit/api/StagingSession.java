@@ -0,0 +1,275 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.api.commands.GitAdd;
+import edu.nyu.cs.javagit.api.commands.GitAddResponse;
+import edu.nyu.cs.javagit.api.commands.GitCommit;
+import edu.nyu.cs.javagit.api.commands.GitCommitResponse;
+import edu.nyu.cs.javagit.api.commands.GitReset;
+import edu.nyu.cs.javagit.api.commands.GitResetResponse;
+import edu.nyu.cs.javagit.api.commands.GitRm;
+import edu.nyu.cs.javagit.api.commands.GitRmResponse;
+import edu.nyu.cs.javagit.client.cli.ProcessUtilities;
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>StagingSession</code> stages changes in a private, temporary index file instead of the
+ * shared <code>.git/index</code>, by setting <code>GIT_INDEX_FILE</code> in the environment of the
+ * git processes it runs. Several threads can therefore stage and commit from the same repository
+ * at the same time without contending on <code>index.lock</code>.
+ * 
+ * A session is meant to be used by one thread at a time and must be closed to delete its index
+ * file. The operations of a session do not go through the <code>RepositoryScheduler</code>, since
+ * they do not touch the shared index. Commits made with <code>commit()</code> still move the
+ * current branch; use <code>writeTree()</code> to build commits on other branches.
+ */
+public final class StagingSession {
+
+  /** The name of the environment variable git reads the path of the index file from. */
+  public static final String INDEX_FILE_VARIABLE = "GIT_INDEX_FILE";
+
+  // The working tree the session stages from.
+  private final File path;
+
+  // The private index file.
+  private final File indexFile;
+
+  private boolean closed = false;
+
+  /**
+   * Creates a session whose index starts with the tree of HEAD, or empty if HEAD has no commit.
+   * 
+   * @param workingTree
+   *          The working tree to stage from. If null, a <code>NullPointerException</code> is
+   *          thrown.
+   * @throws IOException
+   *           Thrown if the index file cannot be created.
+   * @throws JavaGitException
+   *           Thrown if the index cannot be filled.
+   */
+  public StagingSession(WorkingTree workingTree) throws IOException, JavaGitException {
+    this(workingTree, null);
+  }
+
+  /**
+   * Creates a session whose index starts with the given tree.
+   * 
+   * @param workingTree
+   *          The working tree to stage from. If null, a <code>NullPointerException</code> is
+   *          thrown.
+   * @param treeIsh
+   *          The commit or tree the index starts with; if null, HEAD, or an empty index if HEAD
+   *          has no commit.
+   * @throws IOException
+   *           Thrown if the index file cannot be created.
+   * @throws JavaGitException
+   *           Thrown if the index cannot be filled.
+   */
+  public StagingSession(WorkingTree workingTree, Ref treeIsh) throws IOException,
+      JavaGitException {
+    CheckUtilities.checkNullArgument(workingTree, "workingTree");
+    this.path = workingTree.getPath();
+
+    // git rejects an empty index file, so only the name is reserved here.
+    File gitDir = FsUtilities.getGitDirectory(path);
+    indexFile = File.createTempFile("javagit-index-", "", gitDir);
+    indexFile.delete();
+
+    boolean filled = false;
+    try {
+      String start = (null != treeIsh) ? treeIsh.toString() : null;
+      if (null == start && null != DotGit.getInstance(path).getRefDatabase().resolve("HEAD")) {
+        start = "HEAD";
+      }
+      if (null != start) {
+        runGit("read-tree", start);
+      }
+      filled = true;
+    } finally {
+      if (!filled) {
+        close();
+      }
+    }
+  }
+
+  /**
+   * Adds files to the index of the session.
+   * 
+   * @param paths
+   *          The paths to add, relative to the working tree.
+   * @return The response from git-add.
+   * @throws IOException
+   *           Thrown if git cannot be run.
+   * @throws JavaGitException
+   *           Thrown if git-add fails.
+   */
+  public GitAddResponse add(final List<File> paths) throws IOException, JavaGitException {
+    return run(new RepositoryScheduler.Operation<GitAddResponse>() {
+      public GitAddResponse run() throws IOException, JavaGitException {
+        return new GitAdd().add(path, paths);
+      }
+    });
+  }
+
+  /**
+   * Removes files from the index of the session, leaving the working tree alone.
+   * 
+   * @param paths
+   *          The paths to remove, relative to the working tree.
+   * @return The response from git-rm.
+   * @throws IOException
+   *           Thrown if git cannot be run.
+   * @throws JavaGitException
+   *           Thrown if git-rm fails.
+   */
+  public GitRmResponse rm(final List<File> paths) throws IOException, JavaGitException {
+    return run(new RepositoryScheduler.Operation<GitRmResponse>() {
+      public GitRmResponse run() throws IOException, JavaGitException {
+        return new GitRm().rmCached(path, paths);
+      }
+    });
+  }
+
+  /**
+   * Resets entries of the index of the session to their state in a commit.
+   * 
+   * @param commitName
+   *          The commit to reset the entries to.
+   * @param paths
+   *          The paths to reset, relative to the working tree.
+   * @return The response from git-reset.
+   * @throws IOException
+   *           Thrown if git cannot be run.
+   * @throws JavaGitException
+   *           Thrown if git-reset fails.
+   */
+  public GitResetResponse reset(final Ref commitName, final List<File> paths) throws IOException,
+      JavaGitException {
+    return run(new RepositoryScheduler.Operation<GitResetResponse>() {
+      public GitResetResponse run() throws IOException, JavaGitException {
+        return new GitReset().gitReset(path, commitName, paths);
+      }
+    });
+  }
+
+  /**
+   * Commits the index of the session on the current branch.
+   * 
+   * @param message
+   *          The commit message.
+   * @return The response from git-commit.
+   * @throws IOException
+   *           Thrown if git cannot be run.
+   * @throws JavaGitException
+   *           Thrown if git-commit fails.
+   */
+  public GitCommitResponse commit(final String message) throws IOException, JavaGitException {
+    return run(new RepositoryScheduler.Operation<GitCommitResponse>() {
+      public GitCommitResponse run() throws IOException, JavaGitException {
+        return new GitCommit().commit(path, message);
+      }
+    });
+  }
+
+  /**
+   * Writes the index of the session as a tree, to be committed with
+   * <code>ObjectWriter.writeCommit()</code> on any branch.
+   * 
+   * @return The id of the tree.
+   * @throws IOException
+   *           Thrown if git cannot be run.
+   * @throws JavaGitException
+   *           Thrown if git-write-tree fails.
+   */
+  public String writeTree() throws IOException, JavaGitException {
+    List<String> output = runGit("write-tree");
+    return output.get(0).trim();
+  }
+
+  /**
+   * Runs an operation with the index of the session: every git process started by the current
+   * thread during the operation uses it.
+   * 
+   * @param operation
+   *          The operation to run.
+   * @return The result of the operation.
+   * @throws IOException
+   *           Thrown if the operation fails.
+   * @throws JavaGitException
+   *           Thrown if the operation fails or the session is closed.
+   */
+  public <T> T run(RepositoryScheduler.Operation<T> operation) throws IOException,
+      JavaGitException {
+    CheckUtilities.checkNullArgument(operation, "operation");
+    synchronized (this) {
+      if (closed) {
+        throw new JavaGitException(100310, ExceptionMessageMap.getMessage("100310"));
+      }
+    }
+    Map<String, String> environment = new HashMap<String, String>(ProcessUtilities
+        .getThreadEnvironment());
+    environment.put(INDEX_FILE_VARIABLE, indexFile.getAbsolutePath());
+    Map<String, String> previous = ProcessUtilities.setThreadEnvironment(environment);
+    try {
+      return operation.run();
+    } finally {
+      ProcessUtilities.setThreadEnvironment(previous);
+    }
+  }
+
+  /**
+   * Gets the index file of the session. It does not exist until something is staged.
+   * 
+   * @return The index file.
+   */
+  public File getIndexFile() {
+    return indexFile;
+  }
+
+  /**
+   * Deletes the index file of the session. The session cannot be used anymore.
+   */
+  public synchronized void close() {
+    closed = true;
+    indexFile.delete();
+    new File(indexFile.getPath() + ".lock").delete();
+  }
+
+  private List<String> runGit(final String... args) throws IOException, JavaGitException {
+    return run(new RepositoryScheduler.Operation<List<String>>() {
+      public List<String> run() throws IOException, JavaGitException {
+        List<String> command = new ArrayList<String>();
+        command.add(JavaGitConfiguration.getGitCommand());
+        for (String arg : args) {
+          command.add(arg);
+        }
+        return ProcessUtilities.runRecordCommand(path, command);
+      }
+    });
+  }
+
+}
@@ -129,7 +129,11 @@ public final class WorkingTree {
    * @return response from git add
    */
   public GitAddResponse add() throws IOException, JavaGitException {
-    return rootDir.add();
+    return getScheduler().write(new RepositoryScheduler.Operation<GitAddResponse>() {
+      public GitAddResponse run() throws IOException, JavaGitException {
+        return rootDir.add();
+      }
+    });
   }
 
   /**
@@ -165,9 +169,13 @@ public final class WorkingTree {
    * 
    * @return response from git commit
    */
-  public GitCommitResponse commit(String comment) throws IOException, JavaGitException {
-    GitCommit gitCommit = new GitCommit();
-    return gitCommit.commit(path, comment);
+  public GitCommitResponse commit(final String comment) throws IOException, JavaGitException {
+    return getScheduler().write(new RepositoryScheduler.Operation<GitCommitResponse>() {
+      public GitCommitResponse run() throws IOException, JavaGitException {
+        GitCommit gitCommit = new GitCommit();
+        return gitCommit.commit(path, comment);
+      }
+    });
   }
 
   /**
@@ -179,9 +187,13 @@ public final class WorkingTree {
    * 
    * @return response from git commit
    */
-  public GitCommitResponse commitAll(String comment) throws IOException, JavaGitException {
-    GitCommit gitCommit = new GitCommit();
-    return gitCommit.commitAll(path, comment);
+  public GitCommitResponse commitAll(final String comment) throws IOException, JavaGitException {
+    return getScheduler().write(new RepositoryScheduler.Operation<GitCommitResponse>() {
+      public GitCommitResponse run() throws IOException, JavaGitException {
+        GitCommit gitCommit = new GitCommit();
+        return gitCommit.commitAll(path, comment);
+      }
+    });
   }
 
   /**
@@ -195,8 +207,13 @@ public final class WorkingTree {
    * @throws JavaGitException
    *          git command fails
    */
-  public GitCommitResponse addAndCommitAll(String comment) throws IOException, JavaGitException {
-    return rootDir.commit(comment);
+  public GitCommitResponse addAndCommitAll(final String comment) throws IOException,
+      JavaGitException {
+    return getScheduler().write(new RepositoryScheduler.Operation<GitCommitResponse>() {
+      public GitCommitResponse run() throws IOException, JavaGitException {
+        return rootDir.commit(comment);
+      }
+    });
   }
 
 
@@ -216,10 +233,14 @@ public final class WorkingTree {
    * @return The currently checked-out branch of the working directory.
    */
   public Ref getCurrentBranch() throws IOException, JavaGitException {
-    GitBranch gitBranch = new GitBranch();
-    GitBranchOptions options = new GitBranchOptions();
-    GitBranchResponse response = gitBranch.branch(path, options);
-    return response.getCurrentBranch();
+    return getScheduler().read(new RepositoryScheduler.Operation<Ref>() {
+      public Ref run() throws IOException, JavaGitException {
+        GitBranch gitBranch = new GitBranch();
+        GitBranchOptions options = new GitBranchOptions();
+        GitBranchResponse response = gitBranch.branch(path, options);
+        return response.getCurrentBranch();
+      }
+    });
   }
 
   /**
@@ -309,9 +330,14 @@ public final class WorkingTree {
    * @param ref
    *          Git branch/sha1 to switch to
    */
-  public void checkout(Ref ref) throws IOException, JavaGitException {
-    GitCheckout gitCheckout = new GitCheckout();
-    gitCheckout.checkout(path, null, ref);
+  public void checkout(final Ref ref) throws IOException, JavaGitException {
+    getScheduler().write(new RepositoryScheduler.Operation<Object>() {
+      public Object run() throws IOException, JavaGitException {
+        GitCheckout gitCheckout = new GitCheckout();
+        gitCheckout.checkout(path, null, ref);
+        return null;
+      }
+    });
 
     /*
      * TODO (rs2705): Figure out why this function is setting this.path. When does the WorkingTree
@@ -331,8 +357,22 @@ public final class WorkingTree {
    *         Exception thrown if the repositoryPath is null
    */
   public GitStatusResponse getStatus() throws IOException, JavaGitException {
-    GitStatus gitStatus = new GitStatus();
-    return gitStatus.status(path);
+    return getScheduler().read(new RepositoryScheduler.Operation<GitStatusResponse>() {
+      public GitStatusResponse run() throws IOException, JavaGitException {
+        GitStatus gitStatus = new GitStatus();
+        return gitStatus.status(path);
+      }
+    });
+  }
+
+  /**
+   * Gets the scheduler ordering the operations run on this repository. It is shared with the
+   * <code>DotGit</code> of the repository.
+   * 
+   * @return The scheduler of this repository.
+   */
+  public RepositoryScheduler getScheduler() {
+    return RepositoryScheduler.getInstance(canonicalPath);
   }
 
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>WorkspaceOptions</code> represents the options used when provisioning a new workspace from
+ * an existing local repository. See <code>DotGit.provisionWorkspace()</code>.
+ */
+public class WorkspaceOptions {
+
+  // The branch to check out in the new workspace; null means the source repository's HEAD.
+  private String branch = null;
+
+  // If true, the working tree and the index of the new workspace are left empty.
+  private boolean noCheckout = false;
+
+  // The sparse checkout patterns; only paths matching these are checked out when set.
+  private List<String> sparsePaths = new ArrayList<String>();
+
+  /**
+   * Gets the branch to check out in the new workspace.
+   * 
+   * @return The branch name, or null if the HEAD of the source repository is used.
+   */
+  public String getBranch() {
+    return branch;
+  }
+
+  /**
+   * Sets the branch to check out in the new workspace.
+   * 
+   * @param branch
+   *          The name of a branch existing in the source repository. If null, the HEAD of the
+   *          source repository is used.
+   */
+  public void setBranch(String branch) {
+    this.branch = branch;
+  }
+
+  /**
+   * Returns true if the new workspace should not be checked out.
+   * 
+   * @return True if no checkout is to be performed.
+   */
+  public boolean isNoCheckout() {
+    return noCheckout;
+  }
+
+  /**
+   * Sets whether the new workspace should be checked out. With this option set only the
+   * repository skeleton is created, which is the cheapest form of provisioning.
+   * 
+   * @param noCheckout
+   *          True if no checkout is to be performed.
+   */
+  public void setNoCheckout(boolean noCheckout) {
+    this.noCheckout = noCheckout;
+  }
+
+  /**
+   * Adds a sparse checkout pattern, in the format of the <code>.git/info/sparse-checkout</code>
+   * file (e.g. "src/", "/README.txt" or "!docs/").
+   * 
+   * @param pattern
+   *          The pattern to add. If null, a <code>NullPointerException</code> is thrown. If the
+   *          value has length zero, an <code>IllegalArgumentException</code> is thrown.
+   */
+  public void addSparsePath(String pattern) {
+    CheckUtilities.checkStringArgument(pattern, "pattern");
+    sparsePaths.add(pattern);
+  }
+
+  /**
+   * Gets the sparse checkout patterns.
+   * 
+   * @return The sparse checkout patterns. If the list is empty the whole tree is checked out.
+   */
+  public List<String> getSparsePaths() {
+    return new ArrayList<String>(sparsePaths);
+  }
+
+  /**
+   * Returns true if sparse checkout patterns have been set.
+   * 
+   * @return True if the checkout is sparse.
+   */
+  public boolean isSparse() {
+    return sparsePaths.size() > 0;
+  }
+}
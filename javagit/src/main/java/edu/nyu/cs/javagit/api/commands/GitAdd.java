@@ -242,4 +242,43 @@ public final class GitAdd {
     return gitAdd.add(repositoryPath, paths);
   }
 
+  /**
+   * Adds a huge list of files to the index with a single &lt;git-add&gt; process. The paths are
+   * fed NUL-separated through the standard input of the process instead of its command line, so
+   * tens of thousands of paths neither hit the maximum command line length nor need to be split
+   * across many processes.
+   * 
+   * @param repositoryPath
+   *          The path to the repository to commit against. A non-zero length argument is required
+   *          for this parameter, otherwise a <code>NullPointerException</code> or
+   *          <code>IllegalArgumentException</code> will be thrown.
+   * @param options
+   *          GitAddOptions that are passed to the &lt;git-add&gt; command; may be null.
+   * @param paths
+   *          List of file paths that will be added to the index.
+   * @param listener
+   *          Notified of each file as it is added, while the command runs; may be null.
+   * @return GitAddResponse Response generated by the add command.
+   * @exception IOException
+   *              There are many reasons for which an <code>IOException</code> may be thrown if -
+   *              <ul>
+   *              <li>repositoryPath is not valid</li>
+   *              <li>files or repository path does not have access rights</li>
+   *              </ul>
+   * @exception JavaGitException
+   *              Exception thrown
+   *              <ul>
+   *              <li>if the repositoryPath is null.</li>
+   *              <li>if the &lt;git-add&gt; command generates error.</li>
+   *              </ul>
+   */
+  public GitAddResponse addBulk(File repositoryPath, GitAddOptions options, List<File> paths,
+      GitProgressListener listener) throws IOException, JavaGitException {
+    CheckUtilities.checkFileValidity(repositoryPath.getAbsoluteFile());
+    CheckUtilities.checkNullListArgument(paths, "paths");
+    IClient client = ClientManager.getInstance().getPreferredClient();
+    IGitAdd gitAdd = client.getGitAddInstance();
+    return gitAdd.addBulk(repositoryPath, options, paths, listener);
+  }
+
 }
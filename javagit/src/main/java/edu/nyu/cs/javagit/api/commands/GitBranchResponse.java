@@ -158,6 +158,14 @@ abstract public class GitBranchResponse implements CommandResponse {
     // Variable to store the current branch.
     private boolean isCurrentBranch;
 
+    // The full name of the reference, the upstream branch and how far the branch is ahead of and
+    // behind it, and the committer date of the tip, when listed with git-for-each-ref.
+    private String refName;
+    private Ref upstream;
+    private int ahead;
+    private int behind;
+    private long committerTime = -1;
+
     public BranchRecord(Ref branch, Ref sha1, String comment, boolean isCurrentBranch) {
       this.branch = branch;
       this.sha1 = sha1;
@@ -165,6 +173,39 @@ abstract public class GitBranchResponse implements CommandResponse {
       this.isCurrentBranch = isCurrentBranch;
     }
 
+    /**
+     * Creates a record of a reference listed with git-for-each-ref.
+     * 
+     * @param refName
+     *          The full name of the reference, e.g. "refs/heads/master".
+     * @param branch
+     *          The short name of the reference.
+     * @param sha1
+     *          The object the reference points to.
+     * @param comment
+     *          The subject of the commit (or tag) the reference points to.
+     * @param isCurrentBranch
+     *          True if HEAD points to the reference.
+     * @param upstream
+     *          The upstream branch, or null if there is none.
+     * @param ahead
+     *          The number of commits of the branch which are not in the upstream branch.
+     * @param behind
+     *          The number of commits of the upstream branch which are not in the branch.
+     * @param committerTime
+     *          The committer date of the commit the reference points to, in seconds since the
+     *          epoch, or -1 if it is not a commit.
+     */
+    public BranchRecord(String refName, Ref branch, Ref sha1, String comment,
+        boolean isCurrentBranch, Ref upstream, int ahead, int behind, long committerTime) {
+      this(branch, sha1, comment, isCurrentBranch);
+      this.refName = refName;
+      this.upstream = upstream;
+      this.ahead = ahead;
+      this.behind = behind;
+      this.committerTime = committerTime;
+    }
+
     public boolean equals(Object o) {
       if (!(o instanceof BranchRecord)) {
         return false;
@@ -189,6 +230,19 @@ abstract public class GitBranchResponse implements CommandResponse {
         return false;
       }
 
+      if (!CheckUtilities.checkObjectsEqual(getRefName(), c.getRefName())) {
+        return false;
+      }
+
+      if (!CheckUtilities.checkObjectsEqual(getUpstream(), c.getUpstream())) {
+        return false;
+      }
+
+      if (ahead != c.getAhead() || behind != c.getBehind()
+          || committerTime != c.getCommitterTime()) {
+        return false;
+      }
+
       return true;
     }
 
@@ -224,6 +278,52 @@ abstract public class GitBranchResponse implements CommandResponse {
       return branch.hashCode() + sha1.hashCode() + comment.hashCode();
     }
 
+    /**
+     * Gets the full name of the reference, e.g. "refs/heads/master".
+     * 
+     * @return The full name, or null if the record was not listed with git-for-each-ref.
+     */
+    public String getRefName() {
+      return refName;
+    }
+
+    /**
+     * Gets the upstream branch of the branch.
+     * 
+     * @return The upstream branch, or null if there is none or the record was not listed with
+     *         git-for-each-ref.
+     */
+    public Ref getUpstream() {
+      return upstream;
+    }
+
+    /**
+     * Gets the number of commits of the branch which are not in its upstream branch.
+     * 
+     * @return The number of commits ahead of the upstream branch.
+     */
+    public int getAhead() {
+      return ahead;
+    }
+
+    /**
+     * Gets the number of commits of the upstream branch which are not in the branch.
+     * 
+     * @return The number of commits behind the upstream branch.
+     */
+    public int getBehind() {
+      return behind;
+    }
+
+    /**
+     * Gets the committer date of the commit the reference points to.
+     * 
+     * @return The committer date, in seconds since the epoch, or -1 if it is unknown.
+     */
+    public long getCommitterTime() {
+      return committerTime;
+    }
+
     /**
      * Gets the current branch from the list of branches displayed by git-branch operation.
      * 
@@ -0,0 +1,59 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.client.ClientManager;
+import edu.nyu.cs.javagit.client.IClient;
+import edu.nyu.cs.javagit.client.IGitFastExport;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>GitFastExport</code> provides an interface for reading a whole history in a single pass,
+ * including the contents of every blob, e.g. for mirroring or analytics. The history is streamed
+ * to a <code>GitFastExportHandler</code> as git produces it.
+ */
+public final class GitFastExport {
+
+  /**
+   * Exports the history of a repository.
+   * 
+   * @param repositoryPath
+   *          The path to the repository to export. A non-zero length argument is required for
+   *          this parameter, otherwise a <code>NullPointerException</code> or
+   *          <code>IllegalArgumentException</code> will be thrown.
+   * @param options
+   *          The options of the export; may be null to export all refs.
+   * @param handler
+   *          The handler receiving the blobs, commits, file changes, tags and resets.
+   * @exception IOException
+   *              Thrown if the repository path is not valid or git-fast-export cannot be run.
+   * @exception JavaGitException
+   *              Thrown when git-fast-export fails, its output is malformed, or by the handler.
+   */
+  public void export(File repositoryPath, GitFastExportOptions options,
+      GitFastExportHandler handler) throws IOException, JavaGitException {
+    CheckUtilities.checkNullArgument(repositoryPath, "repository path");
+    CheckUtilities.checkNullArgument(handler, "handler");
+    IClient client = ClientManager.getInstance().getPreferredClient();
+    IGitFastExport gitFastExport = client.getGitFastExportInstance();
+    gitFastExport.export(repositoryPath, options, handler);
+  }
+}
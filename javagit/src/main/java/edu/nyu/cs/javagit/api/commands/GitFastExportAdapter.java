@@ -0,0 +1,64 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.client.fs.PersonIdent;
+
+/**
+ * An implementation of <code>GitFastExportHandler</code> ignoring every event, to be extended by
+ * handlers interested in a few of them.
+ */
+public class GitFastExportAdapter implements GitFastExportHandler {
+
+  public void blob(String mark, String originalId, long length, InputStream data)
+      throws IOException, JavaGitException {
+  }
+
+  public void commit(GitFastExportCommit commit) throws IOException, JavaGitException {
+  }
+
+  public void fileModify(int mode, String dataRef, String path) throws IOException,
+      JavaGitException {
+  }
+
+  public void fileDelete(String path) throws IOException, JavaGitException {
+  }
+
+  public void fileRename(String source, String destination) throws IOException,
+      JavaGitException {
+  }
+
+  public void fileCopy(String source, String destination) throws IOException, JavaGitException {
+  }
+
+  public void fileDeleteAll() throws IOException, JavaGitException {
+  }
+
+  public void commitEnd(GitFastExportCommit commit) throws IOException, JavaGitException {
+  }
+
+  public void tag(String name, String from, PersonIdent tagger, String message)
+      throws IOException, JavaGitException {
+  }
+
+  public void reset(String ref, String from) throws IOException, JavaGitException {
+  }
+}
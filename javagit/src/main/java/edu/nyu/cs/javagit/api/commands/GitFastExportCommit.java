@@ -0,0 +1,135 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.nyu.cs.javagit.client.fs.PersonIdent;
+
+/**
+ * <code>GitFastExportCommit</code> holds the header of a commit read from a git-fast-export
+ * stream: its branch, mark, identities, message and parents. The file changes of the commit are
+ * reported separately to the <code>GitFastExportHandler</code>.
+ */
+public final class GitFastExportCommit {
+
+  private final String ref;
+  private String mark;
+  private String originalId;
+  private PersonIdent author;
+  private PersonIdent committer;
+  private String message = "";
+  private String from;
+  private final List<String> merges = new ArrayList<String>();
+
+  GitFastExportCommit(String ref) {
+    this.ref = ref;
+  }
+
+  /**
+   * Gets the ref the commit was exported for, e.g. "refs/heads/master".
+   * 
+   * @return The ref.
+   */
+  public String getRef() {
+    return ref;
+  }
+
+  /**
+   * Gets the mark of the commit, e.g. ":12".
+   * 
+   * @return The mark, or null if the commit has none.
+   */
+  public String getMark() {
+    return mark;
+  }
+
+  /**
+   * Gets the id of the commit in the exported repository.
+   * 
+   * @return The id, or null unless <code>showOriginalIds</code> was set.
+   */
+  public String getOriginalId() {
+    return originalId;
+  }
+
+  /**
+   * Gets the author of the commit.
+   * 
+   * @return The author, or null if it is the committer.
+   */
+  public PersonIdent getAuthor() {
+    return author;
+  }
+
+  public PersonIdent getCommitter() {
+    return committer;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Gets the first parent of the commit.
+   * 
+   * @return The mark or id of the first parent, or null if the commit continues the current tip of
+   *         its ref or is a root commit.
+   */
+  public String getFrom() {
+    return from;
+  }
+
+  /**
+   * Gets the parents after the first one.
+   * 
+   * @return The marks or ids of the parents.
+   */
+  public List<String> getMerges() {
+    return Collections.unmodifiableList(merges);
+  }
+
+  void setMark(String mark) {
+    this.mark = mark;
+  }
+
+  void setOriginalId(String originalId) {
+    this.originalId = originalId;
+  }
+
+  void setAuthor(PersonIdent author) {
+    this.author = author;
+  }
+
+  void setCommitter(PersonIdent committer) {
+    this.committer = committer;
+  }
+
+  void setMessage(String message) {
+    this.message = message;
+  }
+
+  void setFrom(String from) {
+    this.from = from;
+  }
+
+  void addMerge(String merge) {
+    merges.add(merge);
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.client.fs.PersonIdent;
+
+/**
+ * <code>GitFastExportHandler</code> receives the events of a git-fast-export stream, in stream
+ * order. A commit is reported by <code>commit()</code>, then one call per file change, then
+ * <code>commitEnd()</code>. Any method may throw to abort the export.
+ * 
+ * <code>GitFastExportAdapter</code> implements every method as a no-op.
+ */
+public interface GitFastExportHandler {
+
+  /**
+   * Called for a blob. The data stream is only valid during this call; bytes left unread are
+   * skipped.
+   * 
+   * @param mark
+   *          The mark of the blob, e.g. ":1".
+   * @param originalId
+   *          The id of the blob, or null unless <code>showOriginalIds</code> was set.
+   * @param length
+   *          The size of the blob in bytes.
+   * @param data
+   *          The contents of the blob.
+   */
+  public void blob(String mark, String originalId, long length, InputStream data)
+      throws IOException, JavaGitException;
+
+  /**
+   * Called at the start of a commit, before its file changes.
+   * 
+   * @param commit
+   *          The commit header.
+   */
+  public void commit(GitFastExportCommit commit) throws IOException, JavaGitException;
+
+  /**
+   * Called when a file of the current commit is added or modified.
+   * 
+   * @param mode
+   *          The file mode, e.g. <code>ObjectWriter.MODE_FILE</code>.
+   * @param dataRef
+   *          The mark of the blob, or its id if blobs are not exported.
+   * @param path
+   *          The path of the file.
+   */
+  public void fileModify(int mode, String dataRef, String path) throws IOException,
+      JavaGitException;
+
+  /**
+   * Called when a file of the current commit is deleted.
+   * 
+   * @param path
+   *          The path of the file.
+   */
+  public void fileDelete(String path) throws IOException, JavaGitException;
+
+  /**
+   * Called when a file of the current commit is renamed.
+   * 
+   * @param source
+   *          The old path.
+   * @param destination
+   *          The new path.
+   */
+  public void fileRename(String source, String destination) throws IOException,
+      JavaGitException;
+
+  /**
+   * Called when a file of the current commit is copied.
+   * 
+   * @param source
+   *          The copied path.
+   * @param destination
+   *          The path of the copy.
+   */
+  public void fileCopy(String source, String destination) throws IOException, JavaGitException;
+
+  /**
+   * Called when the current commit starts from an empty tree, as with <code>fullTree</code>.
+   */
+  public void fileDeleteAll() throws IOException, JavaGitException;
+
+  /**
+   * Called at the end of a commit, after its file changes.
+   * 
+   * @param commit
+   *          The commit header.
+   */
+  public void commitEnd(GitFastExportCommit commit) throws IOException, JavaGitException;
+
+  /**
+   * Called for an annotated tag.
+   * 
+   * @param name
+   *          The name of the tag, without "refs/tags/".
+   * @param from
+   *          The mark or id of the tagged object.
+   * @param tagger
+   *          The tagger, or null.
+   * @param message
+   *          The tag message.
+   */
+  public void tag(String name, String from, PersonIdent tagger, String message)
+      throws IOException, JavaGitException;
+
+  /**
+   * Called when a ref is reset, e.g. for a lightweight tag or before the first commit of a branch.
+   * 
+   * @param ref
+   *          The full name of the ref.
+   * @param from
+   *          The mark or id the ref is reset to, or null.
+   */
+  public void reset(String ref, String from) throws IOException, JavaGitException;
+}
@@ -0,0 +1,134 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * A class to manage passing arguments to the <code>GitFastExport</code> command.
+ * 
+ * Default values:
+ * <ul>
+ * <li> revisions - all refs (--all)</li>
+ * <li> paths - the whole tree</li>
+ * <li> detectRenames - false</li>
+ * <li> detectCopies - false</li>
+ * <li> noData - false</li>
+ * <li> fullTree - false</li>
+ * <li> showOriginalIds - false</li>
+ * </ul>
+ * 
+ * Signed tags are always exported with their signature stripped.
+ */
+public class GitFastExportOptions {
+
+  // The revisions to export; all refs when empty.
+  private final List<String> revisions = new ArrayList<String>();
+
+  // The paths to limit the export to.
+  private final List<String> paths = new ArrayList<String>();
+
+  // Report renames as R changes (-M).
+  private boolean optDetectRenames = false;
+
+  // Report copies as C changes (-C).
+  private boolean optDetectCopies = false;
+
+  // Do not export blobs; file changes refer to the blob ids instead (--no-data).
+  private boolean optNoData = false;
+
+  // Start every commit with deleteall and list its whole tree (--full-tree).
+  private boolean optFullTree = false;
+
+  // Report the original object ids of blobs, commits and tags (--show-original-ids).
+  private boolean optShowOriginalIds = false;
+
+  /**
+   * Adds a revision or revision range to export, e.g. "master" or "v1.0..master". If no revision
+   * is added, all refs are exported.
+   * 
+   * @param revision
+   *          The revision.
+   */
+  public void addRevision(String revision) {
+    CheckUtilities.checkStringArgument(revision, "revision");
+    revisions.add(revision);
+  }
+
+  public List<String> getRevisions() {
+    return Collections.unmodifiableList(revisions);
+  }
+
+  /**
+   * Limits the export to the commits touching a path.
+   * 
+   * @param path
+   *          The path, relative to the repository root.
+   */
+  public void addPath(String path) {
+    CheckUtilities.checkStringArgument(path, "path");
+    paths.add(path);
+  }
+
+  public List<String> getPaths() {
+    return Collections.unmodifiableList(paths);
+  }
+
+  public boolean isOptDetectRenames() {
+    return optDetectRenames;
+  }
+
+  public void setOptDetectRenames(boolean optDetectRenames) {
+    this.optDetectRenames = optDetectRenames;
+  }
+
+  public boolean isOptDetectCopies() {
+    return optDetectCopies;
+  }
+
+  public void setOptDetectCopies(boolean optDetectCopies) {
+    this.optDetectCopies = optDetectCopies;
+  }
+
+  public boolean isOptNoData() {
+    return optNoData;
+  }
+
+  public void setOptNoData(boolean optNoData) {
+    this.optNoData = optNoData;
+  }
+
+  public boolean isOptFullTree() {
+    return optFullTree;
+  }
+
+  public void setOptFullTree(boolean optFullTree) {
+    this.optFullTree = optFullTree;
+  }
+
+  public boolean isOptShowOriginalIds() {
+    return optShowOriginalIds;
+  }
+
+  public void setOptShowOriginalIds(boolean optShowOriginalIds) {
+    this.optShowOriginalIds = optShowOriginalIds;
+  }
+}
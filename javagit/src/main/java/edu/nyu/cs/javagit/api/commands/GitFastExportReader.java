@@ -0,0 +1,435 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+import edu.nyu.cs.javagit.client.fs.PersonIdent;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>GitFastExportReader</code> parses the git-fast-export stream format incrementally and
+ * reports its commands to a <code>GitFastExportHandler</code>. Blob contents are handed out as
+ * streams and never held in memory, so the memory used does not depend on the size of the
+ * history.
+ * 
+ * The reader is not thread-safe.
+ */
+public class GitFastExportReader {
+
+  // The stream being parsed.
+  private final InputStream in;
+
+  // The buffer the current line is read into.
+  private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(256);
+
+  // A line read ahead and pushed back, or null.
+  private String pushedBack = null;
+
+  // The metrics.
+  private long blobCount = 0;
+  private long blobBytes = 0;
+  private long commitCount = 0;
+  private long tagCount = 0;
+
+  /**
+   * Creates a reader.
+   * 
+   * @param input
+   *          The fast-export stream, usually the standard output of git-fast-export.
+   */
+  public GitFastExportReader(InputStream input) {
+    CheckUtilities.checkNullArgument(input, "input");
+    this.in = new BufferedInputStream(input, 64 * 1024);
+  }
+
+  /**
+   * Reads the whole stream, reporting its commands to a handler.
+   * 
+   * @param handler
+   *          The handler.
+   * @throws IOException
+   *           Thrown if the stream cannot be read.
+   * @throws JavaGitException
+   *           Thrown if the stream is malformed, or by the handler.
+   */
+  public void read(GitFastExportHandler handler) throws IOException, JavaGitException {
+    CheckUtilities.checkNullArgument(handler, "handler");
+    String line;
+    while (null != (line = nextLine())) {
+      if (0 == line.length()) {
+        continue;
+      } else if (line.equals("blob")) {
+        readBlob(handler);
+      } else if (line.startsWith("commit ")) {
+        readCommit(line.substring("commit ".length()), handler);
+      } else if (line.startsWith("tag ")) {
+        readTag(line.substring("tag ".length()), handler);
+      } else if (line.startsWith("reset ")) {
+        String ref = line.substring("reset ".length());
+        String from = null;
+        String next = nextLine();
+        if (null != next && next.startsWith("from ")) {
+          from = next.substring("from ".length());
+        } else {
+          pushedBack = next;
+        }
+        handler.reset(ref, from);
+      } else if (line.equals("done")) {
+        return;
+      } else if (line.startsWith("feature ") || line.startsWith("option ")
+          || line.startsWith("progress ") || line.equals("checkpoint")) {
+        continue;
+      } else {
+        throw unexpected(line);
+      }
+    }
+  }
+
+  public long getBlobCount() {
+    return blobCount;
+  }
+
+  /**
+   * Gets the total size of the blobs read.
+   * 
+   * @return The number of bytes.
+   */
+  public long getBlobBytes() {
+    return blobBytes;
+  }
+
+  public long getCommitCount() {
+    return commitCount;
+  }
+
+  public long getTagCount() {
+    return tagCount;
+  }
+
+  private void readBlob(GitFastExportHandler handler) throws IOException, JavaGitException {
+    String mark = null;
+    String originalId = null;
+    String line;
+    while (!(line = requireLine()).startsWith("data ")) {
+      if (line.startsWith("mark ")) {
+        mark = line.substring("mark ".length());
+      } else if (line.startsWith("original-oid ")) {
+        originalId = line.substring("original-oid ".length());
+      } else {
+        throw unexpected(line);
+      }
+    }
+    long length = parseLength(line);
+    DataStream data = new DataStream(length);
+    handler.blob(mark, originalId, length, data);
+    data.skipRemaining();
+    skipOptionalLf();
+    blobCount++;
+    blobBytes += length;
+  }
+
+  private void readCommit(String ref, GitFastExportHandler handler) throws IOException,
+      JavaGitException {
+    GitFastExportCommit commit = new GitFastExportCommit(ref);
+    String line;
+    while (!(line = requireLine()).startsWith("data ")) {
+      if (line.startsWith("mark ")) {
+        commit.setMark(line.substring("mark ".length()));
+      } else if (line.startsWith("original-oid ")) {
+        commit.setOriginalId(line.substring("original-oid ".length()));
+      } else if (line.startsWith("author ")) {
+        commit.setAuthor(PersonIdent.parse(line.substring("author ".length())));
+      } else if (line.startsWith("committer ")) {
+        commit.setCommitter(PersonIdent.parse(line.substring("committer ".length())));
+      } else if (!line.startsWith("encoding ")) {
+        throw unexpected(line);
+      }
+    }
+    commit.setMessage(readData(line));
+
+    boolean started = false;
+    while (true) {
+      line = nextLine();
+      if (null == line || 0 == line.length()) {
+        break;
+      }
+      if (!started && line.startsWith("from ")) {
+        commit.setFrom(line.substring("from ".length()));
+        continue;
+      }
+      if (!started && line.startsWith("merge ")) {
+        commit.addMerge(line.substring("merge ".length()));
+        continue;
+      }
+      if (!started) {
+        handler.commit(commit);
+        started = true;
+      }
+      if (line.startsWith("M ")) {
+        int modeEnd = line.indexOf(' ', 2);
+        int refEnd = (modeEnd < 0) ? -1 : line.indexOf(' ', modeEnd + 1);
+        if (refEnd < 0) {
+          throw unexpected(line);
+        }
+        String dataRef = line.substring(modeEnd + 1, refEnd);
+        if (dataRef.equals("inline")) {
+          throw unexpected(line);
+        }
+        handler.fileModify(Integer.parseInt(line.substring(2, modeEnd), 8), dataRef,
+            unquote(line.substring(refEnd + 1)));
+      } else if (line.startsWith("D ")) {
+        handler.fileDelete(unquote(line.substring(2)));
+      } else if (line.startsWith("R ") || line.startsWith("C ")) {
+        String paths = line.substring(2);
+        int split = endOfSourcePath(paths);
+        if (split < 0) {
+          throw unexpected(line);
+        }
+        String source = unquote(paths.substring(0, split));
+        String destination = unquote(paths.substring(split + 1));
+        if ('R' == line.charAt(0)) {
+          handler.fileRename(source, destination);
+        } else {
+          handler.fileCopy(source, destination);
+        }
+      } else if (line.equals("deleteall")) {
+        handler.fileDeleteAll();
+      } else if (!line.startsWith("N ")) {
+        // The next command; this commit had no terminating blank line.
+        pushedBack = line;
+        break;
+      }
+    }
+    if (!started) {
+      handler.commit(commit);
+    }
+    handler.commitEnd(commit);
+    commitCount++;
+  }
+
+  private void readTag(String name, GitFastExportHandler handler) throws IOException,
+      JavaGitException {
+    String from = null;
+    PersonIdent tagger = null;
+    String line;
+    while (!(line = requireLine()).startsWith("data ")) {
+      if (line.startsWith("from ")) {
+        from = line.substring("from ".length());
+      } else if (line.startsWith("tagger ")) {
+        tagger = PersonIdent.parse(line.substring("tagger ".length()));
+      } else if (!line.startsWith("mark ") && !line.startsWith("original-oid ")) {
+        throw unexpected(line);
+      }
+    }
+    handler.tag(name, from, tagger, readData(line));
+    tagCount++;
+  }
+
+  /*
+   * Reads a data section into a string.
+   */
+  private String readData(String dataLine) throws IOException, JavaGitException {
+    long length = parseLength(dataLine);
+    byte[] bytes = new byte[(int) length];
+    int off = 0;
+    while (off < bytes.length) {
+      int n = in.read(bytes, off, bytes.length - off);
+      if (n < 0) {
+        throw new JavaGitException(414002, ExceptionMessageMap.getMessage("414002"));
+      }
+      off += n;
+    }
+    skipOptionalLf();
+    return new String(bytes, FsUtilities.ENCODING);
+  }
+
+  private long parseLength(String dataLine) throws JavaGitException {
+    try {
+      return Long.parseLong(dataLine.substring("data ".length()));
+    } catch (NumberFormatException e) {
+      throw unexpected(dataLine);
+    }
+  }
+
+  private void skipOptionalLf() throws IOException {
+    in.mark(1);
+    if ('\n' != in.read()) {
+      in.reset();
+    }
+  }
+
+  private String requireLine() throws IOException, JavaGitException {
+    String line = nextLine();
+    if (null == line) {
+      throw new JavaGitException(414002, ExceptionMessageMap.getMessage("414002"));
+    }
+    return line;
+  }
+
+  /*
+   * Reads the next line, without its line feed, or null at the end of the stream.
+   */
+  private String nextLine() throws IOException {
+    if (null != pushedBack) {
+      String line = pushedBack;
+      pushedBack = null;
+      return line;
+    }
+    lineBuffer.reset();
+    int b;
+    while ('\n' != (b = in.read())) {
+      if (b < 0) {
+        return (0 == lineBuffer.size()) ? null : lineBuffer.toString(FsUtilities.ENCODING);
+      }
+      lineBuffer.write(b);
+    }
+    return lineBuffer.toString(FsUtilities.ENCODING);
+  }
+
+  private JavaGitException unexpected(String line) {
+    return new JavaGitException(414001, ExceptionMessageMap.getMessage("414001") + "  { line=["
+        + line + "] }");
+  }
+
+  /*
+   * Finds the space ending the source path of a rename or copy.
+   */
+  private static int endOfSourcePath(String paths) {
+    if (!paths.startsWith("\"")) {
+      return paths.indexOf(' ');
+    }
+    for (int i = 1; i < paths.length(); i++) {
+      char c = paths.charAt(i);
+      if ('\\' == c) {
+        i++;
+      } else if ('"' == c) {
+        return (i + 1 < paths.length()) ? i + 1 : -1;
+      }
+    }
+    return -1;
+  }
+
+  /*
+   * Removes the C-style quoting git applies to paths with special or non-ASCII characters.
+   */
+  static String unquote(String path) throws IOException {
+    if (!path.startsWith("\"") || !path.endsWith("\"") || path.length() < 2) {
+      return path;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(path.length());
+    for (int i = 1; i < path.length() - 1; i++) {
+      char c = path.charAt(i);
+      if ('\\' != c) {
+        bytes.write(FsUtilities.toBytes(String.valueOf(c)));
+        continue;
+      }
+      c = path.charAt(++i);
+      switch (c) {
+      case 'a':
+        bytes.write(7);
+        break;
+      case 'b':
+        bytes.write('\b');
+        break;
+      case 'f':
+        bytes.write('\f');
+        break;
+      case 'n':
+        bytes.write('\n');
+        break;
+      case 'r':
+        bytes.write('\r');
+        break;
+      case 't':
+        bytes.write('\t');
+        break;
+      case 'v':
+        bytes.write(11);
+        break;
+      default:
+        if (c >= '0' && c <= '3' && i + 2 < path.length()) {
+          bytes.write(Integer.parseInt(path.substring(i, i + 3), 8));
+          i += 2;
+        } else {
+          bytes.write(c);
+        }
+      }
+    }
+    return bytes.toString(FsUtilities.ENCODING);
+  }
+
+  /**
+   * The contents of a data section, read directly from the underlying stream.
+   */
+  private class DataStream extends InputStream {
+    private long remaining;
+
+    DataStream(long length) {
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int b = in.read();
+      if (b < 0) {
+        throw new IOException(ExceptionMessageMap.getMessage("414002"));
+      }
+      remaining--;
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int n = in.read(b, off, (int) Math.min(len, remaining));
+      if (n < 0) {
+        throw new IOException(ExceptionMessageMap.getMessage("414002"));
+      }
+      remaining -= n;
+      return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public void close() {
+      // The underlying stream is still being parsed.
+    }
+
+    void skipRemaining() throws IOException {
+      byte[] buf = new byte[8192];
+      while (remaining > 0) {
+        read(buf, 0, buf.length);
+      }
+    }
+  }
+}
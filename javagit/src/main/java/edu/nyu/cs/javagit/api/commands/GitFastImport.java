@@ -0,0 +1,59 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.client.ClientManager;
+import edu.nyu.cs.javagit.client.IClient;
+import edu.nyu.cs.javagit.client.IGitFastImport;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>GitFastImport</code> provides an interface for importing whole histories into a git
+ * repository in a single pass, e.g. when migrating from another version control system. Instead of
+ * running one process per commit, one git-fast-import process is fed a stream of blobs, commits
+ * and tags.
+ */
+public final class GitFastImport {
+
+  /**
+   * Starts an import into a repository. The returned stream must be closed for the import to
+   * complete.
+   * 
+   * @param repositoryPath
+   *          The path to the repository to import into. A non-zero length argument is required for
+   *          this parameter, otherwise a <code>NullPointerException</code> or
+   *          <code>IllegalArgumentException</code> will be thrown.
+   * @param options
+   *          The options of the import; may be null.
+   * @return The stream to write the history to.
+   * @exception IOException
+   *              Thrown if the repository path is not valid or git-fast-import cannot be started.
+   * @exception JavaGitException
+   *              Thrown when there is an error starting git-fast-import.
+   */
+  public GitFastImportStream start(File repositoryPath, GitFastImportOptions options)
+      throws IOException, JavaGitException {
+    CheckUtilities.checkNullArgument(repositoryPath, "repository path");
+    IClient client = ClientManager.getInstance().getPreferredClient();
+    IGitFastImport gitFastImport = client.getGitFastImportInstance();
+    return gitFastImport.start(repositoryPath, options);
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.nyu.cs.javagit.client.fs.PersonIdent;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>GitFastImportCommit</code> describes a commit to be written by
+ * <code>GitFastImportStream.commit()</code>: its branch, identities, message, parents and file
+ * changes. Objects are referred to either by a mark returned by the stream (e.g. ":12") or by
+ * their id.
+ */
+public final class GitFastImportCommit {
+
+  /**
+   * The types of file changes of a commit.
+   */
+  public static enum ChangeType {
+    MODIFY, DELETE, RENAME, COPY, DELETE_ALL
+  }
+
+  // The branch the commit is made on, e.g. "refs/heads/master".
+  private final String ref;
+
+  // The committer of the commit.
+  private final PersonIdent committer;
+
+  // The commit message.
+  private final String message;
+
+  // The author of the commit, if different from the committer.
+  private PersonIdent author = null;
+
+  // The first parent, if not the current tip of the branch.
+  private String from = null;
+
+  // The additional parents.
+  private final List<String> merges = new ArrayList<String>();
+
+  // The file changes, in order.
+  private final List<FileChange> changes = new ArrayList<FileChange>();
+
+  /**
+   * Creates a commit.
+   * 
+   * @param ref
+   *          The branch the commit is made on, e.g. "refs/heads/master".
+   * @param committer
+   *          The committer of the commit.
+   * @param message
+   *          The commit message.
+   */
+  public GitFastImportCommit(String ref, PersonIdent committer, String message) {
+    CheckUtilities.checkStringArgument(ref, "ref");
+    CheckUtilities.checkNullArgument(committer, "committer");
+    CheckUtilities.checkNullArgument(message, "message");
+    this.ref = ref;
+    this.committer = committer;
+    this.message = message;
+  }
+
+  public String getRef() {
+    return ref;
+  }
+
+  public PersonIdent getCommitter() {
+    return committer;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public PersonIdent getAuthor() {
+    return author;
+  }
+
+  /**
+   * Sets the author of the commit. If not set, the committer is the author.
+   * 
+   * @param author
+   *          The author.
+   */
+  public void setAuthor(PersonIdent author) {
+    this.author = author;
+  }
+
+  public String getFrom() {
+    return from;
+  }
+
+  /**
+   * Sets the first parent of the commit. If not set, the commit is made on top of the current tip
+   * of the branch, or is a root commit if the branch does not exist yet.
+   * 
+   * @param from
+   *          A mark or a commit id.
+   */
+  public void setFrom(String from) {
+    this.from = from;
+  }
+
+  /**
+   * Adds a parent after the first one, making the commit a merge.
+   * 
+   * @param parent
+   *          A mark or a commit id.
+   */
+  public void addMerge(String parent) {
+    CheckUtilities.checkStringArgument(parent, "parent");
+    merges.add(parent);
+  }
+
+  public List<String> getMerges() {
+    return Collections.unmodifiableList(merges);
+  }
+
+  /**
+   * Adds or replaces a file with a blob written before.
+   * 
+   * @param mode
+   *          The file mode, e.g. <code>ObjectWriter.MODE_FILE</code>.
+   * @param blob
+   *          The mark or the id of the blob.
+   * @param path
+   *          The path of the file.
+   */
+  public void modify(int mode, String blob, String path) {
+    CheckUtilities.checkStringArgument(blob, "blob");
+    CheckUtilities.checkStringArgument(path, "path");
+    changes.add(new FileChange(ChangeType.MODIFY, mode, blob, null, path, null));
+  }
+
+  /**
+   * Adds or replaces a file with inline content, which does not need a mark.
+   * 
+   * @param mode
+   *          The file mode, e.g. <code>ObjectWriter.MODE_FILE</code>.
+   * @param path
+   *          The path of the file.
+   * @param data
+   *          The contents of the file.
+   */
+  public void modify(int mode, String path, byte[] data) {
+    CheckUtilities.checkStringArgument(path, "path");
+    CheckUtilities.checkNullArgument(data, "data");
+    changes.add(new FileChange(ChangeType.MODIFY, mode, null, data, path, null));
+  }
+
+  /**
+   * Deletes a file or a directory.
+   * 
+   * @param path
+   *          The path to delete.
+   */
+  public void delete(String path) {
+    CheckUtilities.checkStringArgument(path, "path");
+    changes.add(new FileChange(ChangeType.DELETE, 0, null, null, path, null));
+  }
+
+  /**
+   * Renames a file or a directory.
+   * 
+   * @param source
+   *          The current path.
+   * @param destination
+   *          The new path.
+   */
+  public void rename(String source, String destination) {
+    CheckUtilities.checkStringArgument(source, "source");
+    CheckUtilities.checkStringArgument(destination, "destination");
+    changes.add(new FileChange(ChangeType.RENAME, 0, null, null, source, destination));
+  }
+
+  /**
+   * Copies a file or a directory.
+   * 
+   * @param source
+   *          The path to copy.
+   * @param destination
+   *          The path of the copy.
+   */
+  public void copy(String source, String destination) {
+    CheckUtilities.checkStringArgument(source, "source");
+    CheckUtilities.checkStringArgument(destination, "destination");
+    changes.add(new FileChange(ChangeType.COPY, 0, null, null, source, destination));
+  }
+
+  /**
+   * Removes all files inherited from the parent, so that the commit contains only the files
+   * modified after this call.
+   */
+  public void deleteAll() {
+    changes.add(new FileChange(ChangeType.DELETE_ALL, 0, null, null, null, null));
+  }
+
+  public List<FileChange> getChanges() {
+    return Collections.unmodifiableList(changes);
+  }
+
+  /**
+   * A file change of a commit.
+   */
+  public static final class FileChange {
+    private final ChangeType type;
+    private final int mode;
+    private final String dataRef;
+    private final byte[] data;
+    private final String path;
+    private final String destination;
+
+    private FileChange(ChangeType type, int mode, String dataRef, byte[] data, String path,
+        String destination) {
+      this.type = type;
+      this.mode = mode;
+      this.dataRef = dataRef;
+      this.data = data;
+      this.path = path;
+      this.destination = destination;
+    }
+
+    public ChangeType getType() {
+      return type;
+    }
+
+    public int getMode() {
+      return mode;
+    }
+
+    /**
+     * Gets the mark or id of the blob of a modification.
+     * 
+     * @return The mark or id, or null if the content is inline.
+     */
+    public String getDataRef() {
+      return dataRef;
+    }
+
+    /**
+     * Gets the inline content of a modification.
+     * 
+     * @return The content, or null if it refers to a blob.
+     */
+    public byte[] getData() {
+      return data;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    /**
+     * Gets the destination path of a rename or a copy.
+     * 
+     * @return The destination path, or null.
+     */
+    public String getDestination() {
+      return destination;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.File;
+
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * A class to manage passing arguments to the <code>GitFastImport</code> command.
+ * 
+ * Default values:
+ * <ul>
+ * <li> force - false</li>
+ * <li> exportMarks - none</li>
+ * <li> importMarks - none</li>
+ * <li> activeBranches - git's default (5)</li>
+ * <li> bufferSize - 64 KB</li>
+ * </ul>
+ */
+public class GitFastImportOptions {
+
+  // Force updating branches which are not fast-forwards.
+  private boolean optForce = false;
+
+  // The file to write the marks table to when the import completes.
+  private File optExportMarks = null;
+
+  // The file to load a marks table from before the import starts.
+  private File optImportMarks = null;
+
+  // The maximum number of branches kept active in memory, or 0 for git's default.
+  private int optActiveBranches = 0;
+
+  // The size of the buffer in front of the standard input of git-fast-import.
+  private int bufferSize = 64 * 1024;
+
+  /**
+   * Checks whether non fast-forward updates of existing branches are allowed.
+   * 
+   * @return True if the import may rewind branches.
+   */
+  public boolean isOptForce() {
+    return optForce;
+  }
+
+  /**
+   * Allows or forbids non fast-forward updates of existing branches.
+   * 
+   * @param optForce
+   *          True if the import may rewind branches.
+   */
+  public void setOptForce(boolean optForce) {
+    this.optForce = optForce;
+  }
+
+  /**
+   * Gets the file the marks table is written to when the import completes.
+   * 
+   * @return The marks file, or null.
+   */
+  public File getOptExportMarks() {
+    return optExportMarks;
+  }
+
+  /**
+   * Sets the file the marks table is written to when the import completes, so that a later import
+   * can refer to the objects of this one by their marks.
+   * 
+   * @param optExportMarks
+   *          The marks file, or null.
+   */
+  public void setOptExportMarks(File optExportMarks) {
+    this.optExportMarks = optExportMarks;
+  }
+
+  /**
+   * Gets the file a marks table is loaded from before the import starts.
+   * 
+   * @return The marks file, or null.
+   */
+  public File getOptImportMarks() {
+    return optImportMarks;
+  }
+
+  /**
+   * Sets the file a marks table is loaded from before the import starts. Marks created by the
+   * import are numbered after the largest mark of the table only if <code>firstMark</code> is set
+   * accordingly on the stream.
+   * 
+   * @param optImportMarks
+   *          The marks file, or null.
+   */
+  public void setOptImportMarks(File optImportMarks) {
+    this.optImportMarks = optImportMarks;
+  }
+
+  /**
+   * Gets the maximum number of branches kept active in memory.
+   * 
+   * @return The number of branches, or 0 for git's default.
+   */
+  public int getOptActiveBranches() {
+    return optActiveBranches;
+  }
+
+  /**
+   * Sets the maximum number of branches kept active in memory. Imports which switch between many
+   * branches run faster with a larger value.
+   * 
+   * @param optActiveBranches
+   *          The number of branches, or 0 for git's default.
+   */
+  public void setOptActiveBranches(int optActiveBranches) {
+    CheckUtilities.checkIntArgumentGreaterThan(optActiveBranches, -1, "activeBranches");
+    this.optActiveBranches = optActiveBranches;
+  }
+
+  /**
+   * Gets the size of the buffer in front of the standard input of git-fast-import.
+   * 
+   * @return The buffer size in bytes.
+   */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Sets the size of the buffer in front of the standard input of git-fast-import.
+   * 
+   * @param bufferSize
+   *          The buffer size in bytes.
+   */
+  public void setBufferSize(int bufferSize) {
+    CheckUtilities.checkIntArgumentGreaterThan(bufferSize, 0, "bufferSize");
+    this.bufferSize = bufferSize;
+  }
+}
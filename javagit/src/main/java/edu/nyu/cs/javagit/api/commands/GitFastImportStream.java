@@ -0,0 +1,445 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+import edu.nyu.cs.javagit.client.fs.PersonIdent;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>GitFastImportStream</code> writes the git-fast-import stream format: blobs, commits, tags,
+ * resets and checkpoints. Blobs and commits get marks (":1", ":2", ...) which later commands use
+ * to refer to them, so a whole history is imported by a single process without ever knowing an
+ * object id.
+ * 
+ * The stream also keeps throughput figures (objects and bytes written, elapsed time). It is not
+ * thread-safe.
+ */
+public class GitFastImportStream {
+
+  private static final byte[] LF = { '\n' };
+
+  // The buffered output, counting the bytes written.
+  private final CountingOutputStream out;
+
+  // The next mark to hand out.
+  private int nextMark = 1;
+
+  // Whether close() has been called.
+  private boolean closed = false;
+
+  // The metrics.
+  private final long startTime = System.currentTimeMillis();
+  private long endTime = -1;
+  private long blobCount = 0;
+  private long commitCount = 0;
+  private long tagCount = 0;
+  private long resetCount = 0;
+  private long checkpointCount = 0;
+
+  /**
+   * Creates a stream writing to an output stream, usually the standard input of
+   * git-fast-import. The stream starts with the "done" feature, so that an interrupted import
+   * fails instead of silently importing a partial history.
+   * 
+   * @param output
+   *          The output stream.
+   * @param bufferSize
+   *          The size of the write buffer in bytes.
+   * @throws IOException
+   *           Thrown if the stream header cannot be written.
+   */
+  public GitFastImportStream(OutputStream output, int bufferSize) throws IOException {
+    CheckUtilities.checkNullArgument(output, "output");
+    CheckUtilities.checkIntArgumentGreaterThan(bufferSize, 0, "bufferSize");
+    this.out = new CountingOutputStream(new BufferedOutputStream(output, bufferSize));
+    writeLine("feature done");
+  }
+
+  /**
+   * Sets the number of the next mark, e.g. to continue after the marks of an imported marks
+   * table.
+   * 
+   * @param mark
+   *          The next mark, greater than zero.
+   */
+  public void setNextMark(int mark) {
+    CheckUtilities.checkIntArgumentGreaterThan(mark, 0, "mark");
+    this.nextMark = mark;
+  }
+
+  /**
+   * Writes a blob.
+   * 
+   * @param data
+   *          The contents of the blob.
+   * @return The mark of the blob.
+   * @throws IOException
+   *           Thrown if the stream cannot be written.
+   */
+  public String blob(byte[] data) throws IOException {
+    CheckUtilities.checkNullArgument(data, "data");
+    checkOpen();
+    String mark = newMark();
+    writeLine("blob");
+    writeLine("mark " + mark);
+    writeData(data);
+    blobCount++;
+    return mark;
+  }
+
+  /**
+   * Writes a blob, copying its contents from an input stream so large files need not be held in
+   * memory.
+   * 
+   * @param data
+   *          The contents of the blob. It is not closed.
+   * @param length
+   *          The exact number of bytes to copy from the input stream.
+   * @return The mark of the blob.
+   * @throws IOException
+   *           Thrown if the stream cannot be read or written, or if it ends early.
+   */
+  public String blob(InputStream data, long length) throws IOException {
+    CheckUtilities.checkNullArgument(data, "data");
+    checkOpen();
+    String mark = newMark();
+    writeLine("blob");
+    writeLine("mark " + mark);
+    writeLine("data " + length);
+    byte[] buf = new byte[8192];
+    long remaining = length;
+    while (remaining > 0) {
+      int n = data.read(buf, 0, (int) Math.min(buf.length, remaining));
+      if (n < 0) {
+        throw new IOException(ExceptionMessageMap.getMessage("412001") + "  { missing=["
+            + remaining + "] }");
+      }
+      out.write(buf, 0, n);
+      remaining -= n;
+    }
+    out.write(LF);
+    blobCount++;
+    return mark;
+  }
+
+  /**
+   * Writes a commit.
+   * 
+   * @param commit
+   *          The commit.
+   * @return The mark of the commit.
+   * @throws IOException
+   *           Thrown if the stream cannot be written.
+   */
+  public String commit(GitFastImportCommit commit) throws IOException {
+    CheckUtilities.checkNullArgument(commit, "commit");
+    checkOpen();
+    String mark = newMark();
+    writeLine("commit " + commit.getRef());
+    writeLine("mark " + mark);
+    if (null != commit.getAuthor()) {
+      writeLine("author " + commit.getAuthor().toExternalString());
+    }
+    writeLine("committer " + commit.getCommitter().toExternalString());
+    writeData(FsUtilities.toBytes(commit.getMessage()));
+    if (null != commit.getFrom()) {
+      writeLine("from " + commit.getFrom());
+    }
+    for (String merge : commit.getMerges()) {
+      writeLine("merge " + merge);
+    }
+    for (GitFastImportCommit.FileChange change : commit.getChanges()) {
+      switch (change.getType()) {
+      case MODIFY:
+        String mode = Integer.toOctalString(change.getMode());
+        if (null != change.getDataRef()) {
+          writeLine("M " + mode + " " + change.getDataRef() + " " + quote(change.getPath(), false));
+        } else {
+          writeLine("M " + mode + " inline " + quote(change.getPath(), false));
+          writeData(change.getData());
+        }
+        break;
+      case DELETE:
+        writeLine("D " + quote(change.getPath(), false));
+        break;
+      case RENAME:
+        writeLine("R " + quote(change.getPath(), true) + " "
+            + quote(change.getDestination(), false));
+        break;
+      case COPY:
+        writeLine("C " + quote(change.getPath(), true) + " "
+            + quote(change.getDestination(), false));
+        break;
+      case DELETE_ALL:
+        writeLine("deleteall");
+        break;
+      }
+    }
+    out.write(LF);
+    commitCount++;
+    return mark;
+  }
+
+  /**
+   * Writes an annotated tag.
+   * 
+   * @param name
+   *          The name of the tag, without "refs/tags/".
+   * @param from
+   *          The mark or id of the tagged commit.
+   * @param tagger
+   *          The tagger; may be null.
+   * @param message
+   *          The tag message.
+   * @throws IOException
+   *           Thrown if the stream cannot be written.
+   */
+  public void tag(String name, String from, PersonIdent tagger, String message) throws IOException {
+    CheckUtilities.checkStringArgument(name, "name");
+    CheckUtilities.checkStringArgument(from, "from");
+    CheckUtilities.checkNullArgument(message, "message");
+    checkOpen();
+    writeLine("tag " + name);
+    writeLine("from " + from);
+    if (null != tagger) {
+      writeLine("tagger " + tagger.toExternalString());
+    }
+    writeData(FsUtilities.toBytes(message));
+    tagCount++;
+  }
+
+  /**
+   * Resets a branch, creating it or moving it to another commit. Lightweight tags are created by
+   * resetting "refs/tags/&lt;name&gt;".
+   * 
+   * @param ref
+   *          The full name of the branch.
+   * @param from
+   *          The mark or id of the commit; if null the branch is emptied and its next commit is a
+   *          root commit.
+   * @throws IOException
+   *           Thrown if the stream cannot be written.
+   */
+  public void reset(String ref, String from) throws IOException {
+    CheckUtilities.checkStringArgument(ref, "ref");
+    checkOpen();
+    writeLine("reset " + ref);
+    if (null != from) {
+      writeLine("from " + from);
+    }
+    out.write(LF);
+    resetCount++;
+  }
+
+  /**
+   * Asks git-fast-import to write out its current pack, update the branches and tags and dump the
+   * marks, so the work done so far survives a later failure. Checkpoints are expensive and should
+   * be issued every few minutes or hundreds of thousands of objects, not per commit.
+   * 
+   * @throws IOException
+   *           Thrown if the stream cannot be written.
+   */
+  public void checkpoint() throws IOException {
+    checkOpen();
+    writeLine("checkpoint");
+    out.write(LF);
+    out.flush();
+    checkpointCount++;
+  }
+
+  /**
+   * Flushes the buffered commands to git-fast-import.
+   * 
+   * @throws IOException
+   *           Thrown if the stream cannot be written.
+   */
+  public void flush() throws IOException {
+    checkOpen();
+    out.flush();
+  }
+
+  /**
+   * Ends the stream and waits for the import to complete. The branches and tags are only updated
+   * (past the last checkpoint) when this method returns successfully.
+   * 
+   * @throws IOException
+   *           Thrown if the stream cannot be written.
+   * @throws JavaGitException
+   *           Thrown if the import fails.
+   */
+  public void close() throws IOException, JavaGitException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      writeLine("done");
+      out.flush();
+    } finally {
+      endTime = System.currentTimeMillis();
+      finish(out);
+    }
+  }
+
+  /**
+   * Called by <code>close()</code> once the stream has been ended, to release the underlying
+   * output and wait for the import to complete. By default closes the output.
+   * 
+   * @param output
+   *          The output stream.
+   * @throws IOException
+   *           Thrown if the output cannot be closed.
+   * @throws JavaGitException
+   *           Thrown if the import fails.
+   */
+  protected void finish(OutputStream output) throws IOException, JavaGitException {
+    output.close();
+  }
+
+  public long getBlobCount() {
+    return blobCount;
+  }
+
+  public long getCommitCount() {
+    return commitCount;
+  }
+
+  public long getTagCount() {
+    return tagCount;
+  }
+
+  public long getResetCount() {
+    return resetCount;
+  }
+
+  public long getCheckpointCount() {
+    return checkpointCount;
+  }
+
+  /**
+   * Gets the number of bytes of stream written so far.
+   * 
+   * @return The number of bytes.
+   */
+  public long getBytesWritten() {
+    return out.count;
+  }
+
+  /**
+   * Gets the time elapsed since the stream was created, or its total duration once closed.
+   * 
+   * @return The time in milliseconds.
+   */
+  public long getElapsedMillis() {
+    return ((endTime < 0) ? System.currentTimeMillis() : endTime) - startTime;
+  }
+
+  /**
+   * Gets the average number of commits written per second.
+   * 
+   * @return The commit rate.
+   */
+  public double getCommitsPerSecond() {
+    return commitCount * 1000.0 / Math.max(1, getElapsedMillis());
+  }
+
+  /**
+   * Gets the average number of bytes written per second.
+   * 
+   * @return The byte rate.
+   */
+  public double getBytesPerSecond() {
+    return out.count * 1000.0 / Math.max(1, getElapsedMillis());
+  }
+
+  private String newMark() {
+    return ":" + (nextMark++);
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException(ExceptionMessageMap.getMessage("412002"));
+    }
+  }
+
+  private void writeLine(String line) throws IOException {
+    out.write(FsUtilities.toBytes(line));
+    out.write(LF);
+  }
+
+  private void writeData(byte[] data) throws IOException {
+    writeLine("data " + data.length);
+    out.write(data);
+    out.write(LF);
+  }
+
+  /*
+   * Quotes a path when the stream syntax requires it: when it starts with a quote or contains a
+   * newline, and for source paths when it contains a space.
+   */
+  private static String quote(String path, boolean source) {
+    if (!path.startsWith("\"") && path.indexOf('\n') < 0 && !(source && path.indexOf(' ') >= 0)) {
+      return path;
+    }
+    StringBuffer buf = new StringBuffer(path.length() + 8);
+    buf.append('"');
+    for (int i = 0; i < path.length(); i++) {
+      char c = path.charAt(i);
+      if ('"' == c || '\\' == c) {
+        buf.append('\\').append(c);
+      } else if ('\n' == c) {
+        buf.append("\\n");
+      } else {
+        buf.append(c);
+      }
+    }
+    buf.append('"');
+    return buf.toString();
+  }
+
+  /*
+   * An output stream counting the bytes written through it.
+   */
+  private static class CountingOutputStream extends FilterOutputStream {
+    long count = 0;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
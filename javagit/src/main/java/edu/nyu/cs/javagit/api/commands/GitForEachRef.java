@@ -0,0 +1,91 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitBranchResponse.BranchRecord;
+import edu.nyu.cs.javagit.client.ClientManager;
+import edu.nyu.cs.javagit.client.IClient;
+import edu.nyu.cs.javagit.client.IGitForEachRef;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>GitForEachRef</code> provides an interface for listing the refs of a repository, in any
+ * namespace: branches, remote-tracking branches, tags or others. Unlike the verbose listing of
+ * <code>GitBranch</code>, the refs are read in a fixed, NUL-separated format, and can be streamed
+ * to a <code>GitForEachRefHandler</code> so that repositories with very many refs are never held
+ * in memory.
+ */
+public final class GitForEachRef {
+
+  /**
+   * Lists the refs of a repository.
+   * 
+   * @param repositoryPath
+   *          The path to the repository. A non-zero length argument is required for this
+   *          parameter, otherwise a <code>NullPointerException</code> or
+   *          <code>IllegalArgumentException</code> will be thrown.
+   * @param options
+   *          The options of the listing; may be null to list all refs by name.
+   * @return The refs.
+   * @exception IOException
+   *              Thrown if the repository path is not valid or git-for-each-ref cannot be run.
+   * @exception JavaGitException
+   *              Thrown when git-for-each-ref fails.
+   */
+  public List<BranchRecord> listRefs(File repositoryPath, GitForEachRefOptions options)
+      throws IOException, JavaGitException {
+    final List<BranchRecord> records = new ArrayList<BranchRecord>();
+    listRefs(repositoryPath, options, new GitForEachRefHandler() {
+      public boolean handleRef(BranchRecord record) {
+        records.add(record);
+        return true;
+      }
+    });
+    return records;
+  }
+
+  /**
+   * Lists the refs of a repository, streaming them to a handler.
+   * 
+   * @param repositoryPath
+   *          The path to the repository. A non-zero length argument is required for this
+   *          parameter, otherwise a <code>NullPointerException</code> or
+   *          <code>IllegalArgumentException</code> will be thrown.
+   * @param options
+   *          The options of the listing; may be null to list all refs by name.
+   * @param handler
+   *          The handler receiving the refs.
+   * @exception IOException
+   *              Thrown if the repository path is not valid or git-for-each-ref cannot be run.
+   * @exception JavaGitException
+   *              Thrown when git-for-each-ref fails, or by the handler.
+   */
+  public void listRefs(File repositoryPath, GitForEachRefOptions options,
+      GitForEachRefHandler handler) throws IOException, JavaGitException {
+    CheckUtilities.checkNullArgument(repositoryPath, "repository path");
+    CheckUtilities.checkNullArgument(handler, "handler");
+    IClient client = ClientManager.getInstance().getPreferredClient();
+    IGitForEachRef gitForEachRef = client.getGitForEachRefInstance();
+    gitForEachRef.listRefs(repositoryPath, options, handler);
+  }
+}
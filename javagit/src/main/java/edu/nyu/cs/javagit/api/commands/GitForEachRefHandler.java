@@ -0,0 +1,39 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitBranchResponse.BranchRecord;
+
+/**
+ * <code>GitForEachRefHandler</code> receives the refs listed by <code>GitForEachRef</code>, one
+ * at a time, as git lists them.
+ */
+public interface GitForEachRefHandler {
+
+  /**
+   * Called for each ref.
+   * 
+   * @param record
+   *          The ref, with its full name, object, upstream branch, track counts and committer
+   *          date.
+   * @return True to go on listing, false to stop.
+   * @throws JavaGitException
+   *           Thrown to abort the listing.
+   */
+  public boolean handleRef(BranchRecord record) throws JavaGitException;
+}
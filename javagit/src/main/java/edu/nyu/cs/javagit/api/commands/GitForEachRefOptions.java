@@ -0,0 +1,112 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * A class to manage passing arguments to the <code>GitForEachRef</code> command.
+ * 
+ * Default values:
+ * <ul>
+ * <li> patterns - all refs</li>
+ * <li> sortKeys - refname</li>
+ * <li> count - all refs (0)</li>
+ * <li> track - true</li>
+ * </ul>
+ */
+public class GitForEachRefOptions {
+
+  // The prefixes or patterns of the refs to list; all refs when empty.
+  private final List<String> patterns = new ArrayList<String>();
+
+  // The sort keys (--sort), the first being the primary key; by refname when empty.
+  private final List<String> sortKeys = new ArrayList<String>();
+
+  // The maximum number of refs to list (--count); all of them when 0.
+  private int optCount = 0;
+
+  // List how far branches are ahead of and behind their upstream branches.
+  private boolean optTrack = true;
+
+  /**
+   * Limits the listing to the refs matching a pattern. A pattern is either a prefix ending with
+   * "/", e.g. "refs/heads/" or "refs/remotes/origin/", or a shell glob such as "refs/tags/v1.*".
+   * 
+   * @param pattern
+   *          The pattern.
+   */
+  public void addPattern(String pattern) {
+    CheckUtilities.checkStringArgument(pattern, "pattern");
+    patterns.add(pattern);
+  }
+
+  public List<String> getPatterns() {
+    return Collections.unmodifiableList(patterns);
+  }
+
+  /**
+   * Adds a sort key, like "refname", "objectname" or "committerdate"; a leading "-" sorts in
+   * descending order, e.g. "-committerdate" for the most recently changed refs first. Keys are
+   * applied in the order they are added, the first being the primary key.
+   * 
+   * @param key
+   *          The sort key.
+   */
+  public void addSortKey(String key) {
+    CheckUtilities.checkStringArgument(key, "key");
+    sortKeys.add(key);
+  }
+
+  public List<String> getSortKeys() {
+    return Collections.unmodifiableList(sortKeys);
+  }
+
+  /**
+   * Limits the number of refs listed, after sorting.
+   * 
+   * @param count
+   *          The maximum number of refs; 0 for all of them.
+   */
+  public void setOptCount(int count) {
+    CheckUtilities.checkIntArgumentGreaterThan(count, -1, "count");
+    this.optCount = count;
+  }
+
+  public int getOptCount() {
+    return optCount;
+  }
+
+  /**
+   * Sets whether to list how far branches are ahead of and behind their upstream branches.
+   * Computing these counts walks the history of every branch which has an upstream branch.
+   * 
+   * @param optTrack
+   *          True to list the counts, false to leave them at 0.
+   */
+  public void setOptTrack(boolean optTrack) {
+    this.optTrack = optTrack;
+  }
+
+  public boolean isOptTrack() {
+    return optTrack;
+  }
+}
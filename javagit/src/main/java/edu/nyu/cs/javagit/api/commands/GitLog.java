@@ -81,4 +81,31 @@ public final class GitLog {
 		
 	}
 
+	/**
+	 * Lists the history of a given commit, or of a range of commits, instead of HEAD.
+	 * 
+	 * @param repositoryPath	
+	 *			A <code>File</code> instance for the path to the repository root (the parent
+	 *          directory of the .git directory) or a sub-directory in the working tree of the
+	 *          repository. If null is passed, a <code>NullPointerException</code> will be thrown.
+	 * @param options	Specify option used to collect logs, see <code>GitLogOptions</code>. May be
+	 *          null.
+	 * @param revisionRange	The commit to list the history of, or a range such as
+	 *          <code>old..new</code>.
+	 * @return A List of Commit objects
+	 * @throws JavaGitException
+	 * 			Thrown when there is an error executing git log.
+	 * @throws IOException
+	 * 			Thrown when there is an error executing git log.
+	 */
+	public List<Commit> log(File repositoryPath, GitLogOptions options, String revisionRange)
+	throws JavaGitException, IOException {
+		CheckUtilities.checkNullArgument(repositoryPath, "repository");
+		CheckUtilities.checkStringArgument(revisionRange, "revisionRange");
+
+		IClient client = ClientManager.getInstance().getPreferredClient();
+		IGitLog gitLog = client.getGitLogInstance();
+		return gitLog.log(repositoryPath, options, revisionRange);
+	}
+
 }
@@ -439,4 +439,53 @@ public class GitLogOptions {
 		this.optLimitGrepPattern = optLimitGrepPattern;
 	}
 
+
+	/**
+	 * Describes the options in effect, in a fixed order. Values of disabled options are left out,
+	 * so two instances asking for the same log have the same description.
+	 */
+	public String toString() {
+		StringBuffer buf = new StringBuffer();
+		appendFlag(buf, optBreakRewriteChanges, "-B");
+		appendFlag(buf, optDetectRenames, "-M");
+		appendFlag(buf, optFindCopies, "-C");
+		appendFlag(buf, optFindCopiesHarder, "--find-copies-harder");
+		appendFlag(buf, optFileDetails, "--numstat");
+		appendValue(buf, optRelative, "--relative=", optRelativePath);
+		appendValue(buf, optLimitCommitMax, "-n ", String.valueOf(optLimitMax));
+		appendValue(buf, optLimitCommitSkip, "--skip=", String.valueOf(optLimitSkip));
+		appendValue(buf, optLimitCommitSince, "--since=", optLimitSince);
+		appendValue(buf, optLimitCommitAfter, "--after=", optLimitAfter);
+		appendValue(buf, optLimitComitUntil, "--until=", optLimitUntil);
+		appendValue(buf, optLimitCommitBefore, "--before=", optLimitBefore);
+		appendValue(buf, optLimitAuthor, "--author=", optAuthor);
+		appendValue(buf, optLimitCommitterPattern, "--committer=", optLimitPattern);
+		appendValue(buf, optLimitGrep, "--grep=", optLimitGrepPattern);
+		appendFlag(buf, optLimitMatchIgnoreCase, "-i");
+		appendFlag(buf, optLimitEnableExtendedRegex, "-E");
+		appendFlag(buf, optLimitEnableFixedStrings, "-F");
+		appendFlag(buf, optLimitRemoveEmpty, "--remove-empty");
+		appendFlag(buf, optLimitFullHistory, "--full-history");
+		appendFlag(buf, optLimitNoMerges, "--no-merges");
+		appendFlag(buf, optLimitFirstParent, "--first-parent");
+		appendFlag(buf, optLimitAll, "--all");
+		appendFlag(buf, optLimiCherryPick, "--cherry-pick");
+		appendFlag(buf, optOrderingTopological, "--topo-order");
+		appendFlag(buf, optOrderingDate, "--date-order");
+		appendFlag(buf, optOrderingReverse, "--reverse");
+		return buf.toString();
+	}
+
+	private static void appendFlag(StringBuffer buf, boolean enabled, String flag) {
+		appendValue(buf, enabled, flag, "");
+	}
+
+	private static void appendValue(StringBuffer buf, boolean enabled, String flag, String value) {
+		if (enabled) {
+			if (buf.length() > 0) {
+				buf.append(' ');
+			}
+			buf.append(flag).append(value);
+		}
+	}
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ package edu.nyu.cs.javagit.api.commands;
 import java.util.ArrayList;
 import java.util.List;
 
+import edu.nyu.cs.javagit.api.ObjectId;
 import edu.nyu.cs.javagit.utilities.CheckUtilities;
 
 /**
@@ -157,6 +158,8 @@ public class GitLogResponse implements CommandResponse {
 	 */
 	public static class Commit{
 		
+		// The id of the commit, or null if sha holds an abbreviated one.
+		ObjectId id = null;
 		String sha = null;
 		List<String> mergeDetails = null; 
 		String author = null;
@@ -183,7 +186,7 @@ public class GitLogResponse implements CommandResponse {
 		public Commit(String sha, List<String> mergeDetails, String author, String date,
 				String message, List<CommitFile> files) {
 			super();
-			this.sha = sha;
+			setSha(sha);
 			this.mergeDetails = mergeDetails;
 			this.author = author;
 			this.date = date;
@@ -193,13 +196,35 @@ public class GitLogResponse implements CommandResponse {
 			setFilesChanged();
 		}
 
+		/**
+		 * Constructor for creating a commit data structure from a commit id.
+		 * @param id	The id of a particular commit instance.
+		 * @param mergeDetails	The Merge details for a particular commit instance. Pass null is commit is not a merge
+		 * @param author	The Author for a particular commit instance.
+		 * @param date	The Date of a particular commit instance.
+		 * @param message	The Message for a particular commit instance.
+		 * @param files	The list of files affected by a particular commit instance.
+		 */
+		public Commit(ObjectId id, List<String> mergeDetails, String author, String date,
+				String message, List<CommitFile> files) {
+			this((String) null, mergeDetails, author, date, message, files);
+			this.id = id;
+		}
 
 		/**
 		 * 
 		 * @return This returns the SHA for each commit.
 		 */
 		public String getSha() {
-			return sha;
+			return (null != id) ? id.toString() : sha;
+		}
+
+		/**
+		 * 
+		 * @return This returns the id of the commit, or null if only an abbreviated SHA is known.
+		 */
+		public ObjectId getObjectId() {
+			return id;
 		}
 		
 		/**
@@ -243,7 +268,14 @@ public class GitLogResponse implements CommandResponse {
 		 * @param sha sets the SHA for a commit.
 		 */
 		public void setSha(String sha) {
-			this.sha = sha;
+			// Full ids are kept in their compact form.
+			if (ObjectId.isId(sha)) {
+				this.id = ObjectId.fromString(sha);
+				this.sha = null;
+			} else {
+				this.id = null;
+				this.sha = sha;
+			}
 		}
 		/**
 		 * 
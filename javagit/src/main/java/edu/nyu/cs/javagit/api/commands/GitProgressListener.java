@@ -0,0 +1,36 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.File;
+
+/**
+ * <code>GitProgressListener</code> is notified of each path as a long-running command such as a
+ * bulk <code>GitAdd</code> or <code>GitRm</code> processes it, while the command is still running.
+ */
+public interface GitProgressListener {
+
+  /**
+   * Called when a path has been processed.
+   * 
+   * @param path
+   *          The path, relative to the repository root.
+   * @param count
+   *          The number of paths processed so far, including this one.
+   */
+  public void pathProcessed(File path, int count);
+}
@@ -0,0 +1,189 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.nyu.cs.javagit.api.ObjectId;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * A list of ref updates which <code>GitUpdateRef</code> applies as one atomic transaction: either
+ * all the refs are updated, or none is. Each update may give the value the ref is expected to
+ * have, so that refs changed concurrently by someone else are not overwritten.
+ * 
+ * Ref names are full names, e.g. "refs/heads/master" or "refs/tags/v1.0"; object ids are 40
+ * character hexadecimal ids.
+ */
+public class GitRefTransaction {
+
+  /** The kinds of ref updates. */
+  public static enum Action {
+    /** Creates a ref which must not exist. */
+    CREATE,
+    /** Sets a ref, checking its old value if one is given. */
+    UPDATE,
+    /** Deletes a ref, checking its old value if one is given. */
+    DELETE,
+    /** Checks the value of a ref without changing it. */
+    VERIFY
+  }
+
+  // The updates, in the order they were added.
+  private final List<RefUpdate> updates = new ArrayList<RefUpdate>();
+
+  // The reflog message of the updates (-m).
+  private String message;
+
+  /**
+   * Adds the creation of a ref. The transaction fails if the ref exists.
+   * 
+   * @param refName
+   *          The full name of the ref.
+   * @param newId
+   *          The object id the ref is created with.
+   */
+  public void create(String refName, String newId) {
+    add(Action.CREATE, refName, checkId(newId, "newId"), null);
+  }
+
+  /**
+   * Adds the update of a ref, which is created if it does not exist and no old value is given.
+   * 
+   * @param refName
+   *          The full name of the ref.
+   * @param newId
+   *          The new object id of the ref.
+   * @param oldId
+   *          The object id the ref must have for the transaction to succeed, or null not to check
+   *          it.
+   */
+  public void update(String refName, String newId, String oldId) {
+    add(Action.UPDATE, refName, checkId(newId, "newId"), (null == oldId) ? null : checkId(oldId,
+        "oldId"));
+  }
+
+  /**
+   * Adds the deletion of a ref.
+   * 
+   * @param refName
+   *          The full name of the ref.
+   * @param oldId
+   *          The object id the ref must have for the transaction to succeed, or null not to check
+   *          it.
+   */
+  public void delete(String refName, String oldId) {
+    add(Action.DELETE, refName, null, (null == oldId) ? null : checkId(oldId, "oldId"));
+  }
+
+  /**
+   * Adds a check of the value of a ref, which is left unchanged.
+   * 
+   * @param refName
+   *          The full name of the ref.
+   * @param oldId
+   *          The object id the ref must have for the transaction to succeed, or null if the ref
+   *          must not exist.
+   */
+  public void verify(String refName, String oldId) {
+    add(Action.VERIFY, refName, null, (null == oldId) ? null : checkId(oldId, "oldId"));
+  }
+
+  public List<RefUpdate> getUpdates() {
+    return Collections.unmodifiableList(updates);
+  }
+
+  /**
+   * Sets the message recorded in the reflogs of the updated refs.
+   * 
+   * @param message
+   *          The reflog message, or null for none.
+   */
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  private void add(Action action, String refName, String newId, String oldId) {
+    CheckUtilities.checkStringArgument(refName, "refName");
+    updates.add(new RefUpdate(action, refName, newId, oldId));
+  }
+
+  private static String checkId(String id, String variableName) {
+    CheckUtilities.checkStringArgument(id, variableName);
+    if (!ObjectId.isId(id)) {
+      throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000008") + "  { "
+          + variableName + "=[" + id + "] }");
+    }
+    return id;
+  }
+
+  /**
+   * One update of a <code>GitRefTransaction</code>.
+   */
+  public static final class RefUpdate {
+
+    private final Action action;
+    private final String refName;
+    private final String newId;
+    private final String oldId;
+
+    private RefUpdate(Action action, String refName, String newId, String oldId) {
+      this.action = action;
+      this.refName = refName;
+      this.newId = newId;
+      this.oldId = oldId;
+    }
+
+    public Action getAction() {
+      return action;
+    }
+
+    public String getRefName() {
+      return refName;
+    }
+
+    /**
+     * Gets the new object id of the ref.
+     * 
+     * @return The new object id, or null for a deletion or a check.
+     */
+    public String getNewId() {
+      return newId;
+    }
+
+    /**
+     * Gets the object id the ref is expected to have.
+     * 
+     * @return The expected object id, or null if it is not checked (or, for a check, if the ref
+     *         must not exist).
+     */
+    public String getOldId() {
+      return oldId;
+    }
+
+    public String toString() {
+      return action + " " + refName;
+    }
+  }
+}
@@ -251,4 +251,45 @@ public class GitRm {
     return GitRm.rmRecursive(repository, paths);
   }
 
+  /**
+   * Remove a huge list of files with a single &lt;git-rm&gt; process. The paths are fed
+   * NUL-separated through the standard input of the process instead of its command line, so tens
+   * of thousands of paths neither hit the maximum command line length nor need to be split across
+   * many processes.
+   * 
+   * @param repository
+   *          A <code>File</code> instance for the path to the repository root (the parent
+   *          directory of the .git directory) or a sub-directory in the working tree of the
+   *          repository to run rm against. If null is passed, a <code>NullPointerException</code>
+   *          will be thrown.
+   * @param options
+   *          The options to run rm with; may be null.
+   * @param paths
+   *          A list of files to remove, relative to <code>repository</code>. A non-null and
+   *          non-empty list is required for this parameter, otherwise a
+   *          <code>NullPointerException</code> or <code>IllegalArgumentException</code> will be
+   *          thrown.
+   * @param listener
+   *          Notified of each file as it is removed, while the command runs; may be null.
+   * @exception IOException
+   *              There are many reasons for which an <code>IOException</code> may be thrown.
+   *              Examples include:
+   *              <ul>
+   *              <li>a directory doesn't exist</li>
+   *              <li>access to a file is denied</li>
+   *              <li>a command is not found on the PATH</li>
+   *              </ul>
+   * @exception JavaGitException
+   *              Thrown when there is an error removing the files.
+   */
+  public GitRmResponse rmBulk(File repository, GitRmOptions options, List<File> paths,
+      GitProgressListener listener) throws IOException, JavaGitException {
+    CheckUtilities.checkNullArgument(repository, "repository");
+    CheckUtilities.checkNullListArgument(paths, "paths");
+
+    IClient client = ClientManager.getInstance().getPreferredClient();
+    IGitRm GitRm = client.getGitRmInstance();
+    return GitRm.rmBulk(repository, options, paths, listener);
+  }
+
 }
@@ -0,0 +1,60 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.client.ClientManager;
+import edu.nyu.cs.javagit.client.IClient;
+import edu.nyu.cs.javagit.client.IGitUpdateRef;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>GitUpdateRef</code> provides an interface for creating, updating and deleting many refs at
+ * once, e.g. the branches and tags of a release, as one atomic transaction run by a single git
+ * process, instead of one <code>git branch</code> process per ref.
+ */
+public final class GitUpdateRef {
+
+  /**
+   * Applies a ref transaction. A transaction which cannot be applied, because a ref does not have
+   * its expected value, already exists or is locked, leaves every ref unchanged and is reported
+   * in the response rather than thrown.
+   * 
+   * @param repositoryPath
+   *          The path to the repository. A non-zero length argument is required for this
+   *          parameter, otherwise a <code>NullPointerException</code> or
+   *          <code>IllegalArgumentException</code> will be thrown.
+   * @param transaction
+   *          The updates to apply.
+   * @return The result of the transaction, for each ref.
+   * @exception IOException
+   *              Thrown if the repository path is not valid or git-update-ref cannot be run.
+   * @exception JavaGitException
+   *              Thrown if git-update-ref cannot be run.
+   */
+  public GitUpdateRefResponse commit(File repositoryPath, GitRefTransaction transaction)
+      throws IOException, JavaGitException {
+    CheckUtilities.checkNullArgument(repositoryPath, "repository path");
+    CheckUtilities.checkNullArgument(transaction, "transaction");
+    IClient client = ClientManager.getInstance().getPreferredClient();
+    IGitUpdateRef gitUpdateRef = client.getGitUpdateRefInstance();
+    return gitUpdateRef.commit(repositoryPath, transaction);
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The result of a <code>GitRefTransaction</code>: whether it was committed, and what happened to
+ * each ref.
+ */
+public final class GitUpdateRefResponse implements CommandResponse {
+
+  /** What happened to a ref of a transaction. */
+  public static enum Status {
+    /** The ref was updated, or checked, as requested. */
+    OK,
+    /** The ref could not be updated, e.g. it did not have the expected value; nothing was. */
+    REJECTED,
+    /** The ref was left unchanged because the update of another ref was rejected. */
+    ABORTED
+  }
+
+  private final Map<String, Status> statuses;
+  private final String error;
+
+  /**
+   * Creates a response.
+   * 
+   * @param statuses
+   *          The status of each ref, in the order of the updates.
+   * @param error
+   *          The error reported by git if the transaction failed, or null.
+   */
+  public GitUpdateRefResponse(Map<String, Status> statuses, String error) {
+    this.statuses = Collections.unmodifiableMap(new LinkedHashMap<String, Status>(statuses));
+    this.error = error;
+  }
+
+  /**
+   * Tells whether the transaction was committed.
+   * 
+   * @return True if all the refs were updated, false if none was.
+   */
+  public boolean isCommitted() {
+    return null == error;
+  }
+
+  /**
+   * Gets the status of each ref.
+   * 
+   * @return The statuses, by full ref name, in the order of the updates.
+   */
+  public Map<String, Status> getStatuses() {
+    return statuses;
+  }
+
+  /**
+   * Gets the status of a ref.
+   * 
+   * @param refName
+   *          The full name of the ref.
+   * @return The status, or null if the ref was not part of the transaction.
+   */
+  public Status getStatus(String refName) {
+    return statuses.get(refName);
+  }
+
+  /**
+   * Gets the reason the transaction failed.
+   * 
+   * @return The error reported by git, or null if the transaction was committed.
+   */
+  public String getError() {
+    return error;
+  }
+
+  public String toString() {
+    return isCommitted() ? "committed " + statuses : "failed: " + error;
+  }
+}
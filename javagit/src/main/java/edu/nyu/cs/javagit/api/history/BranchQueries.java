@@ -0,0 +1,348 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.ObjectId;
+import edu.nyu.cs.javagit.api.ObjectIdMap;
+import edu.nyu.cs.javagit.api.Ref;
+import edu.nyu.cs.javagit.api.commands.GitBranchOptions;
+import edu.nyu.cs.javagit.api.commands.GitBranchResponse.BranchRecord;
+import edu.nyu.cs.javagit.client.fs.RefDatabase;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>BranchQueries</code> answers the <code>--contains</code>, <code>--merged</code> and
+ * <code>--no-merged</code> branch listings of <code>GitBranchOptions</code> from the
+ * <code>CommitGraph</code>, for all the branches at once, instead of running
+ * <code>git branch</code>.
+ * 
+ * The commits containing a commit are found by one pass over the graph from the commit on (see
+ * <code>CommitGraph.markContaining()</code>); the commits merged into a commit by a walk from it,
+ * which stops below the oldest branch tip. Each branch is then answered by looking up its tip. Both
+ * are remembered for the last commits asked for, the commits containing one being extended as the
+ * graph grows.
+ * 
+ * The graph is not updated by the queries; branches whose tip is not in the graph are left out.
+ */
+public final class BranchQueries {
+
+  // The number of commits whose reachability is remembered.
+  private static final int CACHE_SIZE = 16;
+
+  private static final String HEADS = "refs/heads/";
+  private static final String REMOTES = "refs/remotes/";
+
+  private final CommitGraph graph;
+
+  // The epoch of the graph the cached positions are from; guarded by this.
+  private int epoch;
+
+  // The commits containing recently asked commits, and the positions they are known up to.
+  private final Map<Integer, Containing> containing = new LinkedHashMap<Integer, Containing>(16,
+      0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    protected boolean removeEldestEntry(Map.Entry<Integer, Containing> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  // The commits reachable from recently asked commits.
+  private final Map<Integer, Reachable> reachable = new LinkedHashMap<Integer, Reachable>(16,
+      0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    protected boolean removeEldestEntry(Map.Entry<Integer, Reachable> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  /**
+   * Creates the branch queries over a commit graph.
+   * 
+   * @param graph
+   *          The commit graph.
+   */
+  public BranchQueries(CommitGraph graph) {
+    CheckUtilities.checkNullArgument(graph, "graph");
+    this.graph = graph;
+    this.epoch = graph.getEpoch();
+  }
+
+  /**
+   * Lists branches like <code>git branch</code> with the given options. The options used are
+   * <code>-r</code> and <code>-a</code>, which choose the branches, and <code>--contains</code>,
+   * <code>--merged</code> and <code>--no-merged</code>, which filter them; the others are ignored.
+   * 
+   * @param options
+   *          The options.
+   * @return The branches, sorted by name, local branches first, each with its tip and the subject
+   *         of the tip commit.
+   * @throws IOException
+   *           Thrown if the branches or the commit store cannot be read.
+   * @throws JavaGitException
+   *           Thrown if the commit of <code>--contains</code>, or HEAD for <code>--merged</code>,
+   *           is not in the graph.
+   */
+  public List<BranchRecord> listBranches(GitBranchOptions options) throws IOException,
+      JavaGitException {
+    CheckUtilities.checkNullArgument(options, "options");
+    RefDatabase refs = new RefDatabase(graph.getStore().getGitDirectory());
+    Map<String, String> branches = new LinkedHashMap<String, String>();
+    if (!options.isOptR()) {
+      branches.putAll(refs.getRefs(HEADS));
+    }
+    if (options.isOptR() || options.isOptA()) {
+      branches.putAll(refs.getRefs(REMOTES));
+    }
+    if (null != options.getOptContains()) {
+      BitSet result = getContaining(resolve(refs, options.getOptContains()));
+      branches = filter(branches, result, true);
+    }
+    if (options.isOptMerged() || options.isOptNoMerged()) {
+      BitSet result = getReachable(resolve(refs, Ref.HEAD), branches.values());
+      branches = filter(branches, result, options.isOptMerged());
+    }
+    return toRecords(refs, branches);
+  }
+
+  /**
+   * Lists the branches containing a commit, like <code>git branch --contains</code>.
+   * 
+   * @param prefix
+   *          The prefix of the branches to list: "refs/heads/", "refs/remotes/", "refs/" for
+   *          both, or a longer prefix under one of them. Other prefixes, such as "refs/tags/", are
+   *          rejected with an <code>IllegalArgumentException</code>.
+   * @param id
+   *          The id of the commit.
+   * @return The branches, sorted by name, each with its tip and the subject of the tip commit.
+   * @throws IOException
+   *           Thrown if the branches or the commit store cannot be read.
+   * @throws JavaGitException
+   *           Thrown if the commit is not in the graph.
+   */
+  public List<BranchRecord> getBranchesContaining(String prefix, String id) throws IOException,
+      JavaGitException {
+    RefDatabase refs = new RefDatabase(graph.getStore().getGitDirectory());
+    Map<String, String> branches = getBranches(refs, prefix);
+    return toRecords(refs, filter(branches, getContaining(getPosition(id)), true));
+  }
+
+  /**
+   * Lists the branches merged into a commit, like <code>git branch --merged</code>, or those not
+   * merged into it, like <code>git branch --no-merged</code>.
+   * 
+   * @param prefix
+   *          The prefix of the branches to list: "refs/heads/", "refs/remotes/", "refs/" for
+   *          both, or a longer prefix under one of them. Other prefixes, such as "refs/tags/", are
+   *          rejected with an <code>IllegalArgumentException</code>.
+   * @param id
+   *          The id of the commit.
+   * @param merged
+   *          True to list the branches merged into the commit, false for the others.
+   * @return The branches, sorted by name, each with its tip and the subject of the tip commit.
+   * @throws IOException
+   *           Thrown if the branches or the commit store cannot be read.
+   * @throws JavaGitException
+   *           Thrown if the commit is not in the graph.
+   */
+  public List<BranchRecord> getBranchesMerged(String prefix, String id, boolean merged)
+      throws IOException, JavaGitException {
+    RefDatabase refs = new RefDatabase(graph.getStore().getGitDirectory());
+    Map<String, String> branches = getBranches(refs, prefix);
+    BitSet result = getReachable(getPosition(id), branches.values());
+    return toRecords(refs, filter(branches, result, merged));
+  }
+
+  private synchronized BitSet getContaining(int commit) {
+    checkEpoch();
+    Containing known = containing.get(Integer.valueOf(commit));
+    if (null == known) {
+      known = new Containing();
+      containing.put(Integer.valueOf(commit), known);
+    }
+    if (known.size < graph.size()) {
+      known.size = graph.markContaining(commit, known.commits, known.size);
+    }
+    // The remembered set is extended by later calls.
+    return (BitSet) known.commits.clone();
+  }
+
+  private synchronized BitSet getReachable(int commit, Iterable<String> tips) {
+    checkEpoch();
+    // No tip older than the oldest one asked for is needed; see CommitGraph.getReachable().
+    long since = Long.MAX_VALUE;
+    for (String tip : tips) {
+      int position = graph.getStore().indexOf(tip);
+      if (position >= 0 && position < graph.size()) {
+        since = Math.min(since, graph.getCorrectedTime(position));
+      }
+    }
+    Reachable known = reachable.get(Integer.valueOf(commit));
+    if (null == known || known.since > since) {
+      known = new Reachable();
+      known.since = since;
+      known.commits = graph.getReachable(commit, since);
+      reachable.put(Integer.valueOf(commit), known);
+    }
+    return known.commits;
+  }
+
+  // Forgets the cached sets if the graph was rebuilt, since their positions are stale. Guarded by
+  // this.
+  private void checkEpoch() {
+    if (graph.getEpoch() != epoch) {
+      epoch = graph.getEpoch();
+      containing.clear();
+      reachable.clear();
+    }
+  }
+
+  // Keeps the branches whose tips are in the graph and are, or are not, in a set of commits.
+  private Map<String, String> filter(Map<String, String> branches, BitSet commits, boolean in) {
+    Map<String, String> result = new LinkedHashMap<String, String>();
+    for (Map.Entry<String, String> branch : branches.entrySet()) {
+      int position = graph.getStore().indexOf(branch.getValue());
+      if (position >= 0 && position < graph.size() && commits.get(position) == in) {
+        result.put(branch.getKey(), branch.getValue());
+      }
+    }
+    return result;
+  }
+
+  private List<BranchRecord> toRecords(RefDatabase refs, Map<String, String> branches)
+      throws IOException {
+    String current = refs.getTargetName("HEAD");
+    List<BranchRecord> records = new ArrayList<BranchRecord>();
+    // Branches often share their tips, as with remote-tracking branches.
+    ObjectIdMap<String> subjects = new ObjectIdMap<String>();
+    for (Map.Entry<String, String> branch : branches.entrySet()) {
+      String name = branch.getKey();
+      String shortName = name.substring(name.startsWith(HEADS) ? HEADS.length() : REMOTES
+          .length());
+      String subject = "";
+      if (ObjectId.isId(branch.getValue())) {
+        ObjectId tip = ObjectId.fromString(branch.getValue());
+        subject = subjects.get(tip);
+        if (null == subject) {
+          subject = getSubject(tip);
+          subjects.put(tip, subject);
+        }
+      }
+      records.add(new BranchRecord(Ref.createBranchRef(shortName), Ref.createSha1Ref(branch
+          .getValue()), subject, name.equals(current)));
+    }
+    return records;
+  }
+
+  // Gets the first line of the message of a commit, or "" if it is not in the graph.
+  private String getSubject(ObjectId id) throws IOException {
+    int position = graph.getStore().indexOf(id);
+    if (position < 0) {
+      return "";
+    }
+    String subject = graph.getStore().getMessage(position).trim();
+    int newline = subject.indexOf('\n');
+    return (newline < 0) ? subject : subject.substring(0, newline);
+  }
+
+  private Map<String, String> getBranches(RefDatabase refs, String prefix) throws IOException {
+    CheckUtilities.checkStringArgument(prefix, "prefix");
+    if (!HEADS.startsWith(prefix) && !REMOTES.startsWith(prefix) && !prefix.startsWith(HEADS)
+        && !prefix.startsWith(REMOTES)) {
+      throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000011")
+          + "  { prefix=[" + prefix + "] }");
+    }
+    Map<String, String> branches = new LinkedHashMap<String, String>();
+    if (HEADS.startsWith(prefix)) {
+      branches.putAll(refs.getRefs(HEADS));
+    }
+    if (REMOTES.startsWith(prefix)) {
+      branches.putAll(refs.getRefs(REMOTES));
+    }
+    if (branches.isEmpty()) {
+      branches.putAll(refs.getRefs(prefix));
+    }
+    return branches;
+  }
+
+  private int resolve(RefDatabase refs, Ref ref) throws IOException, JavaGitException {
+    String id;
+    switch (ref.getRefType()) {
+    case HEAD:
+      id = refs.resolve("HEAD");
+      break;
+    case BRANCH:
+      id = refs.resolve(HEADS + ref.getName());
+      break;
+    case REMOTE:
+      id = refs.resolve(REMOTES + ((null == ref.getRepositoryName()) ? "" : ref.getRepositoryName()
+          + "/") + ref.getName());
+      break;
+    case TAG:
+      id = refs.resolve("refs/tags/" + ref.getName());
+      break;
+    default:
+      id = ref.getName();
+    }
+    if (null == id) {
+      throw new JavaGitException(100400, ExceptionMessageMap.getMessage("100400") + "  { ref=["
+          + ref + "] }");
+    }
+    int position = getPosition(id);
+    // HEAD~n follows first parents.
+    int offset = (Ref.RefType.HEAD == ref.getRefType()) ? ref.getHeadOffset() : 0;
+    for (int i = 0; i < offset; i++) {
+      int[] parents = graph.getParents(position);
+      if (0 == parents.length || parents[0] < 0) {
+        throw new JavaGitException(100400, ExceptionMessageMap.getMessage("100400")
+            + "  { ref=[" + ref + "] }");
+      }
+      position = parents[0];
+    }
+    return position;
+  }
+
+  private int getPosition(String id) throws JavaGitException {
+    CheckUtilities.checkStringArgument(id, "id");
+    int position = graph.getStore().indexOf(id);
+    if (position < 0 || position >= graph.size()) {
+      throw new JavaGitException(100400, ExceptionMessageMap.getMessage("100400") + "  { id=["
+          + id + "] }");
+    }
+    return position;
+  }
+
+  private static final class Containing {
+    private final BitSet commits = new BitSet();
+    private int size = 0;
+  }
+
+  private static final class Reachable {
+    private long since;
+    private BitSet commits;
+  }
+}
@@ -0,0 +1,730 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.client.fs.RefDatabase;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>CommitGraph</code> keeps the parents of the commits of a <code>CommitStore</code> in
+ * memory, with two numbers per commit which let walks stop early:
+ * 
+ * <ul>
+ * <li>the generation: 1 for a root commit, otherwise one more than the highest generation of its
+ * parents. A commit can only reach commits of lower generations.</li>
+ * <li>the corrected commit time: the commit time, raised where needed to be later than the
+ * corrected times of all the parents. Unlike commit times, which clock skew can make decrease
+ * from parent to child, corrected times always decrease along the history, and are never earlier
+ * than the commit time, so a walk looking for commits made after some time can stop at the first
+ * commit whose corrected time is earlier.</li>
+ * </ul>
+ * 
+ * Like the store, the graph only grows; <code>update()</code> adds the commits appended to the
+ * store since the last update. When the store is rebuilt, the graph is built again from it.
+ * 
+ * Merge bases and ahead/behind counts are found by painting the commits reachable from two tips
+ * while walking down from them by decreasing generation, so the walk stops at the merge bases
+ * instead of going down to the roots of the history. <code>compareAll()</code> compares many tips
+ * with one base in a single such walk, painting each commit with one bit per tip and one for the
+ * base, so the history shared by the branches is walked once rather than once per branch.
+ */
+public final class CommitGraph {
+
+  // The paint of the commits visited while comparing two commits.
+  private static final byte BASE = 1;
+  private static final byte TIP = 2;
+  private static final byte STALE = 4;
+  private static final byte QUEUED = 8;
+
+  private final CommitStore store;
+
+  // The epoch of the store the columns were read in; guarded by this.
+  private int epoch;
+
+  // The columns, guarded by this; parents are offsets into one array, as in CommitTable.
+  private int size = 0;
+  private int[] parentStarts = new int[17];
+  private int[] parents = new int[16];
+  private int[] generations = new int[16];
+  private long[] correctedTimes = new long[16];
+  private long[] commitTimes = new long[16];
+
+  // The paint of the commits, shared by all comparisons and cleared after each of them, and the
+  // commits painted; guarded by this.
+  private byte[] paint = new byte[16];
+  private int[] painted = new int[16];
+
+  /**
+   * Creates an empty graph over a store. Call <code>update()</code> to fill it.
+   * 
+   * @param store
+   *          The commit store.
+   */
+  public CommitGraph(CommitStore store) {
+    CheckUtilities.checkNullArgument(store, "store");
+    this.store = store;
+    this.epoch = store.getEpoch();
+  }
+
+  /**
+   * Gets the store of this graph.
+   * 
+   * @return The commit store.
+   */
+  public CommitStore getStore() {
+    return store;
+  }
+
+  /**
+   * Updates the store, then adds the commits appended to it.
+   * 
+   * @return The number of commits added.
+   * @throws IOException
+   *           Thrown if the store cannot be read or updated.
+   * @throws JavaGitException
+   *           Thrown if git fails while updating the store.
+   */
+  public int update() throws IOException, JavaGitException {
+    store.update();
+    return catchUp();
+  }
+
+  /**
+   * Adds the commits appended to the store since the last call, without updating the store.
+   * 
+   * @return The number of commits added.
+   */
+  public synchronized int catchUp() {
+    if (store.getEpoch() != epoch) {
+      // The store was rebuilt; its positions are new.
+      epoch = store.getEpoch();
+      size = 0;
+    }
+    int target = store.size();
+    int start = size;
+    if (target > generations.length) {
+      int capacity = Math.max(target, generations.length * 2);
+      generations = grow(generations, capacity);
+      correctedTimes = grow(correctedTimes, capacity);
+      commitTimes = grow(commitTimes, capacity);
+      parentStarts = grow(parentStarts, capacity + 1);
+    }
+    for (int commit = start; commit < target; commit++) {
+      int[] commitParents = store.getParents(commit);
+      int offset = parentStarts[commit];
+      if (offset + commitParents.length > parents.length) {
+        parents = grow(parents, Math.max(offset + commitParents.length, parents.length * 2));
+      }
+      long time = store.getCommitTime(commit);
+      int generation = 1;
+      long corrected = time;
+      for (int parent : commitParents) {
+        parents[offset++] = parent;
+        if (parent >= 0) {
+          generation = Math.max(generation, generations[parent] + 1);
+          corrected = Math.max(corrected, correctedTimes[parent] + 1);
+        }
+      }
+      parentStarts[commit + 1] = offset;
+      generations[commit] = generation;
+      correctedTimes[commit] = corrected;
+      commitTimes[commit] = time;
+      size = commit + 1;
+    }
+    return target - start;
+  }
+
+  /**
+   * Gets the epoch of the store the graph was last caught up with. Views which keep graph positions
+   * start over when it changes.
+   * 
+   * @return The epoch.
+   */
+  public synchronized int getEpoch() {
+    return epoch;
+  }
+
+  /**
+   * Gets the number of commits in the graph.
+   * 
+   * @return The number of commits.
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Gets the parents of a commit.
+   * 
+   * @param commit
+   *          The store position of the commit.
+   * @return The positions of the parents; -1 for a parent which is not stored.
+   */
+  public synchronized int[] getParents(int commit) {
+    CheckUtilities.checkIntInRange(commit, 0, size);
+    int[] result = new int[parentStarts[commit + 1] - parentStarts[commit]];
+    System.arraycopy(parents, parentStarts[commit], result, 0, result.length);
+    return result;
+  }
+
+  /**
+   * Gets the generation of a commit.
+   * 
+   * @param commit
+   *          The store position of the commit.
+   * @return The generation; 1 for a root commit.
+   */
+  public synchronized int getGeneration(int commit) {
+    CheckUtilities.checkIntInRange(commit, 0, size);
+    return generations[commit];
+  }
+
+  /**
+   * Gets the commit time of a commit.
+   * 
+   * @param commit
+   *          The store position of the commit.
+   * @return The commit time, in seconds since the epoch.
+   */
+  public synchronized long getCommitTime(int commit) {
+    CheckUtilities.checkIntInRange(commit, 0, size);
+    return commitTimes[commit];
+  }
+
+  /**
+   * Gets the corrected commit time of a commit.
+   * 
+   * @param commit
+   *          The store position of the commit.
+   * @return The corrected commit time, in seconds since the epoch.
+   */
+  public synchronized long getCorrectedTime(int commit) {
+    CheckUtilities.checkIntInRange(commit, 0, size);
+    return correctedTimes[commit];
+  }
+
+  /**
+   * Finds the commits reachable from a tip, including the tip, whose corrected commit time is not
+   * earlier than a limit. Because corrected times decrease along the history, the walk stops at
+   * the limit and every commit made at or after the limit is found.
+   * 
+   * @param tip
+   *          The store position of the tip.
+   * @param since
+   *          The limit, in seconds since the epoch; <code>Long.MIN_VALUE</code> for the whole
+   *          history.
+   * @return The positions of the commits found.
+   */
+  public synchronized BitSet getReachable(int tip, long since) {
+    CheckUtilities.checkIntInRange(tip, 0, size);
+    BitSet reachable = new BitSet(size);
+    if (correctedTimes[tip] < since) {
+      return reachable;
+    }
+    int[] stack = new int[16];
+    int depth = 0;
+    stack[depth++] = tip;
+    reachable.set(tip);
+    while (depth > 0) {
+      int commit = stack[--depth];
+      for (int i = parentStarts[commit]; i < parentStarts[commit + 1]; i++) {
+        int parent = parents[i];
+        if (parent >= 0 && !reachable.get(parent) && correctedTimes[parent] >= since) {
+          reachable.set(parent);
+          if (depth == stack.length) {
+            stack = grow(stack, stack.length * 2);
+          }
+          stack[depth++] = parent;
+        }
+      }
+    }
+    return reachable;
+  }
+
+  /**
+   * Finds the commits whose history contains a commit, the commit included, like the branches
+   * listed by <code>git branch --contains</code>.
+   * 
+   * @param commit
+   *          The store position of the commit.
+   * @return The positions of the commits found.
+   */
+  public BitSet getContaining(int commit) {
+    BitSet containing = new BitSet();
+    markContaining(commit, containing, 0);
+    return containing;
+  }
+
+  /**
+   * Marks the commits whose history contains a commit, the commit included, from a position on.
+   * Commits are stored after their parents, so one pass over the positions after the commit finds
+   * them all, skipping the commits whose generation is not above that of the commit. Calling it
+   * again with the returned position marks the commits added to the graph since.
+   * 
+   * @param commit
+   *          The store position of the commit.
+   * @param containing
+   *          The set to mark, already holding the marks of the positions below <code>from</code>.
+   * @param from
+   *          The first position to mark.
+   * @return The number of commits in the graph, the <code>from</code> of the next call.
+   */
+  public synchronized int markContaining(int commit, BitSet containing, int from) {
+    CheckUtilities.checkIntInRange(commit, 0, size);
+    CheckUtilities.checkNullArgument(containing, "containing");
+    int start = Math.max(from, commit);
+    if (start == commit) {
+      containing.set(commit);
+      start++;
+    }
+    int generation = generations[commit];
+    for (int position = start; position < size; position++) {
+      if (generations[position] <= generation) {
+        continue;
+      }
+      for (int i = parentStarts[position]; i < parentStarts[position + 1]; i++) {
+        int parent = parents[i];
+        if (parent >= 0 && containing.get(parent)) {
+          containing.set(position);
+          break;
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Compares two commits.
+   * 
+   * @param base
+   *          The store position of the commit to compare against, e.g. the tip of the main branch.
+   * @param tip
+   *          The store position of the commit to compare.
+   * @return The merge bases of the commits, and the number of commits which are only reachable
+   *         from each of them.
+   */
+  public synchronized Divergence compare(int base, int tip) {
+    CheckUtilities.checkIntInRange(base, 0, size);
+    CheckUtilities.checkIntInRange(tip, 0, size);
+    if (base == tip) {
+      return new Divergence(0, 0, new int[] { base });
+    }
+    if (paint.length < size) {
+      paint = new byte[Math.max(size, paint.length * 2)];
+    }
+    int paintedCount = 0;
+    int[] heap = new int[16];
+    int heapSize = 0;
+    int[] bases = new int[4];
+    int baseCount = 0;
+    int ahead = 0;
+    int behind = 0;
+
+    paint[base] = BASE | QUEUED;
+    paint[tip] = TIP | QUEUED;
+    painted = ensure(painted, 2);
+    painted[paintedCount++] = base;
+    painted[paintedCount++] = tip;
+    heap[heapSize++] = base;
+    heap[heapSize++] = tip;
+    siftUp(heap, 1);
+    // The number of queued commits which are not stale; the walk ends when there are none.
+    int active = 2;
+
+    while (active > 0) {
+      int commit = heap[0];
+      heap[0] = heap[--heapSize];
+      siftDown(heap, heapSize, 0);
+      byte flags = (byte) (paint[commit] & ~QUEUED);
+      if (0 == (flags & STALE)) {
+        active--;
+      }
+      // All the children of the commit have higher generations, so its paint is complete.
+      if ((flags & (BASE | TIP)) == (BASE | TIP)) {
+        if (0 == (flags & STALE)) {
+          bases = ensure(bases, baseCount + 1);
+          bases[baseCount++] = commit;
+          flags |= STALE;
+        }
+      } else if (0 != (flags & BASE)) {
+        behind++;
+      } else {
+        ahead++;
+      }
+      paint[commit] = flags;
+
+      for (int i = parentStarts[commit]; i < parentStarts[commit + 1]; i++) {
+        int parent = parents[i];
+        if (parent < 0) {
+          continue;
+        }
+        byte old = paint[parent];
+        byte updated = (byte) (old | flags);
+        if (updated == old) {
+          continue;
+        }
+        if (0 == old) {
+          painted = ensure(painted, paintedCount + 1);
+          painted[paintedCount++] = parent;
+        }
+        if (0 == (old & QUEUED)) {
+          updated |= QUEUED;
+          heap = ensure(heap, heapSize + 1);
+          heap[heapSize++] = parent;
+          siftUp(heap, heapSize - 1);
+          if (0 == (updated & STALE)) {
+            active++;
+          }
+        } else if (0 == (old & STALE) && 0 != (updated & STALE)) {
+          active--;
+        }
+        paint[parent] = updated;
+      }
+    }
+
+    for (int i = 0; i < paintedCount; i++) {
+      paint[painted[i]] = 0;
+    }
+    int[] mergeBases = new int[baseCount];
+    System.arraycopy(bases, 0, mergeBases, 0, baseCount);
+    return new Divergence(ahead, behind, mergeBases);
+  }
+
+  /**
+   * Compares many commits against one base commit in a single walk down from all of them. Each
+   * visited commit is painted with the set of tips which reach it, plus the base; the walk ends
+   * when every commit left to visit is reached by the base and all the tips, and all their merge
+   * bases are above it. Every commit is visited at most once, whatever the number of tips, at the
+   * cost of two bits per tip for each commit waiting to be visited.
+   * 
+   * @param base
+   *          The store position of the commit to compare against, e.g. the tip of the main branch.
+   * @param tips
+   *          The store positions of the commits to compare.
+   * @return The comparison of each tip against the base, in the order of <code>tips</code>.
+   */
+  public synchronized Divergence[] compareAll(int base, int[] tips) {
+    CheckUtilities.checkIntInRange(base, 0, size);
+    CheckUtilities.checkNullArgument(tips, "tips");
+    for (int tip : tips) {
+      CheckUtilities.checkIntInRange(tip, 0, size);
+    }
+    int count = tips.length;
+    // Bits 0 to count - 1 are the tips, bit count the base.
+    int words = (count + 64) / 64;
+    long[][] reach = new long[size][];
+    long[][] stale = new long[size][];
+    BitSet queued = new BitSet(size);
+    int[] heap = new int[16];
+    int heapSize = 0;
+    int active = 0;
+
+    int[] ahead = new int[count];
+    int[] behind = new int[count];
+    int[][] bases = new int[count][];
+    int[] baseCounts = new int[count];
+
+    int[] seeds = new int[count + 1];
+    System.arraycopy(tips, 0, seeds, 0, count);
+    seeds[count] = base;
+    for (int i = 0; i <= count; i++) {
+      int seed = seeds[i];
+      if (null == reach[seed]) {
+        reach[seed] = new long[words];
+        stale[seed] = new long[words];
+        queued.set(seed);
+        heap = ensure(heap, heapSize + 1);
+        heap[heapSize++] = seed;
+        siftUp(heap, heapSize - 1);
+      }
+      reach[seed][i >>> 6] |= 1L << i;
+    }
+    for (int i = 0; i < heapSize; i++) {
+      if (!isDone(reach[heap[i]], stale[heap[i]], count)) {
+        active++;
+      }
+    }
+
+    while (active > 0) {
+      int commit = heap[0];
+      heap[0] = heap[--heapSize];
+      siftDown(heap, heapSize, 0);
+      queued.clear(commit);
+      long[] r = reach[commit];
+      long[] st = stale[commit];
+      reach[commit] = null;
+      stale[commit] = null;
+      if (!isDone(r, st, count)) {
+        active--;
+      }
+
+      // All the children of the commit have higher generations, so its paint is complete.
+      boolean reachedByBase = 0 != (r[count >>> 6] & (1L << count));
+      for (int w = 0; w < words; w++) {
+        long tipBits = r[w] & tipMask(w, count);
+        if (reachedByBase) {
+          // A tip which reaches it and is not above a merge base yet has found one.
+          long found = tipBits & ~st[w];
+          for (long b = found; 0 != b; b &= b - 1) {
+            int i = (w << 6) + Long.numberOfTrailingZeros(b);
+            bases[i] = ensure((null == bases[i]) ? new int[1] : bases[i], baseCounts[i] + 1);
+            bases[i][baseCounts[i]++] = commit;
+          }
+          st[w] |= found;
+          for (long b = ~tipBits & tipMask(w, count); 0 != b; b &= b - 1) {
+            behind[(w << 6) + Long.numberOfTrailingZeros(b)]++;
+          }
+        } else {
+          for (long b = tipBits; 0 != b; b &= b - 1) {
+            ahead[(w << 6) + Long.numberOfTrailingZeros(b)]++;
+          }
+        }
+      }
+
+      for (int i = parentStarts[commit]; i < parentStarts[commit + 1]; i++) {
+        int parent = parents[i];
+        if (parent < 0) {
+          continue;
+        }
+        if (!queued.get(parent)) {
+          reach[parent] = r.clone();
+          stale[parent] = st.clone();
+          queued.set(parent);
+          heap = ensure(heap, heapSize + 1);
+          heap[heapSize++] = parent;
+          siftUp(heap, heapSize - 1);
+          if (!isDone(r, st, count)) {
+            active++;
+          }
+          continue;
+        }
+        boolean wasDone = isDone(reach[parent], stale[parent], count);
+        for (int w = 0; w < words; w++) {
+          reach[parent][w] |= r[w];
+          stale[parent][w] |= st[w];
+        }
+        if (!wasDone && isDone(reach[parent], stale[parent], count)) {
+          active--;
+        }
+      }
+    }
+
+    Divergence[] result = new Divergence[count];
+    for (int i = 0; i < count; i++) {
+      int[] mergeBases = new int[baseCounts[i]];
+      if (baseCounts[i] > 0) {
+        System.arraycopy(bases[i], 0, mergeBases, 0, baseCounts[i]);
+      }
+      result[i] = new Divergence(ahead[i], behind[i], mergeBases);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the merge bases of two commits: their common ancestors which are not ancestors of other
+   * common ancestors, like <code>git merge-base --all</code>.
+   * 
+   * @param first
+   *          The store position of the first commit.
+   * @param second
+   *          The store position of the second commit.
+   * @return The positions of the merge bases, highest generation first; none if the commits have
+   *         no common history.
+   */
+  public int[] getMergeBases(int first, int second) {
+    return compare(first, second).getMergeBases();
+  }
+
+  /**
+   * Compares every branch against one of them, as a branch dashboard shows how far ahead and
+   * behind the main branch each branch is. The graph is not updated first, and branches whose tip
+   * is not in the graph are left out.
+   * 
+   * @param base
+   *          The name of the branch to compare against, without the "refs/heads/" prefix.
+   * @return The comparisons of the branches against the base branch, by branch name without the
+   *         "refs/heads/" prefix, sorted by name; empty if the base branch is not in the graph.
+   * @throws IOException
+   *           Thrown if the branches cannot be read.
+   */
+  public Map<String, Divergence> compareBranches(String base) throws IOException {
+    CheckUtilities.checkStringArgument(base, "base");
+    Map<String, Divergence> result = new LinkedHashMap<String, Divergence>();
+    RefDatabase refs = new RefDatabase(store.getGitDirectory());
+    String baseId = refs.resolve("refs/heads/" + base);
+    int basePosition = (null == baseId) ? -1 : store.indexOf(baseId);
+    if (basePosition < 0 || basePosition >= size()) {
+      return result;
+    }
+    // Branches often share tips, e.g. when just created; each tip is compared once, and all of
+    // them in one walk.
+    Map<String, Integer> branchTips = new LinkedHashMap<String, Integer>();
+    Map<Integer, Integer> tipIndexes = new LinkedHashMap<Integer, Integer>();
+    for (Map.Entry<String, String> ref : refs.getRefs("refs/heads/").entrySet()) {
+      int tip = store.indexOf(ref.getValue());
+      if (tip < 0 || tip >= size()) {
+        continue;
+      }
+      Integer key = Integer.valueOf(tip);
+      if (!tipIndexes.containsKey(key)) {
+        tipIndexes.put(key, Integer.valueOf(tipIndexes.size()));
+      }
+      branchTips.put(ref.getKey().substring("refs/heads/".length()), tipIndexes.get(key));
+    }
+    int[] tips = new int[tipIndexes.size()];
+    for (Map.Entry<Integer, Integer> tip : tipIndexes.entrySet()) {
+      tips[tip.getValue().intValue()] = tip.getKey().intValue();
+    }
+    Divergence[] divergences = compareAll(basePosition, tips);
+    for (Map.Entry<String, Integer> branch : branchTips.entrySet()) {
+      result.put(branch.getKey(), divergences[branch.getValue().intValue()]);
+    }
+    return result;
+  }
+
+  /**
+   * The comparison of a commit against a base commit.
+   */
+  public static final class Divergence {
+
+    private final int ahead;
+    private final int behind;
+    private final int[] mergeBases;
+
+    private Divergence(int ahead, int behind, int[] mergeBases) {
+      this.ahead = ahead;
+      this.behind = behind;
+      this.mergeBases = mergeBases;
+    }
+
+    /**
+     * Gets the number of commits reachable from the commit but not from the base, like
+     * <code>git rev-list --count base..commit</code>.
+     * 
+     * @return The number of commits ahead of the base.
+     */
+    public int getAhead() {
+      return ahead;
+    }
+
+    /**
+     * Gets the number of commits reachable from the base but not from the commit, like
+     * <code>git rev-list --count commit..base</code>.
+     * 
+     * @return The number of commits behind the base.
+     */
+    public int getBehind() {
+      return behind;
+    }
+
+    /**
+     * Gets the merge bases of the commit and the base.
+     * 
+     * @return The store positions of the merge bases, highest generation first.
+     */
+    public int[] getMergeBases() {
+      return mergeBases.clone();
+    }
+
+    public String toString() {
+      return "ahead " + ahead + ", behind " + behind;
+    }
+  }
+
+  // Moves up a heap entry, the heap being ordered by decreasing generation.
+  private int siftUp(int[] heap, int index) {
+    int commit = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (generations[heap[parent]] >= generations[commit]) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = commit;
+    return index;
+  }
+
+  // Moves down a heap entry, the heap being ordered by decreasing generation.
+  private void siftDown(int[] heap, int heapSize, int index) {
+    if (index >= heapSize) {
+      return;
+    }
+    int commit = heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && generations[heap[child + 1]] > generations[heap[child]]) {
+        child++;
+      }
+      if (generations[heap[child]] <= generations[commit]) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = commit;
+  }
+
+  // The bits of the tips in a word of a paint, all but the base bit.
+  private static long tipMask(int word, int count) {
+    int first = word << 6;
+    if (count >= first + 64) {
+      return -1L;
+    }
+    return (count <= first) ? 0 : (1L << (count - first)) - 1;
+  }
+
+  // Whether a commit is reached by the base and every tip, and is below a merge base of each tip,
+  // so that neither it nor its ancestors can change any comparison.
+  private static boolean isDone(long[] reach, long[] stale, int count) {
+    for (int w = 0; w < reach.length; w++) {
+      long tips = tipMask(w, count);
+      long all = tips | ((count >>> 6 == w) ? 1L << count : 0);
+      if ((reach[w] & all) != all || (stale[w] & tips) != tips) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int[] ensure(int[] values, int capacity) {
+    return (capacity <= values.length) ? values : grow(values, Math.max(capacity,
+        values.length * 2));
+  }
+
+  static int[] grow(int[] values, int capacity) {
+    int[] larger = new int[capacity];
+    System.arraycopy(values, 0, larger, 0, values.length);
+    return larger;
+  }
+
+  static long[] grow(long[] values, int capacity) {
+    long[] larger = new long[capacity];
+    System.arraycopy(values, 0, larger, 0, values.length);
+    return larger;
+  }
+}
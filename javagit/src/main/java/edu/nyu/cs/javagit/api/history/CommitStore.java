@@ -0,0 +1,1176 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SimpleTimeZone;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import edu.nyu.cs.javagit.api.DotGit;
+import edu.nyu.cs.javagit.api.JavaGitConfiguration;
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.ObjectId;
+import edu.nyu.cs.javagit.api.ObjectIdSet;
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.CommitFile;
+import edu.nyu.cs.javagit.client.cli.ProcessUtilities;
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+import edu.nyu.cs.javagit.client.fs.RefDatabase;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>CommitStore</code> keeps the parsed metadata of the commits of a repository in binary
+ * files next to the repository, in <code>.git/javagit/commits</code>, so that views derived from
+ * the history do not need to list it again with <code>git log</code> when a process starts.
+ * 
+ * Commits are numbered in the order they were stored, parents before children.
+ * <code>update()</code> lists the commits added since the tips stored last and appends them, so
+ * the numbers do not change while the history only grows. When stored commits are no longer
+ * reachable, e.g. after a reset or a deleted branch, the store is emptied and rebuilt instead, and
+ * its epoch changes: positions read in an earlier epoch are no longer valid. The commit, parent
+ * and file records are fixed-width and memory-mapped; the messages are read on demand. Each update
+ * ends by replacing the small <code>state</code> file which records the length of every data
+ * file; an update interrupted before that is discarded the next time the store is opened.
+ * 
+ * The store holds, for each commit: its id, the positions of its parents, its commit time, its
+ * author time and time zone, its author (as an index into a dictionary), its message and the
+ * lines added and deleted in each file it changed, with renames detected. Merges have no file
+ * records. The store is a cache: if its files are damaged it is emptied and rebuilt. The ids of
+ * the stored commits are kept in memory in an <code>ObjectIdSet</code>, whose indexes are the
+ * positions of the commits.
+ * 
+ * Instances are shared per repository through <code>DotGit.getCommitStore()</code>. Readers may
+ * use the store while it is updated; they see the commits stored up to the last completed update.
+ */
+public final class CommitStore {
+
+  /** The directory of the store, relative to the git directory. */
+  public static final String DIRECTORY = "javagit" + File.separator + "commits";
+
+  private static final int VERSION = 1;
+
+  /*
+   * The fixed part of a commit record, after the id: commit time (long), author time (long),
+   * author time zone in minutes (int), author (int), first parent record (int), parent count (int),
+   * message offset (long), first file record (int), file count (int).
+   */
+  private static final int COMMIT_FIELDS_SIZE = 48;
+
+  // A file record: path (int), old path or -1 (int), lines added (int), lines deleted (int).
+  private static final int FILE_RECORD_SIZE = 16;
+
+  // The format of the commits listed by update().
+  private static final String LOG_FORMAT = "--format=%H%x00%P%x00%ad%x00%ct%x00%an <%ae>%x00%B";
+
+  private final File gitDir;
+  private final File directory;
+
+  // The ids of all stored commits, by position, including those of an update in progress. Readers
+  // look ids up while an update adds them, so the set is guarded by positionsLock.
+  private ObjectIdSet positions = new ObjectIdSet();
+  private final ReadWriteLock positionsLock = new ReentrantReadWriteLock();
+
+  // The view of the store readers use; replaced at the end of each update.
+  private volatile Snapshot snapshot;
+
+  // The dictionaries; only used by the updating thread, guarded by this.
+  private final List<String> authors = new ArrayList<String>();
+  private final Map<String, Integer> authorIndexes = new HashMap<String, Integer>();
+  private final List<String> paths = new ArrayList<String>();
+  private final Map<String, Integer> pathIndexes = new HashMap<String, Integer>();
+
+  // The lengths of the data files as of the last completed update; guarded by this.
+  private State state;
+
+  private RandomAccessFile messages;
+
+  private boolean closed = false;
+
+  /**
+   * Opens the commit store of a repository, creating it if needed. The store is not updated; call
+   * <code>update()</code> for that.
+   * 
+   * @param gitDir
+   *          The git directory of the repository.
+   * @throws IOException
+   *           Thrown if the store cannot be read or created.
+   */
+  public CommitStore(File gitDir) throws IOException {
+    CheckUtilities.checkNullArgument(gitDir, "gitDir");
+    this.gitDir = gitDir;
+    this.directory = new File(gitDir, DIRECTORY);
+    FsUtilities.mkdirs(directory);
+    synchronized (this) {
+      load();
+    }
+  }
+
+  /**
+   * Gets the git directory of the repository of this store.
+   * 
+   * @return The git directory.
+   */
+  public File getGitDirectory() {
+    return gitDir;
+  }
+
+  /**
+   * Gets the epoch of the store, which changes each time the store is rebuilt. Views which keep
+   * store positions start over when it changes.
+   * 
+   * @return The epoch.
+   */
+  public int getEpoch() {
+    return snapshot.epoch;
+  }
+
+  /**
+   * Gets the number of commits stored.
+   * 
+   * @return The number of commits.
+   */
+  public int size() {
+    return snapshot.count;
+  }
+
+  /**
+   * Gets the position of a commit in the store.
+   * 
+   * @param id
+   *          The id of the commit.
+   * @return The position of the commit, or -1 if it is not stored or <code>id</code> is not a full
+   *         id.
+   */
+  public int indexOf(String id) {
+    return ObjectId.isId(id) ? indexOf(ObjectId.fromString(id)) : -1;
+  }
+
+  /**
+   * Gets the position of a commit in the store.
+   * 
+   * @param id
+   *          The id of the commit.
+   * @return The position of the commit, or -1 if it is not stored.
+   */
+  public int indexOf(ObjectId id) {
+    int position;
+    positionsLock.readLock().lock();
+    try {
+      position = positions.indexOf(id);
+    } finally {
+      positionsLock.readLock().unlock();
+    }
+    return (position >= snapshot.count) ? -1 : position;
+  }
+
+  /**
+   * Gets the id of a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The id of the commit.
+   */
+  public String getId(int commit) {
+    return getObjectId(commit).toString();
+  }
+
+  /**
+   * Gets the id of a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The id of the commit.
+   */
+  public ObjectId getObjectId(int commit) {
+    Snapshot s = check(commit);
+    return ObjectId.fromRaw(s.commits, commit * s.recordSize());
+  }
+
+  /**
+   * Gets the parents of a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The positions of the parents, in order; -1 for a parent which is not stored, as in a
+   *         shallow repository.
+   */
+  public int[] getParents(int commit) {
+    Snapshot s = check(commit);
+    int base = commit * s.recordSize() + s.idLength;
+    int first = s.commits.getInt(base + 24);
+    int[] parents = new int[s.commits.getInt(base + 28)];
+    for (int i = 0; i < parents.length; i++) {
+      parents[i] = s.parents.getInt((first + i) * 4);
+    }
+    return parents;
+  }
+
+  /**
+   * Gets the number of parents of a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The number of parents.
+   */
+  public int getParentCount(int commit) {
+    Snapshot s = check(commit);
+    return s.commits.getInt(commit * s.recordSize() + s.idLength + 28);
+  }
+
+  /**
+   * Gets the commit time of a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The commit time, in seconds since the epoch.
+   */
+  public long getCommitTime(int commit) {
+    Snapshot s = check(commit);
+    return s.commits.getLong(commit * s.recordSize() + s.idLength);
+  }
+
+  /**
+   * Gets the author time of a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The author time, in seconds since the epoch.
+   */
+  public long getAuthorTime(int commit) {
+    Snapshot s = check(commit);
+    return s.commits.getLong(commit * s.recordSize() + s.idLength + 8);
+  }
+
+  /**
+   * Gets the time zone of the author time of a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The offset from UTC, in minutes.
+   */
+  public int getAuthorTimeZone(int commit) {
+    Snapshot s = check(commit);
+    return s.commits.getInt(commit * s.recordSize() + s.idLength + 16);
+  }
+
+  /**
+   * Gets the author of a commit as an index into <code>getAuthors()</code>.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The index of the author.
+   */
+  public int getAuthorIndex(int commit) {
+    Snapshot s = check(commit);
+    return s.commits.getInt(commit * s.recordSize() + s.idLength + 20);
+  }
+
+  /**
+   * Gets the author of a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The author, as "name &lt;email&gt;".
+   */
+  public String getAuthor(int commit) {
+    return snapshot.authors[getAuthorIndex(commit)];
+  }
+
+  /**
+   * Gets the dictionary of the authors.
+   * 
+   * @return The distinct authors of the stored commits, by index.
+   */
+  public List<String> getAuthors() {
+    return Collections.unmodifiableList(Arrays.asList(snapshot.authors));
+  }
+
+  /**
+   * Gets the message of a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The raw message of the commit.
+   * @throws IOException
+   *           Thrown if the message cannot be read.
+   */
+  public String getMessage(int commit) throws IOException {
+    Snapshot s = check(commit);
+    long offset = s.commits.getLong(commit * s.recordSize() + s.idLength + 32);
+    RandomAccessFile file = getMessagesFile();
+    FileChannel channel = file.getChannel();
+    ByteBuffer length = ByteBuffer.allocate(4);
+    readFully(channel, length, offset);
+    ByteBuffer text = ByteBuffer.allocate(length.getInt(0));
+    readFully(channel, text, offset + 4);
+    return new String(text.array(), FsUtilities.ENCODING);
+  }
+
+  /**
+   * Gets the number of files changed by a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The number of file records of the commit; 0 for a merge.
+   */
+  public int getFileCount(int commit) {
+    Snapshot s = check(commit);
+    return s.commits.getInt(commit * s.recordSize() + s.idLength + 44);
+  }
+
+  /**
+   * Gets the path of a file changed by a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @param file
+   *          The index of the file in the commit, below <code>getFileCount(commit)</code>.
+   * @return The index of the path in <code>getPaths()</code>.
+   */
+  public int getPathIndex(int commit, int file) {
+    return snapshot.files.getInt(getFileRecord(commit, file));
+  }
+
+  /**
+   * Gets the path a file changed by a commit was renamed from.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @param file
+   *          The index of the file in the commit.
+   * @return The index of the old path in <code>getPaths()</code>, or -1 if the file was not
+   *         renamed.
+   */
+  public int getOldPathIndex(int commit, int file) {
+    return snapshot.files.getInt(getFileRecord(commit, file) + 4);
+  }
+
+  /**
+   * Gets the number of lines added to a file by a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @param file
+   *          The index of the file in the commit.
+   * @return The number of lines added, or -1 for a binary file.
+   */
+  public int getLinesAdded(int commit, int file) {
+    return snapshot.files.getInt(getFileRecord(commit, file) + 8);
+  }
+
+  /**
+   * Gets the number of lines deleted from a file by a commit.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @param file
+   *          The index of the file in the commit.
+   * @return The number of lines deleted, or -1 for a binary file.
+   */
+  public int getLinesDeleted(int commit, int file) {
+    return snapshot.files.getInt(getFileRecord(commit, file) + 12);
+  }
+
+  /**
+   * Gets a path from the dictionary of the paths.
+   * 
+   * @param index
+   *          The index of the path.
+   * @return The path, relative to the root of the repository.
+   */
+  public String getPath(int index) {
+    return snapshot.paths[index];
+  }
+
+  /**
+   * Gets the dictionary of the paths.
+   * 
+   * @return The distinct paths changed by the stored commits, by index.
+   */
+  public List<String> getPaths() {
+    return Collections.unmodifiableList(Arrays.asList(snapshot.paths));
+  }
+
+  /**
+   * Gets the tips the store was last updated from.
+   * 
+   * @return The ids of the tips.
+   */
+  public List<String> getTips() {
+    return snapshot.tips;
+  }
+
+  /**
+   * Gets a stored commit in the form <code>GitLog</code> returns commits in. The message is the
+   * raw message of the commit and the date is the author date.
+   * 
+   * @param commit
+   *          The position of the commit.
+   * @return The commit.
+   * @throws IOException
+   *           Thrown if the message cannot be read.
+   */
+  public Commit getCommit(int commit) throws IOException {
+    List<String> mergeDetails = null;
+    int[] parents = getParents(commit);
+    if (parents.length > 1) {
+      mergeDetails = new ArrayList<String>(parents.length);
+      for (int parent : parents) {
+        mergeDetails.add((parent < 0) ? "" : getId(parent).substring(0, 7));
+      }
+    }
+    List<CommitFile> files = null;
+    int fileCount = getFileCount(commit);
+    if (fileCount > 0) {
+      files = new ArrayList<CommitFile>(fileCount);
+      for (int i = 0; i < fileCount; i++) {
+        files.add(new CommitFile(getPath(getPathIndex(commit, i)), Math.max(0, getLinesAdded(
+            commit, i)), Math.max(0, getLinesDeleted(commit, i))));
+      }
+    }
+    return new Commit(getObjectId(commit), mergeDetails, getAuthor(commit), formatDate(
+        getAuthorTime(commit), getAuthorTimeZone(commit)), getMessage(commit), files);
+  }
+
+  /**
+   * Appends the commits reachable from the branches, remote-tracking branches and HEAD of the
+   * repository which are not stored yet. Only the history added since the tips of the last update
+   * is listed. If some stored commits are no longer reachable from the tips, or no longer exist,
+   * the store is rebuilt from scratch under a new epoch. Updates from several processes are
+   * serialized with a lock file in the store directory.
+   * 
+   * @return The number of commits appended; all of them after a rebuild.
+   * @throws IOException
+   *           Thrown if the store cannot be written, or if there is an error running git.
+   * @throws JavaGitException
+   *           Thrown if git fails.
+   */
+  public synchronized int update() throws IOException, JavaGitException {
+    checkOpen();
+    RefDatabase refs = new RefDatabase(gitDir);
+    Set<String> tips = new LinkedHashSet<String>();
+    String head = refs.resolve("HEAD");
+    if (null != head) {
+      tips.add(head);
+    }
+    tips.addAll(refs.getRefs("refs/heads/").values());
+    tips.addAll(refs.getRefs("refs/remotes/").values());
+
+    RandomAccessFile lockFile = new RandomAccessFile(new File(directory, "lock"), "rw");
+    try {
+      FileLock lock = lockFile.getChannel().lock();
+      try {
+        State stored = State.read(directory);
+        if (null != stored && !stored.equals(state)) {
+          // Another process has updated the store.
+          load();
+        }
+        if (snapshot.tips.containsAll(tips) && tips.size() == snapshot.tips.size()) {
+          return 0;
+        }
+        int before = snapshot.count;
+        List<String> tipList = new ArrayList<String>(tips);
+        if (isRewritten(tipList)) {
+          rebuild(tipList);
+          return snapshot.count;
+        }
+        try {
+          appendOrRollback(tipList, true);
+        } catch (JavaGitException e) {
+          // A stored tip was removed from the repository since it was checked.
+          rebuild(tipList);
+          return snapshot.count;
+        }
+        return snapshot.count - before;
+      } finally {
+        lock.release();
+      }
+    } finally {
+      lockFile.close();
+    }
+  }
+
+  /**
+   * Closes the store. It cannot be used afterwards.
+   * 
+   * @throws IOException
+   *           Thrown if a file cannot be closed.
+   */
+  public synchronized void close() throws IOException {
+    closed = true;
+    if (null != messages) {
+      messages.close();
+      messages = null;
+    }
+  }
+
+  // Checks whether some stored commit is no longer reachable from the tips, or no longer exists.
+  // Guarded by this.
+  private boolean isRewritten(List<String> tips) throws IOException {
+    if (snapshot.tips.isEmpty()) {
+      return false;
+    }
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    command.add("rev-list");
+    command.add("-1");
+    command.addAll(snapshot.tips);
+    command.add("--not");
+    command.addAll(tips);
+    command.add("--");
+    try {
+      return !ProcessUtilities.runRecordCommand(gitDir, command).isEmpty();
+    } catch (JavaGitException e) {
+      // A stored tip is gone.
+      return true;
+    }
+  }
+
+  /*
+   * Empties the store under a new epoch and lists all the commits of the tips again. The data
+   * files are deleted rather than truncated, so that readers still using the mappings of the
+   * previous snapshot do not fault. Guarded by this.
+   */
+  private void rebuild(List<String> tips) throws IOException, JavaGitException {
+    State empty = new State();
+    empty.epoch = state.epoch + 1;
+    for (String name : State.FILES) {
+      File file = new File(directory, name);
+      if (file.exists() && !file.delete()) {
+        truncate(file, 0);
+      }
+    }
+    if (null != messages) {
+      messages.close();
+      messages = null;
+    }
+    empty.write(directory);
+    load();
+    appendOrRollback(tips, false);
+  }
+
+  // Appends the new commits, or reverts to the last completed update if that fails. Guarded by
+  // this.
+  private void appendOrRollback(List<String> tips, boolean excludeStored) throws IOException,
+      JavaGitException {
+    try {
+      append(tips, excludeStored);
+    } catch (IOException e) {
+      load();
+      throw e;
+    } catch (JavaGitException e) {
+      load();
+      throw e;
+    } catch (RuntimeException e) {
+      load();
+      throw e;
+    }
+  }
+
+  /**
+   * Lists the commits reachable from <code>tips</code> in parent-first order and appends those
+   * which are not stored yet, then publishes them. Guarded by this.
+   */
+  private void append(List<String> tips, boolean excludeStored) throws IOException,
+      JavaGitException {
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    command.add("log");
+    command.add("--reverse");
+    command.add("--topo-order");
+    command.add("-M");
+    command.add("--numstat");
+    command.add("-z");
+    command.add("--date=raw");
+    command.add(LOG_FORMAT);
+    command.addAll(tips);
+    if (excludeStored && !snapshot.tips.isEmpty()) {
+      command.add("--not");
+      command.addAll(snapshot.tips);
+    }
+    command.add("--");
+
+    Appender appender = new Appender();
+    try {
+      if (!tips.isEmpty()) {
+        ProcessUtilities.runRecordCommand(gitDir, command, appender);
+      }
+      appender.finish();
+    } finally {
+      appender.close();
+    }
+
+    State next = appender.getState(tips);
+    next.epoch = state.epoch;
+    next.write(directory);
+    state = next;
+    publish(tips);
+  }
+
+  // Reads the state and the dictionaries, and maps the data files. Guarded by this.
+  private void load() throws IOException {
+    State loaded = State.read(directory);
+    if (null == loaded || !loaded.isValid(directory)) {
+      loaded = new State();
+      // Positions read before the damage do not apply to the rebuilt store.
+      loaded.epoch = (null == state) ? 0 : state.epoch + 1;
+      loaded.write(directory);
+    }
+    state = loaded;
+    for (String name : State.FILES) {
+      truncate(new File(directory, name), state.getLength(name));
+    }
+
+    authors.clear();
+    authorIndexes.clear();
+    readDictionary(new File(directory, "authors.dat"), state.authorCount, authors, authorIndexes);
+    paths.clear();
+    pathIndexes.clear();
+    readDictionary(new File(directory, "paths.dat"), state.pathCount, paths, pathIndexes);
+
+    ObjectIdSet ids = new ObjectIdSet(state.commitCount);
+    ByteBuffer commits = map(new File(directory, "commits.dat"));
+    int recordSize = state.idLength + COMMIT_FIELDS_SIZE;
+    for (int i = 0; i < state.commitCount; i++) {
+      ids.add(ObjectId.fromRaw(commits, i * recordSize));
+    }
+    positionsLock.writeLock().lock();
+    try {
+      positions = ids;
+    } finally {
+      positionsLock.writeLock().unlock();
+    }
+    publish(state.tips);
+  }
+
+  // Makes the commits of the current state visible to readers. Guarded by this.
+  private void publish(List<String> tips) throws IOException {
+    Snapshot s = new Snapshot();
+    s.epoch = state.epoch;
+    s.count = state.commitCount;
+    s.idLength = state.idLength;
+    s.commits = map(new File(directory, "commits.dat"));
+    s.parents = map(new File(directory, "parents.dat"));
+    s.files = map(new File(directory, "files.dat"));
+    s.authors = authors.toArray(new String[authors.size()]);
+    s.paths = paths.toArray(new String[paths.size()]);
+    s.tips = Collections.unmodifiableList(new ArrayList<String>(tips));
+    snapshot = s;
+  }
+
+  private synchronized RandomAccessFile getMessagesFile() throws IOException {
+    checkOpen();
+    if (null == messages) {
+      messages = new RandomAccessFile(new File(directory, "messages.dat"), "r");
+    }
+    return messages;
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException(ExceptionMessageMap.getMessage("020007") + "  { directory=["
+          + directory + "] }");
+    }
+  }
+
+  private Snapshot check(int commit) {
+    Snapshot s = snapshot;
+    CheckUtilities.checkIntInRange(commit, 0, s.count);
+    return s;
+  }
+
+  private int getFileRecord(int commit, int file) {
+    Snapshot s = check(commit);
+    int base = commit * s.recordSize() + s.idLength;
+    CheckUtilities.checkIntInRange(file, 0, s.commits.getInt(base + 44));
+    return (s.commits.getInt(base + 40) + file) * FILE_RECORD_SIZE;
+  }
+
+  private static ByteBuffer map(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static void truncate(File file, long length) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      if (raf.length() != length) {
+        raf.setLength(length);
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException(ExceptionMessageMap.getMessage("020008"));
+      }
+    }
+  }
+
+  private static void readDictionary(File file, int count, List<String> values,
+      Map<String, Integer> indexes) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      for (int i = 0; i < count; i++) {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        String value = new String(bytes, FsUtilities.ENCODING);
+        values.add(value);
+        indexes.put(value, Integer.valueOf(i));
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  private static String formatDate(long time, int timeZone) {
+    SimpleDateFormat format = new SimpleDateFormat("EEE MMM d HH:mm:ss yyyy", Locale.US);
+    format.setTimeZone(new SimpleTimeZone(timeZone * 60 * 1000, ""));
+    int minutes = Math.abs(timeZone);
+    return format.format(new Date(time * 1000)) + ((timeZone < 0) ? " -" : " +")
+        + String.format("%02d%02d", Integer.valueOf(minutes / 60), Integer.valueOf(minutes % 60));
+  }
+
+  /**
+   * Parses the records of <code>git log -z --numstat</code> and appends the new commits to the data
+   * files.
+   */
+  private final class Appender implements ProcessUtilities.RecordHandler {
+
+    // The fields of a commit, in the order of LOG_FORMAT.
+    private static final int ID = 0;
+    private static final int PARENTS = 1;
+    private static final int AUTHOR_DATE = 2;
+    private static final int COMMIT_TIME = 3;
+    private static final int AUTHOR = 4;
+    private static final int MESSAGE = 5;
+
+    private final DataOutputStream commits;
+    private final DataOutputStream parents;
+    private final DataOutputStream files;
+    private final DataOutputStream messages;
+    private final DataOutputStream authorsOut;
+    private final DataOutputStream pathsOut;
+
+    private int commitCount = state.commitCount;
+    private long parentCount = state.parentCount;
+    private long fileCount = state.fileCount;
+    private long messagesLength = state.messagesLength;
+    private long authorsLength = state.authorsLength;
+    private long pathsLength = state.pathsLength;
+    private int idLength = state.idLength;
+
+    // The commit being parsed.
+    private final String[] fields = new String[6];
+    private int field = 0;
+    private final List<int[]> commitFiles = new ArrayList<int[]>();
+    private int[] pendingRename = null;
+    private String renameFrom = null;
+
+    Appender() throws IOException {
+      commits = open("commits.dat");
+      parents = open("parents.dat");
+      files = open("files.dat");
+      messages = open("messages.dat");
+      authorsOut = open("authors.dat");
+      pathsOut = open("paths.dat");
+    }
+
+    public boolean handleRecord(String record) throws IOException {
+      if (field <= MESSAGE) {
+        fields[field++] = record;
+        return true;
+      }
+      if (null != pendingRename) {
+        // The old and the new path of a rename follow its counts in records of their own.
+        if (null == renameFrom) {
+          renameFrom = record;
+        } else {
+          pendingRename[0] = getPathIndex(record);
+          pendingRename[1] = getPathIndex(renameFrom);
+          commitFiles.add(pendingRename);
+          pendingRename = null;
+          renameFrom = null;
+        }
+        return true;
+      }
+      if (record.indexOf('\t') >= 0) {
+        // <added> TAB <deleted> TAB <path>, the first one after a newline.
+        String line = record.startsWith("\n") ? record.substring(1) : record;
+        int tab1 = line.indexOf('\t');
+        int tab2 = line.indexOf('\t', tab1 + 1);
+        int[] file = new int[] { -1, -1, parseCount(line.substring(0, tab1)),
+            parseCount(line.substring(tab1 + 1, tab2)) };
+        String path = line.substring(tab2 + 1);
+        if (0 == path.length()) {
+          pendingRename = file;
+        } else {
+          file[0] = getPathIndex(path);
+          commitFiles.add(file);
+        }
+        return true;
+      }
+      writeCommit();
+      fields[ID] = record;
+      field = PARENTS;
+      return true;
+    }
+
+    /** Writes the last commit parsed and flushes the data files. */
+    void finish() throws IOException {
+      if (field > MESSAGE) {
+        writeCommit();
+      }
+      for (DataOutputStream out : new DataOutputStream[] { commits, parents, files, messages,
+          authorsOut, pathsOut }) {
+        out.flush();
+      }
+    }
+
+    State getState(List<String> tips) {
+      State next = new State();
+      next.idLength = idLength;
+      next.commitCount = commitCount;
+      next.parentCount = parentCount;
+      next.fileCount = fileCount;
+      next.messagesLength = messagesLength;
+      next.authorCount = authors.size();
+      next.authorsLength = authorsLength;
+      next.pathCount = paths.size();
+      next.pathsLength = pathsLength;
+      next.tips = new ArrayList<String>(tips);
+      return next;
+    }
+
+    void close() throws IOException {
+      IOException failure = null;
+      for (DataOutputStream out : new DataOutputStream[] { commits, parents, files, messages,
+          authorsOut, pathsOut }) {
+        try {
+          out.close();
+        } catch (IOException e) {
+          failure = e;
+        }
+      }
+      if (null != failure) {
+        throw failure;
+      }
+    }
+
+    private void writeCommit() throws IOException {
+      ObjectId id = ObjectId.fromString(fields[ID]);
+      field = MESSAGE + 1;
+      List<int[]> changed = new ArrayList<int[]>(commitFiles);
+      commitFiles.clear();
+      // Only this thread adds to the positions, so it reads them without the lock.
+      if (positions.contains(id)) {
+        return;
+      }
+      idLength = ObjectId.LENGTH;
+
+      String[] parentIds = (0 == fields[PARENTS].length()) ? new String[0] : fields[PARENTS]
+          .split(" ");
+      for (String parentId : parentIds) {
+        parents.writeInt(positions.indexOf(ObjectId.fromString(parentId)));
+      }
+      String[] date = fields[AUTHOR_DATE].split(" ");
+
+      byte[] message = fields[MESSAGE].getBytes(FsUtilities.ENCODING);
+      messages.writeInt(message.length);
+      messages.write(message);
+
+      for (int[] file : changed) {
+        for (int value : file) {
+          files.writeInt(value);
+        }
+      }
+
+      commits.write(id.toByteArray());
+      commits.writeLong(Long.parseLong(fields[COMMIT_TIME]));
+      commits.writeLong(Long.parseLong(date[0]));
+      commits.writeInt(parseTimeZone(date[1]));
+      commits.writeInt(getAuthorIndex(fields[AUTHOR]));
+      commits.writeInt((int) parentCount);
+      commits.writeInt(parentIds.length);
+      commits.writeLong(messagesLength);
+      commits.writeInt((int) fileCount);
+      commits.writeInt(changed.size());
+
+      positionsLock.writeLock().lock();
+      try {
+        positions.add(id);
+      } finally {
+        positionsLock.writeLock().unlock();
+      }
+      commitCount++;
+      parentCount += parentIds.length;
+      fileCount += changed.size();
+      messagesLength += 4 + message.length;
+    }
+
+    private int getAuthorIndex(String author) throws IOException {
+      Integer index = authorIndexes.get(author);
+      if (null == index) {
+        index = Integer.valueOf(authors.size());
+        authors.add(author);
+        authorIndexes.put(author, index);
+        authorsLength += writeString(authorsOut, author);
+      }
+      return index.intValue();
+    }
+
+    private int getPathIndex(String path) throws IOException {
+      Integer index = pathIndexes.get(path);
+      if (null == index) {
+        index = Integer.valueOf(paths.size());
+        paths.add(path);
+        pathIndexes.put(path, index);
+        pathsLength += writeString(pathsOut, path);
+      }
+      return index.intValue();
+    }
+
+    private DataOutputStream open(String name) throws IOException {
+      OutputStream out = new FileOutputStream(new File(directory, name), true);
+      return new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+    }
+  }
+
+  private static int writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(FsUtilities.ENCODING);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+    return 4 + bytes.length;
+  }
+
+  private static int parseCount(String count) {
+    return "-".equals(count) ? -1 : Integer.parseInt(count);
+  }
+
+  // Parses a time zone such as "+0130" into minutes.
+  private static int parseTimeZone(String timeZone) {
+    int value = Integer.parseInt(timeZone.substring(1));
+    int minutes = (value / 100) * 60 + value % 100;
+    return timeZone.startsWith("-") ? -minutes : minutes;
+  }
+
+  /**
+   * The lengths of the data files and the tips as of a completed update, kept in the
+   * <code>state</code> file.
+   */
+  private static final class State {
+
+    static final String[] FILES = { "commits.dat", "parents.dat", "files.dat", "messages.dat",
+        "authors.dat", "paths.dat" };
+
+    int epoch = 0;
+    int idLength = 0;
+    int commitCount = 0;
+    long parentCount = 0;
+    long fileCount = 0;
+    long messagesLength = 0;
+    int authorCount = 0;
+    long authorsLength = 0;
+    int pathCount = 0;
+    long pathsLength = 0;
+    List<String> tips = new ArrayList<String>();
+
+    long getLength(String name) {
+      if ("commits.dat".equals(name)) {
+        return (long) commitCount * (idLength + COMMIT_FIELDS_SIZE);
+      } else if ("parents.dat".equals(name)) {
+        return parentCount * 4;
+      } else if ("files.dat".equals(name)) {
+        return fileCount * FILE_RECORD_SIZE;
+      } else if ("messages.dat".equals(name)) {
+        return messagesLength;
+      } else if ("authors.dat".equals(name)) {
+        return authorsLength;
+      }
+      return pathsLength;
+    }
+
+    // Checks that no data file is shorter than this state says.
+    boolean isValid(File directory) {
+      if (commitCount > 0 && idLength != ObjectId.LENGTH) {
+        return false;
+      }
+      for (String name : FILES) {
+        File file = new File(directory, name);
+        long length = getLength(name);
+        if ((length > 0 && !file.isFile()) || file.length() < length) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    static State read(File directory) throws IOException {
+      File file = new File(directory, "state");
+      if (!file.isFile()) {
+        return null;
+      }
+      Properties properties = new Properties();
+      InputStream in = new FileInputStream(file);
+      try {
+        properties.load(in);
+      } finally {
+        in.close();
+      }
+      try {
+        if (VERSION != Integer.parseInt(properties.getProperty("version"))) {
+          return null;
+        }
+        State state = new State();
+        state.epoch = Integer.parseInt(properties.getProperty("epoch", "0"));
+        state.idLength = Integer.parseInt(properties.getProperty("idLength"));
+        state.commitCount = Integer.parseInt(properties.getProperty("commits"));
+        state.parentCount = Long.parseLong(properties.getProperty("parents"));
+        state.fileCount = Long.parseLong(properties.getProperty("files"));
+        state.messagesLength = Long.parseLong(properties.getProperty("messagesLength"));
+        state.authorCount = Integer.parseInt(properties.getProperty("authors"));
+        state.authorsLength = Long.parseLong(properties.getProperty("authorsLength"));
+        state.pathCount = Integer.parseInt(properties.getProperty("paths"));
+        state.pathsLength = Long.parseLong(properties.getProperty("pathsLength"));
+        String tips = properties.getProperty("tips").trim();
+        if (tips.length() > 0) {
+          state.tips.addAll(Arrays.asList(tips.split(" ")));
+        }
+        return state;
+      } catch (RuntimeException e) {
+        // A damaged state file; the store is rebuilt.
+        return null;
+      }
+    }
+
+    void write(File directory) throws IOException {
+      StringBuffer tipList = new StringBuffer();
+      for (String tip : tips) {
+        tipList.append(tip).append(' ');
+      }
+      Properties properties = new Properties();
+      properties.setProperty("version", String.valueOf(VERSION));
+      properties.setProperty("epoch", String.valueOf(epoch));
+      properties.setProperty("idLength", String.valueOf(idLength));
+      properties.setProperty("commits", String.valueOf(commitCount));
+      properties.setProperty("parents", String.valueOf(parentCount));
+      properties.setProperty("files", String.valueOf(fileCount));
+      properties.setProperty("messagesLength", String.valueOf(messagesLength));
+      properties.setProperty("authors", String.valueOf(authorCount));
+      properties.setProperty("authorsLength", String.valueOf(authorsLength));
+      properties.setProperty("paths", String.valueOf(pathCount));
+      properties.setProperty("pathsLength", String.valueOf(pathsLength));
+      properties.setProperty("tips", tipList.toString());
+
+      // Make the appended data durable before the state which refers to it.
+      for (String name : FILES) {
+        File file = new File(directory, name);
+        if (file.isFile()) {
+          RandomAccessFile raf = new RandomAccessFile(file, "rw");
+          try {
+            raf.getChannel().force(false);
+          } finally {
+            raf.close();
+          }
+        }
+      }
+      File tmp = new File(directory, "state.tmp");
+      FileOutputStream out = new FileOutputStream(tmp);
+      try {
+        properties.store(out, null);
+        out.getChannel().force(false);
+      } finally {
+        out.close();
+      }
+      File file = new File(directory, "state");
+      if (!tmp.renameTo(file)) {
+        // Some platforms cannot rename onto an existing file; we hold the lock, so this is safe.
+        file.delete();
+        if (!tmp.renameTo(file)) {
+          throw new IOException(ExceptionMessageMap.getMessage("020009") + "  { directory=["
+              + directory + "] }");
+        }
+      }
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof State)) {
+        return false;
+      }
+      State other = (State) o;
+      return epoch == other.epoch && commitCount == other.commitCount
+          && idLength == other.idLength && messagesLength == other.messagesLength
+          && pathsLength == other.pathsLength && tips.equals(other.tips);
+    }
+
+    public int hashCode() {
+      return commitCount;
+    }
+  }
+
+  // The part of the store visible to readers.
+  private static final class Snapshot {
+    int epoch;
+    int count;
+    int idLength;
+    ByteBuffer commits;
+    ByteBuffer parents;
+    ByteBuffer files;
+    String[] authors;
+    String[] paths;
+    List<String> tips;
+
+    int recordSize() {
+      return idLength + COMMIT_FIELDS_SIZE;
+    }
+  }
+}
@@ -0,0 +1,562 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.api.ObjectId;
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.CommitFile;
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>CommitTable</code> holds commit metadata column by column in primitive arrays, for
+ * analytics over large histories: one <code>long</code> per commit for its time, one
+ * <code>int</code> for its author (an index into a dictionary of authors), parent rows as
+ * <code>int</code> offsets into one shared array, and the lines added and deleted per file packed
+ * the same way, with paths in a dictionary. A million commits take tens of megabytes instead of
+ * the gigabytes a list of <code>Commit</code> objects takes.
+ * 
+ * A selection of commits is a sorted <code>int[]</code> of rows. The <code>select</code> methods
+ * scan a column to narrow a selection, and the aggregation methods scan a selection.
+ * 
+ * Tables are immutable. They are loaded from a <code>CommitStore</code>, whose positions become
+ * the rows, or from commits returned by <code>GitLog</code>, which carry no parent ids: such
+ * tables have no parents.
+ */
+public final class CommitTable {
+
+  /** Accepts or rejects rows of a table. */
+  public static interface RowFilter {
+
+    /**
+     * Checks a row.
+     * 
+     * @param table
+     *          The table.
+     * @param row
+     *          The row.
+     * @return True to keep the row.
+     */
+    public boolean accept(CommitTable table, int row);
+  }
+
+  private final int size;
+  private final int idLength;
+  private final byte[] ids;
+  private final long[] times;
+  private final int[] authors;
+  private final String[] authorDictionary;
+  private final int[] parentStarts;
+  private final int[] parents;
+  private final int[] fileStarts;
+  private final int[] filePaths;
+  private final int[] linesAdded;
+  private final int[] linesDeleted;
+  private final String[] pathDictionary;
+
+  private CommitTable(Builder builder) {
+    this.size = builder.size;
+    this.idLength = builder.idLength;
+    this.ids = builder.ids;
+    this.times = builder.times;
+    this.authors = builder.authors;
+    this.authorDictionary = builder.authorDictionary;
+    this.parentStarts = builder.parentStarts;
+    this.parents = builder.parents;
+    this.fileStarts = builder.fileStarts;
+    this.filePaths = builder.filePaths;
+    this.linesAdded = builder.linesAdded;
+    this.linesDeleted = builder.linesDeleted;
+    this.pathDictionary = builder.pathDictionary;
+  }
+
+  /**
+   * Loads all the commits of a store. Row numbers are the positions in the store, and times are
+   * author times.
+   * 
+   * @param store
+   *          The commit store.
+   * @return The table.
+   */
+  public static CommitTable load(CommitStore store) {
+    CheckUtilities.checkNullArgument(store, "store");
+    int size = store.size();
+    Builder builder = new Builder(size);
+    builder.idLength = (0 == size) ? 0 : ObjectId.LENGTH;
+    builder.ids = new byte[size * builder.idLength];
+    builder.authorDictionary = store.getAuthors().toArray(new String[0]);
+    builder.pathDictionary = store.getPaths().toArray(new String[0]);
+
+    int parentCount = 0;
+    int fileCount = 0;
+    for (int row = 0; row < size; row++) {
+      parentCount += store.getParentCount(row);
+      fileCount += store.getFileCount(row);
+    }
+    builder.parents = new int[parentCount];
+    builder.allocateFiles(fileCount);
+
+    int parent = 0;
+    int file = 0;
+    for (int row = 0; row < size; row++) {
+      store.getObjectId(row).copyRawTo(builder.ids, row * builder.idLength);
+      builder.times[row] = store.getAuthorTime(row);
+      builder.authors[row] = store.getAuthorIndex(row);
+      builder.parentStarts[row] = parent;
+      for (int p : store.getParents(row)) {
+        builder.parents[parent++] = p;
+      }
+      builder.fileStarts[row] = file;
+      int count = store.getFileCount(row);
+      for (int i = 0; i < count; i++) {
+        builder.filePaths[file] = store.getPathIndex(row, i);
+        builder.linesAdded[file] = store.getLinesAdded(row, i);
+        builder.linesDeleted[file] = store.getLinesDeleted(row, i);
+        file++;
+      }
+    }
+    builder.parentStarts[size] = parent;
+    builder.fileStarts[size] = file;
+    return new CommitTable(builder);
+  }
+
+  /**
+   * Loads commits returned by <code>GitLog</code>, in their order. Times are parsed from the date
+   * of each commit. The table has no parents.
+   * 
+   * @param commits
+   *          The commits.
+   * @return The table.
+   */
+  public static CommitTable load(List<Commit> commits) {
+    CheckUtilities.checkNullArgument(commits, "commits");
+    int size = commits.size();
+    Builder builder = new Builder(size);
+    builder.idLength = (0 == size) ? 0 : commits.get(0).getSha().length() / 2;
+    builder.ids = new byte[size * builder.idLength];
+    builder.parents = new int[0];
+
+    int fileCount = 0;
+    for (Commit commit : commits) {
+      fileCount += (null == commit.getFiles()) ? 0 : commit.getFiles().size();
+    }
+    builder.allocateFiles(fileCount);
+
+    Dictionary authorDictionary = new Dictionary();
+    Dictionary pathDictionary = new Dictionary();
+    SimpleDateFormat format = new SimpleDateFormat("EEE MMM d HH:mm:ss yyyy Z", Locale.US);
+    int file = 0;
+    for (int row = 0; row < size; row++) {
+      Commit commit = commits.get(row);
+      byte[] id = FsUtilities.fromHex(commit.getSha());
+      System.arraycopy(id, 0, builder.ids, row * builder.idLength, builder.idLength);
+      builder.times[row] = parseTime(format, commit.getDateString());
+      builder.authors[row] = authorDictionary.indexOf(commit.getAuthor());
+      builder.fileStarts[row] = file;
+      if (null != commit.getFiles()) {
+        for (CommitFile commitFile : commit.getFiles()) {
+          builder.filePaths[file] = pathDictionary.indexOf(commitFile.getName());
+          builder.linesAdded[file] = commitFile.getLinesAdded();
+          builder.linesDeleted[file] = commitFile.getLinesDeleted();
+          file++;
+        }
+      }
+    }
+    builder.fileStarts[size] = file;
+    builder.authorDictionary = authorDictionary.toArray();
+    builder.pathDictionary = pathDictionary.toArray();
+    return new CommitTable(builder);
+  }
+
+  /**
+   * Gets the number of rows.
+   * 
+   * @return The number of commits in the table.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the id of the commit of a row.
+   * 
+   * @param row
+   *          The row.
+   * @return The commit id.
+   */
+  public String getId(int row) {
+    CheckUtilities.checkIntInRange(row, 0, size);
+    return FsUtilities.toHex(ids, row * idLength, idLength);
+  }
+
+  /**
+   * Gets the time of the commit of a row.
+   * 
+   * @param row
+   *          The row.
+   * @return The author time, in seconds since the epoch.
+   */
+  public long getTime(int row) {
+    return times[row];
+  }
+
+  /**
+   * Gets the author of the commit of a row.
+   * 
+   * @param row
+   *          The row.
+   * @return The index of the author in <code>getAuthorDictionary()</code>.
+   */
+  public int getAuthorIndex(int row) {
+    return authors[row];
+  }
+
+  /**
+   * Gets the author of the commit of a row.
+   * 
+   * @param row
+   *          The row.
+   * @return The author.
+   */
+  public String getAuthor(int row) {
+    return authorDictionary[authors[row]];
+  }
+
+  /**
+   * Gets the parents of the commit of a row.
+   * 
+   * @param row
+   *          The row.
+   * @return The rows of the parents; -1 for a parent which is not in the table.
+   */
+  public int[] getParents(int row) {
+    return copy(parents, parentStarts[row], parentStarts[row + 1]);
+  }
+
+  /**
+   * Gets the number of files changed by the commit of a row.
+   * 
+   * @param row
+   *          The row.
+   * @return The number of files.
+   */
+  public int getFileCount(int row) {
+    return fileStarts[row + 1] - fileStarts[row];
+  }
+
+  /**
+   * Gets the path of a file changed by the commit of a row.
+   * 
+   * @param row
+   *          The row.
+   * @param file
+   *          The index of the file in the commit.
+   * @return The index of the path in <code>getPathDictionary()</code>.
+   */
+  public int getPathIndex(int row, int file) {
+    CheckUtilities.checkIntInRange(file, 0, getFileCount(row));
+    return filePaths[fileStarts[row] + file];
+  }
+
+  /**
+   * Gets the dictionary of the authors.
+   * 
+   * @return The authors, by index.
+   */
+  public String[] getAuthorDictionary() {
+    return authorDictionary.clone();
+  }
+
+  /**
+   * Gets the dictionary of the paths.
+   * 
+   * @return The paths, by index.
+   */
+  public String[] getPathDictionary() {
+    return pathDictionary.clone();
+  }
+
+  /**
+   * Selects all rows.
+   * 
+   * @return The rows, in order.
+   */
+  public int[] selectAll() {
+    int[] rows = new int[size];
+    for (int i = 0; i < size; i++) {
+      rows[i] = i;
+    }
+    return rows;
+  }
+
+  /**
+   * Narrows a selection to the commits made in a time range.
+   * 
+   * @param rows
+   *          The selection.
+   * @param from
+   *          The start of the range, inclusive, in seconds since the epoch.
+   * @param to
+   *          The end of the range, exclusive.
+   * @return The selected rows.
+   */
+  public int[] selectByTime(int[] rows, long from, long to) {
+    int[] selected = new int[rows.length];
+    int count = 0;
+    for (int row : rows) {
+      long time = times[row];
+      if (time >= from && time < to) {
+        selected[count++] = row;
+      }
+    }
+    return copy(selected, 0, count);
+  }
+
+  /**
+   * Narrows a selection to the commits of an author.
+   * 
+   * @param rows
+   *          The selection.
+   * @param author
+   *          The author, as in <code>getAuthorDictionary()</code>.
+   * @return The selected rows; none if the author is unknown.
+   */
+  public int[] selectByAuthor(int[] rows, String author) {
+    int index = Arrays.asList(authorDictionary).indexOf(author);
+    int[] selected = new int[rows.length];
+    int count = 0;
+    for (int row : rows) {
+      if (authors[row] == index) {
+        selected[count++] = row;
+      }
+    }
+    return copy(selected, 0, count);
+  }
+
+  /**
+   * Narrows a selection to the commits changing a path or a path under a directory.
+   * 
+   * @param rows
+   *          The selection.
+   * @param path
+   *          The path of a file, or of a directory ending with "/".
+   * @return The selected rows.
+   */
+  public int[] selectByPath(int[] rows, String path) {
+    boolean[] matches = new boolean[pathDictionary.length];
+    boolean any = false;
+    for (int i = 0; i < pathDictionary.length; i++) {
+      matches[i] = path.endsWith("/") ? pathDictionary[i].startsWith(path) : pathDictionary[i]
+          .equals(path);
+      any |= matches[i];
+    }
+    if (!any) {
+      return new int[0];
+    }
+    int[] selected = new int[rows.length];
+    int count = 0;
+    for (int row : rows) {
+      for (int file = fileStarts[row]; file < fileStarts[row + 1]; file++) {
+        if (matches[filePaths[file]]) {
+          selected[count++] = row;
+          break;
+        }
+      }
+    }
+    return copy(selected, 0, count);
+  }
+
+  /**
+   * Narrows a selection with a filter.
+   * 
+   * @param rows
+   *          The selection.
+   * @param filter
+   *          The filter.
+   * @return The rows the filter accepts.
+   */
+  public int[] select(int[] rows, RowFilter filter) {
+    int[] selected = new int[rows.length];
+    int count = 0;
+    for (int row : rows) {
+      if (filter.accept(this, row)) {
+        selected[count++] = row;
+      }
+    }
+    return copy(selected, 0, count);
+  }
+
+  /**
+   * Counts the commits of each author in a selection.
+   * 
+   * @param rows
+   *          The selection.
+   * @return The number of commits, by author index.
+   */
+  public int[] countByAuthor(int[] rows) {
+    int[] counts = new int[authorDictionary.length];
+    for (int row : rows) {
+      counts[authors[row]]++;
+    }
+    return counts;
+  }
+
+  /**
+   * Counts the commits changing each path in a selection.
+   * 
+   * @param rows
+   *          The selection.
+   * @return The number of commits, by path index.
+   */
+  public int[] countByPath(int[] rows) {
+    int[] counts = new int[pathDictionary.length];
+    for (int row : rows) {
+      for (int file = fileStarts[row]; file < fileStarts[row + 1]; file++) {
+        counts[filePaths[file]]++;
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Sums the lines added and deleted by each author in a selection. Binary files count as no
+   * lines.
+   * 
+   * @param rows
+   *          The selection.
+   * @return The number of lines added and deleted, by author index.
+   */
+  public long[] sumLinesByAuthor(int[] rows) {
+    long[] sums = new long[authorDictionary.length];
+    for (int row : rows) {
+      for (int file = fileStarts[row]; file < fileStarts[row + 1]; file++) {
+        sums[authors[row]] += Math.max(0, linesAdded[file]) + Math.max(0, linesDeleted[file]);
+      }
+    }
+    return sums;
+  }
+
+  /**
+   * Sums the lines added in a selection. Binary files count as no lines.
+   * 
+   * @param rows
+   *          The selection.
+   * @return The number of lines added.
+   */
+  public long sumLinesAdded(int[] rows) {
+    return sumLines(rows, linesAdded);
+  }
+
+  /**
+   * Sums the lines deleted in a selection. Binary files count as no lines.
+   * 
+   * @param rows
+   *          The selection.
+   * @return The number of lines deleted.
+   */
+  public long sumLinesDeleted(int[] rows) {
+    return sumLines(rows, linesDeleted);
+  }
+
+  private long sumLines(int[] rows, int[] lines) {
+    long sum = 0;
+    for (int row : rows) {
+      for (int file = fileStarts[row]; file < fileStarts[row + 1]; file++) {
+        sum += Math.max(0, lines[file]);
+      }
+    }
+    return sum;
+  }
+
+  private static int[] copy(int[] values, int from, int to) {
+    int[] copy = new int[to - from];
+    System.arraycopy(values, from, copy, 0, copy.length);
+    return copy;
+  }
+
+  private static long parseTime(SimpleDateFormat format, String date) {
+    if (null == date) {
+      return 0;
+    }
+    try {
+      return format.parse(date).getTime() / 1000;
+    } catch (ParseException e) {
+      return 0;
+    }
+  }
+
+  // The columns of a table being loaded.
+  private static final class Builder {
+    final int size;
+    int idLength;
+    byte[] ids;
+    final long[] times;
+    final int[] authors;
+    String[] authorDictionary;
+    final int[] parentStarts;
+    int[] parents;
+    final int[] fileStarts;
+    int[] filePaths;
+    int[] linesAdded;
+    int[] linesDeleted;
+    String[] pathDictionary;
+
+    Builder(int size) {
+      this.size = size;
+      times = new long[size];
+      authors = new int[size];
+      parentStarts = new int[size + 1];
+      fileStarts = new int[size + 1];
+    }
+
+    void allocateFiles(int count) {
+      filePaths = new int[count];
+      linesAdded = new int[count];
+      linesDeleted = new int[count];
+    }
+  }
+
+  // Assigns indexes to distinct strings in the order they are first seen.
+  private static final class Dictionary {
+    private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+    int indexOf(String value) {
+      Integer index = indexes.get(value);
+      if (null == index) {
+        index = Integer.valueOf(indexes.size());
+        indexes.put(value, index);
+      }
+      return index.intValue();
+    }
+
+    String[] toArray() {
+      String[] values = new String[indexes.size()];
+      for (Map.Entry<String, Integer> entry : indexes.entrySet()) {
+        values[entry.getValue().intValue()] = entry.getKey();
+      }
+      return values;
+    }
+  }
+}
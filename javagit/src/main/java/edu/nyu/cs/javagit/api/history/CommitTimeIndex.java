@@ -0,0 +1,240 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.client.fs.RefDatabase;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>CommitTimeIndex</code> answers date range queries, like the since and until options of
+ * <code>GitLogOptions</code>, from the commits of a <code>CommitStore</code> sorted by commit time,
+ * so a range is found by binary search instead of by walking the history from a tip down to the
+ * start of the range.
+ * 
+ * For the commits of one branch, the commits of the range are intersected with those reachable
+ * from the tip of the branch. That walk stops at the first commits whose corrected commit time (see
+ * <code>CommitGraph</code>) is before the range, so it only visits the recent history, and unlike
+ * <code>git log --since</code>, which stops at the first old enough commit, it does not lose
+ * commits made with a clock that was behind.
+ */
+public final class CommitTimeIndex {
+
+  private final CommitGraph graph;
+
+  // The positions of the indexed commits, by commit time then position, and their commit times,
+  // and the epoch of the graph they were read in; guarded by this.
+  private int epoch;
+  private int indexed = 0;
+  private int[] positions = new int[0];
+  private long[] times = new long[0];
+
+  /**
+   * Creates an empty index over a commit graph. Call <code>update()</code> to fill it.
+   * 
+   * @param graph
+   *          The commit graph.
+   */
+  public CommitTimeIndex(CommitGraph graph) {
+    CheckUtilities.checkNullArgument(graph, "graph");
+    this.graph = graph;
+    this.epoch = graph.getEpoch();
+  }
+
+  /**
+   * Updates the store and the graph, then indexes the commits appended to them.
+   * 
+   * @return The number of commits indexed.
+   * @throws IOException
+   *           Thrown if the store cannot be read or updated.
+   * @throws JavaGitException
+   *           Thrown if git fails while updating the store.
+   */
+  public int update() throws IOException, JavaGitException {
+    graph.update();
+    return catchUp();
+  }
+
+  /**
+   * Indexes the commits added to the graph since the last call, without updating the graph.
+   * 
+   * @return The number of commits indexed.
+   */
+  public synchronized int catchUp() {
+    if (graph.getEpoch() != epoch) {
+      epoch = graph.getEpoch();
+      indexed = 0;
+      positions = new int[0];
+      times = new long[0];
+    }
+    int target = graph.size();
+    int added = target - indexed;
+    if (added <= 0) {
+      return 0;
+    }
+
+    // Sort the new commits, then merge them with the indexed ones.
+    long[] keys = new long[added];
+    for (int i = 0; i < added; i++) {
+      keys[i] = graph.getCommitTime(indexed + i);
+    }
+    Integer[] order = new Integer[added];
+    for (int i = 0; i < added; i++) {
+      order[i] = Integer.valueOf(indexed + i);
+    }
+    final long[] newTimes = keys;
+    final int base = indexed;
+    Arrays.sort(order, new Comparator<Integer>() {
+      public int compare(Integer a, Integer b) {
+        long ta = newTimes[a.intValue() - base];
+        long tb = newTimes[b.intValue() - base];
+        if (ta != tb) {
+          return (ta < tb) ? -1 : 1;
+        }
+        return a.intValue() - b.intValue();
+      }
+    });
+
+    int[] mergedPositions = new int[target];
+    long[] mergedTimes = new long[target];
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < target; k++) {
+      // Old positions are all lower than new ones, so old commits go first on equal times.
+      if (j >= added || (i < indexed && times[i] <= newTimes[order[j].intValue() - base])) {
+        mergedPositions[k] = positions[i];
+        mergedTimes[k] = times[i++];
+      } else {
+        int position = order[j++].intValue();
+        mergedPositions[k] = position;
+        mergedTimes[k] = newTimes[position - base];
+      }
+    }
+    positions = mergedPositions;
+    times = mergedTimes;
+    indexed = target;
+    return added;
+  }
+
+  /**
+   * Gets the number of commits indexed.
+   * 
+   * @return The number of commits indexed.
+   */
+  public synchronized int size() {
+    return indexed;
+  }
+
+  /**
+   * Finds the commits of all branches made within a time range.
+   * 
+   * @param since
+   *          The start of the range, in seconds since the epoch, included.
+   * @param until
+   *          The end of the range, in seconds since the epoch, included.
+   * @return The store positions of the commits, newest first.
+   */
+  public synchronized int[] find(long since, long until) {
+    int from = lowerBound(since);
+    int to = (until == Long.MAX_VALUE) ? indexed : lowerBound(until + 1);
+    int[] result = new int[Math.max(0, to - from)];
+    for (int k = 0; k < result.length; k++) {
+      result[k] = positions[to - 1 - k];
+    }
+    return result;
+  }
+
+  /**
+   * Finds the commits reachable from a tip made within a time range.
+   * 
+   * @param tip
+   *          The id of the tip commit.
+   * @param since
+   *          The start of the range, in seconds since the epoch, included.
+   * @param until
+   *          The end of the range, in seconds since the epoch, included.
+   * @return The store positions of the commits, newest first; none if the tip is not indexed.
+   */
+  public synchronized int[] find(String tip, long since, long until) {
+    CheckUtilities.checkStringArgument(tip, "tip");
+    int position = graph.getStore().indexOf(tip);
+    if (position < 0 || position >= indexed) {
+      return new int[0];
+    }
+    int from = lowerBound(since);
+    int to = (until == Long.MAX_VALUE) ? indexed : lowerBound(until + 1);
+    if (from >= to) {
+      return new int[0];
+    }
+    BitSet reachable = graph.getReachable(position, since);
+    int[] result = new int[to - from];
+    int count = 0;
+    for (int k = to - 1; k >= from; k--) {
+      if (reachable.get(positions[k])) {
+        result[count++] = positions[k];
+      }
+    }
+    int[] trimmed = new int[count];
+    System.arraycopy(result, 0, trimmed, 0, count);
+    return trimmed;
+  }
+
+  /**
+   * Finds the commits of each branch made within a time range, for example those of the last N
+   * hours with a range from now minus N hours to <code>Long.MAX_VALUE</code>.
+   * 
+   * @param since
+   *          The start of the range, in seconds since the epoch, included.
+   * @param until
+   *          The end of the range, in seconds since the epoch, included.
+   * @return The store positions of the commits of each branch, newest first, by branch name
+   *         without the "refs/heads/" prefix, sorted by name.
+   * @throws IOException
+   *           Thrown if the branches cannot be read.
+   */
+  public Map<String, int[]> findByBranch(long since, long until) throws IOException {
+    RefDatabase refs = new RefDatabase(graph.getStore().getGitDirectory());
+    Map<String, int[]> result = new LinkedHashMap<String, int[]>();
+    for (Map.Entry<String, String> ref : refs.getRefs("refs/heads/").entrySet()) {
+      String name = ref.getKey().substring("refs/heads/".length());
+      result.put(name, find(ref.getValue(), since, until));
+    }
+    return result;
+  }
+
+  // Gets the index of the first commit made at or after a time.
+  private int lowerBound(long time) {
+    int low = 0;
+    int high = indexed;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (times[middle] < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
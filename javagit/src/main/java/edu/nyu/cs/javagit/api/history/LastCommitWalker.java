@@ -0,0 +1,216 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import edu.nyu.cs.javagit.api.JavaGitConfiguration;
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.client.cli.ProcessUtilities;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>LastCommitWalker</code> finds, for every entry of a directory, the last commit which
+ * touched it, as repository browsers show next to each file. Instead of one path-limited log per
+ * entry, it runs a single backward walk limited to the directory, in which git compares tree ids
+ * to skip the commits which left the directory alone, and stops the walk as soon as every entry
+ * has been seen.
+ * 
+ * Results are cached by the newest commit which touched the directory and its path, so listing a
+ * directory again costs one <code>git rev-list -1</code> until the directory itself changes,
+ * however far the branch has moved. The tree of the directory would not do as a key: a directory
+ * reverted to an earlier tree, or reaching it on another branch, was last touched by other
+ * commits.
+ */
+public final class LastCommitWalker {
+
+  /** The default number of directory listings cached. */
+  public static final int DEFAULT_CACHE_SIZE = 256;
+
+  // The format of the commits of the walk.
+  private static final String LOG_FORMAT = "--format=%H%x00%an <%ae>%x00%ad%x00%B";
+
+  private final File repositoryPath;
+
+  private int cacheSize = DEFAULT_CACHE_SIZE;
+
+  // The listings, by last commit touching the directory and path, least recently used first;
+  // guarded by this.
+  private final LinkedHashMap<String, Map<String, Commit>> cache =
+      new LinkedHashMap<String, Map<String, Commit>>(16, 0.75f, true);
+
+  /**
+   * Creates a walker.
+   * 
+   * @param repositoryPath
+   *          The root of the working tree of the repository, or a bare repository.
+   */
+  public LastCommitWalker(File repositoryPath) {
+    CheckUtilities.checkNullArgument(repositoryPath, "repositoryPath");
+    this.repositoryPath = repositoryPath;
+  }
+
+  /**
+   * Finds the last commit which touched each entry of a directory.
+   * 
+   * @param tip
+   *          The commit to start from, as an id or a name such as "HEAD".
+   * @param path
+   *          The path of the directory relative to the root of the repository, with "/"
+   *          separators; "" for the root.
+   * @return The last commit which touched each entry, by entry name, sorted by name.
+   * @throws IOException
+   *           Thrown if there is an error running git.
+   * @throws JavaGitException
+   *           Thrown if the tip does not exist or the path is not a directory in it.
+   */
+  public Map<String, Commit> getLastCommits(String tip, String path) throws IOException,
+      JavaGitException {
+    CheckUtilities.checkStringArgument(tip, "tip");
+    CheckUtilities.checkNullArgument(path, "path");
+    String directory = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    String commit = run("rev-parse", "--verify", tip + "^{commit}").get(0).trim();
+    String tree = run("rev-parse", "--verify", commit + ":" + directory).get(0).trim();
+    String last = (directory.length() > 0) ? run("rev-list", "-1", commit, "--", directory + "/")
+        .get(0).trim() : commit;
+    String key = last + "\0" + directory;
+    synchronized (this) {
+      Map<String, Commit> cached = cache.get(key);
+      if (null != cached) {
+        return cached;
+      }
+    }
+
+    Set<String> entries = new HashSet<String>();
+    for (String record : run("ls-tree", "-z", "--name-only", tree)) {
+      entries.add(record);
+    }
+    Map<String, Commit> lastCommits = walk(last, directory, entries);
+    synchronized (this) {
+      cache.put(key, lastCommits);
+      while (cache.size() > cacheSize) {
+        cache.remove(cache.keySet().iterator().next());
+      }
+    }
+    return lastCommits;
+  }
+
+  /**
+   * Sets the number of directory listings cached.
+   * 
+   * @param cacheSize
+   *          The number of listings; 0 to cache none.
+   */
+  public synchronized void setCacheSize(int cacheSize) {
+    CheckUtilities.checkIntArgumentGreaterThan(cacheSize, -1, "cacheSize");
+    this.cacheSize = cacheSize;
+    while (cache.size() > cacheSize) {
+      cache.remove(cache.keySet().iterator().next());
+    }
+  }
+
+  /**
+   * Drops all the cached listings.
+   */
+  public synchronized void clear() {
+    cache.clear();
+  }
+
+  /**
+   * Walks back from a commit through the commits which changed a directory, assigning each entry
+   * the first commit seen to change it.
+   */
+  private Map<String, Commit> walk(String commit, String directory, final Set<String> entries)
+      throws IOException, JavaGitException {
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    command.add("log");
+    command.add("-z");
+    command.add("--raw");
+    command.add("--no-renames");
+    command.add("--no-abbrev");
+    command.add(LOG_FORMAT);
+    command.add(commit);
+    command.add("--");
+    if (directory.length() > 0) {
+      command.add(directory + "/");
+    }
+    final String prefix = (directory.length() > 0) ? directory + "/" : "";
+    final Map<String, Commit> lastCommits = new TreeMap<String, Commit>();
+
+    ProcessUtilities.runRecordCommand(repositoryPath, command,
+        new ProcessUtilities.RecordHandler() {
+          // The fields of the current commit: id, author, date and message.
+          private final String[] fields = new String[4];
+          private int field = 0;
+          private Commit current;
+          private boolean expectPath = false;
+
+          public boolean handleRecord(String record) {
+            if (field < fields.length) {
+              fields[field++] = record;
+              if (field == fields.length) {
+                current = null;
+              }
+              return true;
+            }
+            if (expectPath) {
+              expectPath = false;
+              String relative = record.substring(prefix.length());
+              int slash = relative.indexOf('/');
+              String entry = (slash < 0) ? relative : relative.substring(0, slash);
+              if (entries.remove(entry)) {
+                if (null == current) {
+                  current = new Commit(fields[0], null, fields[1], fields[2], fields[3], null);
+                }
+                lastCommits.put(entry, current);
+              }
+              return !entries.isEmpty();
+            }
+            if (record.startsWith(":") || record.startsWith("\n:")) {
+              // The modes, ids and status of a change; the path follows.
+              expectPath = true;
+              return true;
+            }
+            // The id of the next commit.
+            fields[0] = record.trim();
+            field = 1;
+            return true;
+          }
+        });
+    return Collections.unmodifiableMap(lastCommits);
+  }
+
+  private List<String> run(String... args) throws IOException, JavaGitException {
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    for (String arg : args) {
+      command.add(arg);
+    }
+    return ProcessUtilities.runRecordCommand(repositoryPath, command);
+  }
+}
@@ -0,0 +1,387 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>MessageIndex</code> is an inverted index over the messages of the commits of a
+ * <code>CommitStore</code>, answering message searches without scanning every message the way
+ * <code>git log --grep</code> does.
+ * 
+ * Messages are split into lower-case terms of letters and digits. Each term maps to the sorted
+ * positions of the commits whose message contains it, kept as variable-length deltas.
+ * <code>update()</code> brings the store up to date and indexes only the commits appended since
+ * the last update.
+ * 
+ * A query is a list of terms and quoted phrases which must all match, optionally combined with
+ * <code>OR</code>: <code>fix crash OR "null pointer"</code> finds the commits whose message
+ * contains both "fix" and "crash", or the phrase "null pointer". Terms match whole terms, without
+ * regard to case.
+ */
+public final class MessageIndex {
+
+  private static final String OR = "OR";
+
+  private final CommitStore store;
+
+  // The posting lists, by term; guarded by this.
+  private final Map<String, PostingList> postings = new HashMap<String, PostingList>();
+
+  // The number of store positions indexed, and the epoch of the store they were read in; guarded
+  // by this.
+  private int indexed = 0;
+  private int epoch;
+
+  /**
+   * Creates an empty index over a store. Call <code>update()</code> to fill it.
+   * 
+   * @param store
+   *          The commit store.
+   */
+  public MessageIndex(CommitStore store) {
+    CheckUtilities.checkNullArgument(store, "store");
+    this.store = store;
+    this.epoch = store.getEpoch();
+  }
+
+  /**
+   * Updates the store, then indexes the commits not indexed yet.
+   * 
+   * @return The number of commits indexed.
+   * @throws IOException
+   *           Thrown if the store cannot be read or updated.
+   * @throws JavaGitException
+   *           Thrown if git fails while updating the store.
+   */
+  public int update() throws IOException, JavaGitException {
+    store.update();
+    return catchUp();
+  }
+
+  /**
+   * Indexes the commits appended to the store since the last call, without updating the store.
+   * 
+   * @return The number of commits indexed.
+   * @throws IOException
+   *           Thrown if the store cannot be read.
+   */
+  public synchronized int catchUp() throws IOException {
+    if (store.getEpoch() != epoch) {
+      epoch = store.getEpoch();
+      postings.clear();
+      indexed = 0;
+    }
+    int size = store.size();
+    int start = indexed;
+    for (int commit = start; commit < size; commit++) {
+      for (String term : tokenize(store.getMessage(commit))) {
+        PostingList list = postings.get(term);
+        if (null == list) {
+          list = new PostingList();
+          postings.put(term, list);
+        }
+        list.add(commit);
+      }
+      indexed = commit + 1;
+    }
+    return size - start;
+  }
+
+  /**
+   * Gets the number of commits indexed.
+   * 
+   * @return The number of store positions covered by the index.
+   */
+  public synchronized int getIndexedCount() {
+    return indexed;
+  }
+
+  /**
+   * Gets the number of distinct terms.
+   * 
+   * @return The number of terms.
+   */
+  public synchronized int getTermCount() {
+    return postings.size();
+  }
+
+  /**
+   * Finds the commits whose message matches a query.
+   * 
+   * @param query
+   *          The query.
+   * @return The store positions of the matching commits, newest first.
+   * @throws IOException
+   *           Thrown if a message cannot be read to check a phrase.
+   */
+  public int[] findPositions(String query) throws IOException {
+    CheckUtilities.checkStringArgument(query, "query");
+    int[] result = new int[0];
+    for (List<List<String>> group : parse(query)) {
+      result = union(result, findGroup(group));
+    }
+    int[] newestFirst = new int[result.length];
+    for (int i = 0; i < result.length; i++) {
+      newestFirst[i] = result[result.length - 1 - i];
+    }
+    return newestFirst;
+  }
+
+  /**
+   * Finds the commits whose message matches a query.
+   * 
+   * @param query
+   *          The query.
+   * @return The matching commits, newest first.
+   * @throws IOException
+   *           Thrown if the commits cannot be read.
+   */
+  public List<Commit> find(String query) throws IOException {
+    int[] positions = findPositions(query);
+    List<Commit> commits = new ArrayList<Commit>(positions.length);
+    for (int position : positions) {
+      commits.add(store.getCommit(position));
+    }
+    return commits;
+  }
+
+  /**
+   * Finds the commits whose message contains all the given terms.
+   * 
+   * @param terms
+   *          The terms.
+   * @return The store positions of the matching commits, oldest first.
+   */
+  public synchronized int[] findAll(String... terms) {
+    int[] result = null;
+    for (String term : terms) {
+      for (String token : tokenize(term)) {
+        int[] positions = getPositions(token);
+        result = (null == result) ? positions : intersect(result, positions);
+      }
+    }
+    return (null == result) ? new int[0] : result;
+  }
+
+  /**
+   * Finds the commits whose message contains any of the given terms.
+   * 
+   * @param terms
+   *          The terms.
+   * @return The store positions of the matching commits, oldest first.
+   */
+  public synchronized int[] findAny(String... terms) {
+    int[] result = new int[0];
+    for (String term : terms) {
+      for (String token : tokenize(term)) {
+        result = union(result, getPositions(token));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Finds the commits whose message contains the terms of a phrase next to each other.
+   * 
+   * @param phrase
+   *          The phrase.
+   * @return The store positions of the matching commits, oldest first.
+   * @throws IOException
+   *           Thrown if a message cannot be read.
+   */
+  public int[] findPhrase(String phrase) throws IOException {
+    List<String> terms = tokenize(phrase);
+    int[] candidates = findAll(terms.toArray(new String[terms.size()]));
+    if (terms.size() < 2) {
+      return candidates;
+    }
+    int[] matches = new int[candidates.length];
+    int count = 0;
+    for (int candidate : candidates) {
+      if (containsSequence(tokenize(store.getMessage(candidate)), terms)) {
+        matches[count++] = candidate;
+      }
+    }
+    int[] result = new int[count];
+    System.arraycopy(matches, 0, result, 0, count);
+    return result;
+  }
+
+  // Finds the commits matching all the terms and phrases of a group, oldest first.
+  private int[] findGroup(List<List<String>> group) throws IOException {
+    int[] result = null;
+    for (List<String> phrase : group) {
+      int[] positions;
+      if (phrase.size() == 1) {
+        positions = findAll(phrase.get(0));
+      } else {
+        StringBuffer text = new StringBuffer();
+        for (String term : phrase) {
+          text.append(term).append(' ');
+        }
+        positions = findPhrase(text.toString());
+      }
+      result = (null == result) ? positions : intersect(result, positions);
+    }
+    return (null == result) ? new int[0] : result;
+  }
+
+  private int[] getPositions(String term) {
+    PostingList list = postings.get(term);
+    return (null == list) ? new int[0] : list.toArray();
+  }
+
+  /**
+   * Parses a query into groups combined with OR, each a list of phrases which must all match; a
+   * single term is a phrase of one term.
+   */
+  private static List<List<List<String>>> parse(String query) {
+    List<List<List<String>>> groups = new ArrayList<List<List<String>>>();
+    List<List<String>> group = new ArrayList<List<String>>();
+    int pos = 0;
+    while (pos < query.length()) {
+      char c = query.charAt(pos);
+      if (Character.isWhitespace(c)) {
+        pos++;
+      } else if ('"' == c) {
+        int end = query.indexOf('"', pos + 1);
+        if (end < 0) {
+          end = query.length();
+        }
+        addPhrase(group, query.substring(pos + 1, end));
+        pos = end + 1;
+      } else {
+        int end = pos;
+        while (end < query.length() && !Character.isWhitespace(query.charAt(end))) {
+          end++;
+        }
+        String word = query.substring(pos, end);
+        if (OR.equals(word)) {
+          if (!group.isEmpty()) {
+            groups.add(group);
+          }
+          group = new ArrayList<List<String>>();
+        } else {
+          for (String term : tokenize(word)) {
+            List<String> phrase = new ArrayList<String>(1);
+            phrase.add(term);
+            group.add(phrase);
+          }
+        }
+        pos = end;
+      }
+    }
+    if (!group.isEmpty()) {
+      groups.add(group);
+    }
+    return groups;
+  }
+
+  private static void addPhrase(List<List<String>> group, String text) {
+    List<String> terms = tokenize(text);
+    if (!terms.isEmpty()) {
+      group.add(terms);
+    }
+  }
+
+  /**
+   * Splits text into lower-case terms of letters and digits.
+   * 
+   * @param text
+   *          The text.
+   * @return The terms, in order.
+   */
+  static List<String> tokenize(String text) {
+    List<String> terms = new ArrayList<String>();
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean inTerm = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (inTerm && start < 0) {
+        start = i;
+      } else if (!inTerm && start >= 0) {
+        terms.add(text.substring(start, i).toLowerCase());
+        start = -1;
+      }
+    }
+    return terms;
+  }
+
+  private static boolean containsSequence(List<String> terms, List<String> sequence) {
+    for (int i = 0; i + sequence.size() <= terms.size(); i++) {
+      if (terms.subList(i, i + sequence.size()).equals(sequence)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int[] intersect(int[] a, int[] b) {
+    int[] result = new int[Math.min(a.length, b.length)];
+    int i = 0;
+    int j = 0;
+    int count = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        result[count++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return trim(result, count);
+  }
+
+  private static int[] union(int[] a, int[] b) {
+    int[] result = new int[a.length + b.length];
+    int i = 0;
+    int j = 0;
+    int count = 0;
+    while (i < a.length || j < b.length) {
+      if (j >= b.length || (i < a.length && a[i] < b[j])) {
+        result[count++] = a[i++];
+      } else if (i >= a.length || b[j] < a[i]) {
+        result[count++] = b[j++];
+      } else {
+        result[count++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return trim(result, count);
+  }
+
+  private static int[] trim(int[] values, int count) {
+    if (count == values.length) {
+      return values;
+    }
+    int[] result = new int[count];
+    System.arraycopy(values, 0, result, 0, count);
+    return result;
+  }
+}
@@ -0,0 +1,477 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>PathIndex</code> maps each path of a repository to the commits of a
+ * <code>CommitStore</code> which touched it, so that the history of a file or directory, and the
+ * last commit which modified it, are found without walking the history with
+ * <code>git log -- path</code>.
+ * 
+ * Paths are kept in a trie of path components, each node holding the sorted positions of the
+ * commits which changed it or anything under it, and the renames which created it. The index is
+ * saved in <code>.git/javagit/paths.idx</code> and extended with the commits appended to the store
+ * since it was last saved.
+ * 
+ * The store holds the commits of all branches; the history of a path on one branch is the part of
+ * the index reachable from the tip of the branch. Merges change no files in the store, so they are
+ * not part of any path history.
+ */
+public final class PathIndex {
+
+  /** The file of the index, relative to the git directory. */
+  public static final String FILE = "javagit" + File.separator + "paths.idx";
+
+  private static final int VERSION = 2;
+
+  private final CommitStore store;
+  private final File file;
+
+  // The trie, root first, parents before children; guarded by this.
+  private final List<Node> nodes = new ArrayList<Node>();
+
+  // The number of store positions indexed, and the epoch of the store they were read in; guarded
+  // by this.
+  private int indexed = 0;
+  private int epoch;
+
+  // The commits reachable from the last tip asked for; guarded by this.
+  private int reachableTip = -1;
+  private BitSet reachable;
+
+  /**
+   * Opens the index of the commits of a store, reading the saved index if there is one which
+   * matches the store.
+   * 
+   * @param store
+   *          The commit store.
+   * @param gitDir
+   *          The git directory of the repository.
+   */
+  public PathIndex(CommitStore store, File gitDir) {
+    CheckUtilities.checkNullArgument(store, "store");
+    CheckUtilities.checkNullArgument(gitDir, "gitDir");
+    this.store = store;
+    this.file = new File(gitDir, FILE);
+    synchronized (this) {
+      epoch = store.getEpoch();
+      nodes.add(new Node(null, "", 0));
+      if (file.isFile()) {
+        try {
+          load();
+        } catch (IOException e) {
+          // A damaged index; it is built again.
+        }
+      }
+    }
+  }
+
+  /**
+   * Updates the store, indexes the commits appended to it and saves the index if it changed.
+   * 
+   * @return The number of commits indexed.
+   * @throws IOException
+   *           Thrown if the store or the index cannot be read or written.
+   * @throws JavaGitException
+   *           Thrown if git fails while updating the store.
+   */
+  public synchronized int update() throws IOException, JavaGitException {
+    store.update();
+    int before = epoch;
+    int added = catchUp();
+    if (added > 0 || before != epoch) {
+      save();
+    }
+    return added;
+  }
+
+  /**
+   * Indexes the commits appended to the store since the last call, without updating the store or
+   * saving the index.
+   * 
+   * @return The number of commits indexed.
+   */
+  public synchronized int catchUp() {
+    if (store.getEpoch() != epoch) {
+      // The store was rebuilt; its positions are new.
+      epoch = store.getEpoch();
+      nodes.clear();
+      nodes.add(new Node(null, "", 0));
+      indexed = 0;
+      reachableTip = -1;
+      reachable = null;
+    }
+    int size = store.size();
+    int start = indexed;
+    for (int commit = start; commit < size; commit++) {
+      int count = store.getFileCount(commit);
+      for (int i = 0; i < count; i++) {
+        Node node = getNode(store.getPath(store.getPathIndex(commit, i)), true);
+        addCommit(node, commit);
+        int oldPath = store.getOldPathIndex(commit, i);
+        if (oldPath >= 0) {
+          Node source = getNode(store.getPath(oldPath), true);
+          addCommit(source, commit);
+          node.addRename(commit, source.number);
+        }
+      }
+    }
+    indexed = size;
+    return size - start;
+  }
+
+  /**
+   * Saves the index, replacing the saved one.
+   * 
+   * @throws IOException
+   *           Thrown if the index cannot be written.
+   */
+  public synchronized void save() throws IOException {
+    // Each process writes its own temporary file, so concurrent saves cannot mix their contents;
+    // the last rename wins.
+    File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+    boolean renamed = false;
+    try {
+      write(tmp);
+      if (!tmp.renameTo(file)) {
+        // Some platforms cannot rename onto an existing file.
+        file.delete();
+        if (!tmp.renameTo(file)) {
+          throw new IOException(ExceptionMessageMap.getMessage("020014") + "  { file=[" + file
+              + "] }");
+        }
+      }
+      renamed = true;
+    } finally {
+      if (!renamed) {
+        tmp.delete();
+      }
+    }
+  }
+
+  private void write(File tmp) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+        tmp), 64 * 1024));
+    try {
+      out.writeInt(VERSION);
+      out.writeInt(epoch);
+      out.writeInt(indexed);
+      out.writeUTF((0 == indexed) ? "" : store.getId(indexed - 1));
+      out.writeInt(nodes.size() - 1);
+      for (Node node : nodes.subList(1, nodes.size())) {
+        out.writeInt(node.parent.number);
+        out.writeUTF(node.name);
+        node.commits.write(out);
+        out.writeInt(node.renameCount);
+        for (int i = 0; i < node.renameCount; i++) {
+          out.writeInt(node.renames[2 * i]);
+          out.writeInt(node.renames[2 * i + 1]);
+        }
+      }
+      node(0).commits.write(out);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Gets the number of commits indexed.
+   * 
+   * @return The number of store positions covered by the index.
+   */
+  public synchronized int getIndexedCount() {
+    return indexed;
+  }
+
+  /**
+   * Gets the commits of all branches which touched a path.
+   * 
+   * @param path
+   *          The path of a file or directory, relative to the root of the repository, with "/"
+   *          separators; "" for the root.
+   * @return The store positions of the commits, oldest first; none for an unknown path.
+   */
+  public synchronized int[] getPositions(String path) {
+    Node node = getNode(path, false);
+    return (null == node) ? new int[0] : node.commits.toArray();
+  }
+
+  /**
+   * Gets the history of a path on a branch: the commits reachable from the tip of the branch
+   * which touched the path, and, if renames are followed, those which touched the paths it was
+   * renamed from before the renames.
+   * 
+   * @param path
+   *          The path of a file or directory, relative to the root of the repository, with "/"
+   *          separators.
+   * @param tip
+   *          The id of the commit at the tip of the branch.
+   * @param followRenames
+   *          True to follow renames.
+   * @return The store positions of the commits, newest first.
+   */
+  public synchronized int[] getHistory(String path, String tip, boolean followRenames) {
+    Node node = getNode(path, false);
+    int tipPosition = store.indexOf(tip);
+    if (null == node || tipPosition < 0 || tipPosition >= indexed) {
+      return new int[0];
+    }
+    BitSet selected = new BitSet();
+    collect(node, Integer.MAX_VALUE, followRenames, selected, new BitSet());
+    selected.and(getReachable(tipPosition));
+
+    int[] history = new int[selected.cardinality()];
+    int i = history.length;
+    for (int p = selected.nextSetBit(0); p >= 0; p = selected.nextSetBit(p + 1)) {
+      history[--i] = p;
+    }
+    return history;
+  }
+
+  /**
+   * Gets the last commit on a branch which touched a path.
+   * 
+   * @param path
+   *          The path of a file or directory, relative to the root of the repository, with "/"
+   *          separators.
+   * @param tip
+   *          The id of the commit at the tip of the branch.
+   * @return The store position of the commit, or -1 if no commit reachable from the tip touched
+   *         the path.
+   */
+  public synchronized int getLastCommit(String path, String tip) {
+    Node node = getNode(path, false);
+    int tipPosition = store.indexOf(tip);
+    if (null == node || tipPosition < 0 || tipPosition >= indexed) {
+      return -1;
+    }
+    BitSet reachableFromTip = getReachable(tipPosition);
+    int[] positions = node.commits.toArray();
+    for (int i = positions.length - 1; i >= 0; i--) {
+      if (reachableFromTip.get(positions[i])) {
+        return positions[i];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the paths a path was renamed from.
+   * 
+   * @param path
+   *          The path of a file, relative to the root of the repository, with "/" separators.
+   * @return The old paths, in the order of the renames.
+   */
+  public synchronized List<String> getRenameSources(String path) {
+    List<String> sources = new ArrayList<String>();
+    Node node = getNode(path, false);
+    if (null != node) {
+      for (int i = 0; i < node.renameCount; i++) {
+        sources.add(getPath(node(node.renames[2 * i + 1])));
+      }
+    }
+    return sources;
+  }
+
+  /**
+   * Selects the commits which touched a node before a limit, and those of the nodes it was
+   * renamed from before the renames. Guarded by this.
+   */
+  private void collect(Node node, int before, boolean followRenames, BitSet selected,
+      BitSet visiting) {
+    if (visiting.get(node.number)) {
+      // A file renamed back and forth.
+      return;
+    }
+    visiting.set(node.number);
+    for (int position : node.commits.toArray()) {
+      if (position < before) {
+        selected.set(position);
+      }
+    }
+    if (followRenames) {
+      for (int i = 0; i < node.renameCount; i++) {
+        int commit = node.renames[2 * i];
+        if (commit < before) {
+          collect(node(node.renames[2 * i + 1]), commit, true, selected, visiting);
+        }
+      }
+    }
+    visiting.clear(node.number);
+  }
+
+  // Marks the commits reachable from a tip; the last result is kept. Guarded by this.
+  private BitSet getReachable(int tip) {
+    if (tip != reachableTip) {
+      reachable = new BitSet(indexed);
+      int[] stack = new int[16];
+      int depth = 0;
+      stack[depth++] = tip;
+      reachable.set(tip);
+      while (depth > 0) {
+        int commit = stack[--depth];
+        for (int parent : store.getParents(commit)) {
+          if (parent >= 0 && !reachable.get(parent)) {
+            reachable.set(parent);
+            if (depth == stack.length) {
+              int[] larger = new int[stack.length * 2];
+              System.arraycopy(stack, 0, larger, 0, depth);
+              stack = larger;
+            }
+            stack[depth++] = parent;
+          }
+        }
+      }
+      reachableTip = tip;
+    }
+    return reachable;
+  }
+
+  // Gets the node of a path, creating it and its parents if asked to. Guarded by this.
+  private Node getNode(String path, boolean create) {
+    Node node = node(0);
+    for (String component : path.split("/")) {
+      if (0 == component.length()) {
+        continue;
+      }
+      Node child = (null == node.children) ? null : node.children.get(component);
+      if (null == child) {
+        if (!create) {
+          return null;
+        }
+        child = new Node(node, component, nodes.size());
+        nodes.add(child);
+      }
+      node = child;
+    }
+    return node;
+  }
+
+  private String getPath(Node node) {
+    StringBuffer path = new StringBuffer(node.name);
+    Node parent = node.parent;
+    while (null != parent && null != parent.parent) {
+      path.insert(0, '/').insert(0, parent.name);
+      parent = parent.parent;
+    }
+    return path.toString();
+  }
+
+  private Node node(int number) {
+    return nodes.get(number);
+  }
+
+  // Adds a commit to a node and the directories above it.
+  private static void addCommit(Node node, int commit) {
+    for (Node n = node; null != n; n = n.parent) {
+      n.commits.add(commit);
+    }
+  }
+
+  // Reads the saved index, unless it does not match the store. Guarded by this.
+  private void load() throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+        64 * 1024));
+    try {
+      if (VERSION != in.readInt() || epoch != in.readInt()) {
+        // An older format, or a rebuilt store.
+        return;
+      }
+      int count = in.readInt();
+      String lastId = in.readUTF();
+      if (count > store.size() || (count > 0 && !lastId.equals(store.getId(count - 1)))) {
+        // The store was rebuilt since; index it again.
+        return;
+      }
+      int nodeCount = in.readInt();
+      List<Node> loaded = new ArrayList<Node>(nodeCount + 1);
+      loaded.add(new Node(null, "", 0));
+      for (int i = 1; i <= nodeCount; i++) {
+        Node parent = loaded.get(in.readInt());
+        Node node = new Node(parent, in.readUTF(), i);
+        node.commits = PostingList.read(in);
+        int renames = in.readInt();
+        for (int r = 0; r < renames; r++) {
+          node.addRename(in.readInt(), in.readInt());
+        }
+        loaded.add(node);
+      }
+      loaded.get(0).commits = PostingList.read(in);
+      nodes.clear();
+      nodes.addAll(loaded);
+      indexed = count;
+    } finally {
+      in.close();
+    }
+  }
+
+  // A path component.
+  private static final class Node {
+    final Node parent;
+    final String name;
+    final int number;
+    Map<String, Node> children;
+    PostingList commits = new PostingList();
+
+    // The renames which created this path: pairs of commit position and old node number.
+    int[] renames;
+    int renameCount = 0;
+
+    Node(Node parent, String name, int number) {
+      this.parent = parent;
+      this.name = name;
+      this.number = number;
+      if (null != parent) {
+        if (null == parent.children) {
+          parent.children = new HashMap<String, Node>(4);
+        }
+        parent.children.put(name, this);
+      }
+    }
+
+    void addRename(int commit, int source) {
+      if (null == renames) {
+        renames = new int[2];
+      } else if (2 * renameCount == renames.length) {
+        int[] larger = new int[renames.length * 2];
+        System.arraycopy(renames, 0, larger, 0, renames.length);
+        renames = larger;
+      }
+      renames[2 * renameCount] = commit;
+      renames[2 * renameCount + 1] = source;
+      renameCount++;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The sorted positions of commits in a <code>CommitStore</code>, such as those containing a term
+ * or touching a path, stored as the variable-length encoding of the differences between
+ * consecutive positions, seven bits per byte.
+ */
+final class PostingList {
+
+  private byte[] data;
+  private int length = 0;
+  private int count = 0;
+  private int last = 0;
+
+  PostingList() {
+    data = new byte[4];
+  }
+
+  /**
+   * Adds a position, at least the last one added. Adding the last one again has no effect, so a
+   * term repeated in a message or a directory touched by several files of a commit is added once.
+   * 
+   * @param position
+   *          The position.
+   */
+  void add(int position) {
+    if (count > 0 && position == last) {
+      return;
+    }
+    int delta = position - last;
+    last = position;
+    count++;
+    while (length + 5 > data.length) {
+      byte[] larger = new byte[data.length * 2];
+      System.arraycopy(data, 0, larger, 0, length);
+      data = larger;
+    }
+    while (delta >= 0x80) {
+      data[length++] = (byte) (0x80 | (delta & 0x7f));
+      delta >>>= 7;
+    }
+    data[length++] = (byte) delta;
+  }
+
+  /**
+   * Gets the number of positions.
+   * 
+   * @return The number of positions.
+   */
+  int size() {
+    return count;
+  }
+
+  /**
+   * Decodes the positions.
+   * 
+   * @return The positions, in increasing order.
+   */
+  int[] toArray() {
+    int[] positions = new int[count];
+    int pos = 0;
+    int value = 0;
+    for (int i = 0; i < count; i++) {
+      int delta = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = data[pos++] & 0xff;
+        delta |= (b & 0x7f) << shift;
+        shift += 7;
+      } while (b >= 0x80);
+      value += delta;
+      positions[i] = value;
+    }
+    return positions;
+  }
+
+  /**
+   * Writes the list in its encoded form.
+   * 
+   * @param out
+   *          The output.
+   * @throws IOException
+   *           Thrown if the list cannot be written.
+   */
+  void write(DataOutput out) throws IOException {
+    out.writeInt(count);
+    out.writeInt(last);
+    out.writeInt(length);
+    out.write(data, 0, length);
+  }
+
+  /**
+   * Reads a list written by <code>write()</code>.
+   * 
+   * @param in
+   *          The input.
+   * @return The list.
+   * @throws IOException
+   *           Thrown if the list cannot be read.
+   */
+  static PostingList read(DataInput in) throws IOException {
+    PostingList list = new PostingList();
+    list.count = in.readInt();
+    list.last = in.readInt();
+    list.length = in.readInt();
+    list.data = new byte[Math.max(4, list.length)];
+    in.readFully(list.data, 0, list.length);
+    return list;
+  }
+}
@@ -0,0 +1,355 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.api.ObjectId;
+import edu.nyu.cs.javagit.client.fs.PackBitmap;
+import edu.nyu.cs.javagit.client.fs.PackIndex;
+import edu.nyu.cs.javagit.client.fs.RefDatabase;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>ReachabilityBitmaps</code> answers reachability questions, like which branches contain a
+ * commit, and how many commits or objects are reachable from one, with the bitmaps of the pack
+ * written by <code>git repack -a -d --write-bitmap-index</code> (see <code>PackBitmap</code>)
+ * instead of graph walks.
+ * 
+ * The objects reachable from a commit are the bitmap of the commit if it has one; otherwise the
+ * history of the commit is walked in the <code>CommitGraph</code> down to the nearest commits with
+ * bitmaps, which are ORed. Commits made since the pack was written are not in its bitmaps: they
+ * are given bits after those of the pack objects, and their new trees and blobs are not counted.
+ * Without a bitmap, everything is answered from the commit graph, counting commits only.
+ * 
+ * The graph is not updated by the queries; commits which are neither in the graph nor have a
+ * bitmap are unknown. The bitmap is reopened when the pack directory changes.
+ */
+public final class ReachabilityBitmaps {
+
+  // The number of reachability sets of branch tips kept.
+  private static final int CACHE_SIZE = 256;
+
+  private final CommitGraph graph;
+  private final File packDirectory;
+
+  // The bitmap in use, if there is one, and the pack directory state it was opened at; guarded by
+  // this.
+  private PackBitmap bitmap;
+  private long packDirectoryModified = Long.MIN_VALUE;
+
+  // The objects reachable from recently queried tips, by store position, and the epoch of the
+  // graph the positions are from; guarded by this.
+  private int epoch;
+  private final Map<Integer, BitSet> cache = new LinkedHashMap<Integer, BitSet>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    protected boolean removeEldestEntry(Map.Entry<Integer, BitSet> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  /**
+   * Creates the bitmap queries of a repository.
+   * 
+   * @param graph
+   *          The commit graph of the repository.
+   */
+  public ReachabilityBitmaps(CommitGraph graph) {
+    CheckUtilities.checkNullArgument(graph, "graph");
+    this.graph = graph;
+    this.epoch = graph.getEpoch();
+    this.packDirectory = new File(graph.getStore().getGitDirectory(), "objects" + File.separator
+        + "pack");
+  }
+
+  /**
+   * Tells whether the repository has a pack bitmap.
+   * 
+   * @return True if the queries use a pack bitmap.
+   * @throws IOException
+   *           Thrown if the bitmap cannot be read.
+   */
+  public synchronized boolean hasBitmap() throws IOException {
+    refresh();
+    return null != bitmap;
+  }
+
+  /**
+   * Counts the commits reachable from a commit, including it, like
+   * <code>git rev-list --count</code>.
+   * 
+   * @param id
+   *          The id of the commit.
+   * @return The number of commits, or -1 if the commit is unknown.
+   * @throws IOException
+   *           Thrown if the bitmap cannot be read.
+   */
+  public synchronized int countCommits(String id) throws IOException {
+    refresh();
+    BitSet reachable = getReachable(id);
+    if (null == reachable) {
+      return -1;
+    }
+    if (null == bitmap) {
+      return reachable.cardinality();
+    }
+    // The bits after the pack objects are all commits.
+    BitSet other = (BitSet) reachable.clone();
+    other.andNot(bitmap.getTypeBitmap(PackBitmap.TREE));
+    other.andNot(bitmap.getTypeBitmap(PackBitmap.BLOB));
+    other.andNot(bitmap.getTypeBitmap(PackBitmap.TAG));
+    return other.cardinality();
+  }
+
+  /**
+   * Counts the objects reachable from a commit, including it, like
+   * <code>git rev-list --objects</code>. Only the commits which have a bitmap of their own can
+   * be counted, since the bitmaps are the only record of the trees and blobs here; git gives
+   * bitmaps to the branch tips when it repacks.
+   * 
+   * @param id
+   *          The id of the commit.
+   * @return The number of objects, or -1 if the commit is unknown or has no bitmap.
+   * @throws IOException
+   *           Thrown if the bitmap cannot be read.
+   */
+  public synchronized int countObjects(String id) throws IOException {
+    refresh();
+    if (null == bitmap || !ObjectId.isId(id)) {
+      return -1;
+    }
+    BitSet reachable = getBitmap(id);
+    return (null == reachable) ? -1 : reachable.cardinality();
+  }
+
+  /**
+   * Counts the objects of the pack by type, for repository statistics.
+   * 
+   * @return The number of objects of each type, by type name ("commit", "tree", "blob" and
+   *         "tag"); empty if there is no bitmap.
+   * @throws IOException
+   *           Thrown if the bitmap cannot be read.
+   */
+  public synchronized Map<String, Integer> getPackObjectCounts() throws IOException {
+    refresh();
+    Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+    if (null != bitmap) {
+      String[] names = { "commit", "tree", "blob", "tag" };
+      for (int type = 0; type < names.length; type++) {
+        counts.put(names[type], Integer.valueOf(bitmap.getTypeBitmap(type).cardinality()));
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Lists the branches containing a commit, like <code>git branch --contains</code>.
+   * 
+   * @param id
+   *          The id of the commit.
+   * @return The names of the branches, without the "refs/heads/" prefix, sorted; empty if the
+   *         commit is unknown.
+   * @throws IOException
+   *           Thrown if the bitmap or the branches cannot be read.
+   */
+  public synchronized List<String> getBranchesContaining(String id) throws IOException {
+    refresh();
+    List<String> branches = new ArrayList<String>();
+    int bit = getBit(id);
+    if (bit < 0) {
+      return branches;
+    }
+    for (Map.Entry<String, String> ref : getBranches().entrySet()) {
+      BitSet reachable = getReachable(ref.getValue());
+      if (null != reachable && reachable.get(bit)) {
+        branches.add(ref.getKey());
+      }
+    }
+    return branches;
+  }
+
+  /**
+   * Lists the branches whose tips are reachable from a commit, like
+   * <code>git branch --merged</code>.
+   * 
+   * @param id
+   *          The id of the commit.
+   * @return The names of the branches, without the "refs/heads/" prefix, sorted; empty if the
+   *         commit is unknown.
+   * @throws IOException
+   *           Thrown if the bitmap or the branches cannot be read.
+   */
+  public synchronized List<String> getBranchesMerged(String id) throws IOException {
+    refresh();
+    List<String> branches = new ArrayList<String>();
+    BitSet reachable = getReachable(id);
+    if (null == reachable) {
+      return branches;
+    }
+    for (Map.Entry<String, String> ref : getBranches().entrySet()) {
+      int bit = getBit(ref.getValue());
+      if (bit >= 0 && reachable.get(bit)) {
+        branches.add(ref.getKey());
+      }
+    }
+    return branches;
+  }
+
+  /**
+   * Gets the objects reachable from a commit, including it. Bits below the number of objects of
+   * the pack are pack positions; the others are commits outside the pack, at the number of pack
+   * objects plus their store position.
+   * 
+   * @param id
+   *          The id of the commit.
+   * @return The reachable objects, or null if the commit is unknown. The set must not be
+   *         modified.
+   * @throws IOException
+   *           Thrown if the bitmap cannot be read.
+   */
+  public synchronized BitSet getReachable(String id) throws IOException {
+    CheckUtilities.checkStringArgument(id, "id");
+    refresh();
+    int position = graph.getStore().indexOf(id);
+    if (position < 0 || position >= graph.size()) {
+      return (null == bitmap) ? null : getBitmap(id);
+    }
+    BitSet reachable = cache.get(Integer.valueOf(position));
+    if (null == reachable) {
+      reachable = walk(position);
+      cache.put(Integer.valueOf(position), reachable);
+    }
+    return reachable;
+  }
+
+  // Walks down from a commit to the nearest commits with bitmaps.
+  private BitSet walk(int tip) {
+    BitSet reachable = new BitSet();
+    BitSet visited = new BitSet();
+    int[] stack = new int[16];
+    int depth = 0;
+    stack[depth++] = tip;
+    visited.set(tip);
+    while (depth > 0) {
+      int commit = stack[--depth];
+      if (null != bitmap) {
+        PackIndex index = bitmap.getIndex();
+        int indexPosition = index.findPosition(graph.getStore().getObjectId(commit));
+        if (indexPosition >= 0) {
+          int packPosition = index.getPackPosition(indexPosition);
+          if (reachable.get(packPosition)) {
+            // An earlier bitmap covers the commit and its history.
+            continue;
+          }
+          BitSet commitBitmap = bitmap.getBitmap(indexPosition);
+          if (null != commitBitmap) {
+            reachable.or(commitBitmap);
+            continue;
+          }
+          reachable.set(packPosition);
+        } else {
+          reachable.set(index.getObjectCount() + commit);
+        }
+      } else {
+        reachable.set(commit);
+      }
+      for (int parent : graph.getParents(commit)) {
+        if (parent >= 0 && !visited.get(parent)) {
+          visited.set(parent);
+          if (depth == stack.length) {
+            stack = CommitGraph.grow(stack, stack.length * 2);
+          }
+          stack[depth++] = parent;
+        }
+      }
+    }
+    return reachable;
+  }
+
+  // Gets the bit of a commit, or -1 if it is unknown.
+  private int getBit(String id) {
+    if (!ObjectId.isId(id)) {
+      return -1;
+    }
+    ObjectId objectId = ObjectId.fromString(id);
+    int position = graph.getStore().indexOf(objectId);
+    if (null == bitmap) {
+      return (position < graph.size()) ? position : -1;
+    }
+    PackIndex index = bitmap.getIndex();
+    int indexPosition = index.findPosition(objectId);
+    if (indexPosition >= 0) {
+      return index.getPackPosition(indexPosition);
+    }
+    return (position >= 0 && position < graph.size()) ? index.getObjectCount() + position : -1;
+  }
+
+  private BitSet getBitmap(String id) {
+    int indexPosition = bitmap.getIndex().findPosition(id);
+    return (indexPosition < 0) ? null : bitmap.getBitmap(indexPosition);
+  }
+
+  private Map<String, String> getBranches() throws IOException {
+    Map<String, String> branches = new LinkedHashMap<String, String>();
+    RefDatabase refs = new RefDatabase(graph.getStore().getGitDirectory());
+    for (Map.Entry<String, String> ref : refs.getRefs("refs/heads/").entrySet()) {
+      branches.put(ref.getKey().substring("refs/heads/".length()), ref.getValue());
+    }
+    return branches;
+  }
+
+  // Opens the newest bitmap of the pack directory if it has changed, and forgets the cached walks
+  // if the graph was rebuilt.
+  private void refresh() throws IOException {
+    if (graph.getEpoch() != epoch) {
+      epoch = graph.getEpoch();
+      cache.clear();
+    }
+    long modified = packDirectory.lastModified();
+    if (modified == packDirectoryModified) {
+      return;
+    }
+    File newest = null;
+    File[] files = packDirectory.listFiles();
+    if (null != files) {
+      for (File file : files) {
+        if (file.getName().endsWith(".bitmap")
+            && (null == newest || file.lastModified() > newest.lastModified())) {
+          newest = file;
+        }
+      }
+    }
+    bitmap = null;
+    cache.clear();
+    if (null != newest) {
+      String name = newest.getName();
+      File indexFile = new File(packDirectory, name.substring(0, name.length() - 7) + ".idx");
+      // A multi-pack index bitmap has no pack index of its own, and is not read.
+      if (indexFile.exists()) {
+        bitmap = new PackBitmap(newest, new PackIndex(indexFile));
+      }
+    }
+    packDirectoryModified = modified;
+  }
+}
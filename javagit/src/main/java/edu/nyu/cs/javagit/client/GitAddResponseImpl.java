@@ -70,4 +70,17 @@ public class GitAddResponseImpl extends GitAddResponse {
     filePathsList.add(file);
   }
 
+  /**
+   * Appends the files and comments of another response, as when merging the responses of the
+   * chunks of a split command line.
+   * 
+   * @param other
+   *          The response to merge into this one.
+   */
+  public void merge(GitAddResponseImpl other) {
+    filePathsList.addAll(other.filePathsList);
+    comments.addAll(other.comments);
+    noOutput = noOutput && other.noOutput;
+    dryRun = dryRun || other.dryRun;
+  }
 }
@@ -80,4 +80,22 @@ public class GitCheckoutResponseImpl extends GitCheckoutResponse {
     deletedFiles.add(file);
   }
 
+  /**
+   * Appends the files of another response, as when merging the responses of the chunks of a split
+   * command line.
+   * 
+   * @param other
+   *          The response to merge into this one.
+   */
+  public void merge(GitCheckoutResponseImpl other) {
+    modifiedFiles.addAll(other.modifiedFiles);
+    addedFiles.addAll(other.addedFiles);
+    deletedFiles.addAll(other.deletedFiles);
+    if (null == branch) {
+      branch = other.branch;
+    }
+    if (null == newBranch) {
+      newBranch = other.newBranch;
+    }
+  }
 }
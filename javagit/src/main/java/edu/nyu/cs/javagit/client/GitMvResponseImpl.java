@@ -58,4 +58,20 @@ public class GitMvResponseImpl extends GitMvResponse {
     this.source = source;
   }
 
+  /**
+   * Appends the comments of another response and takes its source and destination, as when
+   * merging the responses of the chunks of a split command line.
+   * 
+   * @param other
+   *          The response to merge into this one.
+   */
+  public void merge(GitMvResponseImpl other) {
+    message.append(other.message);
+    if (null != other.source) {
+      source = other.source;
+    }
+    if (null != other.destination) {
+      destination = other.destination;
+    }
+  }
 }
@@ -50,4 +50,18 @@ public class GitResetResponseImpl extends GitResetResponse {
     filesNeedingUpdate.add(file);
   }
 
+  /**
+   * Appends the files needing update of another response, as when merging the responses of the
+   * chunks of a split command line.
+   * 
+   * @param other
+   *          The response to merge into this one.
+   */
+  public void merge(GitResetResponseImpl other) {
+    filesNeedingUpdate.addAll(other.filesNeedingUpdate);
+    if (null == newHeadSha1) {
+      newHeadSha1 = other.newHeadSha1;
+      newHeadShortMessage = other.newHeadShortMessage;
+    }
+  }
 }
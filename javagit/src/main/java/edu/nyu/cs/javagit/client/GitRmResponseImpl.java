@@ -37,4 +37,14 @@ public final class GitRmResponseImpl extends GitRmResponse {
     removedFiles.add(file);
   }
   
+  /**
+   * Appends the removed files of another response, as when merging the responses of the chunks of
+   * a split command line.
+   * 
+   * @param other
+   *          The response to merge into this one.
+   */
+  public void merge(GitRmResponseImpl other) {
+    removedFiles.addAll(other.removedFiles);
+  }
 }
@@ -150,4 +150,30 @@ public class GitStatusResponseImpl extends GitStatusResponse {
     untrackedFiles.add(file);
     fileToStatus.put(file, Status.UNTRACKED);
   }
+
+  /**
+   * Appends the files and errors of another response, as when merging the responses of the chunks
+   * of a split command line.
+   * 
+   * @param other
+   *          The response to merge into this one.
+   */
+  public void merge(GitStatusResponseImpl other) {
+    newFilesToCommit.addAll(other.newFilesToCommit);
+    deletedFilesToCommit.addAll(other.deletedFilesToCommit);
+    modifiedFilesToCommit.addAll(other.modifiedFilesToCommit);
+    deletedFilesNotUpdated.addAll(other.deletedFilesNotUpdated);
+    modifiedFilesNotUpdated.addAll(other.modifiedFilesNotUpdated);
+    renamedFilesToCommit.addAll(other.renamedFilesToCommit);
+    untrackedFiles.addAll(other.untrackedFiles);
+    renamedFiles.addAll(other.renamedFiles);
+    fileToStatus.putAll(other.fileToStatus);
+    errors.addAll(other.errors);
+    if (null == branch) {
+      branch = other.branch;
+    }
+    if (null == message) {
+      message = other.message;
+    }
+  }
 }
@@ -126,5 +126,32 @@ public interface IClient {
    */
   public IGitClone getGitCloneInstance();
 
+  /**
+   * Gets an instance of <code>IGitFastImport</code>
+   * 
+   * @return An instance of <code>IGitFastImport</code>
+   */
+  public IGitFastImport getGitFastImportInstance();
+
+  /**
+   * Gets an instance of <code>IGitFastExport</code>
+   * 
+   * @return An instance of <code>IGitFastExport</code>
+   */
+  public IGitFastExport getGitFastExportInstance();
+
+  /**
+   * Gets an instance of <code>IGitForEachRef</code>
+   * 
+   * @return An instance of <code>IGitForEachRef</code>
+   */
+  public IGitForEachRef getGitForEachRefInstance();
+
+  /**
+   * Gets an instance of <code>IGitUpdateRef</code>
+   * 
+   * @return An instance of <code>IGitUpdateRef</code>
+   */
+  public IGitUpdateRef getGitUpdateRefInstance();
 
 }
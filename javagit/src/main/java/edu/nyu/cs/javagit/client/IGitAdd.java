@@ -23,6 +23,7 @@ import java.util.List;
 import edu.nyu.cs.javagit.api.JavaGitException;
 import edu.nyu.cs.javagit.api.commands.GitAddOptions;
 import edu.nyu.cs.javagit.api.commands.GitAddResponse;
+import edu.nyu.cs.javagit.api.commands.GitProgressListener;
 
 /**
  * An interface to represent the git-add command.
@@ -177,4 +178,32 @@ public interface IGitAdd {
   public GitAddResponse add(File repositoryPath, List<File> paths) throws JavaGitException,
       IOException;
 
+  /**
+   * Adds a huge list of files to the index with a single process. The paths are passed through
+   * the standard input of &lt;git-add&gt; instead of its command line, so their number is not
+   * limited by the maximum command line length.
+   * 
+   * @param repositoryPath
+   *          File path pointing to the root of the repository
+   * @param options
+   *          Object containing all the options that need to be passed to &lt;git-add&gt; command.
+   * @param paths
+   *          List of file paths that are going to be added to the index.
+   * @param listener
+   *          Notified of each file as it is added; may be null.
+   * @return GitAddResponse object.
+   * @throws JavaGitException
+   *           Thrown when there is an error while running the add command.
+   * @throws IOException
+   *           There are many reasons for which an <code>IOException</code> may be thrown.
+   *           Examples include:
+   *           <ul>
+   *           <li>a directory doesn't exist</li>
+   *           <li>access to a file is denied</li>
+   *           <li>a command is not found on the PATH</li>
+   *           </ul>
+   */
+  public GitAddResponse addBulk(File repositoryPath, GitAddOptions options, List<File> paths,
+      GitProgressListener listener) throws JavaGitException, IOException;
+
 }
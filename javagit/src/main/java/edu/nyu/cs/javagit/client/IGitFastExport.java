@@ -0,0 +1,48 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitFastExportHandler;
+import edu.nyu.cs.javagit.api.commands.GitFastExportOptions;
+
+/**
+ * An interface to represent the git-fast-export command, which exports a whole history as a
+ * single stream.
+ */
+public interface IGitFastExport {
+
+  /**
+   * Exports the history of a repository, reporting it to a handler as it is read.
+   * 
+   * @param repositoryPath
+   *          The path to the repository to export.
+   * @param options
+   *          The options of the export; may be null.
+   * @param handler
+   *          The handler receiving the blobs, commits, file changes, tags and resets.
+   * @throws IOException
+   *           Thrown if the repository path is not valid or the process cannot be run.
+   * @throws JavaGitException
+   *           Thrown when git-fast-export fails, its output is malformed, or by the handler.
+   */
+  public void export(File repositoryPath, GitFastExportOptions options,
+      GitFastExportHandler handler) throws IOException, JavaGitException;
+}
@@ -0,0 +1,47 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitFastImportOptions;
+import edu.nyu.cs.javagit.api.commands.GitFastImportStream;
+
+/**
+ * An interface to represent the git-fast-import command, which imports a whole history from a
+ * single stream.
+ */
+public interface IGitFastImport {
+
+  /**
+   * Starts an import into a repository.
+   * 
+   * @param repositoryPath
+   *          The path to the repository to import into.
+   * @param options
+   *          The options of the import; may be null.
+   * @return The stream to write the history to. The import completes when the stream is closed.
+   * @throws IOException
+   *           Thrown if the repository path is not valid or the process cannot be started.
+   * @throws JavaGitException
+   *           Thrown when there is an error starting git-fast-import.
+   */
+  public GitFastImportStream start(File repositoryPath, GitFastImportOptions options)
+      throws IOException, JavaGitException;
+}
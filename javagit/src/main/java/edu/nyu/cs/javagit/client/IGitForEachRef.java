@@ -0,0 +1,47 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitForEachRefHandler;
+import edu.nyu.cs.javagit.api.commands.GitForEachRefOptions;
+
+/**
+ * An interface to represent the git-for-each-ref command, which lists the refs of a repository.
+ */
+public interface IGitForEachRef {
+
+  /**
+   * Lists the refs of a repository, reporting them to a handler as they are read.
+   * 
+   * @param repositoryPath
+   *          The path to the repository.
+   * @param options
+   *          The options of the listing; may be null.
+   * @param handler
+   *          The handler receiving the refs.
+   * @throws IOException
+   *           Thrown if the repository path is not valid or the process cannot be run.
+   * @throws JavaGitException
+   *           Thrown when git-for-each-ref fails, or by the handler.
+   */
+  public void listRefs(File repositoryPath, GitForEachRefOptions options,
+      GitForEachRefHandler handler) throws IOException, JavaGitException;
+}
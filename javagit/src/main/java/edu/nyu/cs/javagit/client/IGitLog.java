@@ -63,4 +63,23 @@ public interface IGitLog {
 	 * 			Thrown when there is an error executing git log.
 	 */
 	public List<Commit> log(File repositoryPath) throws JavaGitException, IOException;
+
+	/**
+	 * 
+	 * @param repositoryPath	
+	 *			A <code>File</code> instance for the path to the repository root (the parent
+	 *          directory of the .git directory) or a sub-directory in the working tree of the
+	 *          repository.
+	 * @param options	Specify option used to collect logs, see <code>GitLogOptions</code>. May be
+	 *          null.
+	 * @param revisionRange	The commit to list the history of, or a range such as
+	 *          <code>old..new</code>.
+	 * @return A List of Commit objects
+	 * @throws JavaGitException
+	 * 			Thrown when there is an error executing git log.
+	 * @throws IOException
+	 * 			Thrown when there is an error executing git log.
+	 */
+	public List<Commit> log(File repositoryPath, GitLogOptions options, String revisionRange)
+	throws JavaGitException, IOException;
 }
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.List;
 
 import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitProgressListener;
 import edu.nyu.cs.javagit.api.commands.GitRmOptions;
 import edu.nyu.cs.javagit.api.commands.GitRmResponse;
 
@@ -201,4 +202,37 @@ public interface IGitRm {
    */
   public GitRmResponse rmRecursive(File repository, List<File> paths) throws IOException,
       JavaGitException;
+
+  /**
+   * Remove a huge list of files with a single process. The paths are passed through the standard
+   * input of &lt;git-rm&gt; instead of its command line, so their number is not limited by the
+   * maximum command line length.
+   * 
+   * @param repository
+   *          A <code>File</code> instance for the path to the repository root (the parent
+   *          directory of the .git directory) or a sub-directory in the working tree of the
+   *          repository to run rm against. If null is passed, a <code>NullPointerException</code>
+   *          will be thrown.
+   * @param options
+   *          The options to run rm with; may be null.
+   * @param paths
+   *          A list of files to remove, relative to <code>repository</code>. A non-null and
+   *          non-empty list is required for this parameter, otherwise a
+   *          <code>NullPointerException</code> or <code>IllegalArgumentException</code> will be
+   *          thrown.
+   * @param listener
+   *          Notified of each file as it is removed; may be null.
+   * @exception IOException
+   *              There are many reasons for which an <code>IOException</code> may be thrown.
+   *              Examples include:
+   *              <ul>
+   *              <li>a directory doesn't exist</li>
+   *              <li>access to a file is denied</li>
+   *              <li>a command is not found on the PATH</li>
+   *              </ul>
+   * @exception JavaGitException
+   *              Thrown when there is an error removing the files.
+   */
+  public GitRmResponse rmBulk(File repository, GitRmOptions options, List<File> paths,
+      GitProgressListener listener) throws IOException, JavaGitException;
 }
@@ -0,0 +1,46 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitRefTransaction;
+import edu.nyu.cs.javagit.api.commands.GitUpdateRefResponse;
+
+/**
+ * An interface to represent the git-update-ref command run as a transaction of many ref updates.
+ */
+public interface IGitUpdateRef {
+
+  /**
+   * Applies a ref transaction atomically.
+   * 
+   * @param repositoryPath
+   *          The path to the repository.
+   * @param transaction
+   *          The updates to apply.
+   * @return The result of the transaction, for each ref.
+   * @throws IOException
+   *           Thrown if the repository path is not valid or the process cannot be run.
+   * @throws JavaGitException
+   *           Thrown if the process cannot be run.
+   */
+  public GitUpdateRefResponse commit(File repositoryPath, GitRefTransaction transaction)
+      throws IOException, JavaGitException;
+}
@@ -23,6 +23,9 @@ import edu.nyu.cs.javagit.client.IGitCheckout;
 import edu.nyu.cs.javagit.client.IGitClone;
 import edu.nyu.cs.javagit.client.IGitCommit;
 import edu.nyu.cs.javagit.client.IGitDiff;
+import edu.nyu.cs.javagit.client.IGitFastExport;
+import edu.nyu.cs.javagit.client.IGitFastImport;
+import edu.nyu.cs.javagit.client.IGitForEachRef;
 import edu.nyu.cs.javagit.client.IGitGrep;
 import edu.nyu.cs.javagit.client.IGitInit;
 import edu.nyu.cs.javagit.client.IGitLog;
@@ -32,6 +35,7 @@ import edu.nyu.cs.javagit.client.IGitRevert;
 import edu.nyu.cs.javagit.client.IGitRm;
 import edu.nyu.cs.javagit.client.IGitShow;
 import edu.nyu.cs.javagit.client.IGitStatus;
+import edu.nyu.cs.javagit.client.IGitUpdateRef;
 
 /**
  * Command-line implementation of the <code>IClient</code> interface.
@@ -98,4 +102,20 @@ public class CliClient implements IClient {
     return new CliGitClone();
   }
 
+  public IGitFastImport getGitFastImportInstance() {
+    return new CliGitFastImport();
+  }
+
+  public IGitFastExport getGitFastExportInstance() {
+    return new CliGitFastExport();
+  }
+
+  public IGitForEachRef getGitForEachRefInstance() {
+    return new CliGitForEachRef();
+  }
+
+  public IGitUpdateRef getGitUpdateRefInstance() {
+    return new CliGitUpdateRef();
+  }
+
 }
@@ -26,6 +26,7 @@ import edu.nyu.cs.javagit.api.JavaGitConfiguration;
 import edu.nyu.cs.javagit.api.JavaGitException;
 import edu.nyu.cs.javagit.api.commands.GitAddOptions;
 import edu.nyu.cs.javagit.api.commands.GitAddResponse;
+import edu.nyu.cs.javagit.api.commands.GitProgressListener;
 import edu.nyu.cs.javagit.client.GitAddResponseImpl;
 import edu.nyu.cs.javagit.client.IGitAdd;
 import edu.nyu.cs.javagit.utilities.CheckUtilities;
@@ -44,10 +45,14 @@ public class CliGitAdd implements IGitAdd {
   public GitAddResponse add(File repositoryPath, GitAddOptions options, List<File> paths)
       throws JavaGitException, IOException {
     CheckUtilities.checkFileValidity(repositoryPath);
-    GitAddParser parser = new GitAddParser();
     List<String> command = buildCommand(repositoryPath, options, paths);
+    // The paths are at the end of the command line; split them if it is too long.
+    int pathCount = (null != paths) ? paths.size() : 0;
+    List<List<String>> commands = CommandLineBuilder.split(command, command.size() - pathCount,
+        command.size());
+    boolean dryRun = (null != options) && options.dryRun();
     GitAddResponseImpl response = (GitAddResponseImpl) ProcessUtilities.runCommand(repositoryPath,
-        command, parser);
+        commands, new ChunkedAdd(), dryRun);
     
     if (options != null) {
       addDryRun(options, response);
@@ -114,6 +119,35 @@ public class CliGitAdd implements IGitAdd {
     return add(repositoryPath, options, paths);
   }
 
+  /**
+   * Implementation of &lt;git-add&gt; for huge path lists: the paths are written NUL-separated to
+   * the standard input of a single git-add process instead of being put on its command line.
+   */
+  public GitAddResponse addBulk(File repositoryPath, GitAddOptions options, List<File> paths,
+      GitProgressListener listener) throws JavaGitException, IOException {
+    CheckUtilities.checkFileValidity(repositoryPath);
+    CheckUtilities.checkNullListArgument(paths, "paths");
+    GitAddParser parser = new GitAddParser(listener);
+    List<String> command = buildCommand(repositoryPath, options, null);
+    if (null == options || !options.verbose()) {
+      // The verbose output reports each path as it is added.
+      command.add("-v");
+    }
+    command.add("--pathspec-from-file=-");
+    command.add("--pathspec-file-nul");
+    List<String> input = new ArrayList<String>(paths.size());
+    for (File file : paths) {
+      input.add(file.getPath());
+    }
+    GitAddResponseImpl response = (GitAddResponseImpl) ProcessUtilities.runCommand(repositoryPath,
+        command, parser, input);
+
+    if (options != null) {
+      addDryRun(options, response);
+    }
+    return (GitAddResponse) response;
+  }
+
   /**
    * if the dry run option was selected then set the flag in response.
    * 
@@ -160,6 +194,24 @@ public class CliGitAdd implements IGitAdd {
     return command;
   }
 
+  /**
+   * Parses the chunks of a split &lt;git-add&gt; command line and merges their responses.
+   */
+  private static class ChunkedAdd implements IChunkedCommand<GitAddResponse> {
+
+    public IParser newParser() {
+      return new GitAddParser();
+    }
+
+    public GitAddResponse merge(List<GitAddResponse> responses) {
+      GitAddResponseImpl merged = (GitAddResponseImpl) responses.get(0);
+      for (int i = 1; i < responses.size(); i++) {
+        merged.merge((GitAddResponseImpl) responses.get(i));
+      }
+      return merged;
+    }
+  }
+
   /**
    * Parser class that implements <code>IParser</code> for implementing a parser for
    * &lt;git-add&gt; output.
@@ -170,12 +222,25 @@ public class CliGitAdd implements IGitAdd {
     private GitAddResponseImpl response;
     private boolean error = false;
     private List<Error> errorList;
+    private GitProgressListener listener;
+    private int added = 0;
 
     public GitAddParser() {
       lineNum = 0;
       response = new GitAddResponseImpl();
     }
 
+    /**
+     * Creates a parser notifying a listener of each added file.
+     * 
+     * @param listener
+     *          The listener; may be null.
+     */
+    public GitAddParser(GitProgressListener listener) {
+      this();
+      this.listener = listener;
+    }
+
     public void parseLine(String line) {
       if (line == null || line.length() == 0) {
         return;
@@ -217,7 +282,14 @@ public class CliGitAdd implements IGitAdd {
      * @param line
      */
     private void processLine(String line) {
-      if (line.startsWith("add")) {
+      if (line.startsWith("add '") && line.endsWith("'")) {
+        // A single quoted path, which may contain spaces.
+        File file = new File(line.substring("add '".length(), line.length() - 1));
+        response.add(file);
+        if (null != listener) {
+          listener.pathProcessed(file, ++added);
+        }
+      } else if (line.startsWith("add")) {
         StringTokenizer st = new StringTokenizer(line);
 
         if (st.nextToken().equals("add") && st.hasMoreTokens()) {
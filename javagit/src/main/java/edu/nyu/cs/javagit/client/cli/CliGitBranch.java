@@ -24,6 +24,7 @@ import java.util.StringTokenizer;
 
 import edu.nyu.cs.javagit.api.JavaGitConfiguration;
 import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.RepositoryScheduler;
 import edu.nyu.cs.javagit.api.Ref;
 import edu.nyu.cs.javagit.api.commands.GitBranchOptions;
 import edu.nyu.cs.javagit.api.commands.GitBranchResponse;
@@ -133,10 +134,34 @@ public class CliGitBranch implements IGitBranch {
   public GitBranchResponseImpl branchProcess(File repoPath, GitBranchOptions options, Ref arg1,
       Ref arg2, List<Ref> branchList) throws IOException, JavaGitException {
     CheckUtilities.checkNullArgument(repoPath, "repository path");
-    List<String> commandLine = buildCommand(options, arg1, arg2, branchList);
-    GitBranchParser parser = new GitBranchParser();
+    final List<String> commandLine = buildCommand(options, arg1, arg2, branchList);
+    final File repository = repoPath;
+    RepositoryScheduler.Operation<GitBranchResponseImpl> operation =
+        new RepositoryScheduler.Operation<GitBranchResponseImpl>() {
+      public GitBranchResponseImpl run() throws IOException, JavaGitException {
+        GitBranchParser parser = new GitBranchParser();
+        return (GitBranchResponseImpl) ProcessUtilities.runCommand(repository, commandLine, parser);
+      }
+    };
+    if (isListing(options, arg1, arg2, branchList)) {
+      // Identical concurrent listings share one git-branch run.
+      return CommandCoalescer.run(repoPath, commandLine, operation);
+    }
+    return operation.run();
+  }
 
-    return (GitBranchResponseImpl) ProcessUtilities.runCommand(repoPath, commandLine, parser);
+  /*
+   * Checks whether a git-branch call only lists branches, as opposed to creating, deleting or
+   * renaming one.
+   */
+  private static boolean isListing(GitBranchOptions options, Ref arg1, Ref arg2,
+      List<Ref> branchList) {
+    if (null != arg1 || null != arg2 || (null != branchList && branchList.size() > 0)) {
+      return false;
+    }
+    return null == options
+        || !(options.isOptDLower() || options.isOptDUpper() || options.isOptMLower()
+            || options.isOptMUpper() || options.isOptL() || options.isOptF());
   }
 
   /**
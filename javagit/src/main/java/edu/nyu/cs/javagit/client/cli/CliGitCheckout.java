@@ -93,11 +93,8 @@ public class CliGitCheckout implements IGitCheckout {
       throws JavaGitException, IOException {
     CheckUtilities.checkFileValidity(repositoryPath);
     CheckUtilities.checkNullListArgument(paths, "list of file paths");
-    GitCheckoutParser parser = new GitCheckoutParser();
     List<String> command = buildCommand(null, null, paths);
-    GitCheckoutResponse response = (GitCheckoutResponse) ProcessUtilities.runCommand(repositoryPath,
-        command, parser);
-    return response;
+    return runPathsCommand(repositoryPath, command, paths);
   }
 
   /**
@@ -109,9 +106,8 @@ public class CliGitCheckout implements IGitCheckout {
     if ( ref != null && ref.getRefType() == RefType.HEAD ) {
         throw new IllegalArgumentException("Invalid ref type passed as argument to checkout");
     }
-    GitCheckoutParser parser = new GitCheckoutParser();
     List<String> command = buildCommand(options, ref, paths);
-    return (GitCheckoutResponse) ProcessUtilities.runCommand(repositoryPath, command, parser);
+    return runPathsCommand(repositoryPath, command, paths);
   }
 
   /**
@@ -135,13 +131,44 @@ public class CliGitCheckout implements IGitCheckout {
   public GitCheckoutResponse checkout(File repositoryPath, Ref branch, List<File> paths)
       throws JavaGitException, IOException {
     CheckUtilities.checkFileValidity(repositoryPath);
-    GitCheckoutParser parser = new GitCheckoutParser();
     List<String> command = buildCommand(null, branch, paths);
-    GitCheckoutResponse response = (GitCheckoutResponse) ProcessUtilities.runCommand(repositoryPath,
-        command, parser);
-    return response;
+    return runPathsCommand(repositoryPath, command, paths);
   }
   
+  /**
+   * Runs a &lt;git-checkout&gt; command line ending with a list of paths, split into several
+   * command lines if it is too long. The chunks are run one after the other since they update the
+   * index and the working tree.
+   * 
+   * @param repositoryPath
+   *          The repository to run the command in.
+   * @param command
+   *          The command line, ending with the paths.
+   * @param paths
+   *          The paths; may be null.
+   * @return The merged response of the chunks.
+   */
+  private GitCheckoutResponse runPathsCommand(File repositoryPath, List<String> command,
+      List<File> paths) throws JavaGitException, IOException {
+    int pathCount = (null != paths) ? paths.size() : 0;
+    List<List<String>> commands = CommandLineBuilder.split(command, command.size() - pathCount,
+        command.size());
+    return ProcessUtilities.runCommand(repositoryPath, commands,
+        new IChunkedCommand<GitCheckoutResponse>() {
+          public IParser newParser() {
+            return new GitCheckoutParser();
+          }
+
+          public GitCheckoutResponse merge(List<GitCheckoutResponse> responses) {
+            GitCheckoutResponseImpl merged = (GitCheckoutResponseImpl) responses.get(0);
+            for (int i = 1; i < responses.size(); i++) {
+              merged.merge((GitCheckoutResponseImpl) responses.get(i));
+            }
+            return merged;
+          }
+        }, false);
+  }
+
   /**
    * This is just a test method for verifying that a given ref is not of refType provided as one of the parameters.
    * @param ref
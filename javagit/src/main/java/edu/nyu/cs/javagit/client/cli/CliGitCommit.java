@@ -103,6 +103,18 @@ public class CliGitCommit implements IGitCommit {
     List<String> commandLine = buildCommand(options, message, paths);
     GitCommitParser parser = new GitCommitParser(repository.getAbsolutePath());
 
+    if (null != paths && !CommandLineBuilder.fits(commandLine)) {
+      // A commit cannot be split into several commands; give git the paths on its standard input.
+      commandLine = buildCommand(options, message, null);
+      commandLine.add("--pathspec-from-file=-");
+      commandLine.add("--pathspec-file-nul");
+      List<String> input = new ArrayList<String>(paths.size());
+      for (File f : paths) {
+        input.add(f.getPath());
+      }
+      return (GitCommitResponseImpl) ProcessUtilities.runCommand(repository, commandLine, parser,
+          input);
+    }
     return (GitCommitResponseImpl) ProcessUtilities.runCommand(repository, commandLine, parser);
   }
 
@@ -0,0 +1,117 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.nyu.cs.javagit.api.JavaGitConfiguration;
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitFastExportHandler;
+import edu.nyu.cs.javagit.api.commands.GitFastExportOptions;
+import edu.nyu.cs.javagit.api.commands.GitFastExportReader;
+import edu.nyu.cs.javagit.client.IGitFastExport;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * Command-line implementation of the <code>IGitFastExport</code> interface. The standard output
+ * of git-fast-export is parsed as it is produced; its standard error is collected separately so it
+ * cannot corrupt the stream.
+ */
+public class CliGitFastExport implements IGitFastExport {
+
+  // The number of error lines kept to report a failed export.
+  private static final int MAX_ERROR_LINES = 20;
+
+  public void export(File repositoryPath, GitFastExportOptions options,
+      GitFastExportHandler handler) throws IOException, JavaGitException {
+    CheckUtilities.checkFileValidity(repositoryPath);
+    CheckUtilities.checkNullArgument(handler, "handler");
+    if (null == options) {
+      options = new GitFastExportOptions();
+    }
+
+    ProcessBuilder pb = new ProcessBuilder(buildCommand(options));
+    pb.directory(repositoryPath);
+    Process process = ProcessUtilities.startProcess(pb);
+    OutputCollector errors = new OutputCollector(process.getErrorStream(),
+        "javagit-fast-export-errors", MAX_ERROR_LINES);
+    errors.start();
+
+    boolean completed = false;
+    try {
+      process.getOutputStream().close();
+      new GitFastExportReader(process.getInputStream()).read(handler);
+      completed = true;
+    } finally {
+      if (!completed) {
+        // The handler or the parser gave up; do not wait for the rest of the history, but wait
+        // for the killed process to exit.
+        process.destroy();
+        process.getInputStream().close();
+        errors.awaitEnd();
+        ProcessUtilities.waitForProcess(process);
+      }
+    }
+    process.getInputStream().close();
+
+    errors.awaitEnd();
+    int exitCode = ProcessUtilities.waitForProcess(process);
+    if (0 != exitCode) {
+      throw new JavaGitException(414000, ExceptionMessageMap.getMessage("414000")
+          + "  { exitCode=[" + exitCode + "], output=[" + errors.getOutput() + "] }");
+    }
+  }
+
+  /*
+   * Builds the git-fast-export command line.
+   */
+  private List<String> buildCommand(GitFastExportOptions options) {
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    command.add("fast-export");
+    command.add("--signed-tags=strip");
+    if (options.isOptDetectRenames()) {
+      command.add("-M");
+    }
+    if (options.isOptDetectCopies()) {
+      command.add("-C");
+    }
+    if (options.isOptNoData()) {
+      command.add("--no-data");
+    }
+    if (options.isOptFullTree()) {
+      command.add("--full-tree");
+    }
+    if (options.isOptShowOriginalIds()) {
+      command.add("--show-original-ids");
+    }
+    if (options.getRevisions().isEmpty()) {
+      command.add("--all");
+    } else {
+      command.addAll(options.getRevisions());
+    }
+    if (!options.getPaths().isEmpty()) {
+      command.add("--");
+      command.addAll(options.getPaths());
+    }
+    return command;
+  }
+}
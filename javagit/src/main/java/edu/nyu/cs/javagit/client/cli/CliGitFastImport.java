@@ -0,0 +1,112 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.nyu.cs.javagit.api.JavaGitConfiguration;
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitFastImportOptions;
+import edu.nyu.cs.javagit.api.commands.GitFastImportStream;
+import edu.nyu.cs.javagit.client.IGitFastImport;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * Command-line implementation of the <code>IGitFastImport</code> interface. One git-fast-import
+ * process is started per import and fed through its standard input.
+ */
+public class CliGitFastImport implements IGitFastImport {
+
+  // The number of output lines kept to report a failed import.
+  private static final int MAX_OUTPUT_LINES = 20;
+
+  public GitFastImportStream start(File repositoryPath, GitFastImportOptions options)
+      throws IOException, JavaGitException {
+    CheckUtilities.checkFileValidity(repositoryPath);
+    if (null == options) {
+      options = new GitFastImportOptions();
+    }
+
+    ProcessBuilder pb = new ProcessBuilder(buildCommand(options));
+    pb.directory(repositoryPath);
+    pb.redirectErrorStream(true);
+    Process process = ProcessUtilities.startProcess(pb);
+
+    OutputCollector collector = new OutputCollector(process.getInputStream(),
+        "javagit-fast-import-output", MAX_OUTPUT_LINES);
+    collector.start();
+    return new ProcessStream(process, collector, options.getBufferSize());
+  }
+
+  /*
+   * Builds the git-fast-import command line.
+   */
+  private List<String> buildCommand(GitFastImportOptions options) {
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    command.add("fast-import");
+    command.add("--quiet");
+    if (options.isOptForce()) {
+      command.add("--force");
+    }
+    if (null != options.getOptImportMarks()) {
+      command.add("--import-marks=" + options.getOptImportMarks().getAbsolutePath());
+    }
+    if (null != options.getOptExportMarks()) {
+      command.add("--export-marks=" + options.getOptExportMarks().getAbsolutePath());
+    }
+    if (options.getOptActiveBranches() > 0) {
+      command.add("--active-branches=" + options.getOptActiveBranches());
+    }
+    return command;
+  }
+
+  /**
+   * A <code>GitFastImportStream</code> feeding a git-fast-import process, which waits for the
+   * process to exit when closed.
+   */
+  private static class ProcessStream extends GitFastImportStream {
+    private final Process process;
+    private final OutputCollector collector;
+
+    ProcessStream(Process process, OutputCollector collector, int bufferSize) throws IOException {
+      super(process.getOutputStream(), bufferSize);
+      this.process = process;
+      this.collector = collector;
+    }
+
+    @Override
+    protected void finish(OutputStream output) throws IOException, JavaGitException {
+      try {
+        output.close();
+      } catch (IOException e) {
+        // The process has exited already; its exit code tells why.
+      }
+      collector.awaitEnd();
+      int exitCode = ProcessUtilities.waitForProcess(process);
+      if (0 != exitCode) {
+        throw new JavaGitException(412000, ExceptionMessageMap.getMessage("412000")
+            + "  { exitCode=[" + exitCode + "], output=[" + collector.getOutput() + "] }");
+      }
+    }
+  }
+}
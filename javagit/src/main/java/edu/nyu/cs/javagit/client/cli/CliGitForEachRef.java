@@ -0,0 +1,146 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.nyu.cs.javagit.api.JavaGitConfiguration;
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.Ref;
+import edu.nyu.cs.javagit.api.commands.GitBranchResponse.BranchRecord;
+import edu.nyu.cs.javagit.api.commands.GitForEachRefHandler;
+import edu.nyu.cs.javagit.api.commands.GitForEachRefOptions;
+import edu.nyu.cs.javagit.client.IGitForEachRef;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * Command-line implementation of the <code>IGitForEachRef</code> interface. Every field of a ref
+ * is printed followed by a NUL character, so the fields are split without parsing the text, and
+ * each ref is reported as soon as its last field is read.
+ */
+public class CliGitForEachRef implements IGitForEachRef {
+
+  // The fields of a ref, in the order of FIELDS_TRACK and FIELDS.
+  private static final int REFNAME = 0;
+  private static final int OBJECTNAME = 1;
+  private static final int UPSTREAM = 2;
+  private static final int TRACK = 3;
+  private static final int COMMITTERDATE = 4;
+  private static final int HEAD = 5;
+  private static final int SUBJECT = 6;
+  private static final int FIELD_COUNT = 7;
+
+  private static final String FIELDS_TRACK = "--format=%(refname)%00%(objectname)%00"
+      + "%(upstream:short)%00%(upstream:track,nobracket)%00%(committerdate:unix)%00%(HEAD)%00"
+      + "%(contents:subject)%00";
+
+  private static final String FIELDS = "--format=%(refname)%00%(objectname)%00"
+      + "%(upstream:short)%00%00%(committerdate:unix)%00%(HEAD)%00%(contents:subject)%00";
+
+  public void listRefs(File repositoryPath, GitForEachRefOptions options,
+      final GitForEachRefHandler handler) throws IOException, JavaGitException {
+    CheckUtilities.checkFileValidity(repositoryPath);
+    CheckUtilities.checkNullArgument(handler, "handler");
+    if (null == options) {
+      options = new GitForEachRefOptions();
+    }
+
+    final String[] fields = new String[FIELD_COUNT];
+    ProcessUtilities.runRecordCommand(repositoryPath, buildCommand(options),
+        new ProcessUtilities.RecordHandler() {
+          private int field = 0;
+
+          public boolean handleRecord(String record) throws JavaGitException {
+            fields[field++] = record;
+            if (field < FIELD_COUNT) {
+              return true;
+            }
+            field = 0;
+            return handler.handleRef(toRecord(fields));
+          }
+        });
+  }
+
+  /*
+   * Builds the git-for-each-ref command line.
+   */
+  private List<String> buildCommand(GitForEachRefOptions options) {
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    command.add("for-each-ref");
+    command.add(options.isOptTrack() ? FIELDS_TRACK : FIELDS);
+    for (String key : options.getSortKeys()) {
+      command.add("--sort=" + key);
+    }
+    if (options.getOptCount() > 0) {
+      command.add("--count=" + options.getOptCount());
+    }
+    command.addAll(options.getPatterns());
+    return command;
+  }
+
+  /*
+   * Makes a record of the fields of a ref.
+   */
+  private static BranchRecord toRecord(String[] fields) {
+    // Each ref after the first one starts with the newline ending the previous one.
+    String refName = fields[REFNAME];
+    if (refName.startsWith("\n")) {
+      refName = refName.substring(1);
+    }
+
+    Ref branch;
+    if (refName.startsWith("refs/heads/")) {
+      branch = Ref.createBranchRef(refName.substring("refs/heads/".length()));
+    } else if (refName.startsWith("refs/remotes/")) {
+      branch = Ref.createBranchRef(refName.substring("refs/remotes/".length()));
+    } else if (refName.startsWith("refs/tags/")) {
+      branch = Ref.createTagRef(refName.substring("refs/tags/".length()));
+    } else {
+      branch = Ref.createBranchRef(refName);
+    }
+
+    Ref upstream = (0 == fields[UPSTREAM].length()) ? null : Ref
+        .createBranchRef(fields[UPSTREAM]);
+    long committerTime = (0 == fields[COMMITTERDATE].length()) ? -1 : Long
+        .parseLong(fields[COMMITTERDATE]);
+
+    return new BranchRecord(refName, branch, Ref.createSha1Ref(fields[OBJECTNAME]),
+        fields[SUBJECT], "*".equals(fields[HEAD]), upstream, getCount(fields[TRACK], "ahead "),
+        getCount(fields[TRACK], "behind "), committerTime);
+  }
+
+  /*
+   * Gets a count from a track field, e.g. "ahead 2, behind 1"; it is "gone" when the upstream
+   * branch no longer exists, and empty when the branches are even.
+   */
+  private static int getCount(String track, String label) {
+    int start = track.indexOf(label);
+    if (start < 0) {
+      return 0;
+    }
+    start += label.length();
+    int end = start;
+    while (end < track.length() && Character.isDigit(track.charAt(end))) {
+      end++;
+    }
+    return Integer.parseInt(track.substring(start, end));
+  }
+}
@@ -25,6 +25,7 @@ import java.util.StringTokenizer;
 
 import edu.nyu.cs.javagit.api.JavaGitConfiguration;
 import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.RepositoryScheduler;
 import edu.nyu.cs.javagit.api.commands.CommandResponse;
 import edu.nyu.cs.javagit.api.commands.GitLogOptions;
 import edu.nyu.cs.javagit.api.commands.GitLogResponse;
@@ -43,40 +44,61 @@ public class CliGitLog implements IGitLog{
 	public List<Commit> log(File repositoryPath, GitLogOptions options)
 	throws JavaGitException, IOException {
 		CheckUtilities.checkFileValidity(repositoryPath);
-		GitLogParser parser = new GitLogParser();
-		List<String> command = buildCommand(repositoryPath, options);
-		GitLogResponse response =  (GitLogResponse) ProcessUtilities.runCommand(repositoryPath,
-				command, parser);
-		if (response.containsError()) {
-			int line = response.getError(0).getLineNumber();
-			String error = response.getError(0).error();
-			throw new JavaGitException(420001, "Line " + line + ", " + error);
-		}
-		return response.getLog();
+		List<String> command = buildCommand(repositoryPath, options, null);
+		return runLog(repositoryPath, command);
+	}
+
+	public List<Commit> log(File repositoryPath, GitLogOptions options, String revisionRange)
+	throws JavaGitException, IOException {
+		CheckUtilities.checkFileValidity(repositoryPath);
+		CheckUtilities.checkStringArgument(revisionRange, "revisionRange");
+		List<String> command = buildCommand(repositoryPath, options, revisionRange);
+		return runLog(repositoryPath, command);
 	}
 
 	public List<Commit> log(File repositoryPath) throws JavaGitException,
 	IOException {
 		CheckUtilities.checkFileValidity(repositoryPath);
-		GitLogParser parser = new GitLogParser();
-		List<String> command = buildCommand(repositoryPath, null);
-		GitLogResponse response =  (GitLogResponse) ProcessUtilities.runCommand(repositoryPath,
-				command, parser);
-		if (response.containsError()) {
-			int line = response.getError(0).getLineNumber();
-			String error = response.getError(0).error();
-			throw new JavaGitException(420001, "Line " + line + ", " + error);
-		}
-		return response.getLog();
+		List<String> command = buildCommand(repositoryPath, null, null);
+		return runLog(repositoryPath, command);
+	}
+
+	/**
+	 * Runs a git log command line and returns its commits. Identical concurrent calls share one
+	 * run, see <code>CommandCoalescer</code>; each caller gets its own list of the commits.
+	 * @param repositoryPath Root of the repository
+	 * @param command The command line
+	 * @return The commits listed by the command
+	 */
+	private List<Commit> runLog(final File repositoryPath, final List<String> command)
+	throws JavaGitException, IOException {
+		List<Commit> commits = CommandCoalescer.run(repositoryPath, command,
+				new RepositoryScheduler.Operation<List<Commit>>() {
+			public List<Commit> run() throws IOException, JavaGitException {
+				GitLogParser parser = new GitLogParser();
+				GitLogResponse response =  (GitLogResponse) ProcessUtilities.runCommand(repositoryPath,
+						command, parser);
+				if (response.containsError()) {
+					int line = response.getError(0).getLineNumber();
+					String error = response.getError(0).error();
+					throw new JavaGitException(420001, "Line " + line + ", " + error);
+				}
+				return response.getLog();
+			}
+		});
+		// The shared list stays as parsed; callers may sort or trim their copy.
+		return new ArrayList<Commit>(commits);
 	}
 
 	/**
 	 * This function builds the git log commands with necessary options as specified by the user.
 	 * @param repositoryPath Root of the repository
 	 * @param options	Options supplied to the git log command using <code>GitLogOptions</code>.
+	 * @param revisionRange	The commit or range of commits to list, or null for HEAD.
 	 * @return Returns a List of command argument to be applied to git log.
 	 */
-	private List<String> buildCommand(File repositoryPath, GitLogOptions options) {
+	private List<String> buildCommand(File repositoryPath, GitLogOptions options,
+			String revisionRange) {
 		List<String> command = new ArrayList<String>();
 		command.add(JavaGitConfiguration.getGitCommand());
 		command.add("log");
@@ -244,6 +266,9 @@ public class CliGitLog implements IGitLog{
 			  command.add("--skip=" + options.getOptLimitSkip());
 			}
 		}
+		if (revisionRange != null) {
+			command.add(revisionRange);
+		}
 
 		return command;
 
@@ -103,9 +103,34 @@ public class CliGitMv implements IGitMv {
       File destination) throws IOException, JavaGitException {
 
     List<String> commandLine = buildCommand(options, source, destination);
-    GitMvParser parser = new GitMvParser();
+    // The sources come just before the destination; split them if the command line is too long.
+    int end = commandLine.size() - 1;
+    List<List<String>> commandLines = CommandLineBuilder.split(commandLine, end - source.size(),
+        end);
 
-    return (GitMvResponseImpl) ProcessUtilities.runCommand(repoPath, commandLine, parser);
+    return ProcessUtilities.runCommand(repoPath, commandLines, new ChunkedMv(), isDryRun());
+  }
+
+  /**
+   * Parses the chunks of a split &lt;git-mv&gt; command line and merges their responses.
+   */
+  private class ChunkedMv implements IChunkedCommand<GitMvResponseImpl> {
+
+    public IParser newParser() {
+      return new GitMvParser();
+    }
+
+    public GitMvResponseImpl merge(List<GitMvResponseImpl> responses) {
+      GitMvResponseImpl merged = null;
+      for (GitMvResponseImpl response : responses) {
+        if (null == merged) {
+          merged = response;
+        } else if (null != response) {
+          merged.merge(response);
+        }
+      }
+      return merged;
+    }
   }
 
   /**
@@ -71,9 +71,41 @@ public class CliGitReset implements IGitReset {
     CheckUtilities.checkNullArgument(repository, "repository");
 
     List<String> commandLine = buildCommand(options, paths);
-    GitResetParser parser = new GitResetParser(repository.getPath());
+    // The paths are at the end of the command line; split them if it is too long.
+    int pathCount = (null != paths) ? paths.size() : 0;
+    List<List<String>> commandLines = CommandLineBuilder.split(commandLine, commandLine.size()
+        - pathCount, commandLine.size());
 
-    return (GitResetResponseImpl) ProcessUtilities.runCommand(repository, commandLine, parser);
+    return ProcessUtilities.runCommand(repository, commandLines, new ChunkedReset(repository),
+        false);
+  }
+
+  /**
+   * Parses the chunks of a split &lt;git-reset&gt; command line and merges their responses.
+   */
+  private class ChunkedReset implements IChunkedCommand<GitResetResponseImpl> {
+
+    private final File repository;
+
+    ChunkedReset(File repository) {
+      this.repository = repository;
+    }
+
+    public IParser newParser() {
+      return new GitResetParser(repository.getPath());
+    }
+
+    public GitResetResponseImpl merge(List<GitResetResponseImpl> responses) {
+      GitResetResponseImpl merged = null;
+      for (GitResetResponseImpl response : responses) {
+        if (null == merged) {
+          merged = response;
+        } else if (null != response) {
+          merged.merge(response);
+        }
+      }
+      return merged;
+    }
   }
 
   protected List<String> buildCommand(GitResetOptions options, List<File> paths) {
@@ -24,9 +24,11 @@ import java.util.List;
 import edu.nyu.cs.javagit.api.JavaGitConfiguration;
 import edu.nyu.cs.javagit.api.JavaGitException;
 import edu.nyu.cs.javagit.api.commands.GitRmOptions;
+import edu.nyu.cs.javagit.api.commands.GitProgressListener;
 import edu.nyu.cs.javagit.api.commands.GitRmResponse;
 import edu.nyu.cs.javagit.client.GitRmResponseImpl;
 import edu.nyu.cs.javagit.client.IGitRm;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
 import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
 
 /**
@@ -68,6 +70,21 @@ public class CliGitRm implements IGitRm {
     return processRm(repository, options, null, paths);
   }
 
+  public GitRmResponse rmBulk(File repository, GitRmOptions options, List<File> paths,
+      GitProgressListener listener) throws IOException, JavaGitException {
+    CheckUtilities.checkNullListArgument(paths, "paths");
+    List<String> cmdline = buildCommandLine(options, null, new ArrayList<File>());
+    cmdline.add("--pathspec-from-file=-");
+    cmdline.add("--pathspec-file-nul");
+    List<String> input = new ArrayList<String>(paths.size());
+    for (File f : paths) {
+      input.add(f.getPath());
+    }
+
+    GitRmParser parser = new GitRmParser(listener);
+    return (GitRmResponse) ProcessUtilities.runCommand(repository, cmdline, parser, input);
+  }
+
   /**
    * Processes an incoming <code>GitRm</code> request.
    * 
@@ -97,8 +114,12 @@ public class CliGitRm implements IGitRm {
       throws IOException, JavaGitException {
     List<String> cmdline = buildCommandLine(options, path, paths);
 
-    GitRmParser parser = new GitRmParser();
-    return (GitRmResponse) ProcessUtilities.runCommand(repository, cmdline, parser);
+    // The paths are at the end of the command line; split them if it is too long.
+    int pathCount = (null != path) ? 1 : paths.size();
+    List<List<String>> cmdlines = CommandLineBuilder.split(cmdline, cmdline.size() - pathCount,
+        cmdline.size());
+    boolean dryRun = (null != options) && options.isOptN();
+    return ProcessUtilities.runCommand(repository, cmdlines, new ChunkedRm(), dryRun);
   }
 
   /**
@@ -146,6 +167,24 @@ public class CliGitRm implements IGitRm {
     return cmdline;
   }
 
+  /**
+   * Parses the chunks of a split <code>git rm</code> command line and merges their responses.
+   */
+  class ChunkedRm implements IChunkedCommand<GitRmResponse> {
+
+    public IParser newParser() {
+      return new GitRmParser();
+    }
+
+    public GitRmResponse merge(List<GitRmResponse> responses) {
+      GitRmResponseImpl merged = new GitRmResponseImpl();
+      for (GitRmResponse response : responses) {
+        merged.merge((GitRmResponseImpl) response);
+      }
+      return merged;
+    }
+  }
+
   class GitRmParser implements IParser {
 
     // Holding onto the error message to make part of an exception
@@ -157,6 +196,17 @@ public class CliGitRm implements IGitRm {
     // The response.
     private GitRmResponseImpl response = new GitRmResponseImpl();
 
+    // Notified of each removed file; may be null.
+    private final GitProgressListener listener;
+
+    GitRmParser() {
+      this(null);
+    }
+
+    GitRmParser(GitProgressListener listener) {
+      this.listener = listener;
+    }
+
     public void parseLine(String line) {
 
       // TODO (jhl388): handle error messages in a better manner.
@@ -170,7 +220,11 @@ public class CliGitRm implements IGitRm {
       if (line.startsWith("rm '")) {
         int locQuote = line.indexOf('\'');
         int locLastQuote = line.lastIndexOf('\'');
-        response.addFileToRemovedFilesList(new File(line.substring(locQuote + 1, locLastQuote)));
+        File file = new File(line.substring(locQuote + 1, locLastQuote));
+        response.addFileToRemovedFilesList(file);
+        if (null != listener) {
+          listener.pathProcessed(file, response.getRemovedFilesSize());
+        }
       } else {
         errorMsg = new StringBuffer();
         errorMsg.append("line1=[" + line + "]");
@@ -25,6 +25,7 @@ import java.util.StringTokenizer;
 
 import edu.nyu.cs.javagit.api.JavaGitConfiguration;
 import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.RepositoryScheduler;
 import edu.nyu.cs.javagit.api.Ref;
 import edu.nyu.cs.javagit.api.commands.GitStatusOptions;
 import edu.nyu.cs.javagit.api.commands.GitStatusResponse;
@@ -68,22 +69,52 @@ public class CliGitStatus implements IGitStatus {
    * Implementation of <code>IGitStatus</code> method for getting the status of a list of files
    * 
    */
-  public GitStatusResponse status(File repositoryPath, GitStatusOptions options, List<File> paths)
-      throws JavaGitException, IOException {
+  public GitStatusResponse status(final File repositoryPath, GitStatusOptions options,
+      final List<File> paths) throws JavaGitException, IOException {
     CheckUtilities.checkNullArgument(repositoryPath, "RepositoryPath");
     CheckUtilities.checkFileValidity(repositoryPath);
-    List<String> command = buildCommandLine(options, paths);
-    GitStatusParser parser;
-    if (inputFile != null) {
-      parser = new GitStatusParser(repositoryPath.getPath() + File.separator, inputFile);
-    } else {
-      parser = new GitStatusParser(repositoryPath.getPath() + File.separator);
-    }
-    GitStatusResponse response = (GitStatusResponseImpl) ProcessUtilities.runCommand(repositoryPath,
-        command, parser);
-    return response;
+    final List<String> command = buildCommandLine(options, paths);
+    final File in = inputFile;
+    RepositoryScheduler.Operation<GitStatusResponse> operation =
+        new RepositoryScheduler.Operation<GitStatusResponse>() {
+      public GitStatusResponse run() throws IOException, JavaGitException {
+        return runStatus(repositoryPath, command, paths, in);
+      }
+    };
+    if (null != in) {
+      return operation.run();
+    }
+    // Identical concurrent calls share one git-status run.
+    return CommandCoalescer.run(repositoryPath, command, operation);
   }
-  
+
+  private GitStatusResponse runStatus(File repositoryPath, List<String> command, List<File> paths,
+      final File in) throws IOException, JavaGitException {
+    // The paths are at the end of the command line; split them if it is too long. git-status
+    // only reads the repository, so the chunks run in parallel.
+    int pathCount = (null != paths) ? paths.size() : 0;
+    List<List<String>> commands = CommandLineBuilder.split(command, command.size() - pathCount,
+        command.size());
+    final String workingDirectory = repositoryPath.getPath() + File.separator;
+    return ProcessUtilities.runCommand(repositoryPath, commands,
+        new IChunkedCommand<GitStatusResponse>() {
+          public IParser newParser() {
+            if (in != null) {
+              return new GitStatusParser(workingDirectory, in);
+            }
+            return new GitStatusParser(workingDirectory);
+          }
+
+          public GitStatusResponse merge(List<GitStatusResponse> responses) {
+            GitStatusResponseImpl merged = (GitStatusResponseImpl) responses.get(0);
+            for (int i = 1; i < responses.size(); i++) {
+              merged.merge((GitStatusResponseImpl) responses.get(i));
+            }
+            return merged;
+          }
+        }, true);
+  }
+
   /**
    * Implementation of <code>IGitStatus</code> method for getting the status of a file.
    */
@@ -0,0 +1,128 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.api.JavaGitConfiguration;
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.CommandResponse;
+import edu.nyu.cs.javagit.api.commands.GitRefTransaction;
+import edu.nyu.cs.javagit.api.commands.GitRefTransaction.RefUpdate;
+import edu.nyu.cs.javagit.api.commands.GitUpdateRefResponse;
+import edu.nyu.cs.javagit.api.commands.GitUpdateRefResponse.Status;
+import edu.nyu.cs.javagit.client.IGitUpdateRef;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * Command-line implementation of the <code>IGitUpdateRef</code> interface. The updates are fed to
+ * <code>git update-ref --stdin -z</code>, which applies all the updates it reads as one
+ * transaction: every ref is locked and checked before any is changed.
+ */
+public class CliGitUpdateRef implements IGitUpdateRef {
+
+  public GitUpdateRefResponse commit(File repositoryPath, GitRefTransaction transaction)
+      throws IOException, JavaGitException {
+    CheckUtilities.checkFileValidity(repositoryPath);
+    CheckUtilities.checkNullArgument(transaction, "transaction");
+
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    command.add("update-ref");
+    if (null != transaction.getMessage()) {
+      command.add("-m");
+      command.add(transaction.getMessage());
+    }
+    command.add("--stdin");
+    command.add("-z");
+
+    // Each field is NUL-terminated; an empty old value is not checked.
+    List<String> input = new ArrayList<String>();
+    for (RefUpdate update : transaction.getUpdates()) {
+      input.add(update.getAction().name().toLowerCase(Locale.ENGLISH) + " " + update.getRefName());
+      if (null != update.getNewId()) {
+        input.add(update.getNewId());
+      }
+      if (GitRefTransaction.Action.CREATE != update.getAction()) {
+        input.add((null == update.getOldId()) ? "" : update.getOldId());
+      }
+    }
+
+    GitUpdateRefParser parser = new GitUpdateRefParser(transaction);
+    return (GitUpdateRefResponse) ProcessUtilities.runCommand(repositoryPath, command, parser,
+        input);
+  }
+
+  /**
+   * Parses the output of git-update-ref, which is empty unless the transaction fails. The error
+   * then names the ref which failed, e.g. "fatal: cannot lock ref 'refs/heads/a': reference
+   * already exists".
+   */
+  public static class GitUpdateRefParser implements IParser {
+
+    private final GitRefTransaction transaction;
+    private final StringBuffer output = new StringBuffer();
+    private int exitCode = 0;
+
+    public GitUpdateRefParser(GitRefTransaction transaction) {
+      this.transaction = transaction;
+    }
+
+    public void parseLine(String line) {
+      if (output.length() > 0) {
+        output.append('\n');
+      }
+      output.append(line);
+    }
+
+    public void processExitCode(int code) {
+      exitCode = code;
+    }
+
+    public CommandResponse getResponse() {
+      Map<String, Status> statuses = new LinkedHashMap<String, Status>();
+      if (0 == exitCode) {
+        for (RefUpdate update : transaction.getUpdates()) {
+          statuses.put(update.getRefName(), Status.OK);
+        }
+        return new GitUpdateRefResponse(statuses, null);
+      }
+
+      String error = output.toString();
+      String rejected = null;
+      int start = error.indexOf("ref '");
+      if (start >= 0) {
+        int end = error.indexOf('\'', start + 5);
+        if (end > start) {
+          rejected = error.substring(start + 5, end);
+        }
+      }
+      for (RefUpdate update : transaction.getUpdates()) {
+        statuses.put(update.getRefName(), update.getRefName().equals(rejected) ? Status.REJECTED
+            : Status.ABORTED);
+      }
+      return new GitUpdateRefResponse(statuses, (0 == error.length()) ? "exit code " + exitCode
+          : error);
+    }
+  }
+}
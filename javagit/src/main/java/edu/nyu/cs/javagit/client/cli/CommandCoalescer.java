@@ -0,0 +1,259 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.RepositoryScheduler;
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+import edu.nyu.cs.javagit.client.fs.RefDatabase;
+
+/**
+ * <code>CommandCoalescer</code> lets concurrent identical read-only commands share one run: the
+ * first caller runs the command, and callers asking for the same command while it runs wait for
+ * it and get the same parsed response. Responses are shared, so callers must not modify them.
+ * 
+ * Commands are identified by their repository, command line, process environment and the state
+ * of the repository: the commit id <code>HEAD</code> resolves to, the ids of all references under
+ * <code>refs/</code>, and the modification time and length of the index (or
+ * <code>GIT_INDEX_FILE</code>). A command run after HEAD or any branch, remote branch or tag moved
+ * is never served an older response. The index is only compared by time and length, and file
+ * times can be as coarse as a second, so a response kept with a time to live may miss a change
+ * made to it within the same second.
+ * 
+ * Optionally, responses are kept for a short time to live after the command completes. Since the
+ * working tree is not part of the key, a kept <code>git status</code> response may miss edits to
+ * files made during that time; the time to live is zero (responses are only shared while the
+ * command runs) unless set with <code>setTimeToLive()</code>.
+ */
+public final class CommandCoalescer {
+
+  // The number of kept responses above which expired ones are dropped.
+  private static final int PRUNE_THRESHOLD = 256;
+
+  // The commands running or kept, by key.
+  private static final ConcurrentMap<String, Flight> FLIGHTS =
+      new ConcurrentHashMap<String, Flight>();
+
+  // How long responses are kept after their command completes, in milliseconds.
+  private static volatile long timeToLive = 0;
+
+  // The number of calls served by another caller's run.
+  private static final AtomicLong SHARED_COUNT = new AtomicLong();
+
+  private CommandCoalescer() {
+  }
+
+  /**
+   * Sets how long responses are kept for later callers after their command completes.
+   * 
+   * @param time
+   *          The time to live; zero to only share responses while the command runs.
+   * @param unit
+   *          The unit of <code>time</code>.
+   */
+  public static void setTimeToLive(long time, TimeUnit unit) {
+    timeToLive = Math.max(0, unit.toMillis(time));
+    if (0 == timeToLive) {
+      FLIGHTS.clear();
+    }
+  }
+
+  /**
+   * Gets the number of calls which were served by the run of another caller.
+   * 
+   * @return The number of shared calls.
+   */
+  public static long getSharedCount() {
+    return SHARED_COUNT.get();
+  }
+
+  /**
+   * Runs a read-only command, or waits for an identical one already running and returns its
+   * result.
+   * 
+   * @param repository
+   *          The repository the command runs in.
+   * @param commandLine
+   *          The command line, which together with the repository state identifies the command.
+   * @param operation
+   *          Runs the command and parses its response.
+   * @return The response of the command.
+   * @throws IOException
+   *           Thrown if the command fails.
+   * @throws JavaGitException
+   *           Thrown if the command fails.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T run(File repository, List<String> commandLine,
+      RepositoryScheduler.Operation<T> operation) throws IOException, JavaGitException {
+    String key = getKey(repository, commandLine);
+    if (null == key) {
+      return operation.run();
+    }
+
+    while (true) {
+      Flight flight = FLIGHTS.get(key);
+      if (null != flight) {
+        if (flight.isUsable()) {
+          SHARED_COUNT.incrementAndGet();
+          return (T) flight.await();
+        }
+        // Expired or failed; replace it.
+        FLIGHTS.remove(key, flight);
+        continue;
+      }
+
+      flight = new Flight();
+      if (null != FLIGHTS.putIfAbsent(key, flight)) {
+        continue;
+      }
+      prune();
+      boolean succeeded = false;
+      try {
+        T result = operation.run();
+        flight.complete(result, null);
+        succeeded = true;
+        return result;
+      } catch (IOException e) {
+        flight.complete(null, e);
+        throw e;
+      } catch (JavaGitException e) {
+        flight.complete(null, e);
+        throw e;
+      } catch (RuntimeException e) {
+        flight.complete(null, e);
+        throw e;
+      } finally {
+        if (!succeeded || 0 == timeToLive) {
+          FLIGHTS.remove(key, flight);
+        }
+      }
+    }
+  }
+
+  /*
+   * Builds the key of a command, or returns null if the repository state cannot be determined, in
+   * which case the command is not shared.
+   */
+  private static String getKey(File repository, List<String> commandLine) {
+    StringBuffer key = new StringBuffer();
+    File gitDir;
+    try {
+      key.append(repository.getCanonicalPath());
+      gitDir = FsUtilities.getGitDirectory(repository);
+      // Ref files always have the same length and may change within a file time tick, so refs are
+      // keyed by the ids they resolve to.
+      RefDatabase refs = new RefDatabase(gitDir);
+      key.append('\0').append(refs.getTargetName("HEAD")).append('=').append(refs.resolve("HEAD"));
+      for (Map.Entry<String, String> entry : refs.getRefs("refs/").entrySet()) {
+        key.append('\0').append(entry.getKey()).append('=').append(entry.getValue());
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    Map<String, String> environment = ProcessUtilities.getThreadEnvironment();
+    String indexFile = environment.get("GIT_INDEX_FILE");
+    appendState(key, (null != indexFile) ? new File(indexFile) : new File(gitDir, "index"));
+    for (Map.Entry<String, String> entry : new TreeMap<String, String>(environment).entrySet()) {
+      key.append('\0').append(entry.getKey()).append('=').append(entry.getValue());
+    }
+    for (String arg : commandLine) {
+      key.append('\0').append(arg);
+    }
+    return key.toString();
+  }
+
+  private static void appendState(StringBuffer key, File file) {
+    key.append('\0').append(file.lastModified()).append(':').append(file.length());
+  }
+
+  private static void prune() {
+    if (FLIGHTS.size() <= PRUNE_THRESHOLD) {
+      return;
+    }
+    for (Iterator<Flight> it = FLIGHTS.values().iterator(); it.hasNext();) {
+      if (!it.next().isUsable()) {
+        it.remove();
+      }
+    }
+  }
+
+  /*
+   * A run of a command, and its result once it completes.
+   */
+  private static final class Flight {
+
+    private boolean done = false;
+    private Object result;
+    private Exception failure;
+    private long completedAt;
+
+    synchronized void complete(Object result, Exception failure) {
+      this.result = result;
+      this.failure = failure;
+      this.completedAt = System.currentTimeMillis();
+      this.done = true;
+      notifyAll();
+    }
+
+    /*
+     * Whether a new caller can use this run: it is still running, or completed successfully
+     * within the time to live.
+     */
+    synchronized boolean isUsable() {
+      if (!done) {
+        return true;
+      }
+      return null == failure && System.currentTimeMillis() - completedAt < timeToLive;
+    }
+
+    synchronized Object await() throws IOException, JavaGitException {
+      boolean interrupted = false;
+      while (!done) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure instanceof IOException) {
+        throw (IOException) failure;
+      }
+      if (failure instanceof JavaGitException) {
+        throw (JavaGitException) failure;
+      }
+      if (null != failure) {
+        throw (RuntimeException) failure;
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+
+/**
+ * <code>CommandLineBuilder</code> measures command lines against the operating system limit on
+ * the size of the arguments of a new process, and splits command lines carrying long path lists
+ * into several command lines which each fit.
+ * 
+ * The limit can be set with the <code>javagit.argmax</code> system property (in bytes; in
+ * characters on Windows).
+ */
+public final class CommandLineBuilder {
+
+  /** The system property overriding the argument size limit. */
+  public static final String LIMIT_PROPERTY = "javagit.argmax";
+
+  // The limit used on Unix-like systems, below every common ARG_MAX; the environment is subtracted.
+  private static final long UNIX_LIMIT = 256 * 1024;
+
+  // The limit of a Windows command line, in characters.
+  private static final long WINDOWS_LIMIT = 32767;
+
+  // The margin kept for the process loader and for quoting.
+  private static final long MARGIN = 2048;
+
+  // The size of a pointer in the argument and environment vectors.
+  private static final long POINTER_SIZE = 8;
+
+  private static final boolean WINDOWS = System.getProperty("os.name", "").toLowerCase()
+      .startsWith("windows");
+
+  private CommandLineBuilder() {
+  }
+
+  /**
+   * Gets the maximum size of the arguments of a command line.
+   * 
+   * @return The limit, in bytes (characters on Windows).
+   */
+  public static long getArgumentLimit() {
+    String property = System.getProperty(LIMIT_PROPERTY);
+    if (null != property) {
+      try {
+        return Long.parseLong(property.trim());
+      } catch (NumberFormatException e) {
+        // Fall back to the default limit.
+      }
+    }
+    if (WINDOWS) {
+      return WINDOWS_LIMIT - MARGIN;
+    }
+    long environment = 0;
+    for (Map.Entry<String, String> entry : System.getenv().entrySet()) {
+      environment += FsUtilities.toBytes(entry.getKey()).length
+          + FsUtilities.toBytes(entry.getValue()).length + 2 + POINTER_SIZE;
+    }
+    return Math.max(16 * 1024, UNIX_LIMIT - environment - MARGIN);
+  }
+
+  /**
+   * Gets the size a command line takes against the argument limit.
+   * 
+   * @param commandLine
+   *          The command line.
+   * @return The size, in bytes (characters on Windows).
+   */
+  public static long getSize(List<String> commandLine) {
+    long size = 0;
+    for (String arg : commandLine) {
+      size += getSize(arg);
+    }
+    return size;
+  }
+
+  /**
+   * Checks whether a command line fits within the argument limit.
+   * 
+   * @param commandLine
+   *          The command line.
+   * @return True if the command line can be run as is.
+   */
+  public static boolean fits(List<String> commandLine) {
+    return getSize(commandLine) <= getArgumentLimit();
+  }
+
+  /**
+   * Splits a command line into command lines which each fit within the argument limit. The
+   * arguments from <code>start</code> (inclusive) to <code>end</code> (exclusive), typically a
+   * list of paths, are distributed over the command lines; the arguments before and after them are
+   * repeated on each one.
+   * 
+   * @param commandLine
+   *          The command line.
+   * @param start
+   *          The index of the first argument which may be split off.
+   * @param end
+   *          The index after the last argument which may be split off.
+   * @return The command lines; a single one, the given one, if it fits.
+   */
+  public static List<List<String>> split(List<String> commandLine, int start, int end) {
+    List<List<String>> commandLines = new ArrayList<List<String>>();
+    long limit = getArgumentLimit();
+    if (getSize(commandLine) <= limit || start >= end) {
+      commandLines.add(commandLine);
+      return commandLines;
+    }
+
+    List<String> prefix = commandLine.subList(0, start);
+    List<String> suffix = commandLine.subList(end, commandLine.size());
+    long fixedSize = getSize(prefix) + getSize(suffix);
+
+    List<String> chunk = new ArrayList<String>(prefix);
+    long chunkSize = fixedSize;
+    for (int i = start; i < end; i++) {
+      String arg = commandLine.get(i);
+      long argSize = getSize(arg);
+      // A chunk always takes at least one argument, even if it alone is over the limit.
+      if (chunkSize + argSize > limit && chunk.size() > prefix.size()) {
+        chunk.addAll(suffix);
+        commandLines.add(chunk);
+        chunk = new ArrayList<String>(prefix);
+        chunkSize = fixedSize;
+      }
+      chunk.add(arg);
+      chunkSize += argSize;
+    }
+    chunk.addAll(suffix);
+    commandLines.add(chunk);
+    return commandLines;
+  }
+
+  private static long getSize(String arg) {
+    if (WINDOWS) {
+      // The argument, a separating space and possibly a pair of quotes.
+      return arg.length() + 3;
+    }
+    // The NUL-terminated argument and its pointer in argv.
+    return FsUtilities.toBytes(arg).length + 1 + POINTER_SIZE;
+  }
+}
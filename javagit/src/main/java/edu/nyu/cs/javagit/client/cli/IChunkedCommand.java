@@ -0,0 +1,50 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.cli;
+
+import java.util.List;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.CommandResponse;
+
+/**
+ * A command whose command line may be split into chunks by <code>CommandLineBuilder</code>: it
+ * provides a new parser per chunk and merges the responses of the chunks into one.
+ * 
+ * @param <T>
+ *          The type of the response of the command.
+ */
+public interface IChunkedCommand<T extends CommandResponse> {
+
+  /**
+   * Creates the parser for the output of one chunk.
+   * 
+   * @return A new parser.
+   */
+  public IParser newParser();
+
+  /**
+   * Merges the responses of the chunks, in command line order.
+   * 
+   * @param responses
+   *          The responses; there are at least two.
+   * @return The merged response.
+   * @throws JavaGitException
+   *           Thrown if the responses cannot be merged.
+   */
+  public T merge(List<T> responses) throws JavaGitException;
+}
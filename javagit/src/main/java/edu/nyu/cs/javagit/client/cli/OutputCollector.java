@@ -0,0 +1,118 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.LinkedList;
+
+/**
+ * <code>OutputCollector</code> drains an output stream of a long-running git process on its own
+ * thread, so the process can never block on a full pipe, and keeps the last lines for error
+ * reporting.
+ */
+class OutputCollector extends Thread {
+
+  // The stream to drain.
+  private final InputStream input;
+
+  // The number of lines kept.
+  private final int maxLines;
+
+  // The last lines read.
+  private final LinkedList<String> lines = new LinkedList<String>();
+
+  /**
+   * Creates a collector. It must be started like any other thread.
+   * 
+   * @param input
+   *          The stream to drain.
+   * @param name
+   *          The name of the thread.
+   * @param maxLines
+   *          The number of lines to keep.
+   */
+  OutputCollector(InputStream input, String name, int maxLines) {
+    super(name);
+    setDaemon(true);
+    this.input = input;
+    this.maxLines = maxLines;
+  }
+
+  @Override
+  public void run() {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(input));
+    try {
+      String line;
+      while (null != (line = reader.readLine())) {
+        synchronized (lines) {
+          lines.add(line);
+          if (lines.size() > maxLines) {
+            lines.removeFirst();
+          }
+        }
+      }
+    } catch (IOException e) {
+      // The process is gone; nothing more to read.
+    } finally {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // Ignore.
+      }
+    }
+  }
+
+  /**
+   * Waits until the stream has been drained. An interrupt does not stop the wait; the interrupt
+   * status is restored once the stream has been drained.
+   */
+  void awaitEnd() {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        join();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Gets the last lines read.
+   * 
+   * @return The lines, separated by newlines.
+   */
+  String getOutput() {
+    StringBuffer buf = new StringBuffer();
+    synchronized (lines) {
+      for (String line : lines) {
+        if (buf.length() > 0) {
+          buf.append('\n');
+        }
+        buf.append(line);
+      }
+    }
+    return buf.toString();
+  }
+}
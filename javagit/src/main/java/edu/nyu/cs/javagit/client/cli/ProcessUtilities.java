@@ -16,14 +16,32 @@
  */
 package edu.nyu.cs.javagit.client.cli;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.RepositoryScheduler;
+import edu.nyu.cs.javagit.api.StagingSession;
 import edu.nyu.cs.javagit.api.commands.CommandResponse;
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
 import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
 
 /**
@@ -33,8 +51,51 @@ public class ProcessUtilities {
 
   // TODO (jhl): add unit tests for this class.
 
+  // The number of chunks of a read-only command run at the same time.
+  private static final int CHUNK_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  // Runs the chunks of read-only commands; created on first use.
+  private static ExecutorService chunkExecutor;
+
+  // The environment variables added to the processes started by each thread.
+  private static final ThreadLocal<Map<String, String>> THREAD_ENVIRONMENT =
+      new ThreadLocal<Map<String, String>>();
+
+  /**
+   * Sets environment variables to add to the environment of the processes started by the current
+   * thread, such as <code>GIT_INDEX_FILE</code>. They replace those set before; restore the
+   * returned ones when done.
+   * 
+   * @param environment
+   *          The variables to add; null or empty to add none.
+   * @return The variables which were set before, to be restored; never null.
+   */
+  public static Map<String, String> setThreadEnvironment(Map<String, String> environment) {
+    Map<String, String> previous = getThreadEnvironment();
+    if (null == environment || environment.isEmpty()) {
+      THREAD_ENVIRONMENT.remove();
+    } else {
+      THREAD_ENVIRONMENT.set(Collections.unmodifiableMap(new HashMap<String, String>(environment)));
+    }
+    return previous;
+  }
+
+  /**
+   * Gets the environment variables added to the processes started by the current thread.
+   * 
+   * @return The variables; never null.
+   */
+  public static Map<String, String> getThreadEnvironment() {
+    Map<String, String> environment = THREAD_ENVIRONMENT.get();
+    if (null == environment) {
+      return Collections.emptyMap();
+    }
+    return environment;
+  }
+
   /**
-   * Start a process.
+   * Start a process. The environment variables set for the current thread with
+   * <code>setThreadEnvironment()</code> are added to its environment.
    * 
    * @param pb
    *          The <code>ProcessBuilder</code> to use to start the process.
@@ -44,6 +105,10 @@ public class ProcessUtilities {
    *              sub-process.
    */
   public static Process startProcess(ProcessBuilder pb) throws IOException {
+    Map<String, String> environment = THREAD_ENVIRONMENT.get();
+    if (null != environment) {
+      pb.environment().putAll(environment);
+    }
     try {
       return pb.start();
     } catch (IOException e) {
@@ -108,6 +173,26 @@ public class ProcessUtilities {
     }
   }
 
+  /**
+   * Waits for a process to terminate and then destroys it, for processes whose output is not read
+   * through an <code>IParser</code>.
+   * 
+   * @param p
+   *          The process to wait for and destroy.
+   * @return The exit value of the process. By convention, 0 indicates normal termination.
+   */
+  public static int waitForProcess(Process p) {
+    while (true) {
+      try {
+        int i = p.waitFor();
+        p.destroy();
+        return i;
+      } catch (InterruptedException e) {
+        continue;
+      }
+    }
+  }
+
   // TODO (jhl388): Add a unit test for this method.
   /*
    * TODO (jhl388): The workingDirectory argument needs to be modified to take a File argument
@@ -145,4 +230,318 @@ public class ProcessUtilities {
     return parser.getResponse();
   }
 
+  /**
+   * Runs the command specified in the command line with the specified working directory, feeding
+   * the given records to its standard input, each terminated by a NUL character. This is how git
+   * commands taking <code>--stdin -z</code> or <code>--pathspec-file-nul</code> are given
+   * arbitrarily many paths without hitting the command line length limit.
+   * 
+   * The input is written on a separate thread while the output is parsed, so neither side can
+   * block the other.
+   * 
+   * @param workingDirectory
+   *          The working directory in with which to start the process.
+   * @param commandLine
+   *          The command line to run.
+   * @param parser
+   *          The parser to use to parse the command line's response.
+   * @param inputRecords
+   *          The records to write to the standard input of the process.
+   * @return The command response from the <code>IParser</code>.
+   * @throws IOException
+   *           Thrown if there are problems with the subprocess.
+   * @throws JavaGitException
+   */
+  public static CommandResponse runCommand(File workingDirectory, List<String> commandLine,
+      IParser parser, final List<String> inputRecords) throws IOException, JavaGitException {
+    ProcessBuilder pb = new ProcessBuilder(commandLine);
+
+    if (workingDirectory != null) {
+      pb.directory(workingDirectory);
+    }
+
+    pb.redirectErrorStream(true);
+
+    final Process p = startProcess(pb);
+    Thread writer = new Thread("javagit-process-input") {
+      @Override
+      public void run() {
+        OutputStream out = new BufferedOutputStream(p.getOutputStream(), 64 * 1024);
+        try {
+          for (String record : inputRecords) {
+            out.write(FsUtilities.toBytes(record));
+            out.write(0);
+          }
+          out.close();
+        } catch (IOException e) {
+          // The process exited early; its output and exit code tell why.
+          try {
+            p.getOutputStream().close();
+          } catch (IOException ignored) {
+            // Ignore.
+          }
+        }
+      }
+    };
+    writer.setDaemon(true);
+    writer.start();
+
+    getProcessOutput(p, parser);
+    while (writer.isAlive()) {
+      try {
+        writer.join();
+      } catch (InterruptedException e) {
+        // TODO: deal with this interrupted exception in a better manner, as above.
+        continue;
+      }
+    }
+    waitForAndDestroyProcess(p, parser);
+
+    return parser.getResponse();
+  }
+
+  /**
+   * Receives the records of a command run by
+   * <code>runRecordCommand(File, List, RecordHandler)</code>, as they are read.
+   */
+  public static interface RecordHandler {
+
+    /**
+     * Handles one record.
+     * 
+     * @param record
+     *          The record, without its terminating NUL character.
+     * @return True to go on reading, false to stop the command and ignore the rest of its output.
+     * @throws IOException
+     *           Thrown to stop the command with an error.
+     * @throws JavaGitException
+     *           Thrown to stop the command with an error.
+     */
+    public boolean handleRecord(String record) throws IOException, JavaGitException;
+  }
+
+  /**
+   * Runs a command whose output is a list of NUL-terminated records, such as git commands run with
+   * <code>-z</code>, and returns the records. The error output of the command is kept apart from
+   * the records and reported if the command fails.
+   * 
+   * @param workingDirectory
+   *          The working directory in with which to start the process.
+   * @param commandLine
+   *          The command line to run.
+   * @return The records, without their terminating NUL characters.
+   * @throws IOException
+   *           Thrown if there are problems with the subprocess.
+   * @throws JavaGitException
+   *           Thrown if the command exits with a non-zero code.
+   */
+  public static List<String> runRecordCommand(File workingDirectory, List<String> commandLine)
+      throws IOException, JavaGitException {
+    final List<String> records = new ArrayList<String>();
+    runRecordCommand(workingDirectory, commandLine, new RecordHandler() {
+      public boolean handleRecord(String record) {
+        records.add(record);
+        return true;
+      }
+    });
+    return records;
+  }
+
+  /**
+   * Runs a command whose output is a list of NUL-terminated records and streams the records to a
+   * handler as they are read, so that long outputs such as whole histories are never held in
+   * memory. The handler may stop the command early.
+   * 
+   * @param workingDirectory
+   *          The working directory in with which to start the process.
+   * @param commandLine
+   *          The command line to run.
+   * @param handler
+   *          Receives the records.
+   * @throws IOException
+   *           Thrown if there are problems with the subprocess, or by the handler.
+   * @throws JavaGitException
+   *           Thrown if the command exits with a non-zero code, or by the handler.
+   */
+  public static void runRecordCommand(File workingDirectory, List<String> commandLine,
+      RecordHandler handler) throws IOException, JavaGitException {
+    ProcessBuilder pb = new ProcessBuilder(commandLine);
+    if (workingDirectory != null) {
+      pb.directory(workingDirectory);
+    }
+
+    Process p = startProcess(pb);
+    OutputCollector errors = new OutputCollector(p.getErrorStream(), "javagit-process-errors", 20);
+    errors.start();
+    boolean completed = false;
+    try {
+      p.getOutputStream().close();
+      InputStream in = new BufferedInputStream(p.getInputStream(), 64 * 1024);
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      String record;
+      while (null != (record = readRecord(in, buffer))) {
+        if (!handler.handleRecord(record)) {
+          p.destroy();
+          errors.awaitEnd();
+          waitForProcess(p);
+          return;
+        }
+      }
+      in.close();
+      completed = true;
+    } finally {
+      if (!completed) {
+        p.destroy();
+      }
+    }
+    errors.awaitEnd();
+    int exitCode = waitForProcess(p);
+    if (0 != exitCode) {
+      throw new JavaGitException(20102, ExceptionMessageMap.getMessage("020102") + "  { command=["
+          + commandLine + "], exitCode=[" + exitCode + "], output=[" + errors.getOutput() + "] }");
+    }
+  }
+
+  /**
+   * Reads the next NUL-terminated record. A last record without its NUL is returned as well.
+   * 
+   * @return The record, or null at the end of the input.
+   */
+  private static String readRecord(InputStream in, ByteArrayOutputStream buffer)
+      throws IOException {
+    buffer.reset();
+    try {
+      int b;
+      while (-1 != (b = in.read())) {
+        if (0 == b) {
+          return buffer.toString(FsUtilities.ENCODING);
+        }
+        buffer.write(b);
+      }
+    } catch (IOException e) {
+      IOException toThrow = new IOException(ExceptionMessageMap.getMessage("020101"));
+      toThrow.initCause(e);
+      throw toThrow;
+    }
+    return (buffer.size() > 0) ? buffer.toString(FsUtilities.ENCODING) : null;
+  }
+
+  /**
+   * Runs a command whose command line has been split into chunks by
+   * <code>CommandLineBuilder</code>, and merges the responses of the chunks into one.
+   * 
+   * Chunks of a read-only command are run in parallel. Chunks of a command which modifies the
+   * index are run one after the other as a single write operation of the
+   * <code>RepositoryScheduler</code> of the repository, so that no other scheduled operation on the
+   * same repository can interleave with them; the first chunk which fails stops the command. When
+   * the thread stages into a private index, as a <code>StagingSession</code> does, the shared
+   * index is not touched and the chunks are run without the scheduler.
+   * 
+   * @param workingDirectory
+   *          The working directory in with which to start the processes.
+   * @param commandLines
+   *          The command lines of the chunks, in order.
+   * @param command
+   *          Provides the parsers of the chunks and merges their responses.
+   * @param readOnly
+   *          True if the command does not modify the repository.
+   * @return The merged command response.
+   * @throws IOException
+   *           Thrown if there are problems with a subprocess.
+   * @throws JavaGitException
+   *           Thrown if a chunk fails or the responses cannot be merged.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends CommandResponse> T runCommand(final File workingDirectory,
+      final List<List<String>> commandLines, final IChunkedCommand<T> command, boolean readOnly)
+      throws IOException, JavaGitException {
+    if (1 == commandLines.size()) {
+      return (T) runCommand(workingDirectory, commandLines.get(0), command.newParser());
+    }
+
+    List<T> responses = new ArrayList<T>(commandLines.size());
+    if (readOnly) {
+      // The chunks run on other threads, which must see the environment of this one.
+      final Map<String, String> environment = getThreadEnvironment();
+      List<Future<T>> futures = new ArrayList<Future<T>>(commandLines.size());
+      for (final List<String> commandLine : commandLines) {
+        futures.add(getChunkExecutor().submit(new Callable<T>() {
+          public T call() throws Exception {
+            Map<String, String> previous = setThreadEnvironment(environment);
+            try {
+              return (T) runCommand(workingDirectory, commandLine, command.newParser());
+            } finally {
+              setThreadEnvironment(previous);
+            }
+          }
+        }));
+      }
+      try {
+        for (Future<T> future : futures) {
+          responses.add(getChunkResult(future));
+        }
+      } finally {
+        for (Future<T> future : futures) {
+          future.cancel(true);
+        }
+      }
+    } else {
+      RepositoryScheduler.Operation<List<T>> operation =
+          new RepositoryScheduler.Operation<List<T>>() {
+        public List<T> run() throws IOException, JavaGitException {
+          List<T> chunkResponses = new ArrayList<T>(commandLines.size());
+          for (List<String> commandLine : commandLines) {
+            chunkResponses.add((T) runCommand(workingDirectory, commandLine, command.newParser()));
+          }
+          return chunkResponses;
+        }
+      };
+      if (null == workingDirectory
+          || getThreadEnvironment().containsKey(StagingSession.INDEX_FILE_VARIABLE)) {
+        responses = operation.run();
+      } else {
+        responses = RepositoryScheduler.getInstance(workingDirectory).write(operation);
+      }
+    }
+    return command.merge(responses);
+  }
+
+  private static synchronized ExecutorService getChunkExecutor() {
+    if (null == chunkExecutor) {
+      chunkExecutor = Executors.newFixedThreadPool(CHUNK_THREADS, new ThreadFactory() {
+        private int count = 0;
+
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "javagit-chunk-" + (++count));
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return chunkExecutor;
+  }
+
+  private static <T> T getChunkResult(Future<T> future) throws IOException, JavaGitException {
+    while (true) {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        // TODO: deal with this interrupted exception in a better manner, as above.
+        continue;
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        if (cause instanceof JavaGitException) {
+          throw (JavaGitException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw (Error) cause;
+      }
+    }
+  }
+
 }
@@ -0,0 +1,165 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.fs;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitInitOptions;
+import edu.nyu.cs.javagit.api.commands.GitInitResponse;
+import edu.nyu.cs.javagit.client.IGitInit;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * Filesystem implementation of the <code>IGitInit</code> interface. Instead of running
+ * &lt;git-init&gt;, it writes the repository skeleton (HEAD, config, and the objects and refs
+ * layout) directly, so initializing a repository costs a few filesystem writes only.
+ * 
+ * Like &lt;git-init&gt;, running it on an existing repository only creates the missing directories
+ * and reports the repository as reinitialized; HEAD and config are left untouched. The shared
+ * options are recorded in the config as <code>core.sharedRepository</code>; the permissions of
+ * the skeleton itself are left to the process umask.
+ */
+public class FsGitInit implements IGitInit {
+
+  // The HEAD of a new repository.
+  private static final String INITIAL_HEAD = "ref: refs/heads/master\n";
+
+  // The directories every repository has, relative to the git directory.
+  private static final String[] LAYOUT = { "objects/info", "objects/pack", "refs/heads",
+      "refs/tags", "info" };
+
+  public GitInitResponse init(File repoDirectory, GitInitOptions options)
+      throws JavaGitException, IOException {
+    CheckUtilities.checkNullArgument(repoDirectory, "repository");
+    boolean bare = (null != options) && options.isOptBare();
+    File gitDir = bare ? repoDirectory : new File(repoDirectory, ".git");
+
+    GitInitResponse response = new GitInitResponse();
+    boolean exists = new File(gitDir, "HEAD").isFile();
+
+    createLayout(gitDir);
+    if (null != options && options.isOptTemplate()) {
+      copyTemplate(new File(options.getOptTemplateDirecory()), gitDir);
+    }
+
+    if (exists) {
+      response.setReinitialized(true);
+    } else {
+      writeConfig(gitDir, bare, options);
+      FsUtilities.writeFile(new File(gitDir, "HEAD"), INITIAL_HEAD);
+      response.setInitialized(true);
+    }
+    return response;
+  }
+
+  public GitInitResponse init(File repoDirectory) throws JavaGitException, IOException {
+    return init(repoDirectory, null);
+  }
+
+  /**
+   * Creates the directories of an empty git directory.
+   * 
+   * @param gitDir
+   *          The git directory (<code>.git</code> or the root of a bare repository).
+   * @throws IOException
+   *           Thrown if a directory cannot be created.
+   */
+  static void createLayout(File gitDir) throws IOException {
+    for (String dir : LAYOUT) {
+      FsUtilities.mkdirs(new File(gitDir, dir));
+    }
+  }
+
+  /**
+   * Writes the config file of a new repository.
+   * 
+   * @param gitDir
+   *          The git directory.
+   * @param bare
+   *          True if the repository is bare.
+   * @param options
+   *          The init options holding the shared settings; may be null.
+   * @param extraCoreSettings
+   *          Additional "name = value" settings of the core section.
+   * @throws IOException
+   *           Thrown if the config cannot be written.
+   */
+  static void writeConfig(File gitDir, boolean bare, GitInitOptions options,
+      String... extraCoreSettings) throws IOException {
+    StringBuffer config = new StringBuffer();
+    config.append("[core]\n");
+    config.append("\trepositoryformatversion = 0\n");
+    config.append("\tfilemode = true\n");
+    config.append("\tbare = " + bare + "\n");
+    if (!bare) {
+      config.append("\tlogallrefupdates = true\n");
+    }
+    String shared = getSharedRepositoryValue(options);
+    if (null != shared) {
+      config.append("\tsharedrepository = " + shared + "\n");
+    }
+    for (String setting : extraCoreSettings) {
+      config.append("\t" + setting + "\n");
+    }
+    if (null != shared) {
+      config.append("[receive]\n");
+      config.append("\tdenyNonFastforwards = true\n");
+    }
+    FsUtilities.writeFile(new File(gitDir, "config"), config.toString());
+  }
+
+  /*
+   * Gets the value of core.sharedRepository as git-init writes it, or null if the repository is
+   * not shared (which includes --shared=umask).
+   */
+  private static String getSharedRepositoryValue(GitInitOptions options) {
+    if (null == options) {
+      return null;
+    }
+    if (options.isOptSharedOctal()) {
+      return "0" + Integer.toOctalString(options.getOptSharedOctalValue());
+    }
+    if (options.isOptSharedAll()) {
+      return "2";
+    }
+    if (options.isOptSharedGroup()) {
+      return "1";
+    }
+    return null;
+  }
+
+  /*
+   * Copies the files of a template directory that don't exist yet in the git directory.
+   */
+  private void copyTemplate(File template, File gitDir) throws IOException {
+    File[] children = template.listFiles();
+    if (null == children) {
+      return;
+    }
+    for (File child : children) {
+      File target = new File(gitDir, child.getName());
+      if (child.isDirectory()) {
+        FsUtilities.mkdirs(target);
+        copyTemplate(child, target);
+      } else if (!target.exists()) {
+        FsUtilities.copyFile(child, target);
+      }
+    }
+  }
+}
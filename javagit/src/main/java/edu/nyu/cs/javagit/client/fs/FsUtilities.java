@@ -0,0 +1,302 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.fs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>FsUtilities</code> contains methods to read and write the files of a git repository
+ * directly, without running git.
+ */
+public class FsUtilities {
+
+  // The encoding used for the text files of a repository (HEAD, refs, config, ...).
+  public static final String ENCODING = "UTF-8";
+
+  // The size of the buffer used to copy files.
+  private static final int BUFFER_SIZE = 8192;
+
+  // The characters of a hexadecimal object id.
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /**
+   * Formats a binary object id (or any byte array) as a lower-case hexadecimal string.
+   * 
+   * @param bytes
+   *          The bytes to format.
+   * @param offset
+   *          The offset of the first byte to format.
+   * @param length
+   *          The number of bytes to format.
+   * @return The hexadecimal string.
+   */
+  public static String toHex(byte[] bytes, int offset, int length) {
+    char[] chars = new char[length * 2];
+    for (int i = 0; i < length; i++) {
+      int b = bytes[offset + i] & 0xff;
+      chars[2 * i] = HEX[b >>> 4];
+      chars[2 * i + 1] = HEX[b & 0xf];
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Parses a hexadecimal object id into its binary form.
+   * 
+   * @param hex
+   *          The hexadecimal string; its length must be even.
+   * @return The bytes.
+   * @throws IllegalArgumentException
+   *           Thrown if the string is not hexadecimal.
+   */
+  public static byte[] fromHex(String hex) {
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      int hi = Character.digit(hex.charAt(2 * i), 16);
+      int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+      if (hi < 0 || lo < 0) {
+        throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000008")
+            + "  { hex=[" + hex + "] }");
+      }
+      bytes[i] = (byte) ((hi << 4) | lo);
+    }
+    return bytes;
+  }
+
+  /**
+   * Encodes a string with the repository encoding.
+   * 
+   * @param s
+   *          The string.
+   * @return The UTF-8 bytes of the string.
+   */
+  public static byte[] toBytes(String s) {
+    try {
+      return s.getBytes(ENCODING);
+    } catch (UnsupportedEncodingException e) {
+      // UTF-8 is always supported.
+      throw new IllegalStateException(e.getMessage());
+    }
+  }
+
+  /**
+   * Finds the git directory of a repository.
+   * 
+   * @param repositoryPath
+   *          The path to the working tree of the repository, or to a bare repository.
+   * @return The <code>.git</code> directory under <code>repositoryPath</code>, or
+   *         <code>repositoryPath</code> itself if it is a bare repository. Null is returned if
+   *         neither is a git directory.
+   */
+  public static File findGitDirectory(File repositoryPath) {
+    File dotGit = new File(repositoryPath, ".git");
+    if (isGitDirectory(dotGit)) {
+      return dotGit;
+    }
+    if (isGitDirectory(repositoryPath)) {
+      return repositoryPath;
+    }
+    return null;
+  }
+
+  /**
+   * Finds the git directory of a repository, throwing an <code>IOException</code> if there is
+   * none.
+   * 
+   * @param repositoryPath
+   *          The path to the working tree of the repository, or to a bare repository.
+   * @return The git directory.
+   * @throws IOException
+   *           Thrown if <code>repositoryPath</code> is not a git repository.
+   */
+  public static File getGitDirectory(File repositoryPath) throws IOException {
+    File gitDir = findGitDirectory(repositoryPath);
+    if (null == gitDir) {
+      throw new IOException(ExceptionMessageMap.getMessage("020003") + "  { path=["
+          + repositoryPath.getPath() + "] }");
+    }
+    return gitDir;
+  }
+
+  /**
+   * Checks if the given directory looks like a git directory.
+   * 
+   * @param dir
+   *          The directory to check.
+   * @return True if <code>dir</code> contains a HEAD file and the objects and refs directories.
+   */
+  public static boolean isGitDirectory(File dir) {
+    return new File(dir, "HEAD").isFile() && new File(dir, "objects").isDirectory()
+        && new File(dir, "refs").isDirectory();
+  }
+
+  /**
+   * Reads a small text file completely.
+   * 
+   * @param file
+   *          The file to read.
+   * @return The contents of the file.
+   * @throws IOException
+   *           Thrown if the file cannot be read.
+   */
+  public static String readFile(File file) throws IOException {
+    return new String(readBytes(file), ENCODING);
+  }
+
+  /**
+   * Reads a file completely.
+   * 
+   * @param file
+   *          The file to read.
+   * @return The contents of the file.
+   * @throws IOException
+   *           Thrown if the file cannot be read.
+   */
+  public static byte[] readBytes(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      byte[] data = new byte[(int) file.length()];
+      int pos = 0;
+      while (pos < data.length) {
+        int n = in.read(data, pos, data.length - pos);
+        if (n < 0) {
+          break;
+        }
+        pos += n;
+      }
+      if (pos < data.length) {
+        byte[] shorter = new byte[pos];
+        System.arraycopy(data, 0, shorter, 0, pos);
+        return shorter;
+      }
+      return data;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Writes a text file, replacing its previous contents.
+   * 
+   * @param file
+   *          The file to write.
+   * @param contents
+   *          The contents of the file.
+   * @throws IOException
+   *           Thrown if the file cannot be written.
+   */
+  public static void writeFile(File file, String contents) throws IOException {
+    writeBytes(file, contents.getBytes(ENCODING));
+  }
+
+  /**
+   * Writes a file, replacing its previous contents.
+   * 
+   * @param file
+   *          The file to write.
+   * @param data
+   *          The contents of the file.
+   * @throws IOException
+   *           Thrown if the file cannot be written.
+   */
+  public static void writeBytes(File file, byte[] data) throws IOException {
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Creates a directory and any missing parent directories.
+   * 
+   * @param dir
+   *          The directory to create.
+   * @throws IOException
+   *           Thrown if the directory does not exist and cannot be created.
+   */
+  public static void mkdirs(File dir) throws IOException {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException(ExceptionMessageMap.getMessage("020004") + "  { path=["
+          + dir.getPath() + "] }");
+    }
+  }
+
+  /**
+   * Copies a file.
+   * 
+   * @param from
+   *          The file to copy.
+   * @param to
+   *          The destination file. It is overwritten if it exists.
+   * @throws IOException
+   *           Thrown if the copy fails.
+   */
+  public static void copyFile(File from, File to) throws IOException {
+    InputStream in = new FileInputStream(from);
+    try {
+      OutputStream out = new FileOutputStream(to);
+      try {
+        byte[] buf = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+          out.write(buf, 0, n);
+        }
+      } finally {
+        out.close();
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Recursively copies a directory. Lock files (<code>*.lock</code>) left behind by running git
+   * processes are not copied.
+   * 
+   * @param from
+   *          The directory to copy.
+   * @param to
+   *          The destination directory. It is created if it does not exist.
+   * @throws IOException
+   *           Thrown if the copy fails.
+   */
+  public static void copyDirectory(File from, File to) throws IOException {
+    mkdirs(to);
+    File[] children = from.listFiles();
+    if (null == children) {
+      return;
+    }
+    for (File child : children) {
+      File target = new File(to, child.getName());
+      if (child.isDirectory()) {
+        copyDirectory(child, target);
+      } else if (!child.getName().endsWith(".lock")) {
+        copyFile(child, target);
+      }
+    }
+  }
+}
@@ -0,0 +1,424 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.fs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import edu.nyu.cs.javagit.api.ObjectId;
+import edu.nyu.cs.javagit.api.ObjectIdSet;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>ObjectWriter</code> writes blobs, trees and commits as loose objects directly into the
+ * object database of a repository, without touching its working tree or index. Together with
+ * <code>RefDatabase.compareAndSet()</code> it allows to create commits without running git.
+ * 
+ * An <code>ObjectWriter</code> reuses its digest and deflater between objects and is therefore not
+ * thread-safe; use one instance per thread.
+ */
+public class ObjectWriter {
+
+  /** The mode of a regular file. */
+  public static final int MODE_FILE = 0100644;
+
+  /** The mode of an executable file. */
+  public static final int MODE_EXECUTABLE = 0100755;
+
+  /** The mode of a symbolic link. */
+  public static final int MODE_SYMLINK = 0120000;
+
+  /** The mode of a submodule commit. */
+  public static final int MODE_GITLINK = 0160000;
+
+  /** The mode of a tree. */
+  public static final int MODE_TREE = 040000;
+
+  // The objects directory of the repository.
+  private final File objectsDir;
+
+  // The compression level of the loose objects.
+  private final int compressionLevel;
+
+  private final MessageDigest digest;
+  private final Deflater deflater;
+
+  // The fan-out directories known to exist, so they are not checked on every write.
+  private final Set<String> knownDirectories = new HashSet<String>();
+
+  // The objects written or found by this writer, so that writing them again costs no file check.
+  private final ObjectIdSet knownObjects = new ObjectIdSet();
+
+  // The number of objects actually written, i.e. not already present.
+  private long objectsWritten = 0;
+
+  /**
+   * Creates a writer using the fastest compression level.
+   * 
+   * @param gitDir
+   *          The git directory (<code>.git</code> or the root of a bare repository).
+   */
+  public ObjectWriter(File gitDir) {
+    this(gitDir, Deflater.BEST_SPEED);
+  }
+
+  /**
+   * Creates a writer.
+   * 
+   * @param gitDir
+   *          The git directory (<code>.git</code> or the root of a bare repository).
+   * @param compressionLevel
+   *          The zlib compression level of the objects, from <code>Deflater.NO_COMPRESSION</code>
+   *          to <code>Deflater.BEST_COMPRESSION</code>.
+   */
+  public ObjectWriter(File gitDir, int compressionLevel) {
+    CheckUtilities.checkNullArgument(gitDir, "gitDir");
+    this.objectsDir = new File(gitDir, "objects");
+    this.compressionLevel = compressionLevel;
+    try {
+      this.digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-1.
+      throw new IllegalStateException(e.getMessage());
+    }
+    this.deflater = new Deflater(compressionLevel);
+  }
+
+  /**
+   * Writes a blob.
+   * 
+   * @param data
+   *          The contents of the blob.
+   * @return The id of the blob.
+   * @throws IOException
+   *           Thrown if the object cannot be written.
+   */
+  public String writeBlob(byte[] data) throws IOException {
+    return writeObject("blob", data);
+  }
+
+  /**
+   * Computes the id a blob would have, without writing it.
+   * 
+   * @param data
+   *          The contents of the blob.
+   * @return The id of the blob.
+   */
+  public String hashBlob(byte[] data) {
+    return FsUtilities.toHex(hash("blob", data), 0, 20);
+  }
+
+  /**
+   * Writes the tree objects for a set of paths. Intermediate trees are created for the directories
+   * of the paths.
+   * 
+   * @param entries
+   *          The entries of the tree, by their path relative to the root of the tree, using '/' as
+   *          the separator (e.g. "src/Main.java").
+   * @return The id of the root tree.
+   * @throws IOException
+   *           Thrown if the objects cannot be written.
+   * @throws IllegalArgumentException
+   *           Thrown if a path is empty, has an empty component or is both a file and a directory.
+   */
+  public String writeTree(Map<String, TreeEntry> entries) throws IOException {
+    CheckUtilities.checkNullArgument(entries, "entries");
+    TreeNode root = new TreeNode("", MODE_TREE, null);
+    for (Map.Entry<String, TreeEntry> entry : entries.entrySet()) {
+      root.add(entry.getKey(), entry.getValue());
+    }
+    return writeTree(root);
+  }
+
+  /**
+   * Writes a commit.
+   * 
+   * @param treeId
+   *          The id of the tree of the commit.
+   * @param parentIds
+   *          The ids of the parents of the commit; may be null or empty for a root commit.
+   * @param author
+   *          The author of the commit.
+   * @param committer
+   *          The committer of the commit.
+   * @param message
+   *          The commit message. A trailing newline is added if there is none.
+   * @return The id of the commit.
+   * @throws IOException
+   *           Thrown if the object cannot be written.
+   */
+  public String writeCommit(String treeId, List<String> parentIds, PersonIdent author,
+      PersonIdent committer, String message) throws IOException {
+    CheckUtilities.checkStringArgument(treeId, "treeId");
+    CheckUtilities.checkNullArgument(author, "author");
+    CheckUtilities.checkNullArgument(committer, "committer");
+    CheckUtilities.checkNullArgument(message, "message");
+
+    StringBuffer buf = new StringBuffer();
+    buf.append("tree ").append(treeId).append('\n');
+    if (null != parentIds) {
+      for (String parent : parentIds) {
+        buf.append("parent ").append(parent).append('\n');
+      }
+    }
+    buf.append("author ").append(author.toExternalString()).append('\n');
+    buf.append("committer ").append(committer.toExternalString()).append('\n');
+    buf.append('\n');
+    buf.append(message);
+    if (!message.endsWith("\n")) {
+      buf.append('\n');
+    }
+    return writeObject("commit", FsUtilities.toBytes(buf.toString()));
+  }
+
+  /**
+   * Writes an object of any type as a loose object. Nothing is written if the object already
+   * exists as a loose object.
+   * 
+   * @param type
+   *          The object type: "blob", "tree", "commit" or "tag".
+   * @param data
+   *          The contents of the object.
+   * @return The id of the object.
+   * @throws IOException
+   *           Thrown if the object cannot be written.
+   */
+  public String writeObject(String type, byte[] data) throws IOException {
+    byte[] id = hash(type, data);
+    String name = FsUtilities.toHex(id, 0, 20);
+    ObjectId objectId = ObjectId.fromRaw(id, 0);
+    if (knownObjects.contains(objectId)) {
+      return name;
+    }
+    String fanOut = name.substring(0, 2);
+    File dir = new File(objectsDir, fanOut);
+    File target = new File(dir, name.substring(2));
+
+    if (!knownDirectories.contains(fanOut)) {
+      FsUtilities.mkdirs(dir);
+      knownDirectories.add(fanOut);
+    }
+    if (target.exists()) {
+      knownObjects.add(objectId);
+      return name;
+    }
+
+    File tmp = File.createTempFile("tmp_obj_", null, dir);
+    boolean renamed = false;
+    try {
+      OutputStream out = new FileOutputStream(tmp);
+      try {
+        deflater.reset();
+        deflater.setLevel(compressionLevel);
+        DeflaterOutputStream zout = new DeflaterOutputStream(out, deflater, 8192);
+        zout.write(FsUtilities.toBytes(type + " " + data.length));
+        zout.write(0);
+        zout.write(data);
+        zout.finish();
+      } finally {
+        out.close();
+      }
+      renamed = tmp.renameTo(target);
+      if (renamed) {
+        objectsWritten++;
+      } else if (!target.exists()) {
+        throw new IOException(ExceptionMessageMap.getMessage("020005") + "  { object=[" + name
+            + "] }");
+      }
+    } finally {
+      if (!renamed) {
+        tmp.delete();
+      }
+    }
+    knownObjects.add(objectId);
+    return name;
+  }
+
+  /**
+   * Gets the number of objects written by this writer, not counting objects that already existed.
+   * 
+   * @return The number of objects written.
+   */
+  public long getObjectsWritten() {
+    return objectsWritten;
+  }
+
+  /*
+   * Computes the binary id of an object.
+   */
+  private byte[] hash(String type, byte[] data) {
+    digest.reset();
+    digest.update(FsUtilities.toBytes(type + " " + data.length));
+    digest.update((byte) 0);
+    digest.update(data);
+    return digest.digest();
+  }
+
+  /*
+   * Recursively writes a tree node and its subtrees.
+   */
+  private String writeTree(TreeNode node) throws IOException {
+    List<TreeNode> children = new ArrayList<TreeNode>(node.children.values());
+    Collections.sort(children, TREE_ORDER);
+
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    for (TreeNode child : children) {
+      String id = child.isTree() ? writeTree(child) : child.id;
+      buf.write(FsUtilities.toBytes(Integer.toOctalString(child.mode) + " " + child.name));
+      buf.write(0);
+      buf.write(FsUtilities.fromHex(id));
+    }
+    return writeObject("tree", buf.toByteArray());
+  }
+
+  /*
+   * The order of tree entries: by name, where trees sort as if their name ended with '/'.
+   */
+  private static final Comparator<TreeNode> TREE_ORDER = new Comparator<TreeNode>() {
+    public int compare(TreeNode a, TreeNode b) {
+      byte[] n1 = FsUtilities.toBytes(a.name);
+      byte[] n2 = FsUtilities.toBytes(b.name);
+      int len = Math.min(n1.length, n2.length);
+      for (int i = 0; i < len; i++) {
+        int c = (n1[i] & 0xff) - (n2[i] & 0xff);
+        if (0 != c) {
+          return c;
+        }
+      }
+      // Subtrees given by id sort as trees too, not only those built here.
+      int c1 = (n1.length > len) ? (n1[len] & 0xff) : ((MODE_TREE == a.mode) ? '/' : 0);
+      int c2 = (n2.length > len) ? (n2[len] & 0xff) : ((MODE_TREE == b.mode) ? '/' : 0);
+      return c1 - c2;
+    }
+  };
+
+  /**
+   * An entry of a tree: the mode and the id of a blob, a submodule commit or a subtree.
+   */
+  public static class TreeEntry {
+    private final int mode;
+    private final String id;
+
+    /**
+     * Creates an entry.
+     * 
+     * @param mode
+     *          The mode, one of the <code>MODE_*</code> constants of <code>ObjectWriter</code>.
+     * @param id
+     *          The id of the object.
+     */
+    public TreeEntry(int mode, String id) {
+      CheckUtilities.checkStringArgument(id, "id");
+      this.mode = mode;
+      this.id = id;
+    }
+
+    /**
+     * Creates an entry for a regular file.
+     * 
+     * @param blobId
+     *          The id of the blob.
+     */
+    public TreeEntry(String blobId) {
+      this(MODE_FILE, blobId);
+    }
+
+    public int getMode() {
+      return mode;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof TreeEntry)) {
+        return false;
+      }
+      TreeEntry e = (TreeEntry) o;
+      return mode == e.mode && id.equals(e.id);
+    }
+
+    @Override
+    public int hashCode() {
+      return mode + id.hashCode();
+    }
+  }
+
+  /**
+   * A node of the tree being built: either a leaf entry or a directory.
+   */
+  private static class TreeNode {
+    final String name;
+    final int mode;
+    final String id;
+    final Map<String, TreeNode> children = new HashMap<String, TreeNode>();
+
+    TreeNode(String name, int mode, String id) {
+      this.name = name;
+      this.mode = mode;
+      this.id = id;
+    }
+
+    boolean isTree() {
+      return MODE_TREE == mode && null == id;
+    }
+
+    void add(String path, TreeEntry entry) {
+      int slash = path.indexOf('/');
+      String name = (slash < 0) ? path : path.substring(0, slash);
+      if (0 == name.length()) {
+        throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000009")
+            + "  { path=[" + path + "] }");
+      }
+      TreeNode child = children.get(name);
+      if (slash < 0) {
+        if (null != child) {
+          throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000009")
+              + "  { path=[" + path + "] }");
+        }
+        children.put(name, new TreeNode(name, entry.getMode(), entry.getId()));
+      } else {
+        if (null == child) {
+          child = new TreeNode(name, MODE_TREE, null);
+          children.put(name, child);
+        } else if (!child.isTree()) {
+          throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000009")
+              + "  { path=[" + path + "] }");
+        }
+        child.add(path.substring(slash + 1), entry);
+      }
+    }
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>PackBitmap</code> reads the reachability bitmaps of a pack, the <code>.bitmap</code> file
+ * written next to it by <code>git repack --write-bitmap-index</code>.
+ * 
+ * Bit i of a bitmap stands for the object at pack position i (see <code>PackIndex</code>). The file
+ * holds one bitmap per object type, and, for a selection of commits, the bitmap of all the objects
+ * reachable from the commit. The bitmaps are EWAH compressed and some are stored XORed with an
+ * earlier one; they are decoded into <code>BitSet</code>s on first use and kept, so that queries
+ * are answered by AND, OR and ANDNOT operations over them.
+ * 
+ * Only the version 1 format of single pack bitmaps is read; bitmaps of multi-pack indexes are not.
+ */
+public final class PackBitmap {
+
+  /** The object types, indexes of <code>getTypeBitmap()</code>. */
+  public static final int COMMIT = 0;
+  public static final int TREE = 1;
+  public static final int BLOB = 2;
+  public static final int TAG = 3;
+
+  private static final int MAGIC = 0x4249544d;
+  private static final int HEADER_SIZE = 12 + 20;
+
+  private final PackIndex index;
+  private final ByteBuffer buffer;
+  private final int[] typeOffsets = new int[4];
+
+  // The commits with a bitmap: their index positions, the distance back to the entry their
+  // bitmap is XORed with, and the offsets of their bitmaps.
+  private final int[] entryPositions;
+  private final int[] xorOffsets;
+  private final int[] bitmapOffsets;
+  private final Map<Integer, Integer> entriesByPosition = new HashMap<Integer, Integer>();
+
+  // The decoded bitmaps, by entry, and the decoded type bitmaps; guarded by this.
+  private final BitSet[] decoded;
+  private final BitSet[] types = new BitSet[4];
+
+  /**
+   * Opens the bitmap of a pack.
+   * 
+   * @param file
+   *          The <code>.bitmap</code> file.
+   * @param index
+   *          The index of the pack.
+   * @throws IOException
+   *           Thrown if the file cannot be read, is not a supported bitmap, or belongs to another
+   *           pack.
+   */
+  public PackBitmap(File file, PackIndex index) throws IOException {
+    CheckUtilities.checkNullArgument(file, "file");
+    CheckUtilities.checkNullArgument(index, "index");
+    this.index = index;
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+    } finally {
+      raf.close();
+    }
+    try {
+      if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != 1) {
+        throw new IOException(ExceptionMessageMap.getMessage("020010") + "  { file=["
+            + file + "] }");
+      }
+      byte[] checksum = new byte[20];
+      ByteBuffer b = buffer.duplicate();
+      b.position(12);
+      b.get(checksum);
+      if (!FsUtilities.toHex(checksum, 0, 20).equals(index.getPackChecksum())) {
+        throw new IOException(ExceptionMessageMap.getMessage("020011") + "  { file=[" + file
+            + "] }");
+      }
+      int count = buffer.getInt(8);
+      int offset = HEADER_SIZE;
+      for (int type = 0; type < 4; type++) {
+        typeOffsets[type] = offset;
+        offset = skipBitmap(offset);
+      }
+      entryPositions = new int[count];
+      xorOffsets = new int[count];
+      bitmapOffsets = new int[count];
+      for (int entry = 0; entry < count; entry++) {
+        // Each entry is the index position of a commit, an XOR offset, flags, then the bitmap.
+        entryPositions[entry] = buffer.getInt(offset);
+        xorOffsets[entry] = buffer.get(offset + 4) & 0xff;
+        bitmapOffsets[entry] = offset + 6;
+        if (xorOffsets[entry] > entry) {
+          throw new IOException(ExceptionMessageMap.getMessage("020012") + "  { file=["
+              + file + "] }");
+        }
+        entriesByPosition.put(Integer.valueOf(entryPositions[entry]), Integer.valueOf(entry));
+        offset = skipBitmap(offset + 6);
+      }
+      decoded = new BitSet[count];
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException(ExceptionMessageMap.getMessage("020013") + "  { file=[" + file + "] }");
+    }
+  }
+
+  /**
+   * Gets the index of the pack.
+   * 
+   * @return The pack index.
+   */
+  public PackIndex getIndex() {
+    return index;
+  }
+
+  /**
+   * Gets the number of commits with a bitmap.
+   * 
+   * @return The number of commit bitmaps.
+   */
+  public int getBitmapCount() {
+    return entryPositions.length;
+  }
+
+  /**
+   * Gets the objects of a type.
+   * 
+   * @param type
+   *          The type: <code>COMMIT</code>, <code>TREE</code>, <code>BLOB</code> or
+   *          <code>TAG</code>.
+   * @return The pack positions of the objects of the type. The set must not be modified.
+   */
+  public synchronized BitSet getTypeBitmap(int type) {
+    CheckUtilities.checkIntInRange(type, 0, 4);
+    if (null == types[type]) {
+      types[type] = decode(typeOffsets[type]);
+    }
+    return types[type];
+  }
+
+  /**
+   * Gets the objects reachable from a commit, if the commit has a bitmap.
+   * 
+   * @param position
+   *          The index position of the commit.
+   * @return The pack positions of the objects reachable from the commit, including the commit;
+   *         null if the commit has no bitmap. The set must not be modified.
+   */
+  public synchronized BitSet getBitmap(int position) {
+    Integer entry = entriesByPosition.get(Integer.valueOf(position));
+    return (null == entry) ? null : getEntryBitmap(entry.intValue());
+  }
+
+  private BitSet getEntryBitmap(int entry) {
+    if (null == decoded[entry]) {
+      BitSet bits = decode(bitmapOffsets[entry]);
+      if (xorOffsets[entry] > 0) {
+        bits.xor(getEntryBitmap(entry - xorOffsets[entry]));
+      }
+      decoded[entry] = bits;
+    }
+    return decoded[entry];
+  }
+
+  /*
+   * An EWAH bitmap is its size in bits, a number of 64-bit words, the words, and the position of
+   * the last marker word. The words are runs: a marker word, whose bit 0 is the value of a run of
+   * clean words, bits 1-32 the length of that run, and bits 33-63 the number of literal words
+   * following the marker.
+   */
+
+  private int skipBitmap(int offset) {
+    int words = buffer.getInt(offset + 4);
+    return offset + 8 + words * 8 + 4;
+  }
+
+  private BitSet decode(int offset) {
+    int size = buffer.getInt(offset);
+    int words = buffer.getInt(offset + 4);
+    BitSet bits = new BitSet(size);
+    int read = offset + 8;
+    int end = read + words * 8;
+    long bit = 0;
+    while (read < end) {
+      long marker = buffer.getLong(read);
+      read += 8;
+      long run = ((marker >>> 1) & 0xffffffffL) * 64;
+      if (0 != (marker & 1) && run > 0) {
+        bits.set((int) bit, (int) Math.min(bit + run, size));
+      }
+      bit += run;
+      int literals = (int) (marker >>> 33);
+      for (int i = 0; i < literals; i++) {
+        long word = buffer.getLong(read);
+        read += 8;
+        while (0 != word) {
+          int set = Long.numberOfTrailingZeros(word);
+          if (bit + set < size) {
+            bits.set((int) bit + set);
+          }
+          word &= word - 1;
+        }
+        bit += 64;
+      }
+    }
+    return bits;
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import edu.nyu.cs.javagit.api.ObjectId;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+
+/**
+ * <code>PackIndex</code> reads a version 2 pack index (<code>.idx</code>) file, which lists the
+ * ids of the objects of a pack, sorted by id, and their offsets in the pack. The file is memory
+ * mapped.
+ * 
+ * Objects are identified by their position in the index. Pack bitmaps identify them by their
+ * position in the pack instead, that is by increasing offset; <code>getPackPosition()</code> and
+ * <code>getIndexPosition()</code> convert between the two.
+ */
+public final class PackIndex {
+
+  private static final int HEADER_SIZE = 8;
+  private static final int FANOUT_SIZE = 256 * 4;
+  private static final int ID_LENGTH = 20;
+
+  private final File file;
+  private final ByteBuffer buffer;
+  private final int count;
+  private final int idsStart;
+  private final int offsetsStart;
+  private final int largeOffsetsStart;
+
+  // The index positions by pack position, and the reverse, computed on first use.
+  private int[] packOrder;
+  private int[] packPositions;
+
+  /**
+   * Opens a pack index file.
+   * 
+   * @param file
+   *          The <code>.idx</code> file.
+   * @throws IOException
+   *           Thrown if the file cannot be read, or is not a version 2 pack index.
+   */
+  public PackIndex(File file) throws IOException {
+    CheckUtilities.checkNullArgument(file, "file");
+    this.file = file;
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+    } finally {
+      raf.close();
+    }
+    if (buffer.limit() < HEADER_SIZE + FANOUT_SIZE + 2 * ID_LENGTH || buffer.getInt(0) != 0xff744f63
+        || buffer.getInt(4) != 2) {
+      throw new IOException("Unsupported pack index.  { file=[" + file + "] }");
+    }
+    count = buffer.getInt(HEADER_SIZE + FANOUT_SIZE - 4);
+    idsStart = HEADER_SIZE + FANOUT_SIZE;
+    // The ids are followed by a CRC32 per object, then by the offsets.
+    offsetsStart = idsStart + count * (ID_LENGTH + 4);
+    largeOffsetsStart = offsetsStart + count * 4;
+    if (count < 0 || largeOffsetsStart + 2 * ID_LENGTH > buffer.limit()) {
+      throw new IOException("Truncated pack index.  { file=[" + file + "] }");
+    }
+  }
+
+  /**
+   * Gets the index file.
+   * 
+   * @return The <code>.idx</code> file.
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Gets the number of objects in the pack.
+   * 
+   * @return The number of objects.
+   */
+  public int getObjectCount() {
+    return count;
+  }
+
+  /**
+   * Gets the checksum of the pack, which is stored at the end of the index.
+   * 
+   * @return The hexadecimal checksum of the pack.
+   */
+  public String getPackChecksum() {
+    byte[] checksum = new byte[ID_LENGTH];
+    ByteBuffer b = buffer.duplicate();
+    b.position(b.limit() - 2 * ID_LENGTH);
+    b.get(checksum);
+    return FsUtilities.toHex(checksum, 0, ID_LENGTH);
+  }
+
+  /**
+   * Finds an object in the index.
+   * 
+   * @param id
+   *          The hexadecimal id of the object.
+   * @return The index position of the object, or -1 if it is not in the pack.
+   */
+  public int findPosition(String id) {
+    CheckUtilities.checkStringArgument(id, "id");
+    return ObjectId.isId(id) ? findPosition(ObjectId.fromString(id)) : -1;
+  }
+
+  /**
+   * Finds an object in the index.
+   * 
+   * @param id
+   *          The id of the object.
+   * @return The index position of the object, or -1 if it is not in the pack.
+   */
+  public int findPosition(ObjectId id) {
+    CheckUtilities.checkNullArgument(id, "id");
+    int first = id.getFirstByte();
+    int low = (0 == first) ? 0 : buffer.getInt(HEADER_SIZE + (first - 1) * 4);
+    int high = buffer.getInt(HEADER_SIZE + first * 4);
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int compared = compareId(middle, id);
+      if (compared < 0) {
+        low = middle + 1;
+      } else if (compared > 0) {
+        high = middle;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the id of an object.
+   * 
+   * @param position
+   *          The index position of the object.
+   * @return The id of the object.
+   */
+  public ObjectId getObjectId(int position) {
+    CheckUtilities.checkIntInRange(position, 0, count);
+    return ObjectId.fromRaw(buffer, idsStart + position * ID_LENGTH);
+  }
+
+  /**
+   * Gets the offset of an object in the pack.
+   * 
+   * @param position
+   *          The index position of the object.
+   * @return The offset of the object in the pack file.
+   */
+  public long getOffset(int position) {
+    CheckUtilities.checkIntInRange(position, 0, count);
+    int offset = buffer.getInt(offsetsStart + position * 4);
+    if (offset >= 0) {
+      return offset;
+    }
+    // The high bit marks an index into the table of 64-bit offsets.
+    return buffer.getLong(largeOffsetsStart + (offset & 0x7fffffff) * 8);
+  }
+
+  /**
+   * Gets the pack position, the rank by offset, of an object.
+   * 
+   * @param position
+   *          The index position of the object.
+   * @return The pack position of the object.
+   */
+  public int getPackPosition(int position) {
+    CheckUtilities.checkIntInRange(position, 0, count);
+    return getPackPositions()[position];
+  }
+
+  /**
+   * Gets the object at a pack position.
+   * 
+   * @param packPosition
+   *          The pack position, the rank by offset, of the object.
+   * @return The index position of the object.
+   */
+  public int getIndexPosition(int packPosition) {
+    CheckUtilities.checkIntInRange(packPosition, 0, count);
+    return getPackOrder()[packPosition];
+  }
+
+  private synchronized int[] getPackOrder() {
+    if (null == packOrder) {
+      // Sort the offsets with the index positions in their low bits.
+      long[] keys = new long[count];
+      boolean small = true;
+      for (int i = 0; i < count && small; i++) {
+        long offset = getOffset(i);
+        small = offset < (1L << 31);
+        keys[i] = (offset << 32) | i;
+      }
+      int[] order = new int[count];
+      if (small) {
+        Arrays.sort(keys);
+        for (int i = 0; i < count; i++) {
+          order[i] = (int) keys[i];
+        }
+      } else {
+        Long[] offsets = new Long[count];
+        Integer[] positions = new Integer[count];
+        for (int i = 0; i < count; i++) {
+          offsets[i] = Long.valueOf(getOffset(i));
+          positions[i] = Integer.valueOf(i);
+        }
+        final Long[] byPosition = offsets;
+        Arrays.sort(positions, new Comparator<Integer>() {
+          public int compare(Integer a, Integer b) {
+            return byPosition[a.intValue()].compareTo(byPosition[b.intValue()]);
+          }
+        });
+        for (int i = 0; i < count; i++) {
+          order[i] = positions[i].intValue();
+        }
+      }
+      packOrder = order;
+    }
+    return packOrder;
+  }
+
+  private synchronized int[] getPackPositions() {
+    if (null == packPositions) {
+      int[] order = getPackOrder();
+      int[] positions = new int[count];
+      for (int i = 0; i < count; i++) {
+        positions[order[i]] = i;
+      }
+      packPositions = positions;
+    }
+    return packPositions;
+  }
+
+  // Compares the id at an index position with a key, a word at a time, as unsigned numbers.
+  private int compareId(int position, ObjectId key) {
+    int base = idsStart + position * ID_LENGTH;
+    for (int i = 0; i < ObjectId.WORDS; i++) {
+      int a = buffer.getInt(base + 4 * i);
+      int b = key.getWord(i);
+      if (a != b) {
+        return ((a ^ Integer.MIN_VALUE) < (b ^ Integer.MIN_VALUE)) ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+}
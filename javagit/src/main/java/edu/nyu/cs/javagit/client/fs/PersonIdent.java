@@ -0,0 +1,187 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.fs;
+
+import java.util.TimeZone;
+
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>PersonIdent</code> represents the author or committer line of a commit or tag object:
+ * a name, an email address and a timestamp with its time zone offset.
+ */
+public final class PersonIdent {
+
+  private final String name;
+  private final String email;
+
+  // Seconds since the epoch.
+  private final long when;
+
+  // Offset from UTC, in minutes.
+  private final int timeZoneOffset;
+
+  /**
+   * Creates an identity with the current time in the default time zone.
+   * 
+   * @param name
+   *          The name. If null, a <code>NullPointerException</code> is thrown.
+   * @param email
+   *          The email address. If null, a <code>NullPointerException</code> is thrown.
+   */
+  public PersonIdent(String name, String email) {
+    this(name, email, System.currentTimeMillis() / 1000, TimeZone.getDefault().getOffset(
+        System.currentTimeMillis()) / 60000);
+  }
+
+  /**
+   * Creates an identity.
+   * 
+   * @param name
+   *          The name. If null, a <code>NullPointerException</code> is thrown.
+   * @param email
+   *          The email address. If null, a <code>NullPointerException</code> is thrown.
+   * @param when
+   *          The timestamp, in seconds since the epoch.
+   * @param timeZoneOffset
+   *          The time zone offset from UTC, in minutes.
+   */
+  public PersonIdent(String name, String email, long when, int timeZoneOffset) {
+    CheckUtilities.checkNullArgument(name, "name");
+    CheckUtilities.checkNullArgument(email, "email");
+    this.name = name;
+    this.email = email;
+    this.when = when;
+    this.timeZoneOffset = timeZoneOffset;
+  }
+
+  /**
+   * Parses an identity in the format of commit and tag objects, e.g.
+   * "A U Thor &lt;author@example.com&gt; 1234567890 +0100".
+   * 
+   * @param external
+   *          The formatted identity.
+   * @return The identity.
+   * @throws IllegalArgumentException
+   *           Thrown if the string is not a valid identity.
+   */
+  public static PersonIdent parse(String external) {
+    CheckUtilities.checkNullArgument(external, "external");
+    int lt = external.indexOf('<');
+    int gt = external.lastIndexOf('>');
+    if (lt < 0 || gt < lt) {
+      throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000010") + "  { ident=["
+          + external + "] }");
+    }
+    String name = external.substring(0, lt).trim();
+    String email = external.substring(lt + 1, gt);
+    String[] date = external.substring(gt + 1).trim().split(" ");
+    long when = 0;
+    int tz = 0;
+    try {
+      if (date.length > 0 && date[0].length() > 0) {
+        when = Long.parseLong(date[0]);
+      }
+      if (date.length > 1 && date[1].length() == 5) {
+        int hhmm = Integer.parseInt(date[1].substring(1));
+        tz = (hhmm / 100) * 60 + hhmm % 100;
+        if ('-' == date[1].charAt(0)) {
+          tz = -tz;
+        }
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000010") + "  { ident=["
+          + external + "] }");
+    }
+    return new PersonIdent(name, email, when, tz);
+  }
+
+  /**
+   * Gets the name.
+   * 
+   * @return The name.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the email address.
+   * 
+   * @return The email address.
+   */
+  public String getEmail() {
+    return email;
+  }
+
+  /**
+   * Gets the timestamp.
+   * 
+   * @return The timestamp, in seconds since the epoch.
+   */
+  public long getWhen() {
+    return when;
+  }
+
+  /**
+   * Gets the time zone offset.
+   * 
+   * @return The offset from UTC, in minutes.
+   */
+  public int getTimeZoneOffset() {
+    return timeZoneOffset;
+  }
+
+  /**
+   * Formats the identity the way it is stored in commit and tag objects, e.g.
+   * "A U Thor &lt;author@example.com&gt; 1234567890 +0100".
+   * 
+   * @return The formatted identity.
+   */
+  public String toExternalString() {
+    int offset = Math.abs(timeZoneOffset);
+    int hours = offset / 60;
+    int minutes = offset % 60;
+    StringBuffer buf = new StringBuffer();
+    buf.append(name).append(" <").append(email).append("> ").append(when).append(' ');
+    buf.append(timeZoneOffset < 0 ? '-' : '+');
+    buf.append(hours < 10 ? "0" : "").append(hours);
+    buf.append(minutes < 10 ? "0" : "").append(minutes);
+    return buf.toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof PersonIdent)) {
+      return false;
+    }
+    PersonIdent p = (PersonIdent) o;
+    return name.equals(p.name) && email.equals(p.email) && when == p.when
+        && timeZoneOffset == p.timeZoneOffset;
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode() ^ email.hashCode() ^ (int) when;
+  }
+
+  @Override
+  public String toString() {
+    return toExternalString();
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.fs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import edu.nyu.cs.javagit.api.ObjectId;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>RefDatabase</code> reads the references of a repository directly from its loose ref files
+ * and its <code>packed-refs</code> file, and updates them atomically with a compare-and-swap
+ * protocol compatible with git's own <code>.lock</code> files.
+ * 
+ * Instances are thread-safe.
+ */
+public class RefDatabase {
+
+  /** The result of a reference update. */
+  public enum Result {
+    /** The reference was updated. */
+    UPDATED,
+    /** The reference did not have the expected value and was left unchanged. */
+    REJECTED,
+    /** The reference is locked by another writer. */
+    LOCK_FAILURE
+  }
+
+  // The maximum depth of symbolic references, as in git.
+  private static final int MAX_SYMBOLIC_DEPTH = 5;
+
+  private static final String SYMBOLIC_PREFIX = "ref: ";
+
+  // The git directory of the repository.
+  private final File gitDir;
+
+  // The parsed packed-refs file, and the timestamp and length it was parsed at.
+  private Map<String, String> packedRefs = new HashMap<String, String>();
+  private long packedRefsModified = -1;
+  private long packedRefsLength = -1;
+
+  /**
+   * Creates a <code>RefDatabase</code>.
+   * 
+   * @param gitDir
+   *          The git directory (<code>.git</code> or the root of a bare repository).
+   */
+  public RefDatabase(File gitDir) {
+    CheckUtilities.checkNullArgument(gitDir, "gitDir");
+    this.gitDir = gitDir;
+  }
+
+  /**
+   * Gets the git directory of this database.
+   * 
+   * @return The git directory.
+   */
+  public File getGitDirectory() {
+    return gitDir;
+  }
+
+  /**
+   * Resolves a reference to an object id, following symbolic references.
+   * 
+   * @param name
+   *          The full name of the reference, e.g. "HEAD" or "refs/heads/master".
+   * @return The object id, or null if the reference (or the reference it points to) does not
+   *         exist.
+   * @throws IOException
+   *           Thrown if the reference cannot be read.
+   */
+  public String resolve(String name) throws IOException {
+    String target = getTargetName(name);
+    return (null == target) ? null : readDirect(target);
+  }
+
+  /**
+   * Follows the symbolic references starting at <code>name</code> to the name of the reference
+   * which actually holds an object id (or would hold one, for an unborn branch).
+   * 
+   * @param name
+   *          The full name of the reference.
+   * @return The name of the final reference, or null if the symbolic references are nested too
+   *         deeply.
+   * @throws IOException
+   *           Thrown if a reference cannot be read.
+   */
+  public String getTargetName(String name) throws IOException {
+    CheckUtilities.checkStringArgument(name, "name");
+    String current = name;
+    for (int depth = 0; depth <= MAX_SYMBOLIC_DEPTH; depth++) {
+      String content = readLoose(current);
+      if (null == content || !content.startsWith(SYMBOLIC_PREFIX)) {
+        return current;
+      }
+      current = content.substring(SYMBOLIC_PREFIX.length()).trim();
+    }
+    return null;
+  }
+
+  /**
+   * Gets all references with the given prefix, loose references overriding packed ones. Symbolic
+   * references are not included.
+   * 
+   * @param prefix
+   *          The prefix of the reference names, e.g. "refs/heads/", or "refs/" for all of them.
+   * @return The object ids, by reference name, sorted by name.
+   * @throws IOException
+   *           Thrown if the references cannot be read.
+   */
+  public Map<String, String> getRefs(String prefix) throws IOException {
+    CheckUtilities.checkStringArgument(prefix, "prefix");
+    Map<String, String> refs = new TreeMap<String, String>();
+    for (Map.Entry<String, String> entry : getPackedRefs().entrySet()) {
+      if (entry.getKey().startsWith(prefix)) {
+        refs.put(entry.getKey(), entry.getValue());
+      }
+    }
+    int slash = prefix.lastIndexOf('/');
+    String dirName = (slash < 0) ? "" : prefix.substring(0, slash);
+    File dir = (0 == dirName.length()) ? gitDir : new File(gitDir, dirName);
+    scanLoose(dir, (0 == dirName.length()) ? "" : dirName + "/", prefix, refs);
+    return refs;
+  }
+
+  /**
+   * Atomically updates a reference if it still has the expected value. Symbolic references are
+   * followed, so updating "HEAD" updates the branch it points to.
+   * 
+   * @param name
+   *          The full name of the reference.
+   * @param expectedId
+   *          The id the reference is expected to have, or null if it is expected not to exist.
+   * @param newId
+   *          The new id of the reference: 40 hexadecimal digits. Anything else is rejected with
+   *          an <code>IllegalArgumentException</code>.
+   * @return The result of the update.
+   * @throws IOException
+   *           Thrown if the reference cannot be read or written.
+   */
+  public Result compareAndSet(String name, String expectedId, String newId) throws IOException {
+    CheckUtilities.checkStringArgument(newId, "newId");
+    if (!ObjectId.isId(newId)) {
+      throw new IllegalArgumentException(ExceptionMessageMap.getMessage("000008") + "  { newId=["
+          + newId + "] }");
+    }
+    String target = getTargetName(name);
+    if (null == target) {
+      return Result.REJECTED;
+    }
+
+    File refFile = new File(gitDir, target);
+    File lockFile = new File(gitDir, target + ".lock");
+    FsUtilities.mkdirs(lockFile.getParentFile());
+    if (!lockFile.createNewFile()) {
+      return Result.LOCK_FAILURE;
+    }
+    boolean renamed = false;
+    try {
+      String currentId = readDirect(target);
+      if (null == expectedId ? null != currentId : !expectedId.equals(currentId)) {
+        return Result.REJECTED;
+      }
+      FsUtilities.writeFile(lockFile, newId + "\n");
+      if (!lockFile.renameTo(refFile)) {
+        // Some platforms cannot rename onto an existing file; we hold the lock, so this is safe.
+        refFile.delete();
+        if (!lockFile.renameTo(refFile)) {
+          throw new IOException(ExceptionMessageMap.getMessage("020006") + "  { ref=[" + target
+              + "] }");
+        }
+      }
+      renamed = true;
+      return Result.UPDATED;
+    } finally {
+      // Once renamed, the lock file may already be another writer's.
+      if (!renamed) {
+        lockFile.delete();
+      }
+    }
+  }
+
+  /*
+   * Reads a reference without following symbolic references: the loose file wins over the packed
+   * entry.
+   */
+  private String readDirect(String name) throws IOException {
+    String content = readLoose(name);
+    if (null != content) {
+      return content.startsWith(SYMBOLIC_PREFIX) ? null : content;
+    }
+    return getPackedRefs().get(name);
+  }
+
+  /*
+   * Reads the trimmed content of a loose reference file, or null if there is none.
+   */
+  private String readLoose(String name) throws IOException {
+    File file = new File(gitDir, name);
+    if (!file.isFile()) {
+      return null;
+    }
+    String content = FsUtilities.readFile(file).trim();
+    return (0 == content.length()) ? null : content;
+  }
+
+  /*
+   * Collects loose references below a directory.
+   */
+  private void scanLoose(File dir, String dirName, String prefix, Map<String, String> refs)
+      throws IOException {
+    File[] files = dir.listFiles();
+    if (null == files) {
+      return;
+    }
+    for (File file : files) {
+      String name = dirName + file.getName();
+      if (file.isDirectory()) {
+        if (name.startsWith(prefix) || prefix.startsWith(name + "/")) {
+          scanLoose(file, name + "/", prefix, refs);
+        }
+      } else if (name.startsWith(prefix) && !name.endsWith(".lock")) {
+        String content = readLoose(name);
+        if (null != content && !content.startsWith(SYMBOLIC_PREFIX)) {
+          refs.put(name, content);
+        }
+      }
+    }
+  }
+
+  /*
+   * Gets the packed references, re-reading the packed-refs file only when it has changed.
+   */
+  private synchronized Map<String, String> getPackedRefs() throws IOException {
+    File file = new File(gitDir, "packed-refs");
+    long modified = file.lastModified();
+    long length = file.length();
+    if (modified == packedRefsModified && length == packedRefsLength) {
+      return packedRefs;
+    }
+
+    Map<String, String> refs = new HashMap<String, String>();
+    if (file.isFile()) {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+          FsUtilities.ENCODING));
+      try {
+        String line;
+        while (null != (line = reader.readLine())) {
+          if (line.startsWith("#") || line.startsWith("^") || line.length() < 42) {
+            continue;
+          }
+          refs.put(line.substring(41).trim(), line.substring(0, 40));
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    packedRefs = refs;
+    packedRefsModified = modified;
+    packedRefsLength = length;
+    return packedRefs;
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.nyu.cs.javagit.api.JavaGitConfiguration;
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.WorkspaceOptions;
+import edu.nyu.cs.javagit.api.commands.CommandResponse;
+import edu.nyu.cs.javagit.client.cli.IParser;
+import edu.nyu.cs.javagit.client.cli.ProcessUtilities;
+import edu.nyu.cs.javagit.utilities.CheckUtilities;
+import edu.nyu.cs.javagit.utilities.ExceptionMessageMap;
+
+/**
+ * <code>WorkspaceProvisioner</code> creates a new repository from an existing local repository
+ * without copying any objects. The new repository borrows the objects of the source repository
+ * through <code>objects/info/alternates</code> and only its refs are copied, so provisioning costs
+ * a handful of small file writes plus, optionally, a single <code>git read-tree</code> to
+ * populate the index and the working tree.
+ * 
+ * Since the objects are shared, objects must not be pruned from the source repository
+ * (<code>git gc --prune</code>) while workspaces provisioned from it are still in use.
+ */
+public class WorkspaceProvisioner {
+
+  /**
+   * Provisions a new workspace.
+   * 
+   * @param source
+   *          The working tree (or bare repository) to provision from. If null, a
+   *          <code>NullPointerException</code> is thrown.
+   * @param destination
+   *          The directory of the new workspace. It must not exist or be an empty directory. If
+   *          null, a <code>NullPointerException</code> is thrown.
+   * @param options
+   *          The provisioning options. If null, the defaults of <code>WorkspaceOptions</code> are
+   *          used.
+   * @throws IOException
+   *           Thrown if the source is not a repository or the files of the new repository cannot
+   *           be written.
+   * @throws JavaGitException
+   *           Thrown if the destination is not empty, the requested branch does not exist or the
+   *           checkout fails.
+   */
+  public void provision(File source, File destination, WorkspaceOptions options)
+      throws IOException, JavaGitException {
+    CheckUtilities.checkNullArgument(source, "source");
+    CheckUtilities.checkNullArgument(destination, "destination");
+    if (null == options) {
+      options = new WorkspaceOptions();
+    }
+
+    File sourceGitDir = FsUtilities.getGitDirectory(source).getCanonicalFile();
+    String[] existing = destination.list();
+    if (null != existing && existing.length > 0) {
+      throw new JavaGitException(408100, ExceptionMessageMap.getMessage("408100")
+          + "  { destination=[" + destination.getPath() + "] }");
+    }
+
+    File gitDir = new File(destination, ".git");
+    FsGitInit.createLayout(gitDir);
+
+    // Share the objects instead of copying them.
+    FsUtilities.writeFile(new File(gitDir, "objects/info/alternates"), new File(sourceGitDir,
+        "objects").getPath()
+        + "\n");
+
+    // Copy the refs only.
+    FsUtilities.copyDirectory(new File(sourceGitDir, "refs"), new File(gitDir, "refs"));
+    File packedRefs = new File(sourceGitDir, "packed-refs");
+    if (packedRefs.isFile()) {
+      FsUtilities.copyFile(packedRefs, new File(gitDir, "packed-refs"));
+    }
+
+    FsUtilities.writeFile(new File(gitDir, "HEAD"), buildHead(sourceGitDir, options.getBranch()));
+    if (options.isSparse()) {
+      FsGitInit.writeConfig(gitDir, false, null, "sparseCheckout = true");
+      StringBuffer patterns = new StringBuffer();
+      for (String pattern : options.getSparsePaths()) {
+        patterns.append(pattern).append('\n');
+      }
+      FsUtilities.writeFile(new File(gitDir, "info/sparse-checkout"), patterns.toString());
+    } else {
+      FsGitInit.writeConfig(gitDir, false, null);
+    }
+
+    if (!options.isNoCheckout()) {
+      checkout(destination);
+    }
+  }
+
+  /*
+   * Builds the contents of the HEAD file of the new repository.
+   */
+  private String buildHead(File sourceGitDir, String branch) throws IOException, JavaGitException {
+    if (null == branch) {
+      return FsUtilities.readFile(new File(sourceGitDir, "HEAD"));
+    }
+    String refName = "refs/heads/" + branch;
+    if (!new File(sourceGitDir, refName).isFile() && !isPackedRef(sourceGitDir, refName)) {
+      throw new JavaGitException(408101, ExceptionMessageMap.getMessage("408101")
+          + "  { branch=[" + branch + "] }");
+    }
+    return "ref: " + refName + "\n";
+  }
+
+  /*
+   * Checks if the given ref is listed in the packed-refs file of the repository.
+   */
+  private boolean isPackedRef(File gitDir, String refName) throws IOException {
+    File packedRefs = new File(gitDir, "packed-refs");
+    if (!packedRefs.isFile()) {
+      return false;
+    }
+    String[] lines = FsUtilities.readFile(packedRefs).split("\n");
+    for (String line : lines) {
+      if (line.endsWith(" " + refName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Populates the index and the working tree from HEAD. git-read-tree honors the
+   * sparse-checkout file, so only the matching paths are written.
+   */
+  private void checkout(File workingTree) throws IOException, JavaGitException {
+    List<String> command = new ArrayList<String>();
+    command.add(JavaGitConfiguration.getGitCommand());
+    command.add("read-tree");
+    command.add("-m");
+    command.add("-u");
+    command.add("HEAD");
+    ProcessUtilities.runCommand(workingTree, command, new CheckoutParser());
+  }
+
+  /**
+   * Parser for the output of &lt;git-read-tree&gt;, which only prints errors.
+   */
+  private static class CheckoutParser implements IParser {
+
+    // The error output of git-read-tree, if any.
+    private StringBuffer errorMessage = null;
+
+    // Track the number of lines parsed.
+    private int numLinesParsed = 0;
+
+    public void parseLine(String line) {
+      ++numLinesParsed;
+      if (null == errorMessage) {
+        errorMessage = new StringBuffer();
+      } else {
+        errorMessage.append(", ");
+      }
+      errorMessage.append("line" + numLinesParsed + "=[" + line + "]");
+    }
+
+    public void processExitCode(int code) {
+      if (0 != code && null == errorMessage) {
+        errorMessage = new StringBuffer("exitCode=[" + code + "]");
+      }
+    }
+
+    public CommandResponse getResponse() throws JavaGitException {
+      if (null != errorMessage) {
+        throw new JavaGitException(408102, ExceptionMessageMap.getMessage("408102")
+            + "  { " + errorMessage.toString() + " }");
+      }
+      return null;
+    }
+  }
+}
@@ -106,6 +106,10 @@ public class ExceptionMessageMap {
     MESSAGE_MAP.put("000006",
         "000006: The int argument is outside the allowable range (start <= index < end).");
     MESSAGE_MAP.put("000007","000007: The argument should be a directory.");
+    MESSAGE_MAP.put("000008", "000008: The String argument is not a valid object id.");
+    MESSAGE_MAP.put("000009", "000009: The path is empty or conflicts with another path.");
+    MESSAGE_MAP.put("000010", "000010: The String argument is not a valid identity.");
+    MESSAGE_MAP.put("000011", "000011: The prefix does not select branches.");
 
     MESSAGE_MAP.put("000100", "000100: Invalid option combination for git-commit command.");
     MESSAGE_MAP.put("000110", "000110: Invalid option combination for git-add command.");
@@ -114,19 +118,60 @@ public class ExceptionMessageMap {
     
     MESSAGE_MAP.put("020001", "020001: File or path does not exist.");
     MESSAGE_MAP.put("020002", "020002: File or path is not a directory.");
+    MESSAGE_MAP.put("020003", "020003: File or path is not a git repository.");
+    MESSAGE_MAP.put("020004", "020004: Unable to create directory.");
+    MESSAGE_MAP.put("020005", "020005: Unable to write object.");
+    MESSAGE_MAP.put("020006", "020006: Unable to update reference.");
+    MESSAGE_MAP.put("020007", "020007: The commit store is closed.");
+    MESSAGE_MAP.put("020008", "020008: Unexpected end of the commit store.");
+    MESSAGE_MAP.put("020009", "020009: Unable to write the commit store state.");
+    MESSAGE_MAP.put("020010", "020010: Unsupported pack bitmap.");
+    MESSAGE_MAP.put("020011", "020011: The pack bitmap does not match the pack index.");
+    MESSAGE_MAP.put("020012", "020012: Invalid pack bitmap entry.");
+    MESSAGE_MAP.put("020013", "020013: Truncated pack bitmap.");
+    MESSAGE_MAP.put("020014", "020014: Unable to save the path index.");
 
     MESSAGE_MAP.put("020100", "020100: Unable to start sub-process.");
     MESSAGE_MAP.put("020101", "020101: Error reading input from the sub-process.");
+    MESSAGE_MAP.put("020102", "020102: The sub-process exited with an error.");
 
     MESSAGE_MAP.put("100000", "100000: Incorrect refType type.");
     MESSAGE_MAP.put("100001", "100001: Error retrieving git version.");
     MESSAGE_MAP.put("100002", "100002: Invalid path to git specified.");
 
+    MESSAGE_MAP.put("100100", "100100: The repository pool is closed.");
+    MESSAGE_MAP.put("100101", "100101: Timed out waiting for a repository from the pool.");
+    MESSAGE_MAP.put("100102", "100102: The repository does not belong to the pool.");
+    MESSAGE_MAP.put("100103", "100103: Error recycling a pooled repository.");
+
+    MESSAGE_MAP.put("100200", "100200: Timed out waiting to run an operation on the repository.");
+    MESSAGE_MAP.put("100201", "100201: Too many operations are waiting on the repository.");
+    MESSAGE_MAP.put("100202",
+        "100202: A write operation cannot run within a read operation on the same repository.");
+
+    MESSAGE_MAP.put("100300", "100300: The group committer is closed.");
+
+    MESSAGE_MAP.put("100310", "100310: The staging session is closed.");
+
+    MESSAGE_MAP.put("100400", "100400: The commit is not in the commit graph.");
+
     MESSAGE_MAP.put("401000", "401000: Error calling git-add.");
     MESSAGE_MAP.put("401001", "401001: Error fatal pathspec error while executing git-add.");
 
+    MESSAGE_MAP.put("408100", "408100: The workspace destination is not empty.");
+    MESSAGE_MAP.put("408101", "408101: The branch does not exist in the source repository.");
+    MESSAGE_MAP.put("408102", "408102: Error checking out the provisioned workspace.");
+
     MESSAGE_MAP.put("410000", "410000: Error calling git-commit.");
 
+    MESSAGE_MAP.put("412000", "412000: Error calling git-fast-import.");
+    MESSAGE_MAP.put("412001", "412001: The blob data ended before its declared length.");
+    MESSAGE_MAP.put("412002", "412002: The fast-import stream is closed.");
+
+    MESSAGE_MAP.put("414000", "414000: Error calling git-fast-export.");
+    MESSAGE_MAP.put("414001", "414001: Unexpected line in the fast-export stream.");
+    MESSAGE_MAP.put("414002", "414002: The fast-export stream ended early.");
+
     MESSAGE_MAP.put("404000", "404000: Error calling git-branch. ");
 
     MESSAGE_MAP.put("424000", "424000: Error calling git-mv. ");
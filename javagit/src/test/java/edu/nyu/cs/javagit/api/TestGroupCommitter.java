@@ -0,0 +1,163 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+import edu.nyu.cs.javagit.client.fs.PersonIdent;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+/**
+ * Test cases for our <code>GroupCommitter</code> class.
+ */
+public class TestGroupCommitter extends TestCase {
+
+  private File repositoryDirectory;
+  private GroupCommitter committer;
+
+  @Before
+  public void setUp() throws IOException, JavaGitException {
+    repositoryDirectory = FileUtilities.createTempDirectory("TestGroupCommitter");
+    HelperGitCommands.initRepo(repositoryDirectory);
+  }
+
+  @After
+  public void tearDown() throws JavaGitException {
+    if (null != committer) {
+      committer.close();
+    }
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(repositoryDirectory);
+  }
+
+  @Test
+  public void testConcurrentChangesAreChained() throws Exception {
+    committer = new GroupCommitter(DotGit.getInstance(repositoryDirectory), "master",
+        new PersonIdent("Group", "group@example.com"), 50, 200, TimeUnit.MILLISECONDS, false);
+
+    final List<Future<String>> futures = new ArrayList<Future<String>>();
+    Thread[] threads = new Thread[20];
+    for (int i = 0; i < threads.length; i++) {
+      final int n = i;
+      threads[i] = new Thread() {
+        public void run() {
+          GroupCommitter.Change change = new GroupCommitter.Change("Change " + n);
+          change.put("config/key" + n, FsUtilities.toBytes("value " + n));
+          try {
+            Future<String> future = committer.submit(change);
+            synchronized (futures) {
+              futures.add(future);
+            }
+          } catch (JavaGitException e) {
+            fail(e.toString());
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Set<String> ids = new HashSet<String>();
+    for (Future<String> future : futures) {
+      ids.add(future.get(10, TimeUnit.SECONDS));
+    }
+    assertEquals(20, ids.size());
+    assertEquals("20", HelperGitCommands.runGit(repositoryDirectory, "rev-list", "--count",
+        "master"));
+    assertEquals("value 7", HelperGitCommands.runGit(repositoryDirectory, "show",
+        "master:config/key7"));
+    assertEquals(20, committer.getChangeCount());
+    assertTrue(committer.getBatchCount() < 20);
+  }
+
+  @Test
+  public void testLockedBranchIsWaitedFor() throws Exception {
+    FileUtilities.createFile(repositoryDirectory, "file.txt", "file");
+    HelperGitCommands.addAndCommitAll(repositoryDirectory, "Initial commit");
+    final File lock = new File(repositoryDirectory, ".git/refs/heads/master.lock");
+    assertTrue(lock.createNewFile());
+
+    committer = new GroupCommitter(DotGit.getInstance(repositoryDirectory), "master",
+        new PersonIdent("Group", "group@example.com"), 10, 10, TimeUnit.MILLISECONDS, false);
+    GroupCommitter.Change change = new GroupCommitter.Change("Change");
+    change.put("new.txt", FsUtilities.toBytes("new"));
+    Future<String> future = committer.submit(change);
+    // Another writer holding the lock for longer than five immediate retries take.
+    Thread.sleep(200);
+    assertFalse(future.isDone());
+    assertTrue(lock.delete());
+
+    String id = future.get(10, TimeUnit.SECONDS);
+    assertEquals(id, HelperGitCommands.runGit(repositoryDirectory, "rev-parse", "master"));
+    assertEquals("2", HelperGitCommands.runGit(repositoryDirectory, "rev-list", "--count",
+        "master"));
+  }
+
+  @Test
+  public void testSquashedBatch() throws Exception {
+    new File(repositoryDirectory, "old").mkdir();
+    FileUtilities.createFile(repositoryDirectory, "old/file.txt", "old");
+    FileUtilities.createFile(repositoryDirectory, "kept.txt", "kept");
+    HelperGitCommands.addAndCommitAll(repositoryDirectory, "Initial commit");
+
+    committer = new GroupCommitter(DotGit.getInstance(repositoryDirectory), "refs/heads/master",
+        new PersonIdent("Group", "group@example.com"), 10, 10, TimeUnit.SECONDS, true);
+    List<Future<String>> futures = new ArrayList<Future<String>>();
+    for (int i = 0; i < 4; i++) {
+      GroupCommitter.Change change = new GroupCommitter.Change("Change " + i);
+      change.put("new" + i + ".txt", FsUtilities.toBytes("new " + i));
+      futures.add(committer.submit(change));
+    }
+    futures.add(committer.submit(new GroupCommitter.Change("Drop old").delete("old")));
+    // Closing commits what is pending without waiting for the window.
+    committer.close();
+
+    String id = futures.get(0).get();
+    for (Future<String> future : futures) {
+      assertEquals(id, future.get());
+    }
+    assertEquals(id, HelperGitCommands.runGit(repositoryDirectory, "rev-parse", "master"));
+    assertEquals("2", HelperGitCommands.runGit(repositoryDirectory, "rev-list", "--count",
+        "master"));
+    assertEquals("kept.txt\nnew0.txt\nnew1.txt\nnew2.txt\nnew3.txt", HelperGitCommands.runGit(
+        repositoryDirectory, "ls-tree", "-r", "--name-only", "master"));
+    assertEquals(1, committer.getCommitCount());
+
+    try {
+      committer.submit(new GroupCommitter.Change("Too late"));
+      fail("A closed committer accepted a change");
+    } catch (JavaGitException e) {
+      assertEquals(100300, e.getCode());
+    }
+  }
+}
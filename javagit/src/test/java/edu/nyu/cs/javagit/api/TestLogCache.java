@@ -0,0 +1,152 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.io.File;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.commands.GitLogOptions;
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestLogCache extends TestCase {
+
+  private File repoDirectory;
+  private DotGit dotGit;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("LogCacheTestRepo");
+    HelperGitCommands.initRepo(repoDirectory);
+    commit("first");
+    commit("second");
+    dotGit = DotGit.getInstance(repoDirectory);
+  }
+
+  @Test
+  public void testRepeatedLogIsServedFromTheCache() throws Exception {
+    LogCache cache = dotGit.getLogCache();
+    long hits = cache.getHitCount();
+    long misses = cache.getMissCount();
+
+    List<Commit> first = dotGit.getLog();
+    List<Commit> second = dotGit.getLog(new GitLogOptions());
+    assertEquals(2, first.size());
+    assertEquals(first, second);
+    assertEquals(misses + 1, cache.getMissCount());
+    assertEquals(hits + 1, cache.getHitCount());
+
+    GitLogOptions options = new GitLogOptions();
+    options.setOptFileDetails(true);
+    assertEquals(2, dotGit.getLog(options).size());
+    assertEquals(misses + 2, cache.getMissCount());
+  }
+
+  @Test
+  public void testNewCommitsArePutInFront() throws Exception {
+    LogCache cache = dotGit.getLogCache();
+    List<Commit> before = dotGit.getLog();
+    long extended = cache.getExtendCount();
+
+    commit("third");
+    commit("fourth");
+    List<Commit> after = dotGit.getLog();
+    assertEquals(extended + 1, cache.getExtendCount());
+    assertEquals(4, after.size());
+    assertEquals(HelperGitCommands.runGit(repoDirectory, "rev-parse", "HEAD").trim(),
+        after.get(0).getSha());
+    assertEquals(before, after.subList(2, 4));
+
+    GitLogOptions options = new GitLogOptions();
+    options.setOptLimitCommitMax(true, 3);
+    assertEquals(3, dotGit.getLog(options).size());
+    commit("fifth");
+    List<Commit> limited = dotGit.getLog(options);
+    assertEquals(3, limited.size());
+    assertEquals(HelperGitCommands.runGit(repoDirectory, "rev-parse", "HEAD").trim(),
+        limited.get(0).getSha());
+  }
+
+  @Test
+  public void testMergedCommitsAreListedInFull() throws Exception {
+    LogCache cache = dotGit.getLogCache();
+    String tree = HelperGitCommands.runGit(repoDirectory, "rev-parse", "HEAD^{tree}");
+    String base = HelperGitCommands.writeCommit(repoDirectory, tree, 50, "base");
+    HelperGitCommands.runGit(repoDirectory, "update-ref", "HEAD", base);
+    assertEquals(1, dotGit.getLog().size());
+
+    // The side commit is older than the master one, so git lists it after it.
+    String side = HelperGitCommands.writeCommit(repoDirectory, tree, 100, "side", base);
+    String master = HelperGitCommands.writeCommit(repoDirectory, tree, 200, "master", base);
+    String merge = HelperGitCommands.writeCommit(repoDirectory, tree, 300, "merge", master, side);
+    HelperGitCommands.runGit(repoDirectory, "update-ref", "HEAD", merge);
+
+    long extended = cache.getExtendCount();
+    List<Commit> log = dotGit.getLog();
+    assertEquals(extended, cache.getExtendCount());
+    assertEquals(4, log.size());
+    String[] expected = { merge, master, side, base };
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], log.get(i).getSha());
+    }
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    LogCache cache = dotGit.getLogCache();
+    cache.setMaxCommits(3);
+    dotGit.getLog();
+    assertEquals(2, cache.getSize());
+
+    GitLogOptions options = new GitLogOptions();
+    options.setOptFileDetails(true);
+    dotGit.getLog(options);
+    assertEquals(2, cache.getSize());
+
+    long misses = cache.getMissCount();
+    dotGit.getLog();
+    assertEquals(misses + 1, cache.getMissCount());
+
+    cache.setMaxCommits(0);
+    assertEquals(0, cache.getSize());
+    dotGit.getLog();
+    assertEquals(0, cache.getSize());
+  }
+
+  private void commit(String name) throws Exception {
+    FileUtilities.createFile(repoDirectory, name + ".txt", name);
+    HelperGitCommands.addAndCommitAll(repoDirectory, name);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (null != dotGit) {
+      dotGit.getLogCache().setMaxCommits(LogCache.DEFAULT_MAX_COMMITS);
+      dotGit.getLogCache().clear();
+    }
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
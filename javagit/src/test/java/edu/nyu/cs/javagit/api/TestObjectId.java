@@ -0,0 +1,178 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+
+/**
+ * Test case for the <code>ObjectId</code> value type and its <code>ObjectIdSet</code> and
+ * <code>ObjectIdMap</code> collections.
+ */
+public class TestObjectId extends TestCase {
+
+  private static final String ID = "0123456789abcdef0123456789abcdef01234567";
+
+  @Test
+  public void testParseAndFormat() {
+    ObjectId id = ObjectId.fromString(ID);
+    assertEquals(ID, id.toString());
+    assertEquals(0x01234567, id.getWord(0));
+    assertEquals(0x01234567, id.getWord(4));
+    assertEquals(0x01, id.getFirstByte());
+    assertEquals(id, ObjectId.fromString(ID.toUpperCase()));
+    assertEquals(ID, FsUtilities.toHex(id.toByteArray(), 0, ObjectId.LENGTH));
+
+    byte[] bytes = new byte[ObjectId.LENGTH + 3];
+    id.copyRawTo(bytes, 3);
+    assertEquals(id, ObjectId.fromRaw(bytes, 3));
+    assertEquals(id, ObjectId.fromRaw(ByteBuffer.wrap(bytes), 3));
+    assertEquals(id.hashCode(), ObjectId.fromRaw(bytes, 3).hashCode());
+
+    assertTrue(ObjectId.isId(ID));
+    assertFalse(ObjectId.isId(null));
+    assertFalse(ObjectId.isId(ID.substring(1)));
+    assertFalse(ObjectId.isId(ID.substring(1) + "g"));
+    assertInvalid(ID.substring(0, 7));
+    assertInvalid(ID.substring(1) + "x");
+  }
+
+  @Test
+  public void testOrder() {
+    // Sorted as unsigned bytes, like their hexadecimal forms.
+    List<String> hex = new ArrayList<String>();
+    hex.add("ff00000000000000000000000000000000000000");
+    hex.add("0000000000000000000000000000000000000001");
+    hex.add("7fffffff00000000000000000000000000000000");
+    hex.add("8000000000000000000000000000000000000000");
+    hex.add("0000000000000000000000000000000000000000");
+    List<ObjectId> ids = new ArrayList<ObjectId>();
+    for (String s : hex) {
+      ids.add(ObjectId.fromString(s));
+    }
+    Collections.sort(hex);
+    Collections.sort(ids);
+    for (int i = 0; i < hex.size(); i++) {
+      assertEquals(hex.get(i), ids.get(i).toString());
+    }
+    assertEquals(0, ids.get(2).compareTo(ObjectId.fromString(hex.get(2))));
+  }
+
+  @Test
+  public void testSet() {
+    ObjectIdSet set = new ObjectIdSet();
+    List<ObjectId> ids = randomIds(5000);
+    for (int i = 0; i < ids.size(); i++) {
+      assertTrue(set.add(ids.get(i)));
+      assertEquals(i + 1, set.size());
+    }
+    for (int i = 0; i < ids.size(); i++) {
+      // Indexes are kept as the set grows.
+      assertEquals(i, set.indexOf(ids.get(i)));
+      assertEquals(ids.get(i), set.get(i));
+      assertFalse(set.add(ObjectId.fromString(ids.get(i).toString())));
+    }
+    assertEquals(ids.size(), set.size());
+    assertEquals(-1, set.indexOf(ObjectId.fromString(ID)));
+    assertFalse(set.contains(ObjectId.fromString(ID)));
+
+    set.clear();
+    assertTrue(set.isEmpty());
+    assertEquals(-1, set.indexOf(ids.get(0)));
+    assertTrue(set.add(ids.get(1)));
+    assertEquals(0, set.indexOf(ids.get(1)));
+  }
+
+  @Test
+  public void testSetCollisions() {
+    // Ids sharing their hash code word must still be told apart.
+    ObjectIdSet set = new ObjectIdSet(0);
+    for (int i = 0; i < 100; i++) {
+      set.add(ObjectId.fromString(String.format("%08x00000000000000000000000000000000", Integer
+          .valueOf(i))));
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, set.indexOf(ObjectId.fromString(String.format(
+          "%08x00000000000000000000000000000000", Integer.valueOf(i)))));
+    }
+    assertEquals(-1, set.indexOf(ObjectId.fromString(
+        "ffffffff00000000000000000000000000000000")));
+  }
+
+  @Test
+  public void testMap() {
+    ObjectIdMap<Integer> map = new ObjectIdMap<Integer>(0);
+    List<ObjectId> ids = randomIds(1000);
+    for (int i = 0; i < ids.size(); i++) {
+      assertNull(map.put(ids.get(i), Integer.valueOf(i)));
+    }
+    assertEquals(ids.size(), map.size());
+    for (int i = 0; i < ids.size(); i++) {
+      assertEquals(Integer.valueOf(i), map.get(ids.get(i)));
+    }
+    assertEquals(Integer.valueOf(7), map.put(ids.get(7), Integer.valueOf(-7)));
+    assertEquals(Integer.valueOf(-7), map.get(ids.get(7)));
+    assertEquals(ids.size(), map.size());
+    assertNull(map.get(ObjectId.fromString(ID)));
+    assertFalse(map.containsKey(ObjectId.fromString(ID)));
+
+    map.put(ObjectId.fromString(ID), null);
+    assertTrue(map.containsKey(ObjectId.fromString(ID)));
+    assertNull(map.get(ObjectId.fromString(ID)));
+
+    map.clear();
+    assertTrue(map.isEmpty());
+    assertNull(map.get(ids.get(0)));
+  }
+
+  @Test
+  public void testSha1Ref() {
+    Ref ref = Ref.createSha1Ref(ObjectId.fromString(ID));
+    assertEquals(Ref.RefType.SHA1, ref.getRefType());
+    assertEquals(Ref.createSha1Ref(ID), ref);
+  }
+
+  private static List<ObjectId> randomIds(int count) {
+    Random random = new Random(42);
+    List<ObjectId> ids = new ArrayList<ObjectId>();
+    byte[] bytes = new byte[ObjectId.LENGTH];
+    for (int i = 0; i < count; i++) {
+      random.nextBytes(bytes);
+      ids.add(ObjectId.fromRaw(bytes, 0));
+    }
+    return ids;
+  }
+
+  private static void assertInvalid(String s) {
+    try {
+      ObjectId.fromString(s);
+      fail("IllegalArgumentException not thrown.  { s=[" + s + "] }");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().startsWith("000008: "));
+    }
+  }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.history.CommitStore;
+import edu.nyu.cs.javagit.api.history.MessageIndex;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+/**
+ * Test cases for our <code>RepositoryPool</code> class.
+ */
+public class TestRepositoryPool extends TestCase {
+
+  private File templateDirectory;
+  private File poolDirectory;
+  private RepositoryPool pool;
+
+  @Before
+  public void setUp() throws JavaGitException, IOException {
+    templateDirectory = FileUtilities.createTempDirectory("TestRepositoryPool_template");
+    HelperGitCommands.initRepo(templateDirectory);
+    FileUtilities.createFile(templateDirectory, "fixture.txt", "fixture");
+    HelperGitCommands.addAndCommitAll(templateDirectory, "Fixture");
+
+    poolDirectory = FileUtilities.createTempDirectory("TestRepositoryPool_pool");
+  }
+
+  @After
+  public void tearDown() throws JavaGitException {
+    if (null != pool) {
+      pool.close();
+    }
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(templateDirectory);
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(poolDirectory);
+  }
+
+  @Test
+  public void testRecycling() throws IOException, JavaGitException, InterruptedException {
+    pool = new RepositoryPool(poolDirectory, DotGit.getInstance(templateDirectory), null, 1, 1);
+    DotGit dotGit = pool.acquire(10, TimeUnit.SECONDS);
+    File path = dotGit.getPath();
+    assertTrue(new File(path, "fixture.txt").isFile());
+    assertEquals(1, pool.getLeasedCount());
+
+    // Dirty the repository: a new commit, a new branch and an untracked file.
+    FileUtilities.createFile(path, "tracked.txt", "tracked");
+    HelperGitCommands.addAndCommitAll(path, "Leased commit");
+    dotGit.createBranch("leased-branch");
+    FileUtilities.createFile(path, "untracked.txt", "untracked");
+    assertEquals(2, dotGit.getLog().size());
+    MessageIndex messages = new MessageIndex(dotGit.getCommitStore());
+    messages.update();
+    assertEquals(1, messages.findAll("leased").length);
+    assertTrue(new File(path, ".git/" + CommitStore.DIRECTORY).isDirectory());
+
+    pool.release(dotGit);
+    DotGit recycled = pool.acquire(10, TimeUnit.SECONDS);
+
+    // The pool is limited to one repository, so the same one is handed out again.
+    assertEquals(dotGit, recycled);
+    assertTrue(new File(path, "fixture.txt").isFile());
+    assertFalse(new File(path, "tracked.txt").exists());
+    assertFalse(new File(path, "untracked.txt").exists());
+    assertEquals(1, recycled.getLog().size());
+    assertFalse(new File(path, ".git/refs/heads/leased-branch").exists());
+
+    // The history of the previous lease is gone from the store and its indexes.
+    assertFalse(new File(path, ".git/javagit").exists());
+    messages = new MessageIndex(recycled.getCommitStore());
+    assertEquals(1, messages.update());
+    assertEquals(0, messages.findAll("leased").length);
+  }
+
+  @Test
+  public void testEmptyRepositories() throws IOException, JavaGitException {
+    pool = new RepositoryPool(poolDirectory, null, null, 2, 4);
+    DotGit first = pool.acquire(10, TimeUnit.SECONDS);
+    DotGit second = pool.acquire(10, TimeUnit.SECONDS);
+    assertFalse(first.equals(second));
+    assertTrue(new File(first.getPath(), ".git/HEAD").isFile());
+    assertEquals(2, pool.getLeasedCount());
+  }
+
+  @Test
+  public void testTimeout() throws IOException, JavaGitException {
+    pool = new RepositoryPool(poolDirectory, null, null, 0, 1);
+    pool.acquire(10, TimeUnit.SECONDS);
+    try {
+      pool.acquire(100, TimeUnit.MILLISECONDS);
+      fail("JavaGitException not thrown");
+    } catch (JavaGitException e) {
+      assertEquals(100101, e.getCode());
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+/**
+ * Test cases for our <code>RepositoryScheduler</code> class.
+ */
+public class TestRepositoryScheduler extends TestCase {
+
+  private File repositoryDirectory;
+  private RepositoryScheduler scheduler;
+
+  @Before
+  public void setUp() throws IOException, JavaGitException {
+    repositoryDirectory = FileUtilities.createTempDirectory("TestRepositoryScheduler");
+    HelperGitCommands.initRepo(repositoryDirectory);
+    scheduler = RepositoryScheduler.getInstance(repositoryDirectory);
+  }
+
+  @After
+  public void tearDown() throws IOException, JavaGitException {
+    RepositoryScheduler.remove(repositoryDirectory);
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(repositoryDirectory);
+  }
+
+  @Test
+  public void testReadersRunConcurrentlyAndExcludeWriters() throws Exception {
+    long reads = scheduler.getReadCount();
+    long timedOut = scheduler.getTimedOutCount();
+    final CountDownLatch bothReading = new CountDownLatch(2);
+    final CountDownLatch release = new CountDownLatch(1);
+    Thread[] readers = new Thread[2];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = new Thread() {
+        public void run() {
+          try {
+            scheduler.read(new RepositoryScheduler.Operation<Object>() {
+              public Object run() {
+                bothReading.countDown();
+                await(release);
+                return null;
+              }
+            });
+          } catch (Exception e) {
+            fail(e.toString());
+          }
+        }
+      };
+      readers[i].start();
+    }
+    assertTrue(bothReading.await(10, TimeUnit.SECONDS));
+
+    scheduler.setTimeout(100, TimeUnit.MILLISECONDS);
+    try {
+      scheduler.write(new RepositoryScheduler.Operation<Object>() {
+        public Object run() {
+          fail("The writer ran while readers were active");
+          return null;
+        }
+      });
+      fail("The writer did not time out");
+    } catch (JavaGitException e) {
+      assertEquals(100200, e.getCode());
+    }
+    assertEquals(timedOut + 1, scheduler.getTimedOutCount());
+
+    release.countDown();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertEquals(reads + 2, scheduler.getReadCount());
+    assertEquals(0, scheduler.getQueuedReaders() + scheduler.getQueuedWriters());
+  }
+
+  @Test
+  public void testQueueIsBounded() throws Exception {
+    long reads = scheduler.getReadCount();
+    long writes = scheduler.getWriteCount();
+    long rejected = scheduler.getRejectedCount();
+    scheduler.setMaxQueueDepth(1);
+    final CountDownLatch writing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    Thread writer = new Thread() {
+      public void run() {
+        try {
+          scheduler.write(new RepositoryScheduler.Operation<Object>() {
+            public Object run() {
+              writing.countDown();
+              await(release);
+              return null;
+            }
+          });
+        } catch (Exception e) {
+          fail(e.toString());
+        }
+      }
+    };
+    writer.start();
+    assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+    Thread queued = new Thread() {
+      public void run() {
+        try {
+          scheduler.read(new RepositoryScheduler.Operation<Object>() {
+            public Object run() {
+              return null;
+            }
+          });
+        } catch (Exception e) {
+          fail(e.toString());
+        }
+      }
+    };
+    queued.start();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (0 == scheduler.getQueuedReaders() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, scheduler.getQueuedReaders());
+
+    try {
+      scheduler.read(new RepositoryScheduler.Operation<Object>() {
+        public Object run() {
+          return null;
+        }
+      });
+      fail("The full queue accepted another operation");
+    } catch (JavaGitException e) {
+      assertEquals(100201, e.getCode());
+    }
+    assertEquals(rejected + 1, scheduler.getRejectedCount());
+
+    release.countDown();
+    writer.join();
+    queued.join();
+    assertEquals(writes + 1, scheduler.getWriteCount());
+    assertEquals(reads + 1, scheduler.getReadCount());
+    assertTrue(scheduler.getPeakQueueDepth() >= 1);
+  }
+
+  @Test
+  public void testNesting() throws Exception {
+    String result = scheduler.write(new RepositoryScheduler.Operation<String>() {
+      public String run() throws IOException, JavaGitException {
+        return scheduler.read(new RepositoryScheduler.Operation<String>() {
+          public String run() throws IOException, JavaGitException {
+            return scheduler.write(new RepositoryScheduler.Operation<String>() {
+              public String run() {
+                return "nested";
+              }
+            });
+          }
+        });
+      }
+    });
+    assertEquals("nested", result);
+
+    try {
+      scheduler.read(new RepositoryScheduler.Operation<Object>() {
+        public Object run() throws IOException, JavaGitException {
+          return scheduler.write(new RepositoryScheduler.Operation<Object>() {
+            public Object run() {
+              return null;
+            }
+          });
+        }
+      });
+      fail("A write ran within a read");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().startsWith("100202"));
+    }
+  }
+
+  @Test
+  public void testWorkingTreeOperationsAreScheduled() throws Exception {
+    WorkingTree workingTree = WorkingTree.getInstance(repositoryDirectory);
+    assertSame(scheduler, workingTree.getScheduler());
+    assertSame(scheduler, DotGit.getInstance(repositoryDirectory).getScheduler());
+
+    long reads = scheduler.getReadCount();
+    long writes = scheduler.getWriteCount();
+    FileUtilities.createFile(repositoryDirectory, "file.txt", "contents");
+    workingTree.getFile(new File(repositoryDirectory, "file.txt")).add();
+    HelperGitCommands.runGit(repositoryDirectory, "commit", "-m", "First commit");
+    DotGit.getInstance(repositoryDirectory).createBranch("topic");
+    DotGit.getInstance(repositoryDirectory).getBranches();
+    assertEquals(writes + 2, scheduler.getWriteCount());
+    assertEquals(reads + 1, scheduler.getReadCount());
+  }
+
+  @Test
+  public void testRemove() throws IOException {
+    scheduler.setMaxQueueDepth(1);
+    assertSame(scheduler, RepositoryScheduler.getInstance(repositoryDirectory));
+    RepositoryScheduler.remove(repositoryDirectory);
+    RepositoryScheduler fresh = RepositoryScheduler.getInstance(repositoryDirectory);
+    assertNotSame(scheduler, fresh);
+    scheduler = fresh;
+    assertEquals(0, scheduler.getReadCount());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
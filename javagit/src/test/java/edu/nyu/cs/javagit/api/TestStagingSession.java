@@ -0,0 +1,168 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.client.cli.CommandLineBuilder;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+/**
+ * Test cases for our <code>StagingSession</code> class.
+ */
+public class TestStagingSession extends TestCase {
+
+  private File repositoryDirectory;
+
+  @Before
+  public void setUp() throws IOException, JavaGitException {
+    repositoryDirectory = FileUtilities.createTempDirectory("TestStagingSession");
+    HelperGitCommands.initRepo(repositoryDirectory);
+    FileUtilities.createFile(repositoryDirectory, "base.txt", "base");
+    HelperGitCommands.addAndCommitAll(repositoryDirectory, "Initial commit");
+  }
+
+  @After
+  public void tearDown() throws JavaGitException {
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(repositoryDirectory);
+  }
+
+  @Test
+  public void testConcurrentSessionsAreIsolated() throws Exception {
+    final String[] trees = new String[4];
+    final Exception[] failures = new Exception[trees.length];
+    Thread[] threads = new Thread[trees.length];
+    for (int i = 0; i < threads.length; i++) {
+      final int n = i;
+      FileUtilities.createFile(repositoryDirectory, "file" + n + ".txt", "contents " + n);
+      threads[i] = new Thread() {
+        public void run() {
+          try {
+            StagingSession session = new StagingSession(WorkingTree
+                .getInstance(repositoryDirectory));
+            try {
+              List<File> paths = new ArrayList<File>();
+              paths.add(new File("file" + n + ".txt"));
+              session.add(paths);
+              trees[n] = session.writeTree();
+            } finally {
+              session.close();
+            }
+            if (session.getIndexFile().exists()) {
+              throw new IOException("The index file was not deleted");
+            }
+          } catch (Exception e) {
+            failures[n] = e;
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    for (int i = 0; i < trees.length; i++) {
+      assertNull(failures[i]);
+      assertEquals("base.txt\nfile" + i + ".txt", HelperGitCommands.runGit(repositoryDirectory,
+          "ls-tree", "--name-only", trees[i]));
+    }
+    // The shared index was not touched.
+    assertEquals("base.txt", HelperGitCommands.runGit(repositoryDirectory, "ls-files"));
+  }
+
+  @Test
+  public void testChunkedAddDoesNotWaitForTheScheduler() throws Exception {
+    List<File> paths = new ArrayList<File>();
+    for (int i = 0; i < 60; i++) {
+      String name = "a-file-with-a-rather-long-name-" + i + ".txt";
+      FileUtilities.createFile(repositoryDirectory, name, "contents " + i);
+      paths.add(new File(name));
+    }
+    System.setProperty(CommandLineBuilder.LIMIT_PROPERTY, "1024");
+    final CountDownLatch held = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    Thread writer = new Thread() {
+      public void run() {
+        try {
+          RepositoryScheduler.getInstance(repositoryDirectory).write(
+              new RepositoryScheduler.Operation<Object>() {
+                public Object run() {
+                  held.countDown();
+                  try {
+                    release.await();
+                  } catch (InterruptedException e) {
+                    // The test is over.
+                  }
+                  return null;
+                }
+              });
+        } catch (Exception e) {
+          held.countDown();
+        }
+      }
+    };
+    writer.start();
+    try {
+      assertTrue(held.await(10, TimeUnit.SECONDS));
+      // The add is split into chunks, yet runs while another writer holds the repository.
+      StagingSession session = new StagingSession(WorkingTree.getInstance(repositoryDirectory));
+      try {
+        session.add(paths);
+        assertEquals(61, HelperGitCommands.runGit(repositoryDirectory, "ls-tree", "--name-only",
+            session.writeTree()).split("\n").length);
+      } finally {
+        session.close();
+      }
+    } finally {
+      System.clearProperty(CommandLineBuilder.LIMIT_PROPERTY);
+      release.countDown();
+      writer.join();
+    }
+  }
+
+  @Test
+  public void testRemoveAndClose() throws Exception {
+    StagingSession session = new StagingSession(WorkingTree.getInstance(repositoryDirectory));
+    List<File> paths = new ArrayList<File>();
+    paths.add(new File("base.txt"));
+    session.rm(paths);
+    assertEquals(HelperGitCommands.runGit(repositoryDirectory, "hash-object", "-t", "tree",
+        "/dev/null"), session.writeTree());
+    assertTrue(new File(repositoryDirectory, "base.txt").exists());
+    session.close();
+
+    try {
+      session.writeTree();
+      fail("A closed session ran a command");
+    } catch (JavaGitException e) {
+      assertEquals(100310, e.getCode());
+    }
+  }
+}
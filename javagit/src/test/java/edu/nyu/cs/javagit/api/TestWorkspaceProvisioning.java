@@ -0,0 +1,107 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.client.fs.FsUtilities;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+/**
+ * Test cases for <code>DotGit.provisionWorkspace()</code>.
+ */
+public class TestWorkspaceProvisioning extends TestCase {
+
+  private File repositoryDirectory;
+  private File workspaceDirectory;
+
+  @Before
+  public void setUp() throws JavaGitException, IOException {
+    repositoryDirectory = FileUtilities.createTempDirectory("TestWorkspaceProvisioning_repo");
+    HelperGitCommands.initRepo(repositoryDirectory);
+    new File(repositoryDirectory, "src").mkdir();
+    FileUtilities.createFile(repositoryDirectory, "README.txt", "readme");
+    FileUtilities.createFile(repositoryDirectory, "src/Main.java", "class Main {}");
+    HelperGitCommands.addAndCommitAll(repositoryDirectory, "First commit");
+
+    workspaceDirectory = FileUtilities.createTempDirectory("TestWorkspaceProvisioning_ws");
+  }
+
+  @After
+  public void tearDown() throws JavaGitException {
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(repositoryDirectory);
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(workspaceDirectory);
+  }
+
+  @Test
+  public void testFullCheckout() throws IOException, JavaGitException {
+    DotGit dotGit = DotGit.getInstance(repositoryDirectory);
+    DotGit workspace = dotGit.provisionWorkspace(workspaceDirectory, null);
+
+    assertEquals(DotGit.getInstance(workspaceDirectory), workspace);
+    assertTrue(new File(workspaceDirectory, "README.txt").isFile());
+    assertTrue(new File(workspaceDirectory, "src/Main.java").isFile());
+
+    // The objects are borrowed, not copied.
+    File objects = new File(workspaceDirectory, ".git/objects");
+    assertTrue(new File(objects, "info/alternates").isFile());
+    String[] entries = objects.list();
+    assertEquals(2, entries.length);
+
+    assertEquals(1, workspace.getLog().size());
+  }
+
+  @Test
+  public void testSparseCheckout() throws IOException, JavaGitException {
+    WorkspaceOptions options = new WorkspaceOptions();
+    options.addSparsePath("/src/");
+    DotGit.getInstance(repositoryDirectory).provisionWorkspace(workspaceDirectory, options);
+
+    assertFalse(new File(workspaceDirectory, "README.txt").exists());
+    assertTrue(new File(workspaceDirectory, "src/Main.java").isFile());
+  }
+
+  @Test
+  public void testNoCheckout() throws IOException, JavaGitException {
+    WorkspaceOptions options = new WorkspaceOptions();
+    options.setNoCheckout(true);
+    DotGit.getInstance(repositoryDirectory).provisionWorkspace(workspaceDirectory, options);
+
+    assertFalse(new File(workspaceDirectory, "README.txt").exists());
+    assertTrue(FsUtilities.isGitDirectory(new File(workspaceDirectory, ".git")));
+  }
+
+  @Test
+  public void testUnknownBranch() throws IOException {
+    WorkspaceOptions options = new WorkspaceOptions();
+    options.setBranch("no-such-branch");
+    try {
+      DotGit.getInstance(repositoryDirectory).provisionWorkspace(workspaceDirectory, options);
+      fail("JavaGitException not thrown");
+    } catch (JavaGitException e) {
+      assertEquals(408101, e.getCode());
+    }
+  }
+}
@@ -131,6 +131,42 @@ public class TestGitAdd extends TestCase {
     }
   }
 
+  /**
+   * Test for adding and then removing more files than fit comfortably on a command line, through
+   * the standard input of a single process.
+   * 
+   * @throws IOException
+   * @throws JavaGitException
+   */
+  @Test
+  public void testBulkAddAndRm() throws IOException, JavaGitException {
+    List<File> paths = new ArrayList<File>();
+    for (int i = 0; i < 3000; i++) {
+      String name = "a file with a rather long name to fill the command line " + i + ".txt";
+      FileUtilities.createFile(repoDirectory, name, "Contents " + i);
+      paths.add(new File(name));
+    }
+    final int[] progress = new int[1];
+    GitProgressListener listener = new GitProgressListener() {
+      public void pathProcessed(File path, int count) {
+        progress[0] = count;
+      }
+    };
+
+    GitAddResponse addResponse = gitAdd.addBulk(repoDirectory, null, paths, listener);
+    assertEquals(3000, addResponse.getFileListSize());
+    assertEquals(3000, progress[0]);
+    assertEquals(3000, HelperGitCommands.runGit(repoDirectory, "ls-files").split("\n").length);
+
+    GitRmOptions options = new GitRmOptions();
+    options.setOptCached(true);
+    GitRmResponse rmResponse = new GitRm().rmBulk(repoDirectory, options, paths.subList(0, 1000),
+        listener);
+    assertEquals(1000, rmResponse.getRemovedFilesSize());
+    assertEquals(1000, progress[0]);
+    assertEquals(2000, HelperGitCommands.runGit(repoDirectory, "ls-files").split("\n").length);
+  }
+
   @After
   public void tearDown() throws Exception {
     if (repoDirectory.exists()) {
@@ -0,0 +1,184 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.DotGit;
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.client.fs.ObjectWriter;
+import edu.nyu.cs.javagit.client.fs.PersonIdent;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+/**
+ * Test cases for our <code>GitFastExport</code> command.
+ */
+public class TestGitFastExport extends TestCase {
+
+  private File sourceDirectory;
+  private File mirrorDirectory;
+
+  @Before
+  public void setUp() throws IOException, JavaGitException {
+    sourceDirectory = FileUtilities.createTempDirectory("TestGitFastExport_source");
+    mirrorDirectory = FileUtilities.createTempDirectory("TestGitFastExport_mirror");
+    DotGit.getInstance(sourceDirectory).init();
+    DotGit.getInstance(mirrorDirectory).init();
+
+    PersonIdent ident = new PersonIdent("Test User", "test@example.com", 1200000000L, 60);
+    GitFastImportStream stream = new GitFastImport().start(sourceDirectory, null);
+    GitFastImportCommit first = new GitFastImportCommit("refs/heads/master", ident, "First");
+    first.modify(ObjectWriter.MODE_FILE, "a file.txt", "some text\n".getBytes("UTF-8"));
+    first.modify(ObjectWriter.MODE_FILE, "\u00e9t\u00e9.txt", "summer".getBytes("UTF-8"));
+    String mark = stream.commit(first);
+    GitFastImportCommit second = new GitFastImportCommit("refs/heads/master", ident, "Second");
+    second.setFrom(mark);
+    second.rename("a file.txt", "b.txt");
+    second.delete("\u00e9t\u00e9.txt");
+    stream.commit(second);
+    stream.tag("v1", mark, ident, "Tagged");
+    stream.close();
+  }
+
+  @After
+  public void tearDown() throws JavaGitException {
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(sourceDirectory);
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(mirrorDirectory);
+  }
+
+  @Test
+  public void testEvents() throws IOException, JavaGitException {
+    final List<String> events = new ArrayList<String>();
+    GitFastExportOptions options = new GitFastExportOptions();
+    options.setOptDetectRenames(true);
+    options.setOptShowOriginalIds(true);
+    new GitFastExport().export(sourceDirectory, options, new GitFastExportAdapter() {
+      public void blob(String mark, String originalId, long length, InputStream data)
+          throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = data.read()) >= 0) {
+          out.write(b);
+        }
+        events.add("blob " + mark + " " + out.toString("UTF-8"));
+      }
+
+      public void commit(GitFastExportCommit commit) {
+        events.add("commit " + commit.getRef() + " " + commit.getMessage().trim() + " from "
+            + commit.getFrom() + " by " + commit.getCommitter().getName());
+      }
+
+      public void fileModify(int mode, String dataRef, String path) {
+        events.add("M " + Integer.toOctalString(mode) + " " + dataRef + " " + path);
+      }
+
+      public void fileDelete(String path) {
+        events.add("D " + path);
+      }
+
+      public void fileRename(String source, String destination) {
+        events.add("R " + source + " -> " + destination);
+      }
+
+      public void tag(String name, String from, PersonIdent tagger, String message) {
+        events.add("tag " + name + " " + from + " " + message.trim());
+      }
+    });
+
+    List<String> expected = new ArrayList<String>();
+    expected.add("blob :1 some text\n");
+    expected.add("blob :2 summer");
+    // git exports a commit for the first ref (by name) reaching it.
+    expected.add("commit refs/tags/v1 First from null by Test User");
+    expected.add("M 100644 :1 a file.txt");
+    expected.add("M 100644 :2 \u00e9t\u00e9.txt");
+    expected.add("commit refs/heads/master Second from :3 by Test User");
+    expected.add("R a file.txt -> b.txt");
+    expected.add("D \u00e9t\u00e9.txt");
+    expected.add("tag v1 :3 Tagged");
+    assertEquals(expected, events);
+  }
+
+  @Test
+  public void testMirrorThroughFastImport() throws IOException, JavaGitException {
+    final GitFastImportStream mirror = new GitFastImport().start(mirrorDirectory, null);
+    new GitFastExport().export(sourceDirectory, null, new GitFastExportAdapter() {
+      private GitFastImportCommit current;
+
+      public void blob(String mark, String originalId, long length, InputStream data)
+          throws IOException {
+        mirror.setNextMark(Integer.parseInt(mark.substring(1)));
+        mirror.blob(data, length);
+      }
+
+      public void commit(GitFastExportCommit commit) {
+        current = new GitFastImportCommit(commit.getRef(), commit.getCommitter(), commit
+            .getMessage());
+        current.setAuthor(commit.getAuthor());
+        current.setFrom(commit.getFrom());
+        mirror.setNextMark(Integer.parseInt(commit.getMark().substring(1)));
+      }
+
+      public void fileModify(int mode, String dataRef, String path) {
+        current.modify(mode, dataRef, path);
+      }
+
+      public void fileDelete(String path) {
+        current.delete(path);
+      }
+
+      public void commitEnd(GitFastExportCommit commit) throws IOException {
+        mirror.commit(current);
+      }
+
+      public void tag(String name, String from, PersonIdent tagger, String message)
+          throws IOException {
+        mirror.tag(name, from, tagger, message);
+      }
+    });
+    mirror.close();
+
+    assertEquals(HelperGitCommands.runGit(sourceDirectory, "rev-parse", "master", "v1"),
+        HelperGitCommands.runGit(mirrorDirectory, "rev-parse", "master", "v1"));
+  }
+
+  @Test
+  public void testHandlerAbortsExport() throws IOException {
+    try {
+      new GitFastExport().export(sourceDirectory, null, new GitFastExportAdapter() {
+        public void commit(GitFastExportCommit commit) throws JavaGitException {
+          throw new JavaGitException(1, "stop");
+        }
+      });
+      fail("The exception of the handler should abort the export.");
+    } catch (JavaGitException e) {
+      assertEquals(1, e.getCode());
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.DotGit;
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.client.fs.ObjectWriter;
+import edu.nyu.cs.javagit.client.fs.PersonIdent;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+/**
+ * Test cases for our <code>GitFastImport</code> command.
+ */
+public class TestGitFastImport extends TestCase {
+
+  private File repoDirectory;
+  private PersonIdent ident;
+
+  @Before
+  public void setUp() throws IOException, JavaGitException {
+    repoDirectory = FileUtilities.createTempDirectory("TestGitFastImport_dir");
+    DotGit.getInstance(repoDirectory).init();
+    ident = new PersonIdent("Test User", "test@example.com", 1200000000L, -300);
+  }
+
+  @After
+  public void tearDown() throws JavaGitException {
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+  }
+
+  @Test
+  public void testImportHistory() throws IOException, JavaGitException {
+    GitFastImportStream stream = new GitFastImport().start(repoDirectory, null);
+    String readme = stream.blob("hello\n".getBytes("UTF-8"));
+    byte[] large = new byte[100000];
+    String data = stream.blob(new ByteArrayInputStream(large), large.length);
+
+    GitFastImportCommit first = new GitFastImportCommit("refs/heads/master", ident, "First");
+    first.modify(ObjectWriter.MODE_FILE, readme, "README");
+    first.modify(ObjectWriter.MODE_FILE, data, "dir with space/data.bin");
+    String firstMark = stream.commit(first);
+
+    GitFastImportCommit second = new GitFastImportCommit("refs/heads/master", ident, "Second");
+    second.setFrom(firstMark);
+    second.rename("dir with space/data.bin", "data.bin");
+    second.modify(ObjectWriter.MODE_EXECUTABLE, "run.sh", "echo\n".getBytes("UTF-8"));
+    stream.commit(second);
+
+    stream.reset("refs/heads/old", firstMark);
+    stream.tag("v1", firstMark, ident, "Version 1");
+    stream.checkpoint();
+    stream.close();
+
+    assertEquals(2, stream.getBlobCount());
+    assertEquals(2, stream.getCommitCount());
+    assertEquals(1, stream.getTagCount());
+    assertTrue(stream.getBytesWritten() > large.length);
+
+    assertEquals("README\ndata.bin\nrun.sh", HelperGitCommands.runGit(repoDirectory, "ls-tree",
+        "-r", "--name-only", "master"));
+    assertEquals("Second\nFirst", HelperGitCommands.runGit(repoDirectory, "log", "--format=%s",
+        "master"));
+    assertEquals(HelperGitCommands.runGit(repoDirectory, "rev-parse", "master~1"),
+        HelperGitCommands.runGit(repoDirectory, "rev-parse", "old"));
+    assertEquals("tag", HelperGitCommands.runGit(repoDirectory, "cat-file", "-t", "v1"));
+  }
+
+  @Test
+  public void testFailedImportIsReported() throws IOException, JavaGitException {
+    GitFastImportStream stream = new GitFastImport().start(repoDirectory, null);
+    GitFastImportCommit commit = new GitFastImportCommit("refs/heads/master", ident, "Broken");
+    commit.modify(ObjectWriter.MODE_FILE, ":42", "missing");
+    stream.commit(commit);
+    try {
+      stream.close();
+      fail("The import of an unknown mark should fail.");
+    } catch (JavaGitException e) {
+      assertEquals(412000, e.getCode());
+    } catch (IOException e) {
+      // git may also exit before the whole stream is written.
+    }
+    assertEquals("", HelperGitCommands.runGit(repoDirectory, "for-each-ref"));
+  }
+}
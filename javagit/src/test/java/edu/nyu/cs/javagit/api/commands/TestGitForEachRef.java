@@ -0,0 +1,142 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.Ref;
+import edu.nyu.cs.javagit.api.commands.GitBranchResponse.BranchRecord;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+/**
+ * Test cases for our <code>GitForEachRef</code> command.
+ */
+public class TestGitForEachRef extends TestCase {
+
+  private File repoDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("TestGitForEachRef_repo");
+    HelperGitCommands.initRepo(repoDirectory);
+    FileUtilities.createFile(repoDirectory, "a.txt", "a\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "First");
+    git("tag", "-a", "v1", "-m", "Version 1");
+    git("branch", "feature");
+    git("update-ref", "refs/remotes/origin/master", "HEAD");
+    FileUtilities.createFile(repoDirectory, "b.txt", "b\n");
+    git("add", "b.txt");
+    git("commit", "-q", "-m", "Second\tstep\n\nWith a body.");
+    git("checkout", "-q", "feature");
+    FileUtilities.createFile(repoDirectory, "c.txt", "c\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Feature");
+    git("branch", "-q", "--set-upstream-to=master");
+  }
+
+  @Test
+  public void testListBranches() throws Exception {
+    GitForEachRefOptions options = new GitForEachRefOptions();
+    options.addPattern("refs/heads/");
+    List<BranchRecord> records = new GitForEachRef().listRefs(repoDirectory, options);
+    assertEquals(2, records.size());
+
+    BranchRecord feature = records.get(0);
+    assertEquals("refs/heads/feature", feature.getRefName());
+    assertEquals(Ref.createBranchRef("feature"), feature.getBranch());
+    assertEquals(git("rev-parse", "feature"), feature.getSha1().getName());
+    assertEquals("Feature", feature.getComment());
+    assertTrue(feature.isCurrentBranch());
+    assertEquals(Ref.createBranchRef("master"), feature.getUpstream());
+    assertEquals(1, feature.getAhead());
+    assertEquals(1, feature.getBehind());
+    assertEquals(Long.parseLong(git("log", "-1", "--format=%ct", "feature")), feature
+        .getCommitterTime());
+
+    BranchRecord master = records.get(1);
+    assertEquals("Second\tstep", master.getComment());
+    assertFalse(master.isCurrentBranch());
+    assertNull(master.getUpstream());
+    assertEquals(0, master.getAhead());
+
+    options.setOptTrack(false);
+    feature = new GitForEachRef().listRefs(repoDirectory, options).get(0);
+    assertEquals(Ref.createBranchRef("master"), feature.getUpstream());
+    assertEquals(0, feature.getAhead());
+  }
+
+  @Test
+  public void testAllRefsSortedAndStreamed() throws Exception {
+    List<BranchRecord> records = new GitForEachRef().listRefs(repoDirectory, null);
+    assertEquals(Arrays.asList("refs/heads/feature", "refs/heads/master",
+        "refs/remotes/origin/master", "refs/tags/v1"), refNames(records));
+    BranchRecord tag = records.get(3);
+    assertEquals(Ref.createTagRef("v1"), tag.getBranch());
+    assertEquals("Version 1", tag.getComment());
+    assertEquals(-1, tag.getCommitterTime());
+    assertEquals(Ref.createBranchRef("origin/master"), records.get(2).getBranch());
+
+    GitForEachRefOptions options = new GitForEachRefOptions();
+    options.addSortKey("-committerdate");
+    options.addPattern("refs/heads/");
+    options.addPattern("refs/remotes/");
+    // Refs with the same date are sorted by name.
+    assertEquals(Arrays.asList("refs/heads/feature", "refs/heads/master",
+        "refs/remotes/origin/master"), refNames(new GitForEachRef().listRefs(repoDirectory,
+        options)));
+    options.setOptCount(1);
+    assertEquals(Arrays.asList("refs/heads/feature"), refNames(new GitForEachRef().listRefs(
+        repoDirectory, options)));
+
+    final List<BranchRecord> streamed = new ArrayList<BranchRecord>();
+    new GitForEachRef().listRefs(repoDirectory, null, new GitForEachRefHandler() {
+      public boolean handleRef(BranchRecord record) {
+        streamed.add(record);
+        return false;
+      }
+    });
+    assertEquals(Arrays.asList("refs/heads/feature"), refNames(streamed));
+  }
+
+  private List<String> refNames(List<BranchRecord> records) {
+    List<String> names = new ArrayList<String>();
+    for (BranchRecord record : records) {
+      names.add(record.getRefName());
+    }
+    return names;
+  }
+
+  private String git(String... args) throws Exception {
+    return HelperGitCommands.runGit(repoDirectory, args);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
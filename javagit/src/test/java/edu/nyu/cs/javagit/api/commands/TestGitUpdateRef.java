@@ -0,0 +1,121 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.commands;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.DotGit;
+import edu.nyu.cs.javagit.api.commands.GitUpdateRefResponse.Status;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+/**
+ * Test cases for our <code>GitUpdateRef</code> command.
+ */
+public class TestGitUpdateRef extends TestCase {
+
+  private File repoDirectory;
+  private String first;
+  private String second;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("TestGitUpdateRef_repo");
+    HelperGitCommands.initRepo(repoDirectory);
+    FileUtilities.createFile(repoDirectory, "a.txt", "a\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "First");
+    first = git("rev-parse", "HEAD");
+    FileUtilities.createFile(repoDirectory, "b.txt", "b\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Second");
+    second = git("rev-parse", "HEAD");
+    git("branch", "old", first);
+  }
+
+  @Test
+  public void testCommittedTransaction() throws Exception {
+    GitRefTransaction transaction = new GitRefTransaction();
+    for (int i = 0; i < 50; i++) {
+      transaction.create("refs/heads/release/" + i, second);
+    }
+    transaction.create("refs/tags/v1", first);
+    transaction.update("refs/heads/old", second, first);
+    transaction.verify("refs/heads/master", second);
+    transaction.setMessage("release");
+    GitUpdateRefResponse response = DotGit.getInstance(repoDirectory).updateRefs(transaction);
+    assertTrue(response.getError(), response.isCommitted());
+    assertEquals(53, response.getStatuses().size());
+    assertEquals(Status.OK, response.getStatus("refs/heads/release/7"));
+    assertEquals(second, git("rev-parse", "release/49"));
+    assertEquals(first, git("rev-parse", "v1"));
+    assertEquals(second, git("rev-parse", "old"));
+    assertTrue(git("reflog", "-1", "old").endsWith("release"));
+
+    transaction = new GitRefTransaction();
+    for (int i = 0; i < 50; i++) {
+      transaction.delete("refs/heads/release/" + i, (0 == i) ? second : null);
+    }
+    assertTrue(new GitUpdateRef().commit(repoDirectory, transaction).isCommitted());
+    assertEquals("", git("branch", "--list", "release/*"));
+  }
+
+  @Test
+  public void testRejectedTransactionChangesNothing() throws Exception {
+    GitRefTransaction transaction = new GitRefTransaction();
+    transaction.create("refs/heads/new", second);
+    // The old branch is not at the second commit.
+    transaction.update("refs/heads/old", first, second);
+    transaction.delete("refs/heads/master", second);
+    GitUpdateRefResponse response = new GitUpdateRef().commit(repoDirectory, transaction);
+    assertFalse(response.isCommitted());
+    assertNotNull(response.getError());
+    assertEquals(Status.ABORTED, response.getStatus("refs/heads/new"));
+    assertEquals(Status.REJECTED, response.getStatus("refs/heads/old"));
+    assertEquals(Status.ABORTED, response.getStatus("refs/heads/master"));
+    assertEquals(first, git("rev-parse", "old"));
+    assertEquals(second, git("rev-parse", "master"));
+    assertEquals("", git("branch", "--list", "new"));
+
+    transaction = new GitRefTransaction();
+    transaction.create("refs/heads/old", second);
+    response = new GitUpdateRef().commit(repoDirectory, transaction);
+    assertEquals(Status.REJECTED, response.getStatus("refs/heads/old"));
+
+    try {
+      transaction.update("refs/heads/old", "not an id", null);
+      fail("An invalid object id should be rejected.");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().startsWith("000008"));
+    }
+  }
+
+  private String git(String... args) throws Exception {
+    return HelperGitCommands.runGit(repoDirectory, args);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.Ref;
+import edu.nyu.cs.javagit.api.commands.GitBranchOptions;
+import edu.nyu.cs.javagit.api.commands.GitBranchResponse.BranchRecord;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestBranchQueries extends TestCase {
+
+  private File repoDirectory;
+  private CommitStore store;
+  private CommitGraph graph;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("BranchQueriesTestRepo");
+    HelperGitCommands.createBranchedRepo(repoDirectory);
+    HelperGitCommands.runGit(repoDirectory, "update-ref", "refs/remotes/origin/feature",
+        "feature~1");
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "-b", "merged");
+    HelperGitCommands.runGit(repoDirectory, "merge", "-q", "--no-edit", "old");
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "master");
+    store = new CommitStore(new File(repoDirectory, ".git"));
+    graph = new CommitGraph(store);
+    graph.update();
+  }
+
+  @Test
+  public void testMatchesGitBranch() throws Exception {
+    BranchQueries queries = new BranchQueries(graph);
+    String[] commits = { "master~2", "master~1", "feature~1", "feature", "master" };
+    for (String commit : commits) {
+      String id = HelperGitCommands.runGit(repoDirectory, "rev-parse", commit);
+      List<String> expected = HelperGitCommands.listBranches(repoDirectory, "-a", "--contains", id);
+      assertEquals(commit, expected, names(queries.getBranchesContaining("refs/", id)));
+      expected = HelperGitCommands.listBranches(repoDirectory, "--merged", id);
+      assertEquals(commit, expected, names(queries.getBranchesMerged("refs/heads/", id, true)));
+      expected = HelperGitCommands.listBranches(repoDirectory, "-r", "--no-merged", id);
+      assertEquals(commit, expected, names(queries.getBranchesMerged("refs/remotes/", id, false)));
+    }
+
+    GitBranchOptions options = new GitBranchOptions();
+    options.setOptContains(Ref.createBranchRef("old"));
+    assertEquals(HelperGitCommands.listBranches(repoDirectory, "--contains", "old"),
+        names(queries.listBranches(options)));
+    options = new GitBranchOptions();
+    options.setOptNoMerged(true);
+    assertEquals(HelperGitCommands.listBranches(repoDirectory, "--no-merged"), names(queries
+        .listBranches(options)));
+    options = new GitBranchOptions();
+    options.setOptContains(Ref.createHeadRef(1));
+    options.setOptA(true);
+    assertEquals(HelperGitCommands.listBranches(repoDirectory, "-a", "--contains", "HEAD~1"),
+        names(queries.listBranches(options)));
+  }
+
+  @Test
+  public void testRecordsAndGrowth() throws Exception {
+    BranchQueries queries = new BranchQueries(graph);
+    String base = HelperGitCommands.runGit(repoDirectory, "rev-parse", "master");
+    List<BranchRecord> records = queries.getBranchesContaining("refs/heads/", base);
+    assertEquals(Arrays.asList("master", "merged"), names(records));
+    BranchRecord master = records.get(0);
+    assertTrue(master.isCurrentBranch());
+    assertEquals("three", master.getComment());
+    assertEquals(base, master.getSha1().getName());
+    assertFalse(records.get(1).isCurrentBranch());
+
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "-b", "later");
+    HelperGitCommands.commitNewFile(repoDirectory, "four");
+    graph.update();
+    assertEquals(Arrays.asList("later", "master", "merged"), names(queries
+        .getBranchesContaining("refs/heads/", base)));
+
+    try {
+      queries.getBranchesContaining("refs/", "0123456789012345678901234567890123456789");
+      fail("An unknown commit should be rejected.");
+    } catch (JavaGitException e) {
+      assertEquals(100400, e.getCode());
+    }
+    HelperGitCommands.runGit(repoDirectory, "tag", "v1");
+    try {
+      queries.getBranchesContaining("refs/tags/", base);
+      fail("Tags are not branches.");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().startsWith("000011"));
+    }
+  }
+
+  private List<String> names(List<BranchRecord> records) {
+    List<String> names = new ArrayList<String>();
+    for (BranchRecord record : records) {
+      names.add(record.getBranch().getName());
+    }
+    return names;
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (null != store) {
+      store.close();
+    }
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestCommitGraph extends TestCase {
+
+  private File repoDirectory;
+  private CommitStore store;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("CommitGraphTestRepo");
+    HelperGitCommands.initRepo(repoDirectory);
+    HelperGitCommands.commitNewFile(repoDirectory, "base");
+    HelperGitCommands.commitNewFile(repoDirectory, "main 1");
+    HelperGitCommands.runGit(repoDirectory, "branch", "feature");
+    HelperGitCommands.runGit(repoDirectory, "branch", "stale");
+    HelperGitCommands.commitNewFile(repoDirectory, "main 2");
+    HelperGitCommands.commitNewFile(repoDirectory, "main 3");
+    HelperGitCommands.runGit(repoDirectory, "branch", "same");
+
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "feature");
+    HelperGitCommands.commitNewFile(repoDirectory, "feature 1");
+    HelperGitCommands.runGit(repoDirectory, "merge", "-q", "--no-edit", "master");
+    HelperGitCommands.commitNewFile(repoDirectory, "feature 2");
+
+    // Criss-cross merges give two merge bases.
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "-b", "left", "master~1");
+    HelperGitCommands.commitNewFile(repoDirectory, "left 1");
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "-b", "right", "master~1");
+    HelperGitCommands.commitNewFile(repoDirectory, "right 1");
+    HelperGitCommands.runGit(repoDirectory, "branch", "right-tip");
+    HelperGitCommands.runGit(repoDirectory, "merge", "-q", "--no-edit", "left");
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "left");
+    HelperGitCommands.runGit(repoDirectory, "merge", "-q", "--no-edit", "right-tip");
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "master");
+
+    store = new CommitStore(new File(repoDirectory, ".git"));
+  }
+
+  @Test
+  public void testCompareBranchesMatchesGit() throws Exception {
+    CommitGraph graph = new CommitGraph(store);
+    graph.update();
+    Map<String, CommitGraph.Divergence> divergences = graph.compareBranches("master");
+    assertEquals(Arrays.asList("feature", "left", "master", "right", "right-tip", "same",
+        "stale"), Arrays.asList(divergences.keySet().toArray()));
+
+    for (Map.Entry<String, CommitGraph.Divergence> entry : divergences.entrySet()) {
+      String branch = entry.getKey();
+      String counts = HelperGitCommands.runGit(repoDirectory, "rev-list", "--left-right",
+          "--count", "master..." + branch);
+      CommitGraph.Divergence divergence = entry.getValue();
+      assertEquals(branch, counts, divergence.getBehind() + "\t" + divergence.getAhead());
+      String mergeBases = HelperGitCommands.runGit(repoDirectory, "merge-base", "--all",
+          "master", branch);
+      assertEquals(branch, sorted(mergeBases), sorted(ids(divergence.getMergeBases())));
+    }
+  }
+
+  @Test
+  public void testCompareAllMatchesCompare() throws Exception {
+    CommitGraph graph = new CommitGraph(store);
+    graph.update();
+    int master = store.indexOf(HelperGitCommands.runGit(repoDirectory, "rev-parse", "master"));
+    // More tips than fit in one word of paint, repeating every commit.
+    int[] tips = new int[70];
+    for (int i = 0; i < tips.length; i++) {
+      tips[i] = i % graph.size();
+    }
+    CommitGraph.Divergence[] divergences = graph.compareAll(master, tips);
+    assertEquals(tips.length, divergences.length);
+    for (int i = 0; i < tips.length; i++) {
+      CommitGraph.Divergence expected = graph.compare(master, tips[i]);
+      assertEquals(expected.getAhead(), divergences[i].getAhead());
+      assertEquals(expected.getBehind(), divergences[i].getBehind());
+      assertTrue(Arrays.equals(expected.getMergeBases(), divergences[i].getMergeBases()));
+    }
+    assertEquals(0, graph.compareAll(master, new int[0]).length);
+  }
+
+  @Test
+  public void testMergeBasesAndGenerations() throws Exception {
+    CommitGraph graph = new CommitGraph(store);
+    graph.update();
+    int left = store.indexOf(HelperGitCommands.runGit(repoDirectory, "rev-parse", "left"));
+    int right = store.indexOf(HelperGitCommands.runGit(repoDirectory, "rev-parse", "right"));
+    String mergeBases = HelperGitCommands.runGit(repoDirectory, "merge-base", "--all", "left",
+        "right");
+    assertEquals(sorted(mergeBases), sorted(ids(graph.getMergeBases(left, right))));
+    assertEquals(2, graph.getMergeBases(left, right).length);
+
+    int root = store.indexOf(HelperGitCommands.runGit(repoDirectory, "rev-parse", "master~3"));
+    assertEquals(1, graph.getGeneration(root));
+    assertEquals(5, graph.getGeneration(left));
+    assertTrue(Arrays.equals(new int[] { root }, graph.getMergeBases(root, left)));
+    assertEquals(0, graph.compare(left, left).getAhead());
+  }
+
+  private String ids(int[] positions) {
+    StringBuffer buffer = new StringBuffer();
+    for (int position : positions) {
+      if (buffer.length() > 0) {
+        buffer.append('\n');
+      }
+      buffer.append(store.getId(position));
+    }
+    return buffer.toString();
+  }
+
+  private String sorted(String lines) {
+    String[] values = lines.split("\n");
+    Arrays.sort(values);
+    return Arrays.asList(values).toString();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (null != store) {
+      store.close();
+    }
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
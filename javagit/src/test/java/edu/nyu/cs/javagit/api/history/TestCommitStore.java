@@ -0,0 +1,183 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestCommitStore extends TestCase {
+
+  private File repoDirectory;
+  private File gitDir;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("CommitStoreTestRepo");
+    gitDir = new File(repoDirectory, ".git");
+    HelperGitCommands.initRepo(repoDirectory);
+    FileUtilities.createFile(repoDirectory, "a.txt", "one\ntwo\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "First\n\nWith a body.");
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "-b", "side");
+    FileUtilities.createFile(repoDirectory, "side.txt", "side\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Side");
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "-");
+    HelperGitCommands.runGit(repoDirectory, "mv", "a.txt", "b.txt");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Rename");
+    HelperGitCommands.runGit(repoDirectory, "merge", "-q", "--no-edit", "side");
+  }
+
+  @Test
+  public void testStoresTheHistory() throws Exception {
+    CommitStore store = new CommitStore(gitDir);
+    try {
+      assertEquals(4, store.update());
+      assertEquals(4, store.size());
+
+      int head = store.indexOf(HelperGitCommands.runGit(repoDirectory, "rev-parse", "HEAD"));
+      int first = store.indexOf(HelperGitCommands.runGit(repoDirectory, "rev-parse", "HEAD~1~1"));
+      int rename = store.indexOf(HelperGitCommands.runGit(repoDirectory, "rev-parse", "HEAD^1"));
+      int side = store.indexOf(HelperGitCommands.runGit(repoDirectory, "rev-parse", "side"));
+      assertEquals(3, head);
+      assertEquals(0, first);
+      assertEquals(2, store.getParents(head).length);
+      assertEquals(rename, store.getParents(head)[0]);
+      assertEquals(side, store.getParents(head)[1]);
+      assertEquals(0, store.getParents(first).length);
+      assertEquals(0, store.getFileCount(head));
+
+      assertEquals("First\n\nWith a body.\n", store.getMessage(first));
+      assertEquals(Long.parseLong(HelperGitCommands.runGit(repoDirectory, "log", "-1",
+          "--format=%ct", "side")), store.getCommitTime(side));
+      assertEquals(HelperGitCommands.runGit(repoDirectory, "log", "-1", "--format=%an <%ae>"),
+          store.getAuthor(head));
+      assertEquals(1, store.getAuthors().size());
+
+      assertEquals(1, store.getFileCount(first));
+      assertEquals("a.txt", store.getPath(store.getPathIndex(first, 0)));
+      assertEquals(2, store.getLinesAdded(first, 0));
+      assertEquals(0, store.getLinesDeleted(first, 0));
+      assertEquals("b.txt", store.getPath(store.getPathIndex(rename, 0)));
+      assertEquals("a.txt", store.getPath(store.getOldPathIndex(rename, 0)));
+      assertEquals(-1, store.getOldPathIndex(first, 0));
+
+      Commit commit = store.getCommit(head);
+      assertEquals(store.getId(head), commit.getSha());
+      assertEquals(2, commit.getMergeDetails().size());
+      assertEquals(HelperGitCommands.runGit(repoDirectory, "log", "-1", "--format=%ad"), commit
+          .getDateString());
+    } finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void testUpdatesIncrementallyAndSurvivesARestart() throws Exception {
+    CommitStore store = new CommitStore(gitDir);
+    store.update();
+    assertEquals(0, store.update());
+
+    FileUtilities.createFile(repoDirectory, "c.bin", "\u0000\u0001");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Binary");
+    assertEquals(1, store.update());
+    assertEquals(5, store.size());
+    assertEquals(3, store.getParents(4)[0]);
+    assertEquals(-1, store.getLinesAdded(4, 0));
+    store.close();
+
+    // A restart opens the same files; an append which was never completed is dropped.
+    FileOutputStream torn = new FileOutputStream(new File(gitDir, CommitStore.DIRECTORY
+        + File.separator + "commits.dat"), true);
+    torn.write(new byte[] { 1, 2, 3 });
+    torn.close();
+    CommitStore reopened = new CommitStore(gitDir);
+    try {
+      assertEquals(5, reopened.size());
+      assertEquals(0, reopened.update());
+      assertEquals("Binary\n", reopened.getMessage(4));
+      assertEquals(4, reopened.indexOf(HelperGitCommands.runGit(repoDirectory, "rev-parse",
+          "HEAD")));
+    } finally {
+      reopened.close();
+    }
+  }
+
+  @Test
+  public void testRewrittenHistoryRebuildsTheStore() throws Exception {
+    CommitStore store = new CommitStore(gitDir);
+    try {
+      CommitGraph graph = new CommitGraph(store);
+      MessageIndex messages = new MessageIndex(store);
+      assertEquals(4, messages.update());
+      graph.catchUp();
+      String side = HelperGitCommands.runGit(repoDirectory, "rev-parse", "side");
+      // The side commit and the merge of the side branch.
+      assertEquals(2, messages.findAll("side").length);
+      int epoch = store.getEpoch();
+
+      // Drop the merge and the side branch from the repository.
+      HelperGitCommands.runGit(repoDirectory, "reset", "-q", "--hard", "HEAD^1");
+      HelperGitCommands.runGit(repoDirectory, "branch", "-q", "-D", "side");
+      HelperGitCommands.runGit(repoDirectory, "reflog", "expire", "--expire=now", "--all");
+      HelperGitCommands.runGit(repoDirectory, "gc", "-q", "--prune=now");
+      assertEquals(2, messages.update());
+      assertTrue(epoch != store.getEpoch());
+      assertEquals(2, store.size());
+      assertEquals(-1, store.indexOf(side));
+      assertEquals(0, messages.findAll("side").length);
+      assertEquals(1, messages.findAll("rename").length);
+      graph.catchUp();
+      assertEquals(2, graph.size());
+      assertEquals(2, graph.getGeneration(store.indexOf(HelperGitCommands.runGit(repoDirectory,
+          "rev-parse", "HEAD"))));
+
+      // Growing again appends, in the new epoch.
+      FileUtilities.createFile(repoDirectory, "c.txt", "c\n");
+      HelperGitCommands.addAndCommitAll(repoDirectory, "Third");
+      epoch = store.getEpoch();
+      assertEquals(1, store.update());
+      assertEquals(epoch, store.getEpoch());
+    } finally {
+      store.close();
+    }
+
+    // Another process sees the rebuilt store.
+    CommitStore reopened = new CommitStore(gitDir);
+    try {
+      assertEquals(3, reopened.size());
+      assertEquals(0, reopened.update());
+    } finally {
+      reopened.close();
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.DotGit;
+import edu.nyu.cs.javagit.api.commands.GitLogOptions;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestCommitTable extends TestCase {
+
+  private File repoDirectory;
+  private CommitStore store;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("CommitTableTestRepo");
+    HelperGitCommands.initRepo(repoDirectory);
+    FileUtilities.createFile(repoDirectory, "a.txt", "1\n2\n3\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "First");
+    new File(repoDirectory, "src").mkdir();
+    FileUtilities.createFile(repoDirectory, "src/b.txt", "1\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Second");
+    HelperGitCommands.runGit(repoDirectory, "commit", "-q", "--allow-empty",
+        "--author=Other <other@example.com>", "-m", "Third");
+    store = new CommitStore(new File(repoDirectory, ".git"));
+    store.update();
+  }
+
+  @Test
+  public void testLoadFromStore() throws Exception {
+    CommitTable table = CommitTable.load(store);
+    assertEquals(3, table.size());
+    assertEquals(store.getId(2), table.getId(2));
+    assertTrue(Arrays.equals(new int[] { 1 }, table.getParents(2)));
+    assertEquals(0, table.getParents(0).length);
+
+    int[] all = table.selectAll();
+    assertEquals(4, table.sumLinesAdded(all));
+    assertEquals(0, table.sumLinesDeleted(all));
+    assertTrue(Arrays.equals(new int[] { 1 }, table.selectByPath(all, "src/")));
+    assertTrue(Arrays.equals(new int[] { 0 }, table.selectByPath(all, "a.txt")));
+    assertEquals(0, table.selectByPath(all, "missing").length);
+
+    String other = table.getAuthor(2);
+    assertTrue(Arrays.equals(new int[] { 2 }, table.selectByAuthor(all, other)));
+    int[] counts = table.countByAuthor(all);
+    assertEquals(1, counts[table.getAuthorIndex(2)]);
+    assertEquals(2, counts[table.getAuthorIndex(0)]);
+    assertEquals(0, table.sumLinesByAuthor(all)[table.getAuthorIndex(2)]);
+
+    assertEquals(3, table.selectByTime(all, 0, Long.MAX_VALUE).length);
+    assertEquals(0, table.selectByTime(all, 0, table.getTime(0)).length);
+  }
+
+  @Test
+  public void testLoadFromLog() throws Exception {
+    GitLogOptions options = new GitLogOptions();
+    options.setOptFileDetails(true);
+    CommitTable table = CommitTable.load(DotGit.getInstance(repoDirectory).getLog(options));
+    CommitTable fromStore = CommitTable.load(store);
+
+    assertEquals(3, table.size());
+    assertEquals(0, table.getParents(0).length);
+    // The log lists the newest commit first.
+    assertEquals(fromStore.getId(2), table.getId(0));
+    assertEquals(fromStore.getTime(2), table.getTime(0));
+    int[] all = table.selectAll();
+    assertEquals(fromStore.sumLinesAdded(fromStore.selectAll()), table.sumLinesAdded(all));
+    int[] byPath = table.countByPath(all);
+    assertEquals(2, byPath.length);
+    assertEquals(1, byPath[Arrays.asList(table.getPathDictionary()).indexOf("src/b.txt")]);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (null != store) {
+      store.close();
+    }
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestCommitTimeIndex extends TestCase {
+
+  private File repoDirectory;
+  private File gitDir;
+  private CommitStore store;
+  private String tree;
+  private int files = 0;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("CommitTimeIndexTestRepo");
+    gitDir = new File(repoDirectory, ".git");
+    HelperGitCommands.initRepo(repoDirectory);
+    FileUtilities.createFile(gitDir, "empty.tmp", "");
+    tree = HelperGitCommands.runGit(repoDirectory, "hash-object", "-t", "tree", "-w",
+        ".git/empty.tmp");
+    store = new CommitStore(gitDir);
+  }
+
+  @Test
+  public void testRangesWithClockSkew() throws Exception {
+    // The second commit was made with a clock behind that of the first.
+    String first = commit(null, 1000);
+    String skewed = commit(first, 900);
+    String third = commit(skewed, 2000);
+    String side = commit(first, 2500);
+    HelperGitCommands.runGit(repoDirectory, "update-ref", "HEAD", third);
+    HelperGitCommands.runGit(repoDirectory, "update-ref", "refs/heads/side", side);
+
+    CommitGraph graph = new CommitGraph(store);
+    CommitTimeIndex index = new CommitTimeIndex(graph);
+    assertEquals(4, index.update());
+    assertEquals(1001, graph.getCorrectedTime(store.indexOf(skewed)));
+    assertEquals(3, graph.getGeneration(store.indexOf(third)));
+
+    assertPositions(new String[] { side, third, first }, index.find(950, Long.MAX_VALUE));
+    assertPositions(new String[] { skewed }, index.find(0, 999));
+    assertPositions(new String[] { third, first, skewed }, index.find(third, 0, 2000));
+
+    // git log --since would stop at the skewed commit, and miss the first one.
+    assertPositions(new String[] { third, first }, index.find(third, 950, Long.MAX_VALUE));
+    assertPositions(new String[] { side, first }, index.find(side, 950, Long.MAX_VALUE));
+    assertPositions(new String[0], index.find(side, 3000, Long.MAX_VALUE));
+
+    Map<String, int[]> byBranch = index.findByBranch(1500, Long.MAX_VALUE);
+    assertEquals(Arrays.asList("master", "side"), Arrays.asList(byBranch.keySet().toArray()));
+    assertPositions(new String[] { third }, byBranch.get("master"));
+    assertPositions(new String[] { side }, byBranch.get("side"));
+  }
+
+  @Test
+  public void testIncrementalUpdate() throws Exception {
+    String first = commit(null, 1000);
+    String second = commit(first, 3000);
+    HelperGitCommands.runGit(repoDirectory, "update-ref", "HEAD", second);
+    CommitTimeIndex index = new CommitTimeIndex(new CommitGraph(store));
+    assertEquals(2, index.update());
+    assertEquals(0, index.update());
+
+    String third = commit(second, 2000);
+    HelperGitCommands.runGit(repoDirectory, "update-ref", "HEAD", third);
+    assertEquals(1, index.update());
+    assertEquals(3, index.size());
+    assertPositions(new String[] { second, third, first }, index.find(0, Long.MAX_VALUE));
+    assertPositions(new String[] { third }, index.find(1500, 2999));
+  }
+
+  private String commit(String parent, long time) throws Exception {
+    String name = "commit" + (files++) + ".tmp";
+    StringBuffer text = new StringBuffer();
+    text.append("tree ").append(tree).append('\n');
+    if (null != parent) {
+      text.append("parent ").append(parent).append('\n');
+    }
+    text.append("author t <t@t> ").append(time).append(" +0000\n");
+    text.append("committer t <t@t> ").append(time).append(" +0000\n");
+    text.append("\nCommit at ").append(time).append('\n');
+    FileUtilities.createFile(gitDir, name, text.toString());
+    return HelperGitCommands.runGit(repoDirectory, "hash-object", "-t", "commit", "-w", ".git/"
+        + name);
+  }
+
+  private void assertPositions(String[] expected, int[] actual) {
+    int[] positions = new int[expected.length];
+    for (int i = 0; i < expected.length; i++) {
+      positions[i] = store.indexOf(expected[i]);
+    }
+    assertTrue(Arrays.toString(actual), Arrays.equals(positions, actual));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (null != store) {
+      store.close();
+    }
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
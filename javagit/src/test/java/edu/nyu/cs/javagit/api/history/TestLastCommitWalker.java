@@ -0,0 +1,113 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.File;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.WorkingTree;
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestLastCommitWalker extends TestCase {
+
+  private File repoDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("LastCommitWalkerTestRepo");
+    HelperGitCommands.initRepo(repoDirectory);
+    new File(repoDirectory, "dir/sub").mkdirs();
+    FileUtilities.createFile(repoDirectory, "dir/a.txt", "a\n");
+    FileUtilities.createFile(repoDirectory, "dir/b.txt", "b\n");
+    FileUtilities.createFile(repoDirectory, "dir/sub/c.txt", "c\n");
+    FileUtilities.createFile(repoDirectory, "other.txt", "o\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Create");
+    FileUtilities.modifyFileContents(new File(repoDirectory, "dir/a.txt"), "a2\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Modify a");
+    FileUtilities.modifyFileContents(new File(repoDirectory, "dir/sub/c.txt"), "c2\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Modify c");
+    FileUtilities.modifyFileContents(new File(repoDirectory, "other.txt"), "o2\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Modify other");
+  }
+
+  @Test
+  public void testLastCommitPerEntry() throws Exception {
+    LastCommitWalker walker = new LastCommitWalker(repoDirectory);
+    Map<String, Commit> lastCommits = walker.getLastCommits("HEAD", "dir");
+    assertEquals(3, lastCommits.size());
+    assertEquals(id("HEAD~2"), lastCommits.get("a.txt").getSha());
+    assertEquals(id("HEAD~3"), lastCommits.get("b.txt").getSha());
+    assertEquals(id("HEAD~1"), lastCommits.get("sub").getSha());
+    assertEquals("Modify c\n", lastCommits.get("sub").getMessage());
+
+    Map<String, Commit> root = walker.getLastCommits("HEAD", "");
+    assertEquals(id("HEAD~1"), root.get("dir").getSha());
+    assertEquals(id("HEAD"), root.get("other.txt").getSha());
+  }
+
+  @Test
+  public void testCachedByLastCommit() throws Exception {
+    LastCommitWalker walker = new LastCommitWalker(repoDirectory);
+    Map<String, Commit> lastCommits = walker.getLastCommits("HEAD", "dir/");
+    assertSame(lastCommits, walker.getLastCommits("HEAD~1", "dir"));
+
+    FileUtilities.modifyFileContents(new File(repoDirectory, "dir/b.txt"), "b2\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Modify b");
+    Map<String, Commit> changed = walker.getLastCommits("HEAD", "dir");
+    assertNotSame(lastCommits, changed);
+    assertEquals(id("HEAD"), changed.get("b.txt").getSha());
+    assertEquals(id("HEAD~3"), changed.get("a.txt").getSha());
+
+    // Back to the first tree of the directory, but last touched by the revert.
+    FileUtilities.modifyFileContents(new File(repoDirectory, "dir/b.txt"), "b\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Revert b");
+    Map<String, Commit> reverted = walker.getLastCommits("HEAD", "dir");
+    assertEquals(id("HEAD"), reverted.get("b.txt").getSha());
+    assertEquals(id("HEAD~4"), reverted.get("a.txt").getSha());
+
+    walker.setCacheSize(0);
+    assertNotSame(changed, walker.getLastCommits("HEAD", "dir"));
+  }
+
+  @Test
+  public void testGitDirectory() throws Exception {
+    WorkingTree workingTree = WorkingTree.getInstance(repoDirectory);
+    Map<String, Commit> lastCommits = workingTree.getDirectory(new File("dir/sub"))
+        .getLastCommits();
+    assertEquals(1, lastCommits.size());
+    assertEquals(id("HEAD~1"), lastCommits.get("c.txt").getSha());
+  }
+
+  private String id(String revision) throws Exception {
+    return HelperGitCommands.runGit(repoDirectory, "rev-parse", revision);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
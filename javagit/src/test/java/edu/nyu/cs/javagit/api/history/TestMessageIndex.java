@@ -0,0 +1,97 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestMessageIndex extends TestCase {
+
+  private File repoDirectory;
+  private CommitStore store;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("MessageIndexTestRepo");
+    HelperGitCommands.initRepo(repoDirectory);
+    commit("Fix crash in the parser");
+    commit("Add null pointer checks, fix the fix");
+    commit("Pointer to null, not a null pointer");
+    store = new CommitStore(new File(repoDirectory, ".git"));
+  }
+
+  @Test
+  public void testQueries() throws Exception {
+    MessageIndex index = new MessageIndex(store);
+    assertEquals(3, index.update());
+
+    assertTrue(Arrays.equals(new int[] { 0, 1 }, index.findAll("FIX")));
+    assertTrue(Arrays.equals(new int[] { 0 }, index.findAll("fix", "crash")));
+    assertTrue(Arrays.equals(new int[] { 0, 1, 2 }, index.findAny("crash", "pointer")));
+    assertTrue(Arrays.equals(new int[] { 1, 2 }, index.findPhrase("null pointer")));
+    assertTrue(Arrays.equals(new int[] { 2 }, index.findPhrase("pointer to null")));
+    assertEquals(0, index.findAll("missing").length);
+
+    assertTrue(Arrays.equals(new int[] { 1, 0 }, index.findPositions("fix")));
+    assertTrue(Arrays.equals(new int[] { 2, 0 }, index.findPositions(
+        "crash OR \"pointer to\" null")));
+    assertTrue(Arrays.equals(new int[] { 1 }, index.findPositions("\"null pointer\" fix")));
+
+    List<Commit> commits = index.find("parser");
+    assertEquals(1, commits.size());
+    assertEquals(store.getId(0), commits.get(0).getSha());
+  }
+
+  @Test
+  public void testIndexesNewCommitsOnly() throws Exception {
+    MessageIndex index = new MessageIndex(store);
+    index.update();
+    int terms = index.getTermCount();
+    assertEquals(0, index.update());
+
+    commit("Parser speedup");
+    assertEquals(1, index.update());
+    assertEquals(4, index.getIndexedCount());
+    assertEquals(terms + 1, index.getTermCount());
+    assertTrue(Arrays.equals(new int[] { 3, 0 }, index.findPositions("parser")));
+  }
+
+  private void commit(String message) throws Exception {
+    HelperGitCommands.runGit(repoDirectory, "commit", "-q", "--allow-empty", "-m", message);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (null != store) {
+      store.close();
+    }
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
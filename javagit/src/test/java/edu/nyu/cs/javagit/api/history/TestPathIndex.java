@@ -0,0 +1,123 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.GitFile;
+import edu.nyu.cs.javagit.api.WorkingTree;
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestPathIndex extends TestCase {
+
+  private File repoDirectory;
+  private File gitDir;
+  private CommitStore store;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("PathIndexTestRepo");
+    gitDir = new File(repoDirectory, ".git");
+    HelperGitCommands.initRepo(repoDirectory);
+    FileUtilities.createFile(repoDirectory, "a.txt", "1\n2\n3\n4\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Create a");
+    new File(repoDirectory, "dir").mkdir();
+    FileUtilities.createFile(repoDirectory, "dir/b.txt", "b\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Create b");
+    FileUtilities.modifyFileContents(new File(repoDirectory, "a.txt"), "5\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Modify a");
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "-b", "side");
+    FileUtilities.modifyFileContents(new File(repoDirectory, "dir/b.txt"), "side\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Modify b on side");
+    HelperGitCommands.runGit(repoDirectory, "checkout", "-q", "-");
+    HelperGitCommands.runGit(repoDirectory, "mv", "a.txt", "c.txt");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Rename a to c");
+    store = new CommitStore(gitDir);
+  }
+
+  @Test
+  public void testHistoryLookups() throws Exception {
+    PathIndex index = new PathIndex(store, gitDir);
+    assertEquals(5, index.update());
+    String head = HelperGitCommands.runGit(repoDirectory, "rev-parse", "HEAD");
+    String side = HelperGitCommands.runGit(repoDirectory, "rev-parse", "side");
+    int create = position("HEAD~2~1");
+    int modify = position("HEAD~1");
+    int rename = position("HEAD");
+
+    assertTrue(Arrays.equals(new int[] { rename }, index.getHistory("c.txt", head, false)));
+    assertTrue(Arrays.equals(new int[] { rename, modify, create }, index.getHistory("c.txt",
+        head, true)));
+    assertEquals(Arrays.asList("a.txt"), index.getRenameSources("c.txt"));
+
+    assertEquals(position("HEAD~1~1"), index.getLastCommit("dir/b.txt", head));
+    assertEquals(store.indexOf(side), index.getLastCommit("dir", side));
+    assertEquals(position("HEAD~1~1"), index.getLastCommit("dir/", head));
+    assertEquals(rename, index.getLastCommit("", head));
+    assertEquals(-1, index.getLastCommit("missing.txt", head));
+    assertEquals(2, index.getPositions("dir").length);
+  }
+
+  @Test
+  public void testSavedIndexIsExtended() throws Exception {
+    new PathIndex(store, gitDir).update();
+
+    PathIndex reopened = new PathIndex(store, gitDir);
+    assertEquals(5, reopened.getIndexedCount());
+    FileUtilities.modifyFileContents(new File(repoDirectory, "c.txt"), "6\n");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Modify c");
+    assertEquals(1, reopened.update());
+    assertEquals(position("HEAD"), reopened.getLastCommit("c.txt", HelperGitCommands.runGit(
+        repoDirectory, "rev-parse", "HEAD")));
+  }
+
+  @Test
+  public void testGitFileHistory() throws Exception {
+    WorkingTree workingTree = WorkingTree.getInstance(repoDirectory);
+    GitFile file = workingTree.getFile(new File("c.txt"));
+    List<Commit> history = file.getHistory();
+    assertEquals(3, history.size());
+    assertEquals(HelperGitCommands.runGit(repoDirectory, "rev-parse", "HEAD"), history.get(0)
+        .getSha());
+    assertEquals(history.get(0).getSha(), file.getLastCommit().getSha());
+    workingTree.getDotGit().getCommitStore().close();
+  }
+
+  private int position(String revision) throws Exception {
+    return store.indexOf(HelperGitCommands.runGit(repoDirectory, "rev-parse", revision));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (null != store) {
+      store.close();
+    }
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.api.history;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestReachabilityBitmaps extends TestCase {
+
+  private File repoDirectory;
+  private CommitStore store;
+  private CommitGraph graph;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("ReachabilityBitmapsTestRepo");
+    HelperGitCommands.createBranchedRepo(repoDirectory);
+    store = new CommitStore(new File(repoDirectory, ".git"));
+    graph = new CommitGraph(store);
+  }
+
+  @Test
+  public void testQueriesWithBitmap() throws Exception {
+    HelperGitCommands.runGit(repoDirectory, "repack", "-a", "-d", "-q", "--write-bitmap-index");
+    // A commit made after the repack, which is not in the pack.
+    HelperGitCommands.commitNewFile(repoDirectory, "four");
+    graph.update();
+    ReachabilityBitmaps bitmaps = new ReachabilityBitmaps(graph);
+    assertTrue(bitmaps.hasBitmap());
+
+    for (String branch : new String[] { "master", "old", "feature" }) {
+      String id = HelperGitCommands.runGit(repoDirectory, "rev-parse", branch);
+      String count = HelperGitCommands.runGit(repoDirectory, "rev-list", "--count", id);
+      assertEquals(branch, Integer.parseInt(count), bitmaps.countCommits(id));
+    }
+    String feature = HelperGitCommands.runGit(repoDirectory, "rev-parse", "feature");
+    String objects = HelperGitCommands.runGit(repoDirectory, "rev-list", "--objects", feature);
+    assertEquals(objects.split("\n").length, bitmaps.countObjects(feature));
+    // The commit made after the repack has no bitmap, so its trees and blobs are not known.
+    assertEquals(-1, bitmaps.countObjects(HelperGitCommands.runGit(repoDirectory, "rev-parse",
+        "master")));
+
+    Map<String, Integer> counts = bitmaps.getPackObjectCounts();
+    assertEquals(Integer.valueOf(5), counts.get("commit"));
+    assertEquals(Integer.valueOf(0), counts.get("tag"));
+    int total = 0;
+    for (Integer count : counts.values()) {
+      total += count.intValue();
+    }
+    String countObjects = HelperGitCommands.runGit(repoDirectory, "count-objects", "-v");
+    assertTrue(countObjects, countObjects.contains("in-pack: " + total));
+
+    for (String commit : new String[] { "master~2", "master~1", "feature~1", "master" }) {
+      String id = HelperGitCommands.runGit(repoDirectory, "rev-parse", commit);
+      assertEquals(commit, HelperGitCommands.listBranches(repoDirectory, "--contains", id),
+          bitmaps.getBranchesContaining(id));
+      assertEquals(commit, HelperGitCommands.listBranches(repoDirectory, "--merged", id),
+          bitmaps.getBranchesMerged(id));
+    }
+  }
+
+  @Test
+  public void testQueriesWithoutBitmap() throws Exception {
+    graph.update();
+    ReachabilityBitmaps bitmaps = new ReachabilityBitmaps(graph);
+    assertFalse(bitmaps.hasBitmap());
+    String id = HelperGitCommands.runGit(repoDirectory, "rev-parse", "feature");
+    assertEquals(4, bitmaps.countCommits(id));
+    assertTrue(bitmaps.getPackObjectCounts().isEmpty());
+    String old = HelperGitCommands.runGit(repoDirectory, "rev-parse", "old");
+    assertEquals(HelperGitCommands.listBranches(repoDirectory, "--contains", old), bitmaps
+        .getBranchesContaining(old));
+    assertEquals(Arrays.asList("feature", "old"), bitmaps.getBranchesMerged(id));
+    assertEquals(-1, bitmaps.countCommits("0123456789012345678901234567890123456789"));
+    assertEquals(-1, bitmaps.countObjects(id));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (null != store) {
+      store.close();
+    }
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
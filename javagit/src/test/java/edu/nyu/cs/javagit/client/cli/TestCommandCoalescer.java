@@ -0,0 +1,219 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.RepositoryScheduler;
+import edu.nyu.cs.javagit.api.commands.GitLog;
+import edu.nyu.cs.javagit.api.commands.GitLogResponse.Commit;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestCommandCoalescer extends TestCase {
+
+  private static final List<String> COMMAND = Arrays.asList("git", "log");
+
+  private File repoDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    repoDirectory = FileUtilities.createTempDirectory("CommandCoalescerTestRepo");
+    HelperGitCommands.initRepo(repoDirectory);
+    FileUtilities.createFile(repoDirectory, "file.txt", "contents");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "First commit");
+  }
+
+  @Test
+  public void testConcurrentCallsShareOneRun() throws Exception {
+    final AtomicInteger runs = new AtomicInteger();
+    final CountDownLatch running = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final RepositoryScheduler.Operation<String> operation =
+        new RepositoryScheduler.Operation<String>() {
+      public String run() {
+        runs.incrementAndGet();
+        running.countDown();
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return "result";
+      }
+    };
+    final String[] results = new String[2];
+    Thread leader = new Thread() {
+      public void run() {
+        try {
+          results[0] = CommandCoalescer.run(repoDirectory, COMMAND, operation);
+        } catch (Exception e) {
+          results[0] = e.toString();
+        }
+      }
+    };
+    leader.start();
+    assertTrue(running.await(10, TimeUnit.SECONDS));
+
+    long shared = CommandCoalescer.getSharedCount();
+    Thread follower = new Thread() {
+      public void run() {
+        try {
+          results[1] = CommandCoalescer.run(repoDirectory, COMMAND, operation);
+        } catch (Exception e) {
+          results[1] = e.toString();
+        }
+      }
+    };
+    follower.start();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (CommandCoalescer.getSharedCount() == shared && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    release.countDown();
+    leader.join();
+    follower.join();
+
+    assertEquals(1, runs.get());
+    assertEquals("result", results[0]);
+    assertSame(results[0], results[1]);
+  }
+
+  @Test
+  public void testKeptResultsFollowTheRepositoryState() throws Exception {
+    CommandCoalescer.setTimeToLive(1, TimeUnit.HOURS);
+    final AtomicInteger runs = new AtomicInteger();
+    RepositoryScheduler.Operation<Integer> operation = new RepositoryScheduler.Operation<Integer>() {
+      public Integer run() {
+        return Integer.valueOf(runs.incrementAndGet());
+      }
+    };
+
+    assertEquals(1, CommandCoalescer.run(repoDirectory, COMMAND, operation).intValue());
+    assertEquals(1, CommandCoalescer.run(repoDirectory, COMMAND, operation).intValue());
+    assertEquals(2, CommandCoalescer.run(repoDirectory, Arrays.asList("git", "branch"), operation)
+        .intValue());
+
+    // A new commit moves the branch, so the kept result no longer applies.
+    Thread.sleep(20);
+    FileUtilities.createFile(repoDirectory, "other.txt", "other");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "Second commit");
+    assertEquals(3, CommandCoalescer.run(repoDirectory, COMMAND, operation).intValue());
+  }
+
+  @Test
+  public void testMovedHeadWithinTheSameFileTimeIsSeen() throws Exception {
+    CommandCoalescer.setTimeToLive(1, TimeUnit.HOURS);
+    final AtomicInteger runs = new AtomicInteger();
+    RepositoryScheduler.Operation<Integer> operation = new RepositoryScheduler.Operation<Integer>() {
+      public Integer run() {
+        return Integer.valueOf(runs.incrementAndGet());
+      }
+    };
+    assertEquals(1, CommandCoalescer.run(repoDirectory, COMMAND, operation).intValue());
+
+    // Move the branch, then give the ref file and its directory back their old times; the ref
+    // file keeps its length.
+    File ref = new File(repoDirectory, ".git/" + HelperGitCommands.runGit(repoDirectory,
+        "symbolic-ref", "HEAD"));
+    File refsDirectory = new File(repoDirectory, ".git/refs/heads");
+    long refTime = ref.lastModified();
+    long refsTime = refsDirectory.lastModified();
+    String head = HelperGitCommands.runGit(repoDirectory, "rev-parse", "HEAD");
+    String tree = HelperGitCommands.runGit(repoDirectory, "rev-parse", "HEAD^{tree}");
+    String commit = HelperGitCommands.writeCommit(repoDirectory, tree, 1000, "Second", head);
+    HelperGitCommands.runGit(repoDirectory, "update-ref", "HEAD", commit);
+    assertTrue(ref.setLastModified(refTime));
+    assertTrue(refsDirectory.setLastModified(refsTime));
+
+    assertEquals(2, CommandCoalescer.run(repoDirectory, COMMAND, operation).intValue());
+  }
+
+  @Test
+  public void testNestedBranchesAndTagsAreSeen() throws Exception {
+    CommandCoalescer.setTimeToLive(1, TimeUnit.HOURS);
+    final AtomicInteger runs = new AtomicInteger();
+    RepositoryScheduler.Operation<Integer> operation = new RepositoryScheduler.Operation<Integer>() {
+      public Integer run() {
+        return Integer.valueOf(runs.incrementAndGet());
+      }
+    };
+    List<String> branches = Arrays.asList("git", "branch", "-a");
+    HelperGitCommands.runGit(repoDirectory, "update-ref", "refs/heads/feature/x", "HEAD");
+    assertEquals(1, CommandCoalescer.run(repoDirectory, branches, operation).intValue());
+
+    // Neither ref changes the modification time of refs/heads itself.
+    HelperGitCommands.runGit(repoDirectory, "update-ref", "refs/heads/feature/y", "HEAD");
+    assertEquals(2, CommandCoalescer.run(repoDirectory, branches, operation).intValue());
+    HelperGitCommands.runGit(repoDirectory, "tag", "v1");
+    assertEquals(3, CommandCoalescer.run(repoDirectory, branches, operation).intValue());
+    assertEquals(3, CommandCoalescer.run(repoDirectory, branches, operation).intValue());
+  }
+
+  @Test
+  public void testEachLogCallerGetsItsOwnList() throws Exception {
+    CommandCoalescer.setTimeToLive(1, TimeUnit.HOURS);
+    List<Commit> first = new GitLog().log(repoDirectory);
+    List<Commit> second = new GitLog().log(repoDirectory);
+    assertNotSame(first, second);
+    first.clear();
+    assertEquals(1, second.size());
+    assertEquals(1, new GitLog().log(repoDirectory).size());
+  }
+
+  @Test
+  public void testFailuresAreNotKept() throws Exception {
+    CommandCoalescer.setTimeToLive(1, TimeUnit.HOURS);
+    final AtomicInteger runs = new AtomicInteger();
+    RepositoryScheduler.Operation<Object> operation = new RepositoryScheduler.Operation<Object>() {
+      public Object run() throws IOException {
+        runs.incrementAndGet();
+        throw new IOException("failed");
+      }
+    };
+    for (int i = 0; i < 2; i++) {
+      try {
+        CommandCoalescer.run(repoDirectory, COMMAND, operation);
+        fail("The failure was not reported");
+      } catch (IOException e) {
+        assertEquals("failed", e.getMessage());
+      }
+    }
+    assertEquals(2, runs.get());
+  }
+
+  @After
+  public void tearDown() throws JavaGitException {
+    CommandCoalescer.setTimeToLive(0, TimeUnit.MILLISECONDS);
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
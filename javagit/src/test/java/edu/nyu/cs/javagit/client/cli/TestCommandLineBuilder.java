@@ -0,0 +1,107 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.cli;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.commands.GitAdd;
+import edu.nyu.cs.javagit.api.commands.GitAddOptions;
+import edu.nyu.cs.javagit.api.commands.GitAddResponse;
+import edu.nyu.cs.javagit.api.commands.GitInit;
+import edu.nyu.cs.javagit.api.commands.GitRm;
+import edu.nyu.cs.javagit.api.commands.GitRmResponse;
+import edu.nyu.cs.javagit.api.commands.GitStatus;
+import edu.nyu.cs.javagit.api.commands.GitStatusResponse;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+public class TestCommandLineBuilder extends TestCase {
+
+  private File repoDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    // Small enough for a few dozen paths to need several command lines.
+    System.setProperty(CommandLineBuilder.LIMIT_PROPERTY, "1024");
+    repoDirectory = FileUtilities.createTempDirectory("CommandLineBuilderTestRepo");
+    new GitInit().init(repoDirectory);
+  }
+
+  @Test
+  public void testSplitKeepsPrefixAndSuffix() {
+    List<String> commandLine = new ArrayList<String>(Arrays.asList("git", "mv", "-k"));
+    for (int i = 0; i < 100; i++) {
+      commandLine.add("directory/file-" + i + ".txt");
+    }
+    commandLine.add("destination");
+
+    List<List<String>> commandLines = CommandLineBuilder.split(commandLine, 3, 103);
+    assertTrue(commandLines.size() > 1);
+    List<String> paths = new ArrayList<String>();
+    for (List<String> chunk : commandLines) {
+      assertTrue(CommandLineBuilder.fits(chunk));
+      assertEquals(Arrays.asList("git", "mv", "-k"), chunk.subList(0, 3));
+      assertEquals("destination", chunk.get(chunk.size() - 1));
+      paths.addAll(chunk.subList(3, chunk.size() - 1));
+    }
+    assertEquals(commandLine.subList(3, 103), paths);
+
+    List<String> small = Arrays.asList("git", "status", "a.txt");
+    assertEquals(1, CommandLineBuilder.split(small, 2, 3).size());
+    assertSame(small, CommandLineBuilder.split(small, 2, 3).get(0));
+  }
+
+  @Test
+  public void testChunkedAddStatusAndRm() throws Exception {
+    List<File> paths = new ArrayList<File>();
+    for (int i = 0; i < 80; i++) {
+      String name = "file-" + i + ".txt";
+      FileUtilities.createFile(repoDirectory, name, "contents " + i);
+      paths.add(new File(name));
+    }
+
+    GitAddOptions options = new GitAddOptions();
+    options.setVerbose(true);
+    GitAddResponse added = new GitAdd().add(repoDirectory, options, paths);
+    assertEquals(80, added.getFileListSize());
+
+    GitStatusResponse status = new GitStatus().status(repoDirectory, paths);
+    assertFalse(status.errorState());
+    String indexed = HelperGitCommands.runGit(repoDirectory, "ls-files");
+    assertEquals(80, indexed.split("\n").length);
+
+    GitRmResponse removed = new GitRm().rmCached(repoDirectory, paths);
+    assertEquals(80, removed.getRemovedFilesSize());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    System.clearProperty(CommandLineBuilder.LIMIT_PROPERTY);
+    if (repoDirectory.exists()) {
+      FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+    }
+  }
+}
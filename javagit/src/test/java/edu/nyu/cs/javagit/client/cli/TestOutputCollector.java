@@ -0,0 +1,54 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.cli;
+
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class TestOutputCollector extends TestCase {
+
+  @Test
+  public void testAwaitEndKeepsTheInterrupt() throws Exception {
+    final PipedOutputStream out = new PipedOutputStream();
+    OutputCollector collector = new OutputCollector(new PipedInputStream(out), "test-collector",
+        2);
+    collector.start();
+    Thread writer = new Thread() {
+      public void run() {
+        try {
+          Thread.sleep(100);
+          out.write("one\ntwo\nthree\n".getBytes());
+          out.close();
+        } catch (Exception e) {
+          // The collector then waits for the pipe to break.
+        }
+      }
+    };
+    writer.start();
+
+    Thread.currentThread().interrupt();
+    collector.awaitEnd();
+    assertTrue(Thread.interrupted());
+    assertFalse(collector.isAlive());
+    assertEquals("two\nthree", collector.getOutput());
+    writer.join();
+  }
+}
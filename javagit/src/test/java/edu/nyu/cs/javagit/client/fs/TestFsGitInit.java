@@ -0,0 +1,92 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.fs;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.DotGit;
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.api.commands.GitInitOptions;
+import edu.nyu.cs.javagit.api.commands.GitInitResponse;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+/**
+ * Test cases for our <code>FsGitInit</code> class.
+ */
+public class TestFsGitInit extends TestCase {
+
+  private File repoDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    repoDirectory = FileUtilities.createTempDirectory("TestFsGitInit_dir");
+  }
+
+  @After
+  public void tearDown() throws JavaGitException {
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+  }
+
+  @Test
+  public void testInitializedRepositoryIsUsable() throws IOException, JavaGitException {
+    DotGit dotGit = DotGit.getInstance(repoDirectory);
+    GitInitResponse response = dotGit.init();
+    assertTrue(response.isInitialized());
+    assertFalse(response.isReinitialized());
+
+    FileUtilities.createFile(repoDirectory, "file.txt", "contents");
+    HelperGitCommands.addAndCommitAll(repoDirectory, "First commit");
+    assertEquals(1, dotGit.getLog().size());
+    assertTrue(new File(repoDirectory, ".git/refs/heads/master").isFile());
+  }
+
+  @Test
+  public void testReinitialize() throws IOException, JavaGitException {
+    FsGitInit gitInit = new FsGitInit();
+    gitInit.init(repoDirectory);
+    File head = new File(repoDirectory, ".git/HEAD");
+    FsUtilities.writeFile(head, "ref: refs/heads/other\n");
+
+    GitInitResponse response = gitInit.init(repoDirectory);
+    assertFalse(response.isInitialized());
+    assertTrue(response.isReinitialized());
+    assertEquals("ref: refs/heads/other\n", FsUtilities.readFile(head));
+  }
+
+  @Test
+  public void testBareSharedRepository() throws IOException, JavaGitException {
+    GitInitOptions options = new GitInitOptions();
+    options.setOptBare(true);
+    options.setOptSharedGroup(true);
+    new FsGitInit().init(repoDirectory, options);
+
+    assertFalse(new File(repoDirectory, ".git").exists());
+    assertTrue(FsUtilities.isGitDirectory(repoDirectory));
+    String config = FsUtilities.readFile(new File(repoDirectory, "config"));
+    assertTrue(config.contains("bare = true"));
+    assertTrue(config.contains("sharedrepository = 1"));
+    assertTrue(config.contains("denyNonFastforwards = true"));
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * ====================================================================
+ * Copyright (c) 2008 JavaGit Project.  All rights reserved.
+ *
+ * This software is licensed using the GNU LGPL v2.1 license.  A copy
+ * of the license is included with the distribution of this source
+ * code in the LICENSE.txt file.  The text of the license can also
+ * be obtained at:
+ *
+ *   http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ *
+ * For more information on the JavaGit project, see:
+ *
+ *   http://www.javagit.com
+ * ====================================================================
+ */
+package edu.nyu.cs.javagit.client.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.nyu.cs.javagit.api.DotGit;
+import edu.nyu.cs.javagit.api.JavaGitException;
+import edu.nyu.cs.javagit.test.utilities.FileUtilities;
+import edu.nyu.cs.javagit.test.utilities.HelperGitCommands;
+
+/**
+ * Test cases for our <code>ObjectWriter</code> and <code>RefDatabase</code> classes.
+ */
+public class TestObjectWriter extends TestCase {
+
+  private File repoDirectory;
+  private DotGit dotGit;
+
+  @Before
+  public void setUp() throws IOException, JavaGitException {
+    repoDirectory = FileUtilities.createTempDirectory("TestObjectWriter_dir");
+    dotGit = DotGit.getInstance(repoDirectory);
+    dotGit.init();
+  }
+
+  @After
+  public void tearDown() throws JavaGitException {
+    FileUtilities.removeDirectoryRecursivelyAndForcefully(repoDirectory);
+  }
+
+  @Test
+  public void testBlobIdsMatchGit() throws IOException, JavaGitException {
+    ObjectWriter writer = dotGit.newObjectWriter();
+    String id = writer.writeBlob("hello\n".getBytes("UTF-8"));
+    assertEquals("ce013625030ba8dba906f756967f9e9ca394464a", id);
+    assertEquals(id, writer.hashBlob("hello\n".getBytes("UTF-8")));
+    assertEquals("hello", HelperGitCommands.runGit(repoDirectory, "cat-file", "-p", id));
+
+    // Writing the same object again is a no-op.
+    writer.writeBlob("hello\n".getBytes("UTF-8"));
+    assertEquals(1, writer.getObjectsWritten());
+
+    // Also by a writer which has not seen the fan-out directory yet.
+    ObjectWriter other = dotGit.newObjectWriter();
+    assertEquals(id, other.writeBlob("hello\n".getBytes("UTF-8")));
+    assertEquals(0, other.getObjectsWritten());
+  }
+
+  @Test
+  public void testCommitAndCompareAndSet() throws IOException, JavaGitException {
+    ObjectWriter writer = dotGit.newObjectWriter();
+    Map<String, ObjectWriter.TreeEntry> entries = new HashMap<String, ObjectWriter.TreeEntry>();
+    entries.put("a.txt", new ObjectWriter.TreeEntry(writer.writeBlob("a".getBytes("UTF-8"))));
+    entries.put("a/b.txt", new ObjectWriter.TreeEntry(writer.writeBlob("b".getBytes("UTF-8"))));
+    entries.put("a-c/run.sh", new ObjectWriter.TreeEntry(ObjectWriter.MODE_EXECUTABLE, writer
+        .writeBlob("c".getBytes("UTF-8"))));
+    String tree = writer.writeTree(entries);
+
+    PersonIdent ident = new PersonIdent("Test User", "test@example.com", 1200000000L, 60);
+    String first = writer.writeCommit(tree, null, ident, ident, "First commit");
+    List<String> parents = new ArrayList<String>();
+    parents.add(first);
+    String second = writer.writeCommit(tree, parents, ident, ident, "Second commit\n");
+
+    RefDatabase refs = dotGit.getRefDatabase();
+    assertNull(refs.resolve("HEAD"));
+    assertEquals(RefDatabase.Result.UPDATED, refs.compareAndSet("HEAD", null, first));
+    assertEquals(RefDatabase.Result.REJECTED, refs.compareAndSet("refs/heads/master", null,
+        second));
+    assertEquals(RefDatabase.Result.UPDATED, refs.compareAndSet("refs/heads/master", first,
+        second));
+    assertEquals(second, refs.resolve("HEAD"));
+    assertEquals(second, refs.getRefs("refs/heads/").get("refs/heads/master"));
+
+    // git accepts the objects and sees the history.
+    assertEquals("", HelperGitCommands.runGit(repoDirectory, "fsck", "--strict", "--no-dangling"));
+    assertEquals(tree, HelperGitCommands.runGit(repoDirectory, "rev-parse", "HEAD^{tree}"));
+    assertEquals("a-c/run.sh\na.txt\na/b.txt", HelperGitCommands.runGit(repoDirectory, "ls-tree",
+        "-r", "--name-only", "HEAD"));
+    assertEquals(2, dotGit.getLog().size());
+
+    // Malformed ids never reach the ref file.
+    String[] invalid = { second.substring(1), second + "0", second.substring(1) + "g", " " };
+    for (String id : invalid) {
+      try {
+        refs.compareAndSet("refs/heads/master", second, id);
+        fail("IllegalArgumentException not thrown.  { id=[" + id + "] }");
+      } catch (IllegalArgumentException e) {
+        assertTrue(e.getMessage().startsWith("000008: "));
+      }
+    }
+    assertEquals(second, refs.resolve("HEAD"));
+  }
+
+  @Test
+  public void testSubtreeGivenByIdSortsAsTree() throws Exception {
+    ObjectWriter writer = dotGit.newObjectWriter();
+    String blob = writer.writeBlob("x".getBytes("UTF-8"));
+    Map<String, ObjectWriter.TreeEntry> entries = new HashMap<String, ObjectWriter.TreeEntry>();
+    entries.put("x", new ObjectWriter.TreeEntry(blob));
+    String subtree = writer.writeTree(entries);
+
+    entries = new HashMap<String, ObjectWriter.TreeEntry>();
+    entries.put("foo", new ObjectWriter.TreeEntry(ObjectWriter.MODE_TREE, subtree));
+    entries.put("foo.c", new ObjectWriter.TreeEntry(blob));
+    String tree = writer.writeTree(entries);
+    // "foo" sorts as "foo/", after "foo.c".
+    assertEquals("foo.c\nfoo", HelperGitCommands.runGit(repoDirectory, "ls-tree",
+        "--name-only", tree));
+    // No branch points to the tree, so git notes that, but finds no error.
+    String fsck = HelperGitCommands.runGit(repoDirectory, "fsck", "--strict", "--no-dangling");
+    assertFalse(fsck, fsck.contains("error"));
+  }
+
+  @Test
+  public void testLockedRefIsNotUpdated() throws IOException, JavaGitException {
+    ObjectWriter writer = dotGit.newObjectWriter();
+    String blob = writer.writeBlob(new byte[0]);
+    Map<String, ObjectWriter.TreeEntry> entries = new HashMap<String, ObjectWriter.TreeEntry>();
+    entries.put("empty", new ObjectWriter.TreeEntry(blob));
+    PersonIdent ident = new PersonIdent("Test User", "test@example.com");
+    String commit = writer.writeCommit(writer.writeTree(entries), null, ident, ident, "Commit");
+
+    File lock = new File(repoDirectory, ".git/refs/heads/topic.lock");
+    assertTrue(lock.createNewFile());
+    RefDatabase refs = dotGit.getRefDatabase();
+    assertEquals(RefDatabase.Result.LOCK_FAILURE, refs.compareAndSet("refs/heads/topic", null,
+        commit));
+    assertTrue(lock.delete());
+    assertEquals(RefDatabase.Result.UPDATED, refs.compareAndSet("refs/heads/topic", null, commit));
+    assertFalse(lock.exists());
+  }
+}
@@ -19,6 +19,7 @@ package edu.nyu.cs.javagit.test.utilities;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import edu.nyu.cs.javagit.api.JavaGitConfiguration;
@@ -62,4 +63,180 @@ public class HelperGitCommands {
     });
   }
 
+  /**
+   * Stages every change in the working tree and commits it.
+   * 
+   * @param repoDirectory
+   *          The root directory of the repository.
+   * @param message
+   *          The commit message.
+   * @throws IOException
+   *           If IO errors happen.
+   * @throws JavaGitException
+   *           If errors happen while committing.
+   */
+  public static void addAndCommitAll(File repoDirectory, String message) throws IOException,
+      JavaGitException {
+    List<String> cmdLine = new ArrayList<String>();
+    cmdLine.add(JavaGitConfiguration.getGitCommand());
+    cmdLine.add("add");
+    cmdLine.add("-A");
+    runSilently(repoDirectory, cmdLine);
+
+    cmdLine = new ArrayList<String>();
+    cmdLine.add(JavaGitConfiguration.getGitCommand());
+    cmdLine.add("commit");
+    cmdLine.add("-q");
+    cmdLine.add("-m");
+    cmdLine.add(message);
+    runSilently(repoDirectory, cmdLine);
+  }
+
+  /**
+   * Runs a git command and returns its output.
+   * 
+   * @param repoDirectory
+   *          The directory to run the command in.
+   * @param args
+   *          The arguments of the git command, e.g. "cat-file", "-t", "HEAD".
+   * @return The output of the command (stdout and stderr), one line per line, without the
+   *         trailing newline.
+   */
+  public static String runGit(File repoDirectory, String... args) throws IOException,
+      JavaGitException {
+    List<String> cmdLine = new ArrayList<String>();
+    cmdLine.add(JavaGitConfiguration.getGitCommand());
+    for (String arg : args) {
+      cmdLine.add(arg);
+    }
+    final StringBuffer output = new StringBuffer();
+    ProcessUtilities.runCommand(repoDirectory, cmdLine, new IParser() {
+      public CommandResponse getResponse() {
+        return null;
+      }
+
+      public void processExitCode(int code) {
+      }
+
+      public void parseLine(String line) {
+        if (output.length() > 0) {
+          output.append('\n');
+        }
+        output.append(line);
+      }
+    });
+    return output.toString();
+  }
+
+  /**
+   * Writes a commit object with a fixed author and commit time, without touching the working tree,
+   * the index or any ref.
+   * 
+   * @param repoDirectory
+   *          The root directory of the repository.
+   * @param tree
+   *          The id of the tree of the commit.
+   * @param time
+   *          The author and commit time, in seconds since the epoch.
+   * @param message
+   *          The commit message.
+   * @param parents
+   *          The ids of the parents of the commit.
+   * @return The id of the commit.
+   */
+  public static String writeCommit(File repoDirectory, String tree, long time, String message,
+      String... parents) throws IOException, JavaGitException {
+    StringBuffer text = new StringBuffer();
+    text.append("tree ").append(tree).append('\n');
+    for (String parent : parents) {
+      text.append("parent ").append(parent).append('\n');
+    }
+    text.append("author t <t@t> ").append(time).append(" +0000\n");
+    text.append("committer t <t@t> ").append(time).append(" +0000\n");
+    text.append('\n').append(message).append('\n');
+    File file = File.createTempFile("commit", ".tmp", repoDirectory);
+    try {
+      FileUtilities.modifyFileContents(file, text.toString());
+      return runGit(repoDirectory, "hash-object", "-t", "commit", "-w", file.getName());
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Commits a new file named after the commit message, with the message as its content.
+   * 
+   * @param repoDirectory
+   *          The root directory of the repository.
+   * @param message
+   *          The commit message, different from those of the other commits of the repository.
+   */
+  public static void commitNewFile(File repoDirectory, String message) throws IOException,
+      JavaGitException {
+    FileUtilities.createFile(repoDirectory, message.replace(' ', '-') + ".txt", message + "\n");
+    addAndCommitAll(repoDirectory, message);
+  }
+
+  /**
+   * Initializes a repository with a few branches, for the history tests: master has the commits
+   * "one", "two" and "three", "old" points to "two", and "feature" has "feature one" and
+   * "feature two" on top of "two". master is checked out.
+   * 
+   * @param repoDirectory
+   *          The root directory of the repository.
+   */
+  public static void createBranchedRepo(File repoDirectory) throws IOException,
+      JavaGitException {
+    initRepo(repoDirectory);
+    commitNewFile(repoDirectory, "one");
+    commitNewFile(repoDirectory, "two");
+    runGit(repoDirectory, "branch", "old");
+    runGit(repoDirectory, "checkout", "-q", "-b", "feature");
+    commitNewFile(repoDirectory, "feature one");
+    commitNewFile(repoDirectory, "feature two");
+    runGit(repoDirectory, "checkout", "-q", "master");
+    commitNewFile(repoDirectory, "three");
+  }
+
+  /**
+   * Lists branches with <code>git branch</code>.
+   * 
+   * @param repoDirectory
+   *          The root directory of the repository.
+   * @param args
+   *          The options of the command, e.g. "--contains", "HEAD~1".
+   * @return The short names of the branches, as git sorts them.
+   */
+  public static List<String> listBranches(File repoDirectory, String... args) throws IOException,
+      JavaGitException {
+    String[] command = new String[args.length + 2];
+    command[0] = "branch";
+    command[1] = "--format=%(refname:short)";
+    System.arraycopy(args, 0, command, 2, args.length);
+    String names = runGit(repoDirectory, command);
+    List<String> branches = new ArrayList<String>();
+    if (names.length() > 0) {
+      branches.addAll(Arrays.asList(names.split("\n")));
+    }
+    return branches;
+  }
+
+  /*
+   * Runs a git command, ignoring its output.
+   */
+  private static void runSilently(File repoDirectory, List<String> cmdLine) throws IOException,
+      JavaGitException {
+    ProcessUtilities.runCommand(repoDirectory, cmdLine, new IParser() {
+      public CommandResponse getResponse() {
+        return null;
+      }
+
+      public void processExitCode(int code) {
+      }
+
+      public void parseLine(String line) {
+      }
+    });
+  }
+
 }